@@ -13,6 +13,11 @@
 package org.eclipse.kapua.broker.core.converter;
 
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
@@ -31,11 +36,15 @@ import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor;
 import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor.MessageType;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.metric.MetricTags;
 import org.eclipse.kapua.service.metric.MetricsService;
+import org.eclipse.kapua.service.metric.ScopedMetric;
+import org.eclipse.kapua.transport.message.jms.JmsPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 
 /**
  * Kapua message converter reference implementation used to convert from Camel incoming messages ({@link JmsMessage}) to a platform specific message type.
@@ -49,10 +58,13 @@ public abstract class AbstractKapuaConverter {
     // metrics
     protected final static String METRIC_COMPONENT_NAME = "converter";
     protected final static MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+    private final static String NO_CONNECTOR = "none";
 
     private final Counter metricConverterJmsMessage;
     private final Counter metricConverterJmsErrorMessage;
     private final Counter metricConverterErrorMessage;
+    // conversion timers by connector name and message type
+    private final ConcurrentMap<String, Map<MessageType, ScopedMetric<Timer>>> metricConvertTimers = new ConcurrentHashMap<>();
 
     /**
      * Constructor
@@ -68,6 +80,7 @@ public abstract class AbstractKapuaConverter {
      *
      * @param exchange
      * @param value
+     *            the message body (byte[]), used only if the jms message content cannot be viewed directly. If {@code null} the body is read from the exchange when needed
      * @param messageType
      *            expected incoming message type
      * @return Message container that contains message of asked type
@@ -79,11 +92,23 @@ public abstract class AbstractKapuaConverter {
         JmsMessage message = exchange.getIn(JmsMessage.class);
         if (message.getJmsMessage() instanceof BytesMessage) {
             try {
+                long start = System.nanoTime();
                 Date queuedOn = new Date(message.getHeader(CamelConstants.JMS_HEADER_TIMESTAMP, Long.class));
                 KapuaId connectionId = message.getHeader(MessageConstants.HEADER_KAPUA_CONNECTION_ID, KapuaId.class);
                 String clientId = (String) message.getHeader(MessageConstants.HEADER_KAPUA_CLIENT_ID);
                 ConnectorDescriptor connectorDescriptor = message.getHeader(MessageConstants.HEADER_KAPUA_CONNECTOR_DEVICE_PROTOCOL, ConnectorDescriptor.class);
-                return JmsUtil.convertToCamelKapuaMessage(connectorDescriptor, messageType, (byte[]) value, CamelUtil.getTopic(message), queuedOn, connectionId, clientId);
+                // view the jms message content (no copy) when possible
+                JmsPayload payload = JmsUtil.getContentPayload(message.getJmsMessage());
+                if (payload == null) {
+                    payload = new JmsPayload(value != null ? (byte[]) value : message.getBody(byte[].class));
+                }
+                CamelKapuaMessage<?> camelKapuaMessage = JmsUtil.convertToCamelKapuaMessage(connectorDescriptor, messageType, payload, CamelUtil.getParsedTopic(exchange).getJmsTopic(), queuedOn,
+                        connectionId, clientId);
+                // conversion time (including the translation) by connector, message type and scope
+                getConvertTimer(message.getHeader(MessageConstants.HEADER_KAPUA_CONNECTOR_NAME, String.class), messageType)
+                        .get(camelKapuaMessage.getMessage().getScopeId())
+                        .update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return camelKapuaMessage;
             } catch (JMSException e) {
                 metricConverterErrorMessage.inc();
                 logger.error("Exception converting message {}", e.getMessage(), e);
@@ -94,6 +119,29 @@ public abstract class AbstractKapuaConverter {
         throw KapuaException.internalError("Cannot convert the message - Wrong instance type: " + exchange.getIn().getClass());
     }
 
+    /**
+     * Get the conversion timer of the connector and message type (the timers of a connector are created, with their tags, on the first message of the connector)
+     *
+     * @param connectorName
+     * @param messageType
+     * @return
+     */
+    private ScopedMetric<Timer> getConvertTimer(String connectorName, MessageType messageType) {
+        String connector = connectorName != null ? connectorName : NO_CONNECTOR;
+        Map<MessageType, ScopedMetric<Timer>> connectorTimers = metricConvertTimers.get(connector);
+        if (connectorTimers == null) {
+            connectorTimers = metricConvertTimers.computeIfAbsent(connector, name -> {
+                MetricTags tags = MetricTags.of(MetricTags.CONNECTOR, name);
+                Map<MessageType, ScopedMetric<Timer>> timers = new EnumMap<>(MessageType.class);
+                for (MessageType type : MessageType.values()) {
+                    timers.put(type, metricsService.getScopedTimer(tags.and(MetricTags.MESSAGE_TYPE, type.name()), METRIC_COMPONENT_NAME, "kapua", "convert", "time", "s"));
+                }
+                return timers;
+            });
+        }
+        return connectorTimers.get(messageType);
+    }
+
     /**
      * Convert incoming message to a javax.jms.Message
      *
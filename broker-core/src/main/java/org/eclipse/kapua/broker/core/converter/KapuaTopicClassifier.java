@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.converter;
+
+import javax.jms.JMSException;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.eclipse.kapua.broker.core.listener.DataStorageMessageProcessor;
+import org.eclipse.kapua.broker.core.listener.DeviceMessageListener;
+import org.eclipse.kapua.broker.core.message.CamelKapuaMessage;
+import org.eclipse.kapua.broker.core.message.CamelUtil;
+import org.eclipse.kapua.broker.core.message.MessageConstants;
+import org.eclipse.kapua.broker.core.message.ParsedTopic;
+import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor.MessageType;
+
+/**
+ * Camel processor classifying the incoming messages by topic and dispatching them to the proper converter and listener.<br>
+ * It replaces the chain of topic regular expressions of the route: the topic is split once (see {@link ParsedTopic}) and the message type is selected by a switch on the topic tokens.<br>
+ * The {@link ParsedTopic} is attached to the exchange (with key {@link MessageConstants#PROPERTY_PARSED_TOPIC}), so the converters don't split the topic again.
+ *
+ * @since 1.0
+ */
+public class KapuaTopicClassifier implements Processor {
+
+    private final KapuaLifeCycleConverter lifeCycleConverter;
+    private final KapuaDataConverter dataConverter;
+    private final DeviceMessageListener deviceMessageListener;
+    private final DataStorageMessageProcessor dataStorageMessageProcessor;
+
+    /**
+     * Constructor
+     *
+     * @param lifeCycleConverter
+     * @param dataConverter
+     * @param deviceMessageListener
+     * @param dataStorageMessageProcessor
+     */
+    public KapuaTopicClassifier(KapuaLifeCycleConverter lifeCycleConverter, KapuaDataConverter dataConverter,
+            DeviceMessageListener deviceMessageListener, DataStorageMessageProcessor dataStorageMessageProcessor) {
+        this.lifeCycleConverter = lifeCycleConverter;
+        this.dataConverter = dataConverter;
+        this.deviceMessageListener = deviceMessageListener;
+        this.dataStorageMessageProcessor = dataStorageMessageProcessor;
+    }
+
+    /**
+     * Classify the message of the exchange by topic, attaching the {@link ParsedTopic} to the exchange
+     *
+     * @param exchange
+     * @return the message type
+     * @throws JMSException
+     *             if the message topic cannot be evaluated
+     */
+    public static MessageType classify(Exchange exchange) throws JMSException {
+        return CamelUtil.getParsedTopic(exchange).getMessageType();
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void process(Exchange exchange) throws Exception {
+        MessageType messageType = classify(exchange);
+        // the converters view the jms message content directly, so the body is not extracted (copied) by camel
+        Object value = null;
+
+        switch (messageType) {
+        case BIRTH:
+            deviceMessageListener.processBirthMessage((CamelKapuaMessage) setBody(exchange, lifeCycleConverter.convertToBirth(exchange, value)));
+            break;
+        case DISCONNECT:
+            deviceMessageListener.processDisconnectMessage((CamelKapuaMessage) setBody(exchange, lifeCycleConverter.convertToDisconnect(exchange, value)));
+            break;
+        case APP:
+            deviceMessageListener.processAppsMessage((CamelKapuaMessage) setBody(exchange, lifeCycleConverter.convertToApps(exchange, value)));
+            break;
+        case MISSING:
+            deviceMessageListener.processMissingMessage((CamelKapuaMessage) setBody(exchange, lifeCycleConverter.convertToMissing(exchange, value)));
+            break;
+        case NOTIFY:
+            deviceMessageListener.processNotifyMessage((CamelKapuaMessage) setBody(exchange, lifeCycleConverter.convertToNotify(exchange, value)));
+            break;
+        case UNMATCHED:
+            deviceMessageListener.processUnmatchedMessage((CamelKapuaMessage) setBody(exchange, lifeCycleConverter.convertToUnmatched(exchange, value)));
+            break;
+        default:
+            dataStorageMessageProcessor.processMessage(setBody(exchange, dataConverter.convertToData(exchange, value)));
+        }
+    }
+
+    /**
+     * Set the converted message as exchange body (as the converter bean step of the route did)
+     */
+    private static CamelKapuaMessage<?> setBody(Exchange exchange, CamelKapuaMessage<?> message) {
+        exchange.getIn().setBody(message);
+        return message;
+    }
+
+}
@@ -13,7 +13,9 @@
 package org.eclipse.kapua.broker.core.listener;
 
 import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.metric.MetricTags;
 import org.eclipse.kapua.service.metric.MetricsService;
+import org.eclipse.kapua.service.metric.ScopedMetric;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Timer;
@@ -79,4 +81,16 @@ public abstract class AbstractListener
         return metricsService.getTimer(metricComponentName, name, names);
     }
 
+    /**
+     * Register the Timers by scope with the specified names as suffix (see {@link ScopedMetric}).<BR>
+     * The prefix is described by a combination of constructor parameters name and metricComponentName depending on which constructor will be used.
+     * 
+     * @param names
+     * @return
+     */
+    protected ScopedMetric<Timer> registerScopedTimer(String... names)
+    {
+        return metricsService.getScopedTimer(MetricTags.EMPTY, metricComponentName, name, names);
+    }
+
 }
@@ -12,11 +12,14 @@
  *******************************************************************************/
 package org.eclipse.kapua.broker.core.listener;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.camel.spi.UriEndpoint;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.broker.core.message.CamelKapuaMessage;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.service.datastore.MessageStoreService;
+import org.eclipse.kapua.service.metric.ScopedMetric;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +43,7 @@ public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMes
     private Counter metricStorageDataErrorMessage;
     // store timers
     private Timer metricStorageDataSaveTime;
+    private ScopedMetric<Timer> metricStorageScopeSaveTime;
 
     private MessageStoreService    messageStoreService    = KapuaLocator.getInstance().getService(MessageStoreService.class);
 
@@ -51,6 +55,7 @@ public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMes
         metricStorageDataErrorMessage = registerCounter("listener", "storage", "messages", "data", "error", "count");
         // store timers
         metricStorageDataSaveTime = registerTimer("listener", "storage", "store", "data", "time", "s");
+        metricStorageScopeSaveTime = registerScopedTimer("listener", "storage", "store", "time", "s");
     }
 
     /**
@@ -68,7 +73,9 @@ public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMes
             logger.debug("Received data message from device channel: client id '{}' - {}", message.getMessage().getClientId(), message.getMessage().getChannel());
             messageStoreService.store(message.getMessage());
             metricStorageMessage.inc();
-            metricStorageDataSaveTimeContext.stop();
+            long elapsed = metricStorageDataSaveTimeContext.stop();
+            // store time by scope
+            metricStorageScopeSaveTime.get(message.getMessage().getScopeId()).update(elapsed, TimeUnit.NANOSECONDS);
         } catch (KapuaException e) {
             metricStorageDataErrorMessage.inc();
             logger.error("An error occurred while storing message: {}", e);
@@ -16,6 +16,7 @@ import javax.jms.JMSException;
 
 import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.ActiveMQTopic;
+import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.eclipse.kapua.broker.core.listener.CamelConstants;
 import org.eclipse.kapua.broker.core.plugin.AclConstants;
@@ -54,4 +55,21 @@ public class CamelUtil {
         }
     }
 
+    /**
+     * Get the {@link ParsedTopic} attached to the {@link Exchange} (with key {@link MessageConstants#PROPERTY_PARSED_TOPIC}).<br>
+     * If the topic is not parsed yet, it is parsed and attached to the exchange, so the following route steps don't parse it again.
+     *
+     * @param exchange
+     * @return
+     * @throws JMSException
+     */
+    public static ParsedTopic getParsedTopic(Exchange exchange) throws JMSException {
+        ParsedTopic parsedTopic = exchange.getProperty(MessageConstants.PROPERTY_PARSED_TOPIC, ParsedTopic.class);
+        if (parsedTopic == null) {
+            parsedTopic = ParsedTopic.parse(getTopic(exchange.getIn()));
+            exchange.setProperty(MessageConstants.PROPERTY_PARSED_TOPIC, parsedTopic);
+        }
+        return parsedTopic;
+    }
+
 }
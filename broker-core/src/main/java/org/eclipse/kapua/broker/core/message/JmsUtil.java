@@ -13,20 +13,29 @@
 package org.eclipse.kapua.broker.core.message;
 
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Topic;
 
+import org.apache.activemq.command.ActiveMQBytesMessage;
 import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.util.ByteSequence;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.broker.core.converter.AbstractKapuaConverter;
 import org.eclipse.kapua.broker.core.plugin.AclConstants;
 import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor;
 import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor.MessageType;
+import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.message.KapuaMessage;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.device.call.message.DeviceMessage;
+import org.eclipse.kapua.service.metric.MetricTags;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.eclipse.kapua.service.metric.ScopedMetric;
 import org.eclipse.kapua.translator.Translator;
 import org.eclipse.kapua.transport.message.jms.JmsMessage;
 import org.eclipse.kapua.transport.message.jms.JmsPayload;
@@ -34,6 +43,8 @@ import org.eclipse.kapua.transport.message.jms.JmsTopic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Timer;
+
 /**
  * Jms message utility class
  *
@@ -43,6 +54,17 @@ public class JmsUtil {
 
     public static final Logger logger = LoggerFactory.getLogger(JmsUtil.class);
 
+    private static final MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+    // translation timers by message type
+    private static final Map<MessageType, ScopedMetric<Timer>> metricTranslateTimers = new EnumMap<>(MessageType.class);
+
+    static {
+        for (MessageType messageType : MessageType.values()) {
+            metricTranslateTimers.put(messageType,
+                    metricsService.getScopedTimer(MetricTags.of(MetricTags.MESSAGE_TYPE, messageType.name()), "converter", "kapua", "translate", "time", "s"));
+        }
+    }
+
     /**
      * Return the topic for the message's destination
      *
@@ -62,6 +84,23 @@ public class JmsUtil {
         return jmsTopic;
     }
 
+    /**
+     * Get a payload viewing the content of the ActiveMQ bytes message, without copying it.
+     *
+     * @param jmsMessage
+     * @return the payload or {@code null} if the message content cannot be viewed (not an ActiveMQ bytes message, empty content or content compressed by the broker)
+     */
+    public static JmsPayload getContentPayload(javax.jms.Message jmsMessage) {
+        if (jmsMessage instanceof ActiveMQBytesMessage) {
+            ActiveMQBytesMessage activeMQBytesMessage = (ActiveMQBytesMessage) jmsMessage;
+            ByteSequence content = activeMQBytesMessage.getContent();
+            if (content != null && content.getLength() > 0 && !activeMQBytesMessage.isCompressed()) {
+                return new JmsPayload(content.getData(), content.getOffset(), content.getLength());
+            }
+        }
+        return null;
+    }
+
     /**
      * Convert a {@link BytesMessage} to {@link CamelKapuaMessage}
      *
@@ -73,8 +112,7 @@ public class JmsUtil {
             throws JMSException, KapuaException {
         String jmsTopic = jmsMessage.getStringProperty(MessageConstants.PROPERTY_ORIGINAL_TOPIC);
         Date queuedOn = new Date(jmsMessage.getLongProperty(MessageConstants.PROPERTY_ENQUEUED_TIMESTAMP));
-        return convertToKapuaMessage(connectorDescriptor, connectorDescriptor.getDeviceClass(messageType), connectorDescriptor.getKapuaClass(messageType), jmsMessage, jmsTopic, queuedOn, connectionId,
-                clientId);
+        return convertToKapuaMessage(connectorDescriptor, messageType, jmsMessage, jmsTopic, queuedOn, connectionId, clientId);
     }
 
     /**
@@ -105,18 +143,21 @@ public class JmsUtil {
      */
 
     // TODO check the code with huge messages
-    private static CamelKapuaMessage<?> convertToKapuaMessage(ConnectorDescriptor connectorDescriptor, Class<? extends DeviceMessage<?, ?>> deviceMessageType,
-            Class<? extends KapuaMessage<?, ?>> kapuaMessageType, BytesMessage jmsMessage, String jmsTopic,
+    private static CamelKapuaMessage<?> convertToKapuaMessage(ConnectorDescriptor connectorDescriptor, MessageType messageType, BytesMessage jmsMessage, String jmsTopic,
             Date queuedOn, KapuaId connectionId, String clientId)
             throws JMSException, KapuaException {
-        byte[] payload = null;
-        // TODO JMS message have no size limits!
-        if (jmsMessage.getBodyLength() > 0) {
-            payload = new byte[(int) jmsMessage.getBodyLength()];
-            int readBytes = jmsMessage.readBytes(payload);
-            logger.debug("Message conversion... {} bytes read!", readBytes);
+        JmsPayload payload = getContentPayload(jmsMessage);
+        if (payload == null) {
+            byte[] body = null;
+            // TODO JMS message have no size limits!
+            if (jmsMessage.getBodyLength() > 0) {
+                body = new byte[(int) jmsMessage.getBodyLength()];
+                int readBytes = jmsMessage.readBytes(body);
+                logger.debug("Message conversion... {} bytes read!", readBytes);
+            }
+            payload = new JmsPayload(body);
         }
-        KapuaMessage<?, ?> kapuaMessage = convertToKapuaMessage(deviceMessageType, kapuaMessageType, payload, jmsTopic, queuedOn, connectionId, clientId);
+        KapuaMessage<?, ?> kapuaMessage = convertToKapuaMessage(connectorDescriptor, messageType, payload, new JmsTopic(jmsTopic), queuedOn, connectionId, clientId);
         return new CamelKapuaMessage<>(kapuaMessage, connectionId, connectorDescriptor);
     }
 
@@ -135,34 +176,60 @@ public class JmsUtil {
     public static CamelKapuaMessage<?> convertToCamelKapuaMessage(ConnectorDescriptor connectorDescriptor, MessageType messageType, byte[] messageBody, String jmsTopic, Date queuedOn,
             KapuaId connectionId, String clientId)
             throws KapuaException {
-        KapuaMessage<?, ?> kapuaMessage = convertToKapuaMessage(connectorDescriptor.getDeviceClass(messageType), connectorDescriptor.getKapuaClass(messageType), messageBody, jmsTopic, queuedOn,
-                connectionId, clientId);
+        return convertToCamelKapuaMessage(connectorDescriptor, messageType, new JmsPayload(messageBody), new JmsTopic(jmsTopic), queuedOn, connectionId, clientId);
+    }
+
+    /**
+     * Convert raw byte[] message to {@link CamelKapuaMessage}
+     *
+     * @param connectorDescriptor
+     * @param messageType
+     * @param messagePayload
+     *            the message payload (e.g. a view of the jms message content by {@link #getContentPayload(javax.jms.Message)})
+     * @param jmsTopic
+     *            the jms topic (e.g. already split by {@link ParsedTopic#getJmsTopic()})
+     * @param queuedOn
+     * @param connectionId
+     * @return
+     * @throws KapuaException
+     */
+    public static CamelKapuaMessage<?> convertToCamelKapuaMessage(ConnectorDescriptor connectorDescriptor, MessageType messageType, JmsPayload messagePayload, JmsTopic jmsTopic, Date queuedOn,
+            KapuaId connectionId, String clientId)
+            throws KapuaException {
+        KapuaMessage<?, ?> kapuaMessage = convertToKapuaMessage(connectorDescriptor, messageType, messagePayload, jmsTopic, queuedOn, connectionId, clientId);
         return new CamelKapuaMessage<KapuaMessage<?, ?>>(kapuaMessage, connectionId, connectorDescriptor);
     }
 
     /**
-     * Convert raw byte[] message to {@link KapuaMessage}
+     * Convert raw byte[] message to {@link KapuaMessage}.<br>
+     * The translation time is measured by scope and message type.
      *
-     * @param deviceMessageType
-     * @param kapuaMessageType
-     * @param messageBody
+     * @param connectorDescriptor
+     * @param messageType
+     * @param messagePayload
      * @param jmsTopic
      * @param queuedOn
      * @param connectionId
      * @return
      * @throws KapuaException
      */
-    private static KapuaMessage<?, ?> convertToKapuaMessage(Class<? extends DeviceMessage<?, ?>> deviceMessageType, Class<? extends KapuaMessage<?, ?>> kapuaMessageType, byte[] messageBody,
-            String jmsTopic, Date queuedOn, KapuaId connectionId, String clientId)
+    private static KapuaMessage<?, ?> convertToKapuaMessage(ConnectorDescriptor connectorDescriptor, MessageType messageType, JmsPayload messagePayload,
+            JmsTopic jmsTopic, Date queuedOn, KapuaId connectionId, String clientId)
             throws KapuaException {
+        long start = System.nanoTime();
+        Class<? extends DeviceMessage<?, ?>> deviceMessageType = connectorDescriptor.getDeviceClass(messageType);
+        Class<? extends KapuaMessage<?, ?>> kapuaMessageType = connectorDescriptor.getKapuaClass(messageType);
+
         // first step... from jms to device dependent protocol level (unknown)
         Translator<JmsMessage, DeviceMessage<?, ?>> translatorFromJms = Translator.getTranslatorFor(JmsMessage.class, deviceMessageType);// birth ...
-        DeviceMessage<?, ?> deviceMessage = translatorFromJms.translate(new JmsMessage(new JmsTopic(jmsTopic), queuedOn, new JmsPayload(messageBody)));
+        DeviceMessage<?, ?> deviceMessage = translatorFromJms.translate(new JmsMessage(jmsTopic, queuedOn, messagePayload));
 
         // second step.... from device dependent protocol (unknown) to Kapua
         Translator<DeviceMessage<?, ?>, KapuaMessage<?, ?>> translatorToKapua = Translator.getTranslatorFor(deviceMessageType, kapuaMessageType);
         KapuaMessage message = translatorToKapua.translate(deviceMessage);
         message.setClientId(clientId);
+
+        metricTranslateTimers.get(messageType).get(message.getScopeId()).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         return message;
     }
 
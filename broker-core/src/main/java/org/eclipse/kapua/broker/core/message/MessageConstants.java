@@ -26,6 +26,8 @@ public class MessageConstants {
     public static final String METRIC_IP = "ip";
     public final static String PROPERTY_ORIGINAL_TOPIC = "originalTopic";
     public final static String PROPERTY_ENQUEUED_TIMESTAMP = "enqueuedTimestamp";
+    // exchange property holding the ParsedTopic of the message
+    public final static String PROPERTY_PARSED_TOPIC = "kapuaParsedTopic";
 
     // used by login update info asynch
     public static final String METRIC_USER_ID = "userId";
@@ -34,6 +36,7 @@ public class MessageConstants {
     public static final String HEADER_KAPUA_CONNECTION_ID = "KAPUA_CONNECTION_ID";
     public static final String HEADER_KAPUA_CLIENT_ID = "KAPUA_CLIENT_ID";
     public static final String HEADER_KAPUA_CONNECTOR_DEVICE_PROTOCOL = "KAPUA_DEVICE_PROTOCOL";
+    public static final String HEADER_KAPUA_CONNECTOR_NAME = "KAPUA_CONNECTOR_NAME";
     public static final String HEADER_KAPUA_SESSION = "KAPUA_SESSION";
 
 }
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.message;
+
+import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor.MessageType;
+import org.eclipse.kapua.transport.message.jms.JmsTopic;
+
+/**
+ * Jms topic split once and classified by message type.<br>
+ * The topic is classified as the previous regular expressions of the main broker route did:
+ * <ul>
+ * <li>life cycle message ({@link MessageType#BIRTH}, {@link MessageType#DISCONNECT}, {@link MessageType#APP}, {@link MessageType#MISSING}, {@link MessageType#NOTIFY}) if it matches
+ * {@code $EDC.<at least two tokens>.MQTT.<BIRTH|DC|APPS|LWT|NOTIFY>} (the whole topic)</li>
+ * <li>{@link MessageType#UNMATCHED} for any other control topic (starting with {@code $EDC.})</li>
+ * <li>{@link MessageType#DATA} otherwise (a bare {@code $EDC} topic too)</li>
+ * </ul>
+ *
+ * @since 1.0
+ */
+public class ParsedTopic {
+
+    private static final String CONTROL_TOPIC_PREFIX = "$EDC.";
+    private static final String LIFE_CYCLE_TOKEN = "MQTT";
+    private static final String TOPIC_SEPARATOR_REGEX = "\\.";
+
+    private final String topic;
+    private final String[] tokens;
+    private final MessageType messageType;
+
+    private ParsedTopic(String topic, String[] tokens, MessageType messageType) {
+        this.topic = topic;
+        this.tokens = tokens;
+        this.messageType = messageType;
+    }
+
+    /**
+     * Split and classify the jms topic
+     *
+     * @param topic
+     *            the jms topic (with '.' as separator)
+     * @return
+     */
+    public static ParsedTopic parse(String topic) {
+        String[] tokens = topic.split(TOPIC_SEPARATOR_REGEX);
+        return new ParsedTopic(topic, tokens, classify(topic, tokens));
+    }
+
+    private static MessageType classify(String topic, String[] tokens) {
+        if (!topic.startsWith(CONTROL_TOPIC_PREFIX)) {
+            return MessageType.DATA;
+        }
+        // like the previous route regular expressions (^\$EDC\.(.*\.){2}MQTT\.BIRTH matching the whole topic)
+        // the life cycle tokens are the last two (the split drops a trailing empty token), after at least two other tokens
+        int length = tokens.length;
+        if (length < 5 || topic.endsWith(".") || !LIFE_CYCLE_TOKEN.equals(tokens[length - 2])) {
+            return MessageType.UNMATCHED;
+        }
+        switch (tokens[length - 1]) {
+        case "BIRTH":
+            return MessageType.BIRTH;
+        case "DC":
+            return MessageType.DISCONNECT;
+        case "APPS":
+            return MessageType.APP;
+        case "LWT":
+            return MessageType.MISSING;
+        case "NOTIFY":
+            return MessageType.NOTIFY;
+        default:
+            return MessageType.UNMATCHED;
+        }
+    }
+
+    /**
+     * Get the full topic
+     *
+     * @return
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Get the message type of the topic
+     *
+     * @return
+     */
+    public MessageType getMessageType() {
+        return messageType;
+    }
+
+    /**
+     * Get a {@link JmsTopic} sharing the already split topic tokens
+     *
+     * @return
+     */
+    public JmsTopic getJmsTopic() {
+        return new JmsTopic(topic, tokens);
+    }
+
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.service.authentication.token.AccessToken;
+
+/**
+ * Broker login cache.<br>
+ * It keeps for a short time the outcome of the successful broker logins (verified credentials, account name and connection permissions),
+ * so a storm of connections sharing the same credentials (e.g. many gateways reconnecting after a broker restart) pays the full login once per credentials.<br>
+ * The cache key is a digest of the username and password salted with a random salt generated by each broker instance, so the passwords are never kept in memory.<br>
+ * <br>
+ * Changes to the credentials, the account or the permissions are applied to the cached logins when the cache entry expires, so the cache is disabled by default.<br>
+ * A cached login is invalidated when its access token expires, and it should be invalidated when a connection using it is refused,
+ * so the next connection with the same credentials runs the full login.
+ *
+ * @since 1.0
+ */
+public class BrokerLoginCache {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int SALT_LENGTH = 32;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot find the digest algorithm " + DIGEST_ALGORITHM, e);
+        }
+    });
+
+    private final byte[] salt = new byte[SALT_LENGTH];
+    private final LocalCache<String, LoginInfo> cache;
+
+    /**
+     * Construct the login cache
+     *
+     * @param sizeMax
+     *            maximum number of cached logins
+     * @param ttl
+     *            time (in seconds) a login is cached
+     */
+    public BrokerLoginCache(int sizeMax, int ttl) {
+        new SecureRandom().nextBytes(salt);
+        cache = new LocalCache<>(sizeMax, ttl, null);
+    }
+
+    /**
+     * Get the cache key of the given credentials (salted digest of the username and password)
+     *
+     * @param username
+     * @param password
+     * @return
+     */
+    public String getKey(String username, String password) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        digest.update(salt);
+        if (username != null) {
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+        }
+        // separator, so different username/password splits of the same string have different keys
+        digest.update((byte) 0);
+        if (password != null) {
+            digest.update(password.getBytes(StandardCharsets.UTF_8));
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    /**
+     * Get the cached login of the given key
+     *
+     * @param key
+     * @return the cached login or {@code null} if the login is not cached (or expired)
+     */
+    public LoginInfo get(String key) {
+        LoginInfo loginInfo = cache.get(key);
+        if (loginInfo != null) {
+            Date expiresOn = loginInfo.getAccessToken().getExpiresOn();
+            if (expiresOn != null && !expiresOn.after(new Date())) {
+                cache.remove(key);
+                return null;
+            }
+        }
+        return loginInfo;
+    }
+
+    /**
+     * Cache the login of the given key
+     *
+     * @param key
+     * @param loginInfo
+     */
+    public void put(String key, LoginInfo loginInfo) {
+        cache.put(key, loginInfo);
+    }
+
+    /**
+     * Invalidate the cached login of the given key
+     *
+     * @param key
+     */
+    public void invalidate(String key) {
+        cache.remove(key);
+    }
+
+    /**
+     * Cached broker login
+     *
+     * @since 1.0
+     */
+    public static class LoginInfo {
+
+        private final AccessToken accessToken;
+        private final String accountName;
+        private final boolean[] hasPermissions;
+
+        /**
+         * Construct the cached login
+         *
+         * @param accessToken
+         *            access token of the login
+         * @param accountName
+         *            account name of the user
+         * @param hasPermissions
+         *            connection permissions (see {@link AclConstants}) or {@code null} for the admin user
+         */
+        public LoginInfo(AccessToken accessToken, String accountName, boolean[] hasPermissions) {
+            this.accessToken = accessToken;
+            this.accountName = accountName;
+            this.hasPermissions = hasPermissions;
+        }
+
+        public AccessToken getAccessToken() {
+            return accessToken;
+        }
+
+        public String getAccountName() {
+            return accountName;
+        }
+
+        public boolean[] getHasPermissions() {
+            return hasPermissions;
+        }
+    }
+}
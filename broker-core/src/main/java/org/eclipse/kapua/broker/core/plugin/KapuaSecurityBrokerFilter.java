@@ -12,8 +12,10 @@
  *******************************************************************************/
 package org.eclipse.kapua.broker.core.plugin;
 
+import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +48,8 @@ import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaIllegalAccessException;
 import org.eclipse.kapua.broker.core.BrokerDomain;
 import org.eclipse.kapua.broker.core.message.MessageConstants;
+import org.eclipse.kapua.broker.core.setting.BrokerSetting;
+import org.eclipse.kapua.broker.core.setting.BrokerSettingKey;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.commons.security.KapuaSession;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
@@ -65,6 +69,7 @@ import org.eclipse.kapua.service.authentication.token.AccessToken;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
 import org.eclipse.kapua.service.authorization.domain.Domain;
 import org.eclipse.kapua.service.authorization.permission.Actions;
+import org.eclipse.kapua.service.authorization.permission.Permission;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.datastore.DatastoreDomain;
 import org.eclipse.kapua.service.device.management.commons.DeviceManagementDomain;
@@ -74,6 +79,8 @@ import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionFact
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
 import org.eclipse.kapua.service.metric.MetricsService;
+import org.eclipse.kapua.service.user.User;
+import org.eclipse.kapua.service.user.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -114,6 +121,8 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
     private Counter metricLoginNormalUserAttempt;
     private Counter metricLoginStealingLinkConnect;
     private Counter metricLoginStealingLinkDisconnect;
+    private Counter metricLoginCacheHit;
+    private Counter metricLoginCacheMiss;
     private Timer metricLoginAddConnectionTime;
     private Timer metricLoginNormalUserTime;
     private Timer metricLoginPreCheckTime;
@@ -149,6 +158,12 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
     private DeviceConnectionFactory deviceConnectionFactory = KapuaLocator.getInstance().getFactory(DeviceConnectionFactory.class);
     private MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
 
+    // login fast path (null if disabled)
+    private BrokerLoginCache loginCache;
+    private final int publishAclCacheSizeMax;
+    // metrics http endpoint (null if disabled)
+    private MetricsHttpExporter metricsHttpExporter;
+
     public KapuaSecurityBrokerFilter(Broker next) throws KapuaException {
         super(next);
 
@@ -161,6 +176,8 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
         metricLoginNormalUserAttempt = metricsService.getCounter("security", "login", "normal", "count");
         metricLoginStealingLinkConnect = metricsService.getCounter("security", "login", "stealing_link", "connect", "count");
         metricLoginStealingLinkDisconnect = metricsService.getCounter("security", "login", "stealing_link", "disconnect", "count");
+        metricLoginCacheHit = metricsService.getCounter("security", "login", "cache", "hit", "count");
+        metricLoginCacheMiss = metricsService.getCounter("security", "login", "cache", "miss", "count");
         // login time
         metricLoginAddConnectionTime = metricsService.getTimer("security", "login", "add_connection", "time", "s");
         metricLoginNormalUserTime = metricsService.getTimer("security", "login", "user", "time", "s");
@@ -188,12 +205,48 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
         metricPublishMessageSizeAllowed = metricsService.getHistogram("security", "publish", "messages", "allowed", "size", "bytes");
         metricPublishMessageSizeNotAllowed = metricsService.getHistogram("security", "publish", "messages", "not_allowed", "size", "bytes");
 
+        BrokerSetting config = BrokerSetting.getInstance();
+        if (config.getBoolean(BrokerSettingKey.LOGIN_CACHE_ENABLE, false)) {
+            loginCache = new BrokerLoginCache(config.getInt(BrokerSettingKey.LOGIN_CACHE_SIZE_MAXIMUM, 10000),
+                    config.getInt(BrokerSettingKey.LOGIN_CACHE_TTL, 30));
+        }
+        publishAclCacheSizeMax = config.getInt(BrokerSettingKey.PUBLISH_ACL_CACHE_SIZE_MAXIMUM, 100);
+
         XmlUtil.setContextProvider(new BrokerJAXBContextProvider());
     }
 
     @Override
     public void start()
             throws Exception {
+        if (BrokerSetting.getInstance().getBoolean(BrokerSettingKey.DEVICE_CONNECTION_RECONCILE_ENABLE, false)) {
+            // no client is connected yet: the connected device connections are stale (e.g. broker crash)
+            try {
+                // the device connections are updated on behalf of the system admin user
+                UserService userService = KapuaLocator.getInstance().getService(UserService.class);
+                String adminUserName = SystemSetting.getInstance().getString(SystemSettingKey.SYS_ADMIN_ACCOUNT);
+                User adminUser = KapuaSecurityUtils.doPrivileged(() -> userService.findByName(adminUserName));
+                KapuaSecurityUtils.setSession(new KapuaSession(null, adminUser.getScopeId(), adminUser.getId()));
+                try {
+                    int reconciled = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.reconcile());
+                    logger.info(">>> Security broker filter: {} device connections set to missing on start", reconciled);
+                } finally {
+                    KapuaSecurityUtils.clearSession();
+                }
+            } catch (Exception e) {
+                logger.error("Cannot reconcile the device connection statuses on start", e);
+            }
+        }
+        BrokerSetting config = BrokerSetting.getInstance();
+        if (config.getBoolean(BrokerSettingKey.METRICS_HTTP_ENABLE, false)) {
+            metricsHttpExporter = new MetricsHttpExporter(metricsService, config.getString(BrokerSettingKey.METRICS_HTTP_HOST, "localhost"),
+                    config.getInt(BrokerSettingKey.METRICS_HTTP_PORT, 9404));
+            try {
+                metricsHttpExporter.start();
+            } catch (IOException e) {
+                logger.error("Cannot start the metrics http endpoint", e);
+                metricsHttpExporter = null;
+            }
+        }
         super.start();
     }
 
@@ -201,6 +254,9 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
     public void stop()
             throws Exception {
         logger.info(">>> Security broker filter: calling stop...");
+        if (metricsHttpExporter != null) {
+            metricsHttpExporter.stop();
+        }
         super.stop();
     }
 
@@ -217,7 +273,7 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
      */
     private boolean isPassThroughConnection(ConnectionContext context) {
         if (context != null) {
-            if (context.getConnector() == null || AclConstants.CONNECTOR_NAME_VM.equals(((TransportConnector) context.getConnector()).getName())) {
+            if (context.getConnector() == null || AclConstants.CONNECTOR_NAME_VM.equals(getConnectorName(context))) {
                 return true;
             }
 
@@ -230,6 +286,19 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
         return false;
     }
 
+    /**
+     * Get the name of the transport connector of the connection
+     * 
+     * @param context
+     * @return the connector name or {@code null} if the connection has no transport connector (e.g. internal connections)
+     */
+    private static String getConnectorName(ConnectionContext context) {
+        if (context.getConnector() instanceof TransportConnector) {
+            return ((TransportConnector) context.getConnector()).getName();
+        }
+        return null;
+    }
+
     /**
      * Check if security context is broker context
      * Return true if security context is a broker context or if is a pass through connection
@@ -297,6 +366,8 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
         if (logger.isDebugEnabled()) {
             authDestinations = new ArrayList<>();
         }
+        boolean cachedLogin = false;
+        String loginCacheKey = null;
         try {
             // Build KapuaUsername
             // User username = User.parse(username);//KapuaUserName
@@ -312,25 +383,35 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
             loginPreCheckTimeContext.stop();
 
             Context loginShiroLoginTimeContext = metricLoginShiroLoginTime.time();
-            LoginCredentials credentials = credentialsFactory.newUsernamePasswordCredentials(username, password != null ? password.toCharArray() : null);
-            AccessToken accessToken = authenticationService.login(credentials);
-
-            KapuaId scopeId = accessToken.getScopeId();
-            KapuaId userId = accessToken.getUserId();
+            BrokerLoginCache.LoginInfo loginInfo = null;
+            if (loginCache != null) {
+                loginCacheKey = loginCache.getKey(username, password);
+                loginInfo = loginCache.get(loginCacheKey);
+            }
 
-            final Account account;
-            try {
-                account = KapuaSecurityUtils.doPrivileged(() -> accountService.find(scopeId));
-            } catch (Exception e) {
-                // to preserve the original exception message (if possible)
-                if (e instanceof AuthenticationException) {
-                    throw (AuthenticationException) e;
-                } else {
-                    throw new ShiroException("Error while find account!", e);
+            if (loginInfo != null) {
+                // 2) credentials already verified: restore the session of the cached login
+                metricLoginCacheHit.inc();
+                cachedLogin = true;
+                AccessToken cachedAccessToken = loginInfo.getAccessToken();
+                KapuaSecurityUtils.setSession(new KapuaSession(cachedAccessToken,
+                        cachedAccessToken.getScopeId(),
+                        cachedAccessToken.getUserId()));
+            } else {
+                // 2) login
+                if (loginCache != null) {
+                    metricLoginCacheMiss.inc();
+                }
+                loginInfo = login(username, password);
+                if (loginCache != null) {
+                    loginCache.put(loginCacheKey, loginInfo);
                 }
             }
 
-            String accountName = account.getName();
+            AccessToken accessToken = loginInfo.getAccessToken();
+            KapuaId scopeId = accessToken.getScopeId();
+            KapuaId userId = accessToken.getUserId();
+            String accountName = loginInfo.getAccountName();
             loginShiroLoginTimeContext.stop();
 
             // if a user acts as a child MOVED INSIDE KapuaAuthorizingRealm otherwise through REST API and console this @accountName won't work
@@ -360,18 +441,10 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                 metricLoginNormalUserAttempt.inc();
                 // 3-3) check permissions
 
-                Context loginCheckAccessTimeContext = metricLoginCheckAccessTime.time();
-                boolean[] hasPermissions = new boolean[] {
-                        // TODO check the permissions... move them to a constants class?
-                        authorizationService.isPermitted(permissionFactory.newPermission(brokerDomain, Actions.connect, scopeId)),
-                        authorizationService.isPermitted(permissionFactory.newPermission(deviceManagementDomain, Actions.write, scopeId)),
-                        authorizationService.isPermitted(permissionFactory.newPermission(datastoreDomain, Actions.read, scopeId)),
-                        authorizationService.isPermitted(permissionFactory.newPermission(datastoreDomain, Actions.write, scopeId))
-                };
+                boolean[] hasPermissions = loginInfo.getHasPermissions();
                 if (!hasPermissions[AclConstants.BROKER_CONNECT_IDX]) {
                     throw new KapuaIllegalAccessException(permissionFactory.newPermission(brokerDomain, Actions.connect, scopeId).toString());
                 }
-                loginCheckAccessTimeContext.stop();
 
                 // 3-4) build authMap
                 authMap = buildAuthMap(authDestinations, principal, hasPermissions, accountName, clientId, fullClientId);
@@ -386,22 +459,20 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                 // send connect message
                 ConnectionId previousConnectionId = connectionMap.put(fullClientId, info.getConnectionId());
                 boolean stealingLinkDetected = (previousConnectionId != null);
+                DeviceConnectionCreator deviceConnectionCreator = deviceConnectionFactory.newCreator(scopeId);
+                deviceConnectionCreator.setClientId(clientId);
+                deviceConnectionCreator.setClientIp(clientIp);
+                deviceConnectionCreator.setProtocol("MQTT");
+                deviceConnectionCreator.setServerIp(null);// TODO to be filled with the proper value
+                deviceConnectionCreator.setUserId(userId);
                 if (deviceConnection == null) {
-                    DeviceConnectionCreator deviceConnectionCreator = deviceConnectionFactory.newCreator(scopeId);
-                    deviceConnectionCreator.setClientId(clientId);
-                    deviceConnectionCreator.setClientIp(clientIp);
-                    deviceConnectionCreator.setProtocol("MQTT");
-                    deviceConnectionCreator.setServerIp(null);// TODO to be filled with the proper value
-                    deviceConnectionCreator.setUserId(userId);
                     deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.create(deviceConnectionCreator));
                 } else {
-                    deviceConnection.setClientIp(clientIp);
-                    deviceConnection.setProtocol("MQTT");
-                    deviceConnection.setServerIp(null);// TODO to be filled with the proper value
-                    deviceConnection.setUserId(userId);
-                    deviceConnection.setStatus(DeviceConnectionStatus.CONNECTED);
-                    final DeviceConnection deviceConnectionToUpdate = deviceConnection;
-                    KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.update(deviceConnectionToUpdate));
+                    // the connected status is written in background if the device connection write-behind is enabled (the device connection id doesn't change)
+                    KapuaSecurityUtils.doPrivileged(() -> {
+                        deviceConnectionService.connect(deviceConnectionCreator);
+                        return null;
+                    });
                     // TODO implement the banned status
                     // if (DeviceStatus.DISABLED.equals(device.getStatus())) {
                     // throw new KapuaIllegalAccessException("clientId - This client ID is disabled and cannot connect");
@@ -425,7 +496,7 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
             }
             logAuthDestinationToLog(authDestinations);
 
-            final String connectorName = (((TransportConnector) context.getConnector()).getName());
+            final String connectorName = getConnectorName(context);
             final ConnectorDescriptor connectorDescriptor = ConnectorDescriptorProviders.getDescriptor(connectorName);
             if (connectorDescriptor == null) {
                 throw new IllegalStateException(String.format("Unable to find connector descriptor for connector '%s'", connectorName));
@@ -434,7 +505,9 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                     authMap,
                     (deviceConnection != null ? deviceConnection.getId() : null),
                     connectionId,
-                    connectorDescriptor);
+                    connectorName,
+                    connectorDescriptor,
+                    publishAclCacheSizeMax);
             context.setSecurityContext(securityCtx);
 
             // multiple account stealing link fix
@@ -442,6 +515,10 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
             context.setClientId(fullClientId);
         } catch (Exception e) {
             metricLoginFailure.inc();
+            if (loginCacheKey != null) {
+                // the next connection with the same credentials runs the full login (e.g. a permission granted meanwhile)
+                loginCache.invalidate(loginCacheKey);
+            }
 
             // fix ENTMQ-731
             if (e instanceof KapuaAuthenticationException) {
@@ -476,13 +553,62 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
         } finally {
             // 7) logout
             Context loginShiroLogoutTimeContext = metricLoginShiroLogoutTime.time();
-            authenticationService.logout();
+            if (cachedLogin) {
+                // no Shiro login (and the access token of the cached login is already invalidated)
+                KapuaSecurityUtils.clearSession();
+            } else {
+                authenticationService.logout();
+            }
             ThreadContext.unbindSubject();
             loginShiroLogoutTimeContext.stop();
             loginTotalContext.stop();
         }
     }
 
+    /**
+     * Login the user and load the account name and the connection permissions.<br>
+     * The connection permissions are checked at once (a single user permissions lookup).
+     * 
+     * @param username
+     * @param password
+     * @return
+     * @throws Exception
+     */
+    private BrokerLoginCache.LoginInfo login(String username, String password)
+            throws Exception {
+        LoginCredentials credentials = credentialsFactory.newUsernamePasswordCredentials(username, password != null ? password.toCharArray() : null);
+        AccessToken accessToken = authenticationService.login(credentials);
+
+        KapuaId scopeId = accessToken.getScopeId();
+
+        final Account account;
+        try {
+            account = KapuaSecurityUtils.doPrivileged(() -> accountService.find(scopeId));
+        } catch (Exception e) {
+            // to preserve the original exception message (if possible)
+            if (e instanceof AuthenticationException) {
+                throw (AuthenticationException) e;
+            } else {
+                throw new ShiroException("Error while find account!", e);
+            }
+        }
+
+        boolean[] hasPermissions = null;
+        if (!isAdminUser(username)) {
+            Context loginCheckAccessTimeContext = metricLoginCheckAccessTime.time();
+            // same order of the AclConstants indexes
+            List<Permission> permissions = Arrays.asList(
+                    permissionFactory.newPermission(brokerDomain, Actions.connect, scopeId),
+                    permissionFactory.newPermission(deviceManagementDomain, Actions.write, scopeId),
+                    permissionFactory.newPermission(datastoreDomain, Actions.read, scopeId),
+                    permissionFactory.newPermission(datastoreDomain, Actions.write, scopeId));
+            hasPermissions = authorizationService.isPermitted(permissions);
+            loginCheckAccessTimeContext.stop();
+        }
+
+        return new BrokerLoginCache.LoginInfo(accessToken, account.getName(), hasPermissions);
+    }
+
     @Override
     public void removeConnection(ConnectionContext context, ConnectionInfo info, Throwable error)
             throws Exception {
@@ -527,28 +653,15 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                         logger.warn("Detected Stealing link for cliend id {} - account id {} - last connection id was {} - current connection id is {} - IP: {} - No disconnection info will be added!",
                                 new Object[] { clientId, accountId, connectionId, info.getConnectionId(), info.getClientIp() });
                     } else {
-                        final DeviceConnection deviceConnection;
+                        // update device connection (written in background if the device connection write-behind is enabled)
+                        DeviceConnectionStatus status = error == null ? DeviceConnectionStatus.DISCONNECTED : DeviceConnectionStatus.MISSING;
                         try {
-                            deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.findByClientId(scopeId, clientId));
+                            KapuaSecurityUtils.doPrivileged(() -> {
+                                deviceConnectionService.disconnect(scopeId, clientId, status);
+                                return null;
+                            });
                         } catch (Exception e) {
-                            throw new ShiroException("Error while looking for device connection on updating the device!", e);
-                        }
-                        if (deviceConnection != null) {
-                            // the device connection must be not null
-                            // update device connection
-                            if (error == null) {
-                                deviceConnection.setStatus(DeviceConnectionStatus.DISCONNECTED);
-                            } else {
-                                deviceConnection.setStatus(DeviceConnectionStatus.MISSING);
-                            }
-                            try {
-                                KapuaSecurityUtils.doPrivileged(() -> {
-                                    deviceConnectionService.update(deviceConnection);
-                                    return null;
-                                });
-                            } catch (Exception e) {
-                                throw new ShiroException("Error while updating the device connection status!", e);
-                            }
+                            throw new ShiroException("Error while updating the device connection status!", e);
                         }
                     }
                     metricClientDisconnectionClient.inc();
@@ -598,11 +711,9 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
             throws Exception {
         if (!isBrokerContext(producerExchange.getConnectionContext())) {
             KapuaSecurityContext kapuaSecurityContext = getKapuaSecurityContext(producerExchange.getConnectionContext());
-            // if (!kapuaSecurityContext.getAuthorizedWriteDests().contains(messageSend.getDestination()))
-            // {
             if (!messageSend.getDestination().isTemporary()) {
-                Set<?> allowedACLs = kapuaSecurityContext.getAuthorizationMap().getWriteACLs(messageSend.getDestination());
-                if (allowedACLs != null && !kapuaSecurityContext.isInOneOf(allowedACLs)) {
+                ActiveMQDestination destination = messageSend.getDestination();
+                if (!kapuaSecurityContext.isWriteAuthorized(destination)) {
                     String message = MessageFormat.format("User {0} ({1} - {2} - conn id {3}) is not authorized to write to: {4}",
                             kapuaSecurityContext.getUserName(),
                             ((KapuaPrincipal) kapuaSecurityContext.getMainPrincipal()).getClientId(),
@@ -616,12 +727,11 @@ public class KapuaSecurityBrokerFilter extends BrokerFilter {
                     // restored the throw exception because otherwise we got acl's issues
                     throw new SecurityException(message);
                 }
-                // kapuaSecurityContext.getAuthorizedWriteDests().put(messageSend.getDestination(), messageSend.getDestination());
             }
-            // }
             messageSend.setProperty(MessageConstants.HEADER_KAPUA_CONNECTION_ID, kapuaSecurityContext.getConnectionId());
             messageSend.setProperty(MessageConstants.HEADER_KAPUA_CLIENT_ID, ((KapuaPrincipal) kapuaSecurityContext.getMainPrincipal()).getClientId());
             messageSend.setProperty(MessageConstants.HEADER_KAPUA_CONNECTOR_DEVICE_PROTOCOL, kapuaSecurityContext.getConnectorDescriptor());
+            messageSend.setProperty(MessageConstants.HEADER_KAPUA_CONNECTOR_NAME, kapuaSecurityContext.getConnectorName());
             messageSend.setProperty(MessageConstants.HEADER_KAPUA_SESSION, kapuaSecurityContext.getKapuaSession());
         }
         if (messageSend.getContent() != null) {
@@ -15,7 +15,10 @@ package org.eclipse.kapua.broker.core.plugin;
 import java.security.Principal;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.ConnectionId;
 import org.apache.activemq.security.AuthorizationMap;
 import org.apache.activemq.security.SecurityContext;
@@ -34,10 +37,15 @@ public class KapuaSecurityContext extends SecurityContext {
     private KapuaSession        kapuaSession;
     private KapuaId          connectionId;
     private Set<Principal>   principals;
+    private String              connectorName;
     private ConnectorDescriptor connectorDescriptor;
     private ConnectionId        brokerConnectionId;
 
-    private AuthorizationMap authMap;
+    // the ACLs are built on connect and never change for the connection: a permission change applies on the next connect
+    private final AuthorizationMap authMap;
+    // publish authorization decisions (allowed/denied) by destination
+    private final ConcurrentMap<ActiveMQDestination, Boolean> writeAuthorizations = new ConcurrentHashMap<>();
+    private final int writeAuthorizationsSizeMax;
     private boolean          hasDataView;
     private boolean          hasDataManage;
     private boolean          hasDeviceView;
@@ -47,7 +55,9 @@ public class KapuaSecurityContext extends SecurityContext {
                               AuthorizationMap authMap,
                               KapuaId connectionId,
                               ConnectionId brokerConnectionId,
-                              ConnectorDescriptor connectorDescriptor) {
+                              String connectorName,
+                              ConnectorDescriptor connectorDescriptor,
+                              int writeAuthorizationsSizeMax) {
         super(principal.getName());
 
         this.principal = principal;
@@ -57,8 +67,10 @@ public class KapuaSecurityContext extends SecurityContext {
 
         this.authMap = authMap;
         this.connectionId = connectionId;
+        this.connectorName = connectorName;
         this.connectorDescriptor = connectorDescriptor;
         this.brokerConnectionId = brokerConnectionId;
+        this.writeAuthorizationsSizeMax = writeAuthorizationsSizeMax;
     }
 
     public Principal getMainPrincipal()
@@ -76,6 +88,30 @@ public class KapuaSecurityContext extends SecurityContext {
         return authMap;
     }
 
+    /**
+     * Check if the connection is allowed to publish to the destination.<br>
+     * The decision is evaluated once per destination (wildcard match of the connection ACLs) then cached.
+     * The cache is bounded: once full it is cleared (a connection usually publishes to a few destinations only).
+     * 
+     * @param destination
+     * @return
+     */
+    public boolean isWriteAuthorized(ActiveMQDestination destination)
+    {
+        Boolean allowed = writeAuthorizations.get(destination);
+        if (allowed == null) {
+            Set<?> allowedACLs = authMap.getWriteACLs(destination);
+            allowed = allowedACLs == null || isInOneOf(allowedACLs);
+            if (writeAuthorizationsSizeMax > 0) {
+                if (writeAuthorizations.size() >= writeAuthorizationsSizeMax) {
+                    writeAuthorizations.clear();
+                }
+                writeAuthorizations.put(destination, allowed);
+            }
+        }
+        return allowed;
+    }
+
     public KapuaId getConnectionId()
     {
         return connectionId;
@@ -86,6 +122,16 @@ public class KapuaSecurityContext extends SecurityContext {
         return brokerConnectionId;
     }
 
+    /**
+     * Get the name of the transport connector of the connection (resolved once on connect)
+     * 
+     * @return
+     */
+    public String getConnectorName()
+    {
+        return connectorName;
+    }
+
     public ConnectorDescriptor getConnectorDescriptor()
     {
         return connectorDescriptor;
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.kapua.commons.metric.PrometheusTextExporter;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Http endpoint serving the broker metrics in the Prometheus text format (see {@link PrometheusTextExporter}) on the {@code /metrics} path.<br>
+ * It's served by the JDK http server by a single thread, since it's meant to be scraped periodically by a monitoring system.
+ *
+ * @since 1.0
+ */
+public class MetricsHttpExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHttpExporter.class);
+
+    private static final String METRICS_PATH = "/metrics";
+
+    private final MetricsService metricsService;
+    private final InetSocketAddress address;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructor
+     *
+     * @param metricsService
+     * @param host
+     *            the address to bind
+     * @param port
+     */
+    public MetricsHttpExporter(MetricsService metricsService, String host, int port) {
+        this.metricsService = metricsService;
+        this.address = new InetSocketAddress(host, port);
+    }
+
+    /**
+     * Start serving the metrics
+     *
+     * @throws IOException
+     *             if the address cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext(METRICS_PATH, this::handle);
+        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat(MetricsHttpExporter.class.getSimpleName() + "-%d")
+                .setDaemon(true)
+                .build());
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Serving the metrics on http://{}:{}{}", address.getHostString(), address.getPort(), METRICS_PATH);
+    }
+
+    /**
+     * Stop serving the metrics
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", PrometheusTextExporter.CONTENT_TYPE);
+            // chunked response: the size is not known in advance
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream output = exchange.getResponseBody();
+                    Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+                PrometheusTextExporter.write(metricsService.getMetricRegistry(), writer);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot export the metrics", e);
+            throw e;
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -12,14 +12,25 @@
  *******************************************************************************/
 package org.eclipse.kapua.broker.core.pool;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.eclipse.kapua.broker.core.setting.BrokerSetting;
+import org.eclipse.kapua.broker.core.setting.BrokerSettingKey;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.metric.MetricTags;
+import org.eclipse.kapua.service.metric.MetricsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+
 /**
  * This class is needed by {@link org.eclipse.kapua.broker.core.plugin.KapuaSecurityBrokerFilter} to handle a vm connection.<BR>
  * Indeed this bundle is instantiated during the broker startup then if {@link org.eclipse.kapua.broker.core.plugin.KapuaSecurityBrokerFilter} try to instantiate a connection receive an error from the
@@ -34,6 +45,13 @@ import org.slf4j.LoggerFactory;
  * <b>NOTE:<BR>
  * with virtual topic support the destinations are removed! The message destination will be coded inside send method!
  * </b>
+ * <BR>
+ * The pool configuration is sourced from {@link BrokerSetting}. To keep the common path free from the pool locks a few producers are kept aside of the pool in shards
+ * striped by thread ({@link BrokerSettingKey#PRODUCER_POOL_SHARD_COUNT}): a borrow takes the producer of the thread shard, if any, and a return parks the producer in the
+ * thread shard, if empty, without locking the pool.<BR>
+ * Since the parked producers count as borrowed for the pool, a borrow finding the pool exhausted takes a producer parked in another shard, and a return doesn't park
+ * the producer while other threads are waiting for the pool.<BR>
+ * The time spent waiting for the pool producers and the pool exhaustions are exported as metrics (tagged by destination).
  * 
  * @since 1.0
  */
@@ -42,6 +60,10 @@ public class JmsAssistantProducerPool extends GenericObjectPool<JmsAssistantProd
 
     private static Logger s_logger = LoggerFactory.getLogger(JmsAssistantProducerPool.class);
 
+    private static final String METRIC_MODULE_NAME = "pool";
+    private static final String METRIC_COMPONENT_NAME = "producer";
+    private static final String METRIC_DESTINATION_TAG = "destination";
+
     public enum DESTINATIONS
     {
         /**
@@ -58,48 +80,169 @@ public class JmsAssistantProducerPool extends GenericObjectPool<JmsAssistantProd
     private static Map<DESTINATIONS, JmsAssistantProducerPool> pools;
 
     static {
-        pools = new HashMap<JmsAssistantProducerPool.DESTINATIONS, JmsAssistantProducerPool>();
+        pools = new EnumMap<JmsAssistantProducerPool.DESTINATIONS, JmsAssistantProducerPool>(DESTINATIONS.class);
         s_logger.info("Create pools for broker assistants (kapua server instance)");
         s_logger.info("Create Service pool...");
         // TODO parameter to be added to configuration
         // pools.put(DESTINATIONS.KAPUA_SERVICE,
         // new JmsAssistantProducerPool(new JmsAssistantProducerWrapperFactory(KapuaEnvironmentConfig.getInstance().getString(KapuaEnvironmentConfigKeys.SERVICE_QUEUE_NAME))));
         pools.put(DESTINATIONS.KAPUA_SERVICE,
-                  new JmsAssistantProducerPool(new JmsAssistantProducerWrapperFactory("KapuaService")));
+                  new JmsAssistantProducerPool(DESTINATIONS.KAPUA_SERVICE, new JmsAssistantProducerWrapperFactory("KapuaService")));
         s_logger.info("Create NoDestination pool...");
         pools.put(DESTINATIONS.NO_DESTINATION,
-                  new JmsAssistantProducerPool(new JmsAssistantProducerWrapperFactory(null)));
+                  new JmsAssistantProducerPool(DESTINATIONS.NO_DESTINATION, new JmsAssistantProducerWrapperFactory(null)));
         s_logger.info("Create pools... done.");
     }
 
+    private final JmsAssistantProducerWrapperFactory factory;
+    // producers kept aside of the pool (borrowed for the pool), null if the sharding is disabled
+    private final AtomicReferenceArray<JmsAssistantProducerWrapper> shards;
+
+    private final Timer metricBorrowWait;
+    private final Counter metricExhausted;
+
     /**
-     * Create a JmsAssistantProducerPool from the given factory
+     * Create a JmsAssistantProducerPool from the given factory with the according configuration sourced from {@link BrokerSetting}
      * 
+     * @param destination
      * @param factory
      */
-    protected JmsAssistantProducerPool(JmsAssistantProducerWrapperFactory factory)
+    protected JmsAssistantProducerPool(DESTINATIONS destination, JmsAssistantProducerWrapperFactory factory)
     {
         super(factory);
-        // TODO parameter to be added to configuration
-        // int totalMaxSize = KapuaEnvironmentConfig.getInstance().getString(KapuaEnvironmentConfigKeys.POOL_TOTAL_MAX_SIZE);
-        // int maxSize = KapuaEnvironmentConfig.getInstance().getString(KapuaEnvironmentConfigKeys.POOL_MAX_SIZE);
-        // int minSize = KapuaEnvironmentConfig.getInstance().getString(KapuaEnvironmentConfigKeys.POOL_MIN_SIZE);
-        int totalMaxSize = 25;
-        int maxSize = 25;
-        int minSize = 10;
+        this.factory = factory;
 
+        BrokerSetting config = BrokerSetting.getInstance();
         GenericObjectPoolConfig jmsPoolConfig = new GenericObjectPoolConfig();
-        jmsPoolConfig.setMaxTotal(totalMaxSize);
-        jmsPoolConfig.setMaxIdle(maxSize);
-        jmsPoolConfig.setMinIdle(minSize);
-        s_logger.info("Set test on return to true for JmsAssistantProducerPool");
-        jmsPoolConfig.setTestOnReturn(true);
-        s_logger.info("Set test on borrow to true for JmsAssistantProducerPool");
-        jmsPoolConfig.setTestOnBorrow(true);
-        s_logger.info("Set block when exausted to true for JmsAssistantProducerPool");
+        jmsPoolConfig.setMaxTotal(config.getInt(BrokerSettingKey.PRODUCER_POOL_SIZE_TOTAL_MAXIMUM));
+        jmsPoolConfig.setMaxIdle(config.getInt(BrokerSettingKey.PRODUCER_POOL_SIZE_IDLE_MAXIMUM));
+        jmsPoolConfig.setMinIdle(config.getInt(BrokerSettingKey.PRODUCER_POOL_SIZE_IDLE_MINIMUM));
+        jmsPoolConfig.setTestOnReturn(config.getBoolean(BrokerSettingKey.PRODUCER_POOL_ON_RETURN_TEST));
+        jmsPoolConfig.setTestOnBorrow(config.getBoolean(BrokerSettingKey.PRODUCER_POOL_ON_BORROW_TEST));
         jmsPoolConfig.setBlockWhenExhausted(true);
-
+        jmsPoolConfig.setMaxWaitMillis(config.getLong(BrokerSettingKey.PRODUCER_POOL_BORROW_WAIT_MAXIMUM));
+        s_logger.info("Set {} pool config: max total {} - max idle {} - min idle {} - test on borrow {} - test on return {} - max wait {} ms",
+                      new Object[] { destination, jmsPoolConfig.getMaxTotal(), jmsPoolConfig.getMaxIdle(), jmsPoolConfig.getMinIdle(),
+                                     jmsPoolConfig.getTestOnBorrow(), jmsPoolConfig.getTestOnReturn(), jmsPoolConfig.getMaxWaitMillis() });
         setConfig(jmsPoolConfig);
+
+        int shardCount = config.getInt(BrokerSettingKey.PRODUCER_POOL_SHARD_COUNT);
+        if (jmsPoolConfig.getMaxTotal() > 0 && shardCount >= jmsPoolConfig.getMaxTotal()) {
+            // leave at least a producer to the threads without a shard producer
+            s_logger.warn("The {} pool shard count {} is not lower than the max total {}: it will be reduced", new Object[] { destination, shardCount, jmsPoolConfig.getMaxTotal() });
+            shardCount = jmsPoolConfig.getMaxTotal() - 1;
+        }
+        shards = shardCount > 0 ? new AtomicReferenceArray<JmsAssistantProducerWrapper>(shardCount) : null;
+        s_logger.info("Set {} pool shard count: {}", destination, shardCount);
+
+        MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        MetricTags tags = MetricTags.of(METRIC_DESTINATION_TAG, destination.name().toLowerCase());
+        metricBorrowWait = metricsService.getTimer(tags, METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "borrow", "wait", "time", "s");
+        metricExhausted = metricsService.getCounter(tags, METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "exhausted", "count");
+    }
+
+    /**
+     * Borrow the producer of the current thread shard, if any and valid, otherwise borrow a producer from the pool.<BR>
+     * If the pool is exhausted a producer parked in another shard is borrowed, if any.
+     */
+    @Override
+    public JmsAssistantProducerWrapper borrowObject(long borrowMaxWaitMillis) throws Exception
+    {
+        if (shards != null) {
+            int shard = shardIndex();
+            JmsAssistantProducerWrapper producer = takeShardProducer(shard);
+            if (producer != null) {
+                return producer;
+            }
+
+            if (isExhausted()) {
+                for (int i = 1; i < shards.length(); i++) {
+                    producer = takeShardProducer((shard + i) % shards.length());
+                    if (producer != null) {
+                        return producer;
+                    }
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            return super.borrowObject(borrowMaxWaitMillis);
+        }
+        catch (NoSuchElementException e) {
+            metricExhausted.inc();
+            throw e;
+        }
+        finally {
+            metricBorrowWait.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Park the producer in the current thread shard, if empty and no thread is waiting for the pool, otherwise return the producer to the pool
+     */
+    @Override
+    public void returnObject(JmsAssistantProducerWrapper producer)
+    {
+        if (shards != null && producer != null && !isClosed() && getNumWaiters() == 0 && (!getTestOnReturn() || factory.validate(producer))) {
+            int shard = shardIndex();
+            if (shards.compareAndSet(shard, null, producer)) {
+                if (isClosed() && shards.compareAndSet(shard, producer, null)) {
+                    // closed meanwhile: the shards may be already drained
+                    destroyShardProducer(producer);
+                }
+                return;
+            }
+        }
+        super.returnObject(producer);
+    }
+
+    /**
+     * Close the pool and the producers kept in the shards
+     */
+    @Override
+    public void close()
+    {
+        super.close();
+        if (shards != null) {
+            for (int i = 0; i < shards.length(); i++) {
+                JmsAssistantProducerWrapper producer = shards.getAndSet(i, null);
+                if (producer != null) {
+                    destroyShardProducer(producer);
+                }
+            }
+        }
+    }
+
+    private int shardIndex()
+    {
+        return (int) (Thread.currentThread().getId() % shards.length());
+    }
+
+    private JmsAssistantProducerWrapper takeShardProducer(int shard) throws Exception
+    {
+        JmsAssistantProducerWrapper producer = shards.getAndSet(shard, null);
+        if (producer != null && getTestOnBorrow() && !factory.validate(producer)) {
+            s_logger.info("Invalidate jms broker assistant producer wrapper: {}", producer);
+            invalidateObject(producer);
+            return null;
+        }
+        return producer;
+    }
+
+    private boolean isExhausted()
+    {
+        return getMaxTotal() > 0 && getNumIdle() == 0 && getNumActive() >= getMaxTotal();
+    }
+
+    private void destroyShardProducer(JmsAssistantProducerWrapper producer)
+    {
+        try {
+            invalidateObject(producer);
+        }
+        catch (Exception e) {
+            s_logger.warn("Cannot close jms broker assistant producer wrapper: {}", producer, e);
+        }
     }
 
     /**
@@ -51,7 +51,17 @@ public class JmsAssistantProducerWrapperFactory extends BasePooledObjectFactory<
      */
     @Override
     public boolean validateObject(PooledObject<JmsAssistantProducerWrapper> p) {
-        Session session = p.getObject().session;
+        return validate(p.getObject());
+    }
+
+    /**
+     * Check if the session of the producer is still active (also for the producers not held by the pool, see {@link JmsAssistantProducerPool})
+     * 
+     * @param producerWrapper
+     * @return
+     */
+    boolean validate(JmsAssistantProducerWrapper producerWrapper) {
+        Session session = producerWrapper.session;
         if (session instanceof ActiveMQSession) {
             return !((ActiveMQSession) session).isClosed();
         } else {
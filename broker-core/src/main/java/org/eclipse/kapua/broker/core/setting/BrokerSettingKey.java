@@ -25,7 +25,67 @@ public enum BrokerSettingKey implements SettingKey {
     /**
      * A URI to a configuration file for providing additional {@link ConnectorDescriptor} configurations
      */
-    CONFIGURATION_URI("broker.connector.descriptor.configuration.uri");
+    CONFIGURATION_URI("broker.connector.descriptor.configuration.uri"),
+    /**
+     * Enable the cache of the verified broker logins
+     */
+    LOGIN_CACHE_ENABLE("broker.login.cache.enable"),
+    /**
+     * Time (in seconds) a verified broker login is cached
+     */
+    LOGIN_CACHE_TTL("broker.login.cache.ttl"),
+    /**
+     * Maximum number of cached broker logins
+     */
+    LOGIN_CACHE_SIZE_MAXIMUM("broker.login.cache.size.maximum"),
+    /**
+     * Reconcile the device connection statuses on start (the device connections still connected are set to missing)
+     */
+    DEVICE_CONNECTION_RECONCILE_ENABLE("broker.device.connection.reconcile.enable"),
+    /**
+     * Maximum number of publish authorization decisions cached by each connection (0 to disable the cache)
+     */
+    PUBLISH_ACL_CACHE_SIZE_MAXIMUM("broker.publish.acl.cache.size.maximum"),
+    /**
+     * Serve the broker metrics in the Prometheus text format over http
+     */
+    METRICS_HTTP_ENABLE("broker.metrics.http.enable"),
+    /**
+     * Address the metrics http endpoint is bound to
+     */
+    METRICS_HTTP_HOST("broker.metrics.http.host"),
+    /**
+     * Port of the metrics http endpoint
+     */
+    METRICS_HTTP_PORT("broker.metrics.http.port"),
+    /**
+     * Maximum number of producers (idle and borrowed) of each broker assistant producer pool
+     */
+    PRODUCER_POOL_SIZE_TOTAL_MAXIMUM("broker.producer.pool.size.total.maximum"),
+    /**
+     * Maximum number of idle producers of each broker assistant producer pool
+     */
+    PRODUCER_POOL_SIZE_IDLE_MAXIMUM("broker.producer.pool.size.idle.maximum"),
+    /**
+     * Minimum number of idle producers of each broker assistant producer pool
+     */
+    PRODUCER_POOL_SIZE_IDLE_MINIMUM("broker.producer.pool.size.idle.minimum"),
+    /**
+     * Validate the producers borrowed from the broker assistant producer pools
+     */
+    PRODUCER_POOL_ON_BORROW_TEST("broker.producer.pool.on_borrow.test"),
+    /**
+     * Validate the producers returned to the broker assistant producer pools
+     */
+    PRODUCER_POOL_ON_RETURN_TEST("broker.producer.pool.on_return.test"),
+    /**
+     * Maximum time (in milliseconds) to wait for a producer when a broker assistant producer pool is exhausted (negative to wait indefinitely)
+     */
+    PRODUCER_POOL_BORROW_WAIT_MAXIMUM("broker.producer.pool.borrow.wait.maximum"),
+    /**
+     * Number of producers kept aside of each broker assistant producer pool, striped by thread, so the borrows don't lock the pool (0 to disable)
+     */
+    PRODUCER_POOL_SHARD_COUNT("broker.producer.pool.shard.count");
 
     private String key;
 
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.converter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.eclipse.kapua.broker.core.message.MessageConstants;
+import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Route level benchmark of the message classification by topic.<br>
+ * It compares the per message overhead of the chain of {@code simple} regular expressions of the main broker route (previous behavior)
+ * with the {@link KapuaTopicClassifier} classification, over a mix of data and life cycle topics.<br>
+ * The converters and listeners are replaced by a header set, so only the classification cost (plus the common route overhead) is measured.
+ * <p>
+ * Run it with: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.kapua.broker.core.converter.TopicClassifierBenchmark}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicClassifierBenchmark {
+
+    private static final String[] TOPICS = new String[] {
+            "kapua-sys.gateway-1.heater.data",
+            "kapua-sys.gateway-1.heater.data.temperature",
+            "$EDC.kapua-sys.gateway-1.MQTT.BIRTH",
+            "$EDC.kapua-sys.gateway-1.MQTT.DC",
+            "$EDC.kapua-sys.gateway-1.MQTT.APPS",
+            "$EDC.kapua-sys.gateway-1.MQTT.LWT",
+            "$EDC.kapua-sys.gateway-1.MQTT.NOTIFY",
+            "$EDC.kapua-sys.gateway-1.CONF-V1.REPLY.req-1"
+    };
+
+    private static final String HEADER_MESSAGE_TYPE = "messageType";
+    private static final byte[] BODY = new byte[0];
+
+    private CamelContext camelContext;
+    private ProducerTemplate producerTemplate;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+
+            @Override
+            public void configure() throws Exception {
+                // copy of the previous choice chain of the main route
+                from("direct:regex")
+                        .choice()
+                            .when(simple("${header.originalTopic} regex '^\\$EDC\\..*'"))
+                                .choice()
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.BIRTH'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.BIRTH))
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.DC'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.DISCONNECT))
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.APPS'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.APP))
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.LWT'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.MISSING))
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.NOTIFY'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.NOTIFY))
+                                    .otherwise()
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.UNMATCHED))
+                                .end()
+                            .endChoice()
+                            .otherwise()
+                                .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.DATA))
+                        .end();
+
+                from("direct:classifier")
+                        .process(exchange -> exchange.getIn().setHeader(HEADER_MESSAGE_TYPE, KapuaTopicClassifier.classify(exchange)));
+            }
+        });
+        camelContext.start();
+        producerTemplate = camelContext.createProducerTemplate();
+
+        // Fail fast if the two routes classify differently
+        for (String topic : TOPICS) {
+            Object regexType = send("direct:regex", topic);
+            Object classifierType = send("direct:classifier", topic);
+            if (regexType != classifierType) {
+                throw new IllegalStateException("Different classification of " + topic + ": " + regexType + " - " + classifierType);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        producerTemplate.stop();
+        camelContext.stop();
+    }
+
+    @Benchmark
+    public Object regex() {
+        return send("direct:regex", nextTopic());
+    }
+
+    @Benchmark
+    public Object classifier() {
+        return send("direct:classifier", nextTopic());
+    }
+
+    private String nextTopic() {
+        next = (next + 1) % TOPICS.length;
+        return TOPICS[next];
+    }
+
+    private Object send(String endpoint, String topic) {
+        Exchange result = producerTemplate.request(endpoint, exchange -> {
+            exchange.getIn().setBody(BODY);
+            exchange.getIn().setHeader(MessageConstants.PROPERTY_ORIGINAL_TOPIC, topic);
+        });
+        return (result.hasOut() ? result.getOut() : result.getIn()).getHeader(HEADER_MESSAGE_TYPE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TopicClassifierBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
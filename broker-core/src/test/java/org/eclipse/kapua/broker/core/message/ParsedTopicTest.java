@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.message;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.eclipse.kapua.broker.core.plugin.ConnectorDescriptor.MessageType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParsedTopicTest {
+
+    private static final String HEADER_MESSAGE_TYPE = "messageType";
+
+    private static CamelContext camelContext;
+    private static ProducerTemplate producerTemplate;
+
+    @BeforeClass
+    public static void startRoute() throws Exception {
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+
+            @Override
+            public void configure() throws Exception {
+                // copy of the previous choice chain of the main route
+                from("direct:regex")
+                        .choice()
+                            .when(simple("${header.originalTopic} regex '^\\$EDC\\..*'"))
+                                .choice()
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.BIRTH'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.BIRTH))
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.DC'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.DISCONNECT))
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.APPS'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.APP))
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.LWT'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.MISSING))
+                                    .when(simple("${header.originalTopic} regex '^\\$EDC\\.(.*\\.){2}MQTT\\.NOTIFY'"))
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.NOTIFY))
+                                    .otherwise()
+                                        .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.UNMATCHED))
+                                .end()
+                            .endChoice()
+                            .otherwise()
+                                .setHeader(HEADER_MESSAGE_TYPE, constant(MessageType.DATA))
+                        .end();
+            }
+        });
+        camelContext.start();
+        producerTemplate = camelContext.createProducerTemplate();
+    }
+
+    @AfterClass
+    public static void stopRoute() throws Exception {
+        producerTemplate.stop();
+        camelContext.stop();
+    }
+
+    @Test
+    public void testClassification() throws Exception {
+        Object[][] table = new Object[][] {
+                { "kapua-sys.gateway-1.heater.data", MessageType.DATA },
+                { "kapua-sys.gateway-1.heater.data.temperature", MessageType.DATA },
+                { "kapua-sys", MessageType.DATA },
+                { "$EDC", MessageType.DATA },
+                { "$EDCX.kapua-sys.gateway-1.MQTT.BIRTH", MessageType.DATA },
+                { "EDC.kapua-sys.gateway-1.MQTT.BIRTH", MessageType.DATA },
+                { "$EDC.kapua-sys.gateway-1.MQTT.BIRTH", MessageType.BIRTH },
+                { "$EDC.kapua-sys.gateway-1.MQTT.DC", MessageType.DISCONNECT },
+                { "$EDC.kapua-sys.gateway-1.MQTT.APPS", MessageType.APP },
+                { "$EDC.kapua-sys.gateway-1.MQTT.LWT", MessageType.MISSING },
+                { "$EDC.kapua-sys.gateway-1.MQTT.NOTIFY", MessageType.NOTIFY },
+                { "$EDC.kapua-sys.gateway-1.MQTT.NOTIFY.task", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.MQTT.BIRTH.extra", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.MQTT.BIRTHX", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.MQTT.DCX", MessageType.UNMATCHED },
+                { "$EDC.a.b.c.MQTT.BIRTH", MessageType.BIRTH },
+                { "$EDC.a.b.c.MQTT.NOTIFY.task", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.MQTT.BIRTH", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.MQTT", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.MQTT.OTHER", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.CONF-V1.REPLY.req-1", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.MQTTX.BIRTH", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.XMQTT.BIRTH", MessageType.UNMATCHED },
+                { "$EDC.", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys", MessageType.UNMATCHED },
+                { "$EDC...MQTT.LWT", MessageType.MISSING },
+                { "$EDC..MQTT.LWT", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.MQTT.BIRTH.", MessageType.UNMATCHED },
+                { "$EDC.kapua-sys.gateway-1.MQTT.BIRTH.MQTT.DC", MessageType.DISCONNECT }
+        };
+        for (Object[] row : table) {
+            String topic = (String) row[0];
+            // the expected type is the one of the previous regular expressions
+            Assert.assertEquals("regex " + topic, row[1], classifyWithRegex(topic));
+            Assert.assertEquals(topic, row[1], ParsedTopic.parse(topic).getMessageType());
+        }
+    }
+
+    private static Object classifyWithRegex(String topic) {
+        Exchange result = producerTemplate.request("direct:regex", exchange -> {
+            exchange.getIn().setBody(new byte[0]);
+            exchange.getIn().setHeader(MessageConstants.PROPERTY_ORIGINAL_TOPIC, topic);
+        });
+        return (result.hasOut() ? result.getOut() : result.getIn()).getHeader(HEADER_MESSAGE_TYPE);
+    }
+}
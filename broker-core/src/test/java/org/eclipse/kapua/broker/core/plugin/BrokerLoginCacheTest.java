@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.broker.core.setting.BrokerSetting;
+import org.eclipse.kapua.broker.core.setting.BrokerSettingKey;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.service.authentication.token.shiro.AccessTokenImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BrokerLoginCacheTest {
+
+    private BrokerLoginCache cache;
+
+    @Before
+    public void setUp() {
+        BrokerSetting.resetInstance();
+        cache = new BrokerLoginCache(100, 30);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        Assert.assertFalse(BrokerSetting.getInstance().getBoolean(BrokerSettingKey.LOGIN_CACHE_ENABLE, true));
+    }
+
+    @Test
+    public void testKey() {
+        String key = cache.getKey("user", "password");
+        Assert.assertEquals(key, cache.getKey("user", "password"));
+        Assert.assertNotEquals(key, cache.getKey("user", "other"));
+        Assert.assertNotEquals(key, cache.getKey("other", "password"));
+        // the username/password split is part of the key
+        Assert.assertNotEquals(cache.getKey("use", "rpassword"), key);
+        Assert.assertNotEquals(cache.getKey(null, "password"), cache.getKey("password", null));
+
+        // each cache has its own salt
+        Assert.assertNotEquals(key, new BrokerLoginCache(100, 30).getKey("user", "password"));
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        String key = cache.getKey("user", "password");
+        Assert.assertNull(cache.get(key));
+
+        BrokerLoginCache.LoginInfo loginInfo = newLoginInfo(TimeUnit.HOURS.toMillis(1));
+        cache.put(key, loginInfo);
+        Assert.assertSame(loginInfo, cache.get(key));
+        Assert.assertNull(cache.get(cache.getKey("user", "wrong")));
+    }
+
+    @Test
+    public void testInvalidate() {
+        String key = cache.getKey("user", "password");
+        String otherKey = cache.getKey("other", "password");
+        cache.put(key, newLoginInfo(TimeUnit.HOURS.toMillis(1)));
+        cache.put(otherKey, newLoginInfo(TimeUnit.HOURS.toMillis(1)));
+
+        cache.invalidate(key);
+
+        Assert.assertNull(cache.get(key));
+        Assert.assertNotNull(cache.get(otherKey));
+    }
+
+    @Test
+    public void testExpiredAccessToken() {
+        String key = cache.getKey("user", "password");
+        cache.put(key, newLoginInfo(-1));
+
+        Assert.assertNull(cache.get(key));
+    }
+
+    private static BrokerLoginCache.LoginInfo newLoginInfo(long expiresIn) {
+        AccessTokenImpl accessToken = new AccessTokenImpl(new KapuaEid(BigInteger.ONE), new KapuaEid(BigInteger.TEN), "token",
+                new Date(System.currentTimeMillis() + expiresIn), "refresh", null);
+        return new BrokerLoginCache.LoginInfo(accessToken, "account", new boolean[] { true, false, true, true });
+    }
+}
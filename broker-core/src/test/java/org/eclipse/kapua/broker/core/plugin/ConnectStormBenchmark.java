@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.eclipse.kapua.broker.core.KapuaBrokerSecurityPlugin;
+import org.eclipse.kapua.kura.simulator.GatewayConfiguration;
+import org.eclipse.kapua.kura.simulator.MqttAsyncTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connect storm benchmark.<br>
+ * It starts an embedded broker with the Kapua security plugin and an MQTT connector, then connects the given number of
+ * simulated gateways (from the Kura simulator) at once and reports the broker connects per second.
+ * All the gateways share the same credentials, like a fleet reconnecting after a broker restart.<br>
+ * The Kapua database is resolved from the system settings, like for the broker (the schema is updated on start).
+ * <p>
+ * Run it with: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.kapua.broker.core.plugin.ConnectStormBenchmark}
+ * </p>
+ * The benchmark is configured by the system properties {@code storm.count} (default 1000), {@code storm.port} (default 1883),
+ * {@code storm.username}, {@code storm.password}, {@code storm.account} and {@code storm.timeout} (seconds, default 300).
+ * Set {@code broker.login.cache.enable} to compare the connects with and without the login cache.
+ */
+public class ConnectStormBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectStormBenchmark.class);
+
+    private ConnectStormBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = Integer.getInteger("storm.count", 1000);
+        int port = Integer.getInteger("storm.port", 1883);
+        String username = System.getProperty("storm.username", "kapua-broker");
+        String password = System.getProperty("storm.password", "kapua-password");
+        String accountName = System.getProperty("storm.account", "kapua-sys");
+        long timeout = Long.getLong("storm.timeout", 300);
+
+        BrokerService broker = new BrokerService();
+        broker.setBrokerName("kapua-connect-storm");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setPlugins(new BrokerPlugin[] { new KapuaBrokerSecurityPlugin() });
+        TransportConnector connector = broker.addConnector("mqtt://localhost:" + port);
+        connector.setName("mqtt");
+        broker.start();
+        broker.waitUntilStarted();
+
+        List<MqttAsyncTransport> transports = new LinkedList<>();
+        CountDownLatch connected = new CountDownLatch(count);
+        try {
+            String brokerUrl = String.format("tcp://%s:%s@localhost:%d", username, password, port);
+            for (int i = 1; i <= count; i++) {
+                MqttAsyncTransport transport = new MqttAsyncTransport(new GatewayConfiguration(brokerUrl, accountName, "storm-" + i));
+                transport.whenConnected(connected::countDown);
+                transports.add(transport);
+            }
+
+            long start = System.nanoTime();
+            for (MqttAsyncTransport transport : transports) {
+                transport.connect();
+            }
+
+            boolean completed = connected.await(timeout, TimeUnit.SECONDS);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            long connects = count - connected.getCount();
+
+            if (!completed) {
+                logger.warn("Timeout waiting for the connections: {} of {} connected", connects, count);
+            }
+            logger.info("Connected {} clients in {} s - {} connects/s", connects, String.format("%.3f", seconds), String.format("%.1f", connects / seconds));
+        } finally {
+            for (MqttAsyncTransport transport : transports) {
+                try {
+                    transport.close();
+                } catch (Exception e) {
+                    logger.debug("Failed to close the transport", e);
+                }
+            }
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+}
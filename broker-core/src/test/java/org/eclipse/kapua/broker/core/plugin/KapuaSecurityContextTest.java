@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.plugin;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.filter.DestinationMapEntry;
+import org.apache.activemq.security.AuthorizationEntry;
+import org.apache.activemq.security.DefaultAuthorizationMap;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.service.authentication.token.shiro.AccessTokenImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KapuaSecurityContextTest {
+
+    private static final ActiveMQDestination DATA_TOPIC = ActiveMQDestination.createDestination("VirtualTopic.account.client.app.data", ActiveMQDestination.TOPIC_TYPE);
+    private static final ActiveMQDestination OTHER_CLIENT_TOPIC = ActiveMQDestination.createDestination("VirtualTopic.account.other.app.data", ActiveMQDestination.TOPIC_TYPE);
+
+    private AccessTokenImpl accessToken;
+    private KapuaPrincipalImpl principal;
+
+    @Before
+    public void setUp() {
+        accessToken = new AccessTokenImpl(new KapuaEid(BigInteger.ONE), new KapuaEid(BigInteger.TEN), "token",
+                new Date(System.currentTimeMillis() + 60000), "refresh", null);
+        principal = new KapuaPrincipalImpl(accessToken, "user", "client", "127.0.0.1");
+        KapuaSecurityUtils.setSession(new KapuaSession(accessToken, accessToken.getScopeId(), accessToken.getUserId()));
+    }
+
+    @After
+    public void tearDown() {
+        KapuaSecurityUtils.clearSession();
+    }
+
+    @Test
+    public void testWriteAuthorization() {
+        KapuaSecurityContext securityContext = newSecurityContext(newAuthMap("VirtualTopic.account.client.>"), 100);
+
+        Assert.assertTrue(securityContext.isWriteAuthorized(DATA_TOPIC));
+        Assert.assertFalse(securityContext.isWriteAuthorized(OTHER_CLIENT_TOPIC));
+        // cached decisions
+        Assert.assertTrue(securityContext.isWriteAuthorized(DATA_TOPIC));
+        Assert.assertFalse(securityContext.isWriteAuthorized(OTHER_CLIENT_TOPIC));
+    }
+
+    @Test
+    public void testWriteAuthorizationCacheDisabledOrFull() {
+        for (int sizeMax : new int[] { 0, 1 }) {
+            KapuaSecurityContext securityContext = newSecurityContext(newAuthMap("VirtualTopic.account.client.>"), sizeMax);
+            for (int i = 0; i < 3; i++) {
+                Assert.assertTrue(securityContext.isWriteAuthorized(DATA_TOPIC));
+                Assert.assertFalse(securityContext.isWriteAuthorized(OTHER_CLIENT_TOPIC));
+            }
+        }
+    }
+
+    @Test
+    public void testRevokedPermission() {
+        KapuaSecurityContext securityContext = newSecurityContext(newAuthMap("VirtualTopic.account.>"), 100);
+        Assert.assertTrue(securityContext.isWriteAuthorized(DATA_TOPIC));
+        Assert.assertTrue(securityContext.isWriteAuthorized(OTHER_CLIENT_TOPIC));
+
+        // the permission on the other clients is revoked: the ACLs built on the next connect deny the publish
+        KapuaSecurityContext reconnectedSecurityContext = newSecurityContext(newAuthMap("VirtualTopic.account.client.>"), 100);
+        Assert.assertTrue(reconnectedSecurityContext.isWriteAuthorized(DATA_TOPIC));
+        Assert.assertFalse(reconnectedSecurityContext.isWriteAuthorized(OTHER_CLIENT_TOPIC));
+    }
+
+    private KapuaSecurityContext newSecurityContext(DefaultAuthorizationMap authMap, int writeAuthorizationsSizeMax) {
+        return new KapuaSecurityContext(principal, authMap, null, null, "mqtt", null, writeAuthorizationsSizeMax);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private DefaultAuthorizationMap newAuthMap(String writeTopic) {
+        AuthorizationEntry entry = new AuthorizationEntry();
+        entry.setDestination(ActiveMQDestination.createDestination(writeTopic, ActiveMQDestination.TOPIC_TYPE));
+        entry.setWriteACLs(Collections.<Object> singleton(principal));
+        entry.setReadACLs(Collections.emptySet());
+        entry.setAdminACLs(Collections.emptySet());
+        List<DestinationMapEntry> dme = new ArrayList<>();
+        dme.add(entry);
+        return new DefaultAuthorizationMap(dme);
+    }
+}
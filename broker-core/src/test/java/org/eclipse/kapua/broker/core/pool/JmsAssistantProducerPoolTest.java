@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.core.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.broker.BrokerService;
+import org.eclipse.kapua.broker.core.plugin.Tests;
+import org.eclipse.kapua.broker.core.pool.JmsAssistantProducerPool.DESTINATIONS;
+import org.eclipse.kapua.broker.core.setting.BrokerSetting;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class JmsAssistantProducerPoolTest {
+
+    private static final int SHARD_COUNT = 2;
+
+    private static BrokerService broker;
+
+    private JmsAssistantProducerPool pool;
+
+    @BeforeClass
+    public static void startBroker() throws Exception {
+        // the producers connect to the embedded broker through the vm transport
+        broker = new BrokerService();
+        broker.setBrokerName("kapua");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.start();
+        broker.waitUntilStarted();
+    }
+
+    @AfterClass
+    public static void stopBroker() throws Exception {
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    @Before
+    public void setUp() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("broker.producer.pool.size.total.maximum", "3");
+        properties.put("broker.producer.pool.size.idle.maximum", "3");
+        properties.put("broker.producer.pool.size.idle.minimum", "0");
+        properties.put("broker.producer.pool.borrow.wait.maximum", "5000");
+        properties.put("broker.producer.pool.shard.count", String.valueOf(SHARD_COUNT));
+        Tests.runWithProperties(properties, () -> {
+            BrokerSetting.resetInstance();
+            pool = new JmsAssistantProducerPool(DESTINATIONS.NO_DESTINATION, new JmsAssistantProducerWrapperFactory(null));
+        });
+        BrokerSetting.resetInstance();
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testShardProducer() throws Exception {
+        JmsAssistantProducerWrapper producer = onShard(0, () -> {
+            JmsAssistantProducerWrapper borrowed = pool.borrowObject();
+            pool.returnObject(borrowed);
+            return borrowed;
+        });
+
+        // parked in the shard
+        assertEquals(1, pool.getNumActive());
+        assertSame(producer, onShard(0, pool::borrowObject));
+    }
+
+    @Test
+    public void testBorrowStealsFromOtherShards() throws Exception {
+        // a producer parked in the shard 0 and the others borrowed from the pool
+        JmsAssistantProducerWrapper parked = onShard(0, () -> {
+            JmsAssistantProducerWrapper borrowed = pool.borrowObject();
+            pool.returnObject(borrowed);
+            return borrowed;
+        });
+        onShard(1, () -> pool.borrowObject());
+        onShard(1, () -> pool.borrowObject());
+        assertEquals(3, pool.getNumActive());
+        assertEquals(0, pool.getNumIdle());
+
+        // the pool is exhausted: the producer parked in the shard 0 is borrowed, without waiting
+        long start = System.nanoTime();
+        assertSame(parked, onShard(1, () -> pool.borrowObject(100)));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+    }
+
+    @Test
+    public void testReturnToWaitingBorrower() throws Exception {
+        JmsAssistantProducerWrapper first = onShard(0, () -> pool.borrowObject());
+        onShard(0, () -> pool.borrowObject());
+        onShard(0, () -> pool.borrowObject());
+
+        // a thread waits for the exhausted pool
+        CountDownLatch waiting = new CountDownLatch(1);
+        CompletableFuture<JmsAssistantProducerWrapper> waiter = new CompletableFuture<>();
+        newShardThread(1, () -> {
+            waiting.countDown();
+            try {
+                waiter.complete(pool.borrowObject(5000));
+            } catch (Exception e) {
+                waiter.completeExceptionally(e);
+            }
+        }).start();
+        assertTrue(waiting.await(10, TimeUnit.SECONDS));
+        while (pool.getNumWaiters() == 0) {
+            Thread.sleep(10);
+        }
+
+        // the returned producer goes to the waiting thread instead of the (empty) shard of the returning thread
+        onShard(0, () -> {
+            pool.returnObject(first);
+            return null;
+        });
+        assertSame(first, waiter.get(10, TimeUnit.SECONDS));
+    }
+
+    private static <T> T onShard(int shard, Callable<T> callable) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Thread thread = newShardThread(shard, () -> {
+            try {
+                result.complete(callable.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        thread.start();
+        return result.get(10, TimeUnit.SECONDS);
+    }
+
+    private static Thread newShardThread(int shard, Runnable runnable) {
+        // the shard of a thread depends on its id
+        Thread thread;
+        do {
+            thread = new Thread(runnable);
+        } while (thread.getId() % SHARD_COUNT != shard);
+        return thread;
+    }
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *  
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.cache;
+
+import org.eclipse.kapua.model.id.KapuaId;
+
+/**
+ * Entity change listener definition.<br>
+ * It is notified by the {@link EntityChangeNotifier} when an entity is created, updated or deleted, so the local caches holding that entity can be invalidated.
+ * 
+ * @since 1.0
+ */
+public interface EntityChangeListener
+{
+
+    /**
+     * Called after an entity is created, updated or deleted
+     * 
+     * @param entityType the entity type (the TYPE constant of the entity)
+     * @param scopeId the entity scope id
+     * @param entityId the entity id
+     */
+    public void onEntityChange(String entityType, KapuaId scopeId, KapuaId entityId);
+
+    /**
+     * Called after an entity is created, updated or deleted, with its natural key (e.g. the device client id) when the notifier knows it.<br>
+     * It allows the caches keyed by the natural key to remove the changed entry directly.
+     * By default it ignores the name and calls {@link #onEntityChange(String, KapuaId, KapuaId)}.
+     * 
+     * @param entityType the entity type (the TYPE constant of the entity)
+     * @param scopeId the entity scope id
+     * @param entityId the entity id
+     * @param entityName the entity natural key (may be null)
+     */
+    public default void onEntityChange(String entityType, KapuaId scopeId, KapuaId entityId, String entityName)
+    {
+        onEntityChange(entityType, scopeId, entityId);
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *  
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *  
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entity change notifier.<br>
+ * Services notify here the changes of the entities they manage, so the local caches kept by other services in the same JVM can be invalidated.<br>
+ * Caches in other JVMs are not notified, so they must be bounded by a time to live.
+ * 
+ * @since 1.0
+ */
+public final class EntityChangeNotifier
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityChangeNotifier.class);
+
+    private static final List<EntityChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private EntityChangeNotifier()
+    {
+    }
+
+    /**
+     * Register the listener
+     * 
+     * @param listener
+     */
+    public static void addListener(EntityChangeListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister the listener
+     * 
+     * @param listener
+     */
+    public static void removeListener(EntityChangeListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notify the entity change to all the registered listeners.<BR>
+     * An exception thrown by a listener is logged and doesn't prevent the other listeners to be notified.
+     * 
+     * @param entityType the entity type (the TYPE constant of the entity)
+     * @param scopeId the entity scope id
+     * @param entityId the entity id
+     */
+    public static void notifyChange(String entityType, KapuaId scopeId, KapuaId entityId)
+    {
+        notifyChange(entityType, scopeId, entityId, null);
+    }
+
+    /**
+     * Notify the entity change, with the entity natural key, to all the registered listeners.<BR>
+     * An exception thrown by a listener is logged and doesn't prevent the other listeners to be notified.
+     * 
+     * @param entityType the entity type (the TYPE constant of the entity)
+     * @param scopeId the entity scope id
+     * @param entityId the entity id
+     * @param entityName the entity natural key (e.g. the device client id), or null if not known
+     */
+    public static void notifyChange(String entityType, KapuaId scopeId, KapuaId entityId, String entityName)
+    {
+        for (EntityChangeListener listener : listeners) {
+            try {
+                listener.onEntityChange(entityType, scopeId, entityId, entityName);
+            } catch (RuntimeException e) {
+                logger.warn("Entity change listener error for {} {}", entityType, entityId, e);
+            }
+        }
+    }
+}
@@ -14,6 +14,10 @@ package org.eclipse.kapua.commons.configuration;
 
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.configuration.metatype.TadImpl;
+import org.eclipse.kapua.commons.configuration.metatype.TiconImpl;
+import org.eclipse.kapua.commons.configuration.metatype.TocdImpl;
+import org.eclipse.kapua.commons.configuration.metatype.ToptionImpl;
 import org.eclipse.kapua.commons.jpa.EntityManager;
 import org.eclipse.kapua.commons.jpa.EntityManagerFactory;
 import org.eclipse.kapua.commons.model.query.predicate.AndPredicate;
@@ -25,8 +29,10 @@ import org.eclipse.kapua.commons.util.ResourceUtils;
 import org.eclipse.kapua.commons.util.xml.XmlUtil;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.model.config.metatype.KapuaTad;
+import org.eclipse.kapua.model.config.metatype.KapuaTicon;
 import org.eclipse.kapua.model.config.metatype.KapuaTmetadata;
 import org.eclipse.kapua.model.config.metatype.KapuaTocd;
+import org.eclipse.kapua.model.config.metatype.KapuaToption;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.predicate.KapuaAttributePredicate.Operator;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
@@ -34,16 +40,21 @@ import org.eclipse.kapua.service.authorization.domain.Domain;
 import org.eclipse.kapua.service.authorization.permission.Actions;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.config.KapuaConfigurableService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Configurable service definition abstract reference implementation.
@@ -52,6 +63,14 @@ import java.util.Properties;
  */
 public abstract class AbstractKapuaConfigurableService extends AbstractKapuaService implements KapuaConfigurableService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AbstractKapuaConfigurableService.class);
+
+    /**
+     * Parsed metadata cache (by service pid).<br>
+     * The metatype xml is a classpath resource so it never changes once read.
+     */
+    private static final Map<String, ServiceMetadata> metadataCache = new ConcurrentHashMap<>();
+
     private Domain domain = null;
     private String pid = null;
 
@@ -65,7 +84,7 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
      * @throws XMLStreamException
      * @throws FactoryConfigurationError
      */
-    private static KapuaTmetadata readMetadata(String pid)
+    static KapuaTmetadata readMetadata(String pid)
             throws Exception, FactoryConfigurationError {
         KapuaTmetadata metaData = null;
         StringBuilder sbMetatypeXmlName = new StringBuilder();
@@ -81,23 +100,45 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         return metaData;
     }
 
+    /**
+     * Get the metadata for the service pid from the cache, reading it on the first call
+     *
+     * @param pid
+     * @return
+     * @throws KapuaException
+     */
+    static ServiceMetadata getMetadata(String pid)
+            throws KapuaException {
+        ServiceMetadata metadata = metadataCache.get(pid);
+        if (metadata == null) {
+            try {
+                metadata = new ServiceMetadata(pid, readMetadata(pid));
+            } catch (Exception e) {
+                throw KapuaConfigurationException.internalError(e);
+            }
+
+            ServiceMetadata previous = metadataCache.putIfAbsent(pid, metadata);
+            if (previous != null) {
+                metadata = previous;
+            }
+        }
+        return metadata;
+    }
+
     /**
      * Validate configuration
      *
-     * @param ocd
+     * @param metadata
      * @param updatedProps
      * @throws KapuaException
      */
-    private void validateConfigurations(String pid, KapuaTocd ocd, Map<String, Object> updatedProps, KapuaId scopeId)
+    private void validateConfigurations(ServiceMetadata metadata, Map<String, Object> updatedProps, KapuaId scopeId)
             throws KapuaException {
+        KapuaTocd ocd = metadata.getOcd();
         if (ocd != null) {
 
-            // build a map of all the attribute definitions
-            Map<String, KapuaTad> attrDefs = new HashMap<String, KapuaTad>();
-            List<KapuaTad> defs = ocd.getAD();
-            for (KapuaTad def : defs) {
-                attrDefs.put(def.getId(), def);
-            }
+            // precomputed map of all the attribute definitions
+            Map<String, KapuaTad> attrDefs = metadata.getAttributeDefinitions();
 
             // loop over the proposed property values
             // and validate them against the definition
@@ -148,6 +189,16 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         }
     }
 
+    /**
+     * Validate the coherence of the new configuration values.<br>
+     * The object class definition is the cached one shared by all the callers, so it must not be modified.
+     *
+     * @param ocd
+     * @param updatedProps
+     * @param scopeId
+     * @return
+     * @throws KapuaException
+     */
     protected String validateNewConfigValuesCoherence(KapuaTocd ocd, Map<String, Object> updatedProps, KapuaId scopeId) throws KapuaException {
         return "";
     }
@@ -255,6 +306,15 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         super(entityManagerFactory);
         this.pid = pid;
         this.domain = domain;
+
+        //
+        // Pre-populate the metadata cache.
+        // If the metadata cannot be read yet (i.e. the JAXB context is not set) it will be read on the first use.
+        try {
+            getMetadata(pid);
+        } catch (KapuaException e) {
+            logger.debug("Cannot read the metadata for {}, it will be read on first use: {}", pid, e.getMessage());
+        }
     }
 
     @Override
@@ -267,19 +327,8 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         KapuaId scopeId = KapuaSecurityUtils.getSession().getScopeId();
         authorizationService.checkPermission(permissionFactory.newPermission(domain, Actions.read, scopeId));
 
-        try {
-            KapuaTmetadata metadata = readMetadata(this.pid);
-            if (metadata != null && metadata.getOCD() != null && metadata.getOCD().size() > 0) {
-                for (KapuaTocd ocd : metadata.getOCD()) {
-                    if (ocd.getId() != null && ocd.getId().equals(pid)) {
-                        return ocd;
-                    }
-                }
-            }
-            return null;
-        } catch (Exception e) {
-            throw KapuaConfigurationException.internalError(e);
-        }
+        // the cached metadata is shared, so the caller gets its own copy
+        return getMetadata(this.pid).copyOcd();
     }
 
     @Override
@@ -303,7 +352,8 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         if (result != null && result.getSize() > 0)
             properties = result.getItem(0).getConfigurations();
 
-        KapuaTocd ocd = this.getConfigMetadata();
+        // Read permission is already checked for the requested scope
+        KapuaTocd ocd = getMetadata(this.pid).getOcd();
         return toValues(ocd, properties);
     }
 
@@ -315,8 +365,8 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(domain, Actions.write, scopeId));
 
-        KapuaTocd ocd = this.getConfigMetadata();
-        validateConfigurations(this.pid, ocd, values, scopeId);
+        ServiceMetadata metadata = getMetadata(this.pid);
+        validateConfigurations(metadata, values, scopeId);
 
         Properties props = toProperties(values);
 
@@ -346,4 +396,99 @@ public abstract class AbstractKapuaConfigurableService extends AbstractKapuaServ
         this.update(em, serviceConfig);
         return;
     }
+
+    /**
+     * Parsed service metadata.<br>
+     * It holds the object class definition of the service pid and the map of its attribute definitions (by id).
+     * The instances are shared by all the callers so they must not be modified (the callers outside this class get a copy of the object class definition).
+     */
+    static final class ServiceMetadata {
+
+        private final KapuaTocd ocd;
+        private final Map<String, KapuaTad> attributeDefinitions;
+
+        ServiceMetadata(String pid, KapuaTmetadata metadata) {
+            KapuaTocd pidOcd = null;
+            if (metadata != null && metadata.getOCD() != null) {
+                for (KapuaTocd ocd : metadata.getOCD()) {
+                    if (ocd.getId() != null && ocd.getId().equals(pid)) {
+                        pidOcd = ocd;
+                        break;
+                    }
+                }
+            }
+
+            Map<String, KapuaTad> attrDefs = new HashMap<String, KapuaTad>();
+            if (pidOcd != null) {
+                for (KapuaTad def : pidOcd.getAD()) {
+                    attrDefs.put(def.getId(), def);
+                }
+            }
+
+            this.ocd = pidOcd;
+            this.attributeDefinitions = Collections.unmodifiableMap(attrDefs);
+        }
+
+        KapuaTocd getOcd() {
+            return ocd;
+        }
+
+        /**
+         * Get a deep copy of the object class definition, so the caller can modify it without affecting the cached one
+         *
+         * @return
+         */
+        KapuaTocd copyOcd() {
+            if (ocd == null) {
+                return null;
+            }
+
+            TocdImpl ocdCopy = new TocdImpl();
+            ocdCopy.setId(ocd.getId());
+            ocdCopy.setName(ocd.getName());
+            ocdCopy.setDescription(ocd.getDescription());
+            for (KapuaTad ad : ocd.getAD()) {
+                ocdCopy.addAD(copyAd(ad));
+            }
+            for (KapuaTicon icon : ocd.getIcon()) {
+                TiconImpl iconCopy = new TiconImpl();
+                iconCopy.setResource(icon.getResource());
+                iconCopy.setSize(icon.getSize());
+                iconCopy.getAny().addAll(icon.getAny());
+                iconCopy.getOtherAttributes().putAll(icon.getOtherAttributes());
+                ocdCopy.addIcon(iconCopy);
+            }
+            ocdCopy.setAny(new ArrayList<>(ocd.getAny()));
+            ocdCopy.setOtherAttributes(new HashMap<>(ocd.getOtherAttributes()));
+            return ocdCopy;
+        }
+
+        private static KapuaTad copyAd(KapuaTad ad) {
+            TadImpl adCopy = new TadImpl();
+            adCopy.setId(ad.getId());
+            adCopy.setName(ad.getName());
+            adCopy.setDescription(ad.getDescription());
+            adCopy.setType(ad.getType());
+            adCopy.setCardinality(ad.getCardinality());
+            adCopy.setMin(ad.getMin());
+            adCopy.setMax(ad.getMax());
+            adCopy.setDefault(ad.getDefault());
+            adCopy.setRequired(ad.isRequired());
+            for (KapuaToption option : ad.getOption()) {
+                ToptionImpl optionCopy = new ToptionImpl();
+                optionCopy.setLabel(option.getLabel());
+                optionCopy.setValue(option.getValue());
+                optionCopy.getAny().addAll(option.getAny());
+                optionCopy.getOtherAttributes().putAll(option.getOtherAttributes());
+                adCopy.addOption(optionCopy);
+            }
+            adCopy.getAny().addAll(ad.getAny());
+            adCopy.getOtherAttributes().putAll(ad.getOtherAttributes());
+            return adCopy;
+        }
+
+        Map<String, KapuaTad> getAttributeDefinitions() {
+            return attributeDefinitions;
+        }
+    }
 }
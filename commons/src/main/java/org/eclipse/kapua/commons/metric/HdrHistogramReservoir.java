@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Reservoir backed by an HdrHistogram.<br>
+ * The values are recorded without locks nor allocations (by a {@link Recorder}) and every value is counted, so the high percentiles (e.g. p99, p999) are not lost by sampling
+ * as with the default exponentially decaying reservoir.<br>
+ * The snapshots cover the values recorded in the current and in the previous time window, so the percentiles follow the recent latencies.<br>
+ * The values of the snapshots (see {@link Snapshot#getValues()}) are a bounded sample of the recorded values, evenly spaced by rank.
+ * The snapshots also report the sum of all the values recorded by the reservoir (see {@link HdrHistogramSnapshot#getSum()}).
+ *
+ * @since 1.0
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    /**
+     * Maximum number of values of a snapshot (as the default Dropwizard reservoir)
+     */
+    static final int SAMPLE_SIZE = 1028;
+
+    private final int significantDigits;
+    private final long windowMillis;
+    private final Recorder recorder;
+    private final LongAdder sum = new LongAdder();
+
+    // guarded by this
+    private Histogram intervalHistogram;
+    private Histogram currentWindow;
+    private Histogram previousWindow;
+    private long windowStart;
+
+    /**
+     * Constructor
+     *
+     * @param significantDigits
+     *            the number of significant decimal digits of the recorded values (0 to 5)
+     * @param windowMillis
+     *            the time window (milliseconds)
+     */
+    public HdrHistogramReservoir(int significantDigits, long windowMillis) {
+        this.significantDigits = significantDigits;
+        this.windowMillis = windowMillis;
+        recorder = new Recorder(significantDigits);
+        currentWindow = new Histogram(significantDigits);
+        previousWindow = new Histogram(significantDigits);
+        windowStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the number of values of the last snapshot (the windows are not updated)
+     */
+    @Override
+    public synchronized int size() {
+        return sampleSize(currentWindow.getTotalCount() + previousWindow.getTotalCount());
+    }
+
+    @Override
+    public void update(long value) {
+        long recordedValue = value < 0 ? 0 : value;
+        recorder.recordValue(recordedValue);
+        sum.add(recordedValue);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= windowMillis) {
+            Histogram expiredWindow = previousWindow;
+            previousWindow = currentWindow;
+            if (now - windowStart >= 2 * windowMillis) {
+                // nothing has been read for more than a window: the previous window is expired too
+                previousWindow.reset();
+            }
+            currentWindow = expiredWindow;
+            currentWindow.reset();
+            windowStart = now;
+        }
+        currentWindow.add(intervalHistogram);
+
+        Histogram snapshotHistogram = new Histogram(significantDigits);
+        snapshotHistogram.add(previousWindow);
+        snapshotHistogram.add(currentWindow);
+        return new HdrHistogramSnapshot(snapshotHistogram, sum.sum());
+    }
+
+    private static int sampleSize(long count) {
+        return (int) Math.min(count, SAMPLE_SIZE);
+    }
+
+    /**
+     * Snapshot of an HdrHistogram
+     */
+    static class HdrHistogramSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+        private final long sum;
+
+        private HdrHistogramSnapshot(Histogram histogram, long sum) {
+            this.histogram = histogram;
+            this.sum = sum;
+        }
+
+        /**
+         * Get the sum of all the values recorded by the reservoir (not only the values of the snapshot windows)
+         *
+         * @return
+         */
+        long getSum() {
+            return sum;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            return histogram.getValueAtPercentile(quantile * 100.0);
+        }
+
+        /**
+         * Get a sample of the recorded values, sorted: the values at {@link #size()} ranks evenly spaced over all the recorded values.
+         * Prefer {@link #getValue(double)}
+         */
+        @Override
+        public long[] getValues() {
+            long totalCount = histogram.getTotalCount();
+            long[] values = new long[sampleSize(totalCount)];
+            int index = 0;
+            long rankCount = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                rankCount += value.getCountAtValueIteratedTo();
+                // the sample value i is the value of the rank i * totalCount / values.length
+                while (index < values.length && index * totalCount / values.length < rankCount) {
+                    values[index++] = value.getValueIteratedTo();
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return sampleSize(histogram.getTotalCount());
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getTotalCount() > 0 ? histogram.getMaxValue() : 0;
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getTotalCount() > 0 ? histogram.getMean() : 0;
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getTotalCount() > 0 ? histogram.getMinValue() : 0;
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getTotalCount() > 1 ? histogram.getStdDeviation() : 0;
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.kapua.commons.model.AbstractKapuaEntity;
+import org.eclipse.kapua.service.authorization.domain.Domain;
+import org.eclipse.kapua.service.authorization.permission.Actions;
+import org.eclipse.kapua.service.authorization.permission.Permission;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Metrics permission domain.<br>
+ * Used to describe the metrics domain in the {@link Permission} (the metrics export, e.g. {@link PrometheusTextExporter}, requires the read action).
+ *
+ * @since 1.0
+ */
+public class MetricsDomain extends AbstractKapuaEntity implements Domain {
+
+    private static final long serialVersionUID = -6297734525961208361L;
+
+    private String name = "metrics";
+    private String serviceName = "metricsService";
+    private Set<Actions> actions = new HashSet<>(Lists.newArrayList(Actions.read));
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setServiceName(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    @Override
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    @Override
+    public void setActions(Set<Actions> actions) {
+        this.actions = actions;
+    }
+
+    @Override
+    public Set<Actions> getActions() {
+        return actions;
+    }
+}
@@ -13,22 +13,36 @@
 package org.eclipse.kapua.commons.metric;
 
 import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
 import org.eclipse.kapua.locator.KapuaProvider;
+import org.eclipse.kapua.service.metric.MetricTags;
 import org.eclipse.kapua.service.metric.MetricsService;
+import org.eclipse.kapua.service.metric.ScopedMetric;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 
 /**
  * Metric report exporter handler.
- * It provides methods for register/unregister metric in the context
+ * It provides methods for register/unregister metric in the context.<br>
+ * The metrics are cached by name and tags, so the lookup of an existing metric doesn't lock nor copy the registry.<br>
+ * The timers and histograms are backed by {@link HdrHistogramReservoir} (see {@link SystemSettingKey#METRICS_HDR_ENABLE})
+ * and the metrics are exposed as JMX MBeans (see {@link SystemSettingKey#METRICS_JMX_ENABLE}). See also {@link PrometheusTextExporter}.<br>
+ * The timers tagged by scope are tracked by scope only if enabled (see {@link SystemSettingKey#METRICS_SCOPE_TAGS_ENABLE}), for a bounded number of scopes.
  *
  * @since 1.0
  */
@@ -41,11 +55,37 @@ public class MetricsServiceImpl implements MetricsService {
 
     private final MetricRegistry metricRegistry;
 
+    private final ConcurrentMap<MetricKey, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetricKey, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetricKey, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetricKey, ScopedMetric<Timer>> scopedTimers = new ConcurrentHashMap<>();
+
+    private final boolean hdrEnabled;
+    private final int hdrSignificantDigits;
+    private final long hdrWindow;
+    private final boolean scopeTagsEnabled;
+    private final int scopeTagsMax;
+
     /**
      * Default metric service constructor
      */
     public MetricsServiceImpl() {
         metricRegistry = new MetricRegistry();
+
+        SystemSetting setting = SystemSetting.getInstance();
+        hdrEnabled = setting.getBoolean(SystemSettingKey.METRICS_HDR_ENABLE, true);
+        hdrSignificantDigits = setting.getInt(SystemSettingKey.METRICS_HDR_SIGNIFICANT_DIGITS, 2);
+        hdrWindow = setting.getLong(SystemSettingKey.METRICS_HDR_WINDOW, 60000L);
+        scopeTagsEnabled = setting.getBoolean(SystemSettingKey.METRICS_SCOPE_TAGS_ENABLE, false);
+        scopeTagsMax = setting.getInt(SystemSettingKey.METRICS_SCOPE_TAGS_MAX, 100);
+
+        if (setting.getBoolean(SystemSettingKey.METRICS_JMX_ENABLE, false)) {
+            JmxReporter.forRegistry(metricRegistry)
+                    .inDomain(setting.getString(SystemSettingKey.METRICS_JMX_DOMAIN, "org.eclipse.kapua"))
+                    .convertDurationsTo(TimeUnit.SECONDS)
+                    .build()
+                    .start();
+        }
     }
 
     @Override
@@ -55,35 +95,61 @@ public class MetricsServiceImpl implements MetricsService {
 
     @Override
     public Counter getCounter(String module, String component, String... names) {
-        String name = getMetricName(module, component, names);
-        Counter counter = metricRegistry.getCounters().get(name);
-        if (counter == null) {
+        return getCounter(MetricTags.EMPTY, module, component, names);
+    }
+
+    @Override
+    public Counter getCounter(MetricTags tags, String module, String component, String... names) {
+        return getMetric(counters, new MetricKey(tags, module, component, names), name -> {
             logger.debug("Creating a Counter: {}", name);
-            counter = metricRegistry.counter(name);
-        }
-        return counter;
+            return metricRegistry.counter(name);
+        });
     }
 
     @Override
     public Histogram getHistogram(String module, String component, String... names) {
-        String name = getMetricName(module, component, names);
-        Histogram histogram = metricRegistry.getHistograms().get(name);
-        if (histogram == null) {
+        return getHistogram(MetricTags.EMPTY, module, component, names);
+    }
+
+    @Override
+    public Histogram getHistogram(MetricTags tags, String module, String component, String... names) {
+        return getMetric(histograms, new MetricKey(tags, module, component, names), name -> {
             logger.debug("Creating a Histogram: {}", name);
-            histogram = metricRegistry.histogram(name);
-        }
-        return histogram;
+            if (!hdrEnabled) {
+                return metricRegistry.histogram(name);
+            }
+            Histogram histogram = metricRegistry.getHistograms().get(name);
+            return histogram != null ? histogram : metricRegistry.register(name, new Histogram(new HdrHistogramReservoir(hdrSignificantDigits, hdrWindow)));
+        });
     }
 
     @Override
     public Timer getTimer(String module, String component, String... names) {
-        String name = getMetricName(module, component, names);
-        Timer timer = metricRegistry.getTimers().get(name);
-        if (timer == null) {
+        return getTimer(MetricTags.EMPTY, module, component, names);
+    }
+
+    @Override
+    public Timer getTimer(MetricTags tags, String module, String component, String... names) {
+        return getMetric(timers, new MetricKey(tags, module, component, names), name -> {
             logger.debug("Creating a Timer: {}", name);
-            timer = metricRegistry.timer(name);
+            if (!hdrEnabled) {
+                return metricRegistry.timer(name);
+            }
+            Timer timer = metricRegistry.getTimers().get(name);
+            return timer != null ? timer : metricRegistry.register(name, newTimer());
+        });
+    }
+
+    @Override
+    public ScopedMetric<Timer> getScopedTimer(MetricTags tags, String module, String component, String... names) {
+        if (!scopeTagsEnabled) {
+            Timer timer = getTimer(tags, module, component, names);
+            return scopeId -> timer;
         }
-        return timer;
+        return getMetric(scopedTimers, new MetricKey(tags, module, component, names), name -> {
+            logger.debug("Creating a Timer by scope: {}", name);
+            return new ScopedMetricImpl<>(metricRegistry, getMetricName(module, component, names), tags != null ? tags : MetricTags.EMPTY, this::newTimer, scopeTagsMax);
+        });
     }
 
     @Override
@@ -96,6 +162,28 @@ public class MetricsServiceImpl implements MetricsService {
         }
     }
 
+    private Timer newTimer() {
+        return hdrEnabled ? new Timer(new HdrHistogramReservoir(hdrSignificantDigits, hdrWindow)) : new Timer();
+    }
+
+    /**
+     * Get the cached metric, creating (and caching) it if not found.<br>
+     * The lookup of a cached metric doesn't lock (the metrics are created once, by {@link ConcurrentMap#computeIfAbsent(Object, Function)}).
+     *
+     * @param cache
+     * @param key
+     * @param factory
+     *            creates the metric with the given name
+     * @return
+     */
+    private static <M> M getMetric(ConcurrentMap<MetricKey, M> cache, MetricKey key, Function<String, M> factory) {
+        M metric = cache.get(key);
+        if (metric == null) {
+            metric = cache.computeIfAbsent(key, k -> factory.apply(k.getName()));
+        }
+        return metric;
+    }
+
     /**
      * Build the metric name based on module, component and metric names
      *
@@ -104,18 +192,19 @@ public class MetricsServiceImpl implements MetricsService {
      * @param metricsName
      * @return
      */
-    private String getMetricName(String module, String component, String... metricsName) {
-        return MessageFormat.format(METRICS_NAME_FORMAT, new Object[] { module, component, convertToDotNotation(metricsName) });
+    private static String getMetricName(String module, String component, String... metricsName) {
+        StringBuilder builder = new StringBuilder().append(module).append('.').append(component).append('.');
+        appendDotNotation(builder, metricsName);
+        return builder.toString();
     }
 
     /**
-     * Convert the metric names to a concatenated dot separated string
+     * Append the metric names as a dot separated string
      *
+     * @param builder
      * @param metricsName
-     * @return
      */
-    private String convertToDotNotation(String... metricsName) {
-        StringBuilder builder = new StringBuilder();
+    private static void appendDotNotation(StringBuilder builder, String... metricsName) {
         boolean firstMetricName = true;
         for (String s : metricsName) {
             if (!firstMetricName) {
@@ -124,7 +213,60 @@ public class MetricsServiceImpl implements MetricsService {
             firstMetricName = false;
             builder.append(s);
         }
-        return builder.toString();
+    }
+
+    /**
+     * Metric cache key: the metric name parts and tags, so the lookup doesn't format the full name
+     */
+    private static final class MetricKey {
+
+        private final MetricTags tags;
+        private final String module;
+        private final String component;
+        private final String[] names;
+        private final int hashCode;
+
+        private MetricKey(MetricTags tags, String module, String component, String[] names) {
+            this.tags = tags != null ? tags : MetricTags.EMPTY;
+            this.module = module;
+            this.component = component;
+            this.names = names;
+
+            int hash = this.tags.hashCode();
+            hash = 31 * hash + String.valueOf(module).hashCode();
+            hash = 31 * hash + String.valueOf(component).hashCode();
+            hashCode = 31 * hash + Arrays.hashCode(names);
+        }
+
+        /**
+         * Get the metric name in the registry ({@code <module>.<component>.<names>} followed by the tags)
+         *
+         * @return
+         */
+        private String getName() {
+            return getMetricName(module, component, names) + tags;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MetricKey)) {
+                return false;
+            }
+            MetricKey other = (MetricKey) obj;
+            return hashCode == other.hashCode &&
+                    String.valueOf(module).equals(String.valueOf(other.module)) &&
+                    String.valueOf(component).equals(String.valueOf(other.component)) &&
+                    Arrays.equals(names, other.names) &&
+                    tags.equals(other.tags);
+        }
     }
 
 }
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.service.metric.MetricTags;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * Export the metrics of a {@link MetricRegistry} in the Prometheus text format (version 0.0.4).<br>
+ * The metric names are prefixed by {@code kapua_} and the characters not allowed by Prometheus are replaced by {@code _}.
+ * The tags of the metrics (see {@link MetricTags}) are exported as labels, so the metrics with the same name and different tags are exported as a single family.<br>
+ * The metrics are exported as:
+ * <ul>
+ * <li>{@link Counter}: gauge (the counters can be decremented)</li>
+ * <li>{@link Gauge}: gauge (only the numeric and boolean gauges)</li>
+ * <li>{@link Meter}: counter ({@code _total})</li>
+ * <li>{@link Histogram}: summary (quantiles, {@code _sum} and {@code _count})</li>
+ * <li>{@link Timer}: summary in seconds (quantiles, {@code _sum} and {@code _count})</li>
+ * </ul>
+ * The {@code _sum} of the summaries is the sum of all the recorded values for the metrics backed by {@link HdrHistogramReservoir},
+ * otherwise it's estimated from the snapshot mean and the count.
+ *
+ * @since 1.0
+ */
+public class PrometheusTextExporter {
+
+    /**
+     * Content type of the Prometheus text format
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String NAME_PREFIX = "kapua_";
+    private static final double[] QUANTILES = new double[] { 0.5, 0.75, 0.95, 0.98, 0.99, 0.999 };
+    private static final double SECONDS_PER_NANO = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    private PrometheusTextExporter() {
+    }
+
+    /**
+     * Write the metrics of the registry
+     *
+     * @param metricRegistry
+     * @param writer
+     * @throws IOException
+     */
+    public static void write(MetricRegistry metricRegistry, Writer writer) throws IOException {
+        // group the metrics with the same name (and different tags) by family
+        Map<String, List<TaggedMetric>> families = new TreeMap<>();
+        for (Map.Entry<String, Metric> metric : metricRegistry.getMetrics().entrySet()) {
+            TaggedMetric taggedMetric = new TaggedMetric(metric.getKey(), metric.getValue());
+            families.computeIfAbsent(taggedMetric.family, key -> new ArrayList<>()).add(taggedMetric);
+        }
+
+        for (Map.Entry<String, List<TaggedMetric>> family : families.entrySet()) {
+            writeFamily(writer, family.getKey(), family.getValue());
+        }
+        writer.flush();
+    }
+
+    private static void writeFamily(Writer writer, String family, List<TaggedMetric> metrics) throws IOException {
+        String type = null;
+        for (TaggedMetric taggedMetric : metrics) {
+            Metric metric = taggedMetric.metric;
+            String metricType;
+            if (metric instanceof Counter || metric instanceof Gauge) {
+                metricType = "gauge";
+            } else if (metric instanceof Meter) {
+                metricType = "counter";
+            } else {
+                metricType = "summary";
+            }
+
+            if (type == null) {
+                type = metricType;
+                writer.append("# TYPE ").append(family).append(' ').append(type).append('\n');
+            } else if (!type.equals(metricType)) {
+                // a family has a single type
+                continue;
+            }
+
+            if (metric instanceof Counter) {
+                writeSample(writer, family, taggedMetric.labels, null, ((Counter) metric).getCount());
+            } else if (metric instanceof Gauge) {
+                Object value = ((Gauge<?>) metric).getValue();
+                if (value instanceof Number) {
+                    writeSample(writer, family, taggedMetric.labels, null, ((Number) value).doubleValue());
+                } else if (value instanceof Boolean) {
+                    writeSample(writer, family, taggedMetric.labels, null, ((Boolean) value) ? 1 : 0);
+                }
+            } else if (metric instanceof Timer) {
+                Timer timer = (Timer) metric;
+                writeSummary(writer, family, taggedMetric.labels, timer.getSnapshot(), timer.getCount(), SECONDS_PER_NANO);
+            } else if (metric instanceof Histogram) {
+                Histogram histogram = (Histogram) metric;
+                writeSummary(writer, family, taggedMetric.labels, histogram.getSnapshot(), histogram.getCount(), 1.0);
+            } else if (metric instanceof Meter) {
+                writeSample(writer, family + "_total", taggedMetric.labels, null, ((Meter) metric).getCount());
+            }
+        }
+    }
+
+    private static void writeSummary(Writer writer, String family, String labels, Snapshot snapshot, long count, double factor) throws IOException {
+        for (double quantile : QUANTILES) {
+            writeSample(writer, family, labels, "quantile=\"" + quantile + "\"", snapshot.getValue(quantile) * factor);
+        }
+        double sum = snapshot instanceof HdrHistogramReservoir.HdrHistogramSnapshot ? ((HdrHistogramReservoir.HdrHistogramSnapshot) snapshot).getSum() : snapshot.getMean() * count;
+        writeSample(writer, family + "_sum", labels, null, sum * factor);
+        writeSample(writer, family + "_count", labels, null, count);
+    }
+
+    private static void writeSample(Writer writer, String name, String labels, String extraLabel, double value) throws IOException {
+        writer.append(name);
+        if (labels != null || extraLabel != null) {
+            writer.append('{');
+            if (labels != null) {
+                writer.append(labels);
+            }
+            if (extraLabel != null) {
+                if (labels != null) {
+                    writer.append(',');
+                }
+                writer.append(extraLabel);
+            }
+            writer.append('}');
+        }
+        writer.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String sanitizeName(String name) {
+        StringBuilder builder = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            builder.append((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == ':' ? c : '_');
+        }
+        return builder.toString();
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Registry metric split in family name and labels (from the tags appended to the registry name)
+     */
+    private static class TaggedMetric {
+
+        private final String family;
+        private final String labels;
+        private final Metric metric;
+
+        private TaggedMetric(String registryName, Metric metric) {
+            this.metric = metric;
+
+            int tagsStart = registryName.indexOf('{');
+            if (tagsStart >= 0 && registryName.endsWith("}")) {
+                family = NAME_PREFIX + sanitizeName(registryName.substring(0, tagsStart));
+
+                StringBuilder builder = new StringBuilder();
+                for (String tag : registryName.substring(tagsStart + 1, registryName.length() - 1).split(",")) {
+                    int separator = tag.indexOf('=');
+                    if (separator > 0) {
+                        if (builder.length() > 0) {
+                            builder.append(',');
+                        }
+                        builder.append(sanitizeName(tag.substring(0, separator)))
+                                .append("=\"")
+                                .append(escapeLabelValue(tag.substring(separator + 1)))
+                                .append('"');
+                    }
+                }
+                labels = builder.length() > 0 ? builder.toString() : null;
+            } else {
+                family = NAME_PREFIX + sanitizeName(registryName);
+                labels = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import java.math.BigInteger;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.metric.MetricTags;
+import org.eclipse.kapua.service.metric.ScopedMetric;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * {@link ScopedMetric} with a metric for each scope.<br>
+ * The metrics are cached by scope id (the tags are built and the metric is registered only for a new scope) and the number of scopes is bounded:
+ * the metrics of the least recently used scopes are evicted and removed from the registry.
+ *
+ * @param <M>
+ *            metric type
+ * @since 1.0
+ */
+final class ScopedMetricImpl<M extends Metric> implements ScopedMetric<M> {
+
+    private static final String NO_SCOPE = "none";
+
+    private final MetricRegistry metricRegistry;
+    private final String name;
+    private final MetricTags tags;
+    private final Supplier<M> factory;
+    private final Cache<BigInteger, M> metrics;
+    private final M noScopeMetric;
+
+    /**
+     * Constructor
+     *
+     * @param metricRegistry
+     * @param name
+     *            the metric name (without tags)
+     * @param tags
+     *            the metric tags (without the scope)
+     * @param factory
+     *            creates a new (not registered) metric
+     * @param scopeMax
+     *            the maximum number of scopes
+     */
+    ScopedMetricImpl(MetricRegistry metricRegistry, String name, MetricTags tags, Supplier<M> factory, int scopeMax) {
+        this.metricRegistry = metricRegistry;
+        this.name = name;
+        this.tags = tags;
+        this.factory = factory;
+        metrics = CacheBuilder.newBuilder()
+                .maximumSize(scopeMax)
+                .removalListener(this::onRemoval)
+                .build();
+        noScopeMetric = register(NO_SCOPE);
+    }
+
+    @Override
+    public M get(KapuaId scopeId) {
+        if (scopeId == null || scopeId.getId() == null) {
+            return noScopeMetric;
+        }
+        M metric = metrics.getIfPresent(scopeId.getId());
+        if (metric == null) {
+            try {
+                metric = metrics.get(scopeId.getId(), () -> register(scopeId.toCompactId()));
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                // the registration failed: the operation is not tracked by scope
+                return noScopeMetric;
+            }
+        }
+        return metric;
+    }
+
+    /**
+     * Register a new metric for the scope, replacing the metric of the same scope evicted and not yet removed (if any)
+     *
+     * @param scope
+     * @return
+     */
+    private synchronized M register(String scope) {
+        String scopeName = getScopeName(scope);
+        metricRegistry.remove(scopeName);
+        return metricRegistry.register(scopeName, factory.get());
+    }
+
+    private synchronized void onRemoval(RemovalNotification<BigInteger, M> notification) {
+        if (notification.wasEvicted()) {
+            String scopeName = getScopeName(new KapuaEid(notification.getKey()).toCompactId());
+            // the metric could have already been replaced by a new metric of the same scope
+            if (metricRegistry.getMetrics().get(scopeName) == notification.getValue()) {
+                metricRegistry.remove(scopeName);
+            }
+        }
+    }
+
+    private String getScopeName(String scope) {
+        return name + tags.and(MetricTags.SCOPE, scope);
+    }
+}
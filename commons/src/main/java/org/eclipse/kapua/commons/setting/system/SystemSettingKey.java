@@ -170,7 +170,36 @@ public enum SystemSettingKey implements SettingKey {
     /**
      * Maximum allowed retry (due to a {@link EntityExistsException}, so already exists key) on insert operation
      */
-    KAPUA_INSERT_MAX_RETRY("commons.entity.insert.max.retry");
+    KAPUA_INSERT_MAX_RETRY("commons.entity.insert.max.retry"),
+
+    /**
+     * Expose the metrics as JMX MBeans
+     */
+    METRICS_JMX_ENABLE("commons.metrics.jmx.enable"),
+    /**
+     * JMX domain of the metrics MBeans
+     */
+    METRICS_JMX_DOMAIN("commons.metrics.jmx.domain"),
+    /**
+     * Back the timers and histograms by HdrHistogram reservoirs (the default Dropwizard exponentially decaying reservoirs otherwise)
+     */
+    METRICS_HDR_ENABLE("commons.metrics.hdr.enable"),
+    /**
+     * Number of significant decimal digits of the values recorded by the HdrHistogram reservoirs
+     */
+    METRICS_HDR_SIGNIFICANT_DIGITS("commons.metrics.hdr.significant.digits"),
+    /**
+     * Time window (in milliseconds) of the values reported by the HdrHistogram reservoirs
+     */
+    METRICS_HDR_WINDOW("commons.metrics.hdr.window"),
+    /**
+     * Tag the per scope timers (e.g. message conversion and store times) by scope (each scope has its own timer, otherwise a timer is shared by all the scopes)
+     */
+    METRICS_SCOPE_TAGS_ENABLE("commons.metrics.scope.tags.enable"),
+    /**
+     * Maximum number of scopes tracked by each timer tagged by scope (the timers of the least recently used scopes are removed)
+     */
+    METRICS_SCOPE_TAGS_MAX("commons.metrics.scope.tags.max");
 
     private String key;
 
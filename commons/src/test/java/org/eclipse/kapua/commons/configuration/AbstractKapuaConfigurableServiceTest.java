@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableService.ServiceMetadata;
+import org.eclipse.kapua.commons.configuration.metatype.TadImpl;
+import org.eclipse.kapua.commons.configuration.metatype.TocdImpl;
+import org.eclipse.kapua.commons.configuration.metatype.ToptionImpl;
+import org.eclipse.kapua.commons.configuration.metatype.TscalarImpl;
+import org.eclipse.kapua.commons.util.xml.JAXBContextProvider;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.model.config.metatype.KapuaTad;
+import org.eclipse.kapua.model.config.metatype.KapuaTdesignate;
+import org.eclipse.kapua.model.config.metatype.KapuaTicon;
+import org.eclipse.kapua.model.config.metatype.KapuaTmetadata;
+import org.eclipse.kapua.model.config.metatype.KapuaTobject;
+import org.eclipse.kapua.model.config.metatype.KapuaTocd;
+import org.eclipse.kapua.model.config.metatype.KapuaToption;
+import org.eclipse.kapua.model.config.metatype.MetatypeXmlRegistry;
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AbstractKapuaConfigurableServiceTest {
+
+    private static final String PID = AbstractKapuaConfigurableServiceTest.class.getName();
+
+    @BeforeClass
+    public static void setUpContext() {
+        XmlUtil.setContextProvider(new JAXBContextProvider() {
+
+            private JAXBContext context;
+
+            @Override
+            public JAXBContext getJAXBContext() throws KapuaException {
+                if (context == null) {
+                    try {
+                        context = JAXBContextFactory.createContext(new Class<?>[] {
+                                KapuaTmetadata.class,
+                                KapuaTocd.class,
+                                KapuaTad.class,
+                                KapuaTicon.class,
+                                TscalarImpl.class,
+                                KapuaToption.class,
+                                KapuaTdesignate.class,
+                                KapuaTobject.class,
+                                MetatypeXmlRegistry.class
+                        }, null);
+                    } catch (JAXBException e) {
+                        throw KapuaException.internalError(e);
+                    }
+                }
+                return context;
+            }
+        });
+    }
+
+    @Test
+    public void testCachedMetadataEqualsParsedMetadata() throws Exception {
+        KapuaTocd parsedOcd = new ServiceMetadata(PID, AbstractKapuaConfigurableService.readMetadata(PID)).getOcd();
+        ServiceMetadata metadata = AbstractKapuaConfigurableService.getMetadata(PID);
+
+        assertNotNull(parsedOcd);
+        assertSame(metadata, AbstractKapuaConfigurableService.getMetadata(PID));
+        assertOcdEquals(parsedOcd, metadata.getOcd());
+        assertOcdEquals(parsedOcd, metadata.copyOcd());
+        assertEquals(4, metadata.getAttributeDefinitions().size());
+    }
+
+    @Test
+    public void testCopyMutationDoesNotLeak() throws Exception {
+        KapuaTocd parsedOcd = new ServiceMetadata(PID, AbstractKapuaConfigurableService.readMetadata(PID)).getOcd();
+        ServiceMetadata metadata = AbstractKapuaConfigurableService.getMetadata(PID);
+
+        KapuaTocd ocd = metadata.copyOcd();
+        assertNotSame(metadata.getOcd(), ocd);
+
+        // modify every level of the copy
+        ocd.setName("modified");
+        ocd.getOtherAttributes().clear();
+        for (KapuaTad ad : ocd.getAD()) {
+            ad.setDefault("modified");
+            ad.setRequired(false);
+            ad.getOtherAttributes().clear();
+            for (KapuaToption option : ad.getOption()) {
+                option.setValue("modified");
+            }
+            ((TadImpl) ad).addOption(new ToptionImpl());
+        }
+        ocd.getIcon().get(0).setSize(BigInteger.ZERO);
+        ((TocdImpl) ocd).addAD(new TadImpl());
+
+        assertOcdEquals(parsedOcd, metadata.getOcd());
+        assertOcdEquals(parsedOcd, metadata.copyOcd());
+        assertEquals(4, metadata.getAttributeDefinitions().size());
+        assertEquals("true", metadata.getAttributeDefinitions().get("enabled").getDefault());
+    }
+
+    private static void assertOcdEquals(KapuaTocd expected, KapuaTocd actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getOtherAttributes(), actual.getOtherAttributes());
+
+        List<KapuaTad> expectedAds = expected.getAD();
+        List<KapuaTad> actualAds = actual.getAD();
+        assertEquals(expectedAds.size(), actualAds.size());
+        for (int i = 0; i < expectedAds.size(); i++) {
+            KapuaTad expectedAd = expectedAds.get(i);
+            KapuaTad actualAd = actualAds.get(i);
+            assertEquals(expectedAd.getId(), actualAd.getId());
+            assertEquals(expectedAd.getName(), actualAd.getName());
+            assertEquals(expectedAd.getDescription(), actualAd.getDescription());
+            assertEquals(expectedAd.getType(), actualAd.getType());
+            assertEquals(expectedAd.getCardinality(), actualAd.getCardinality());
+            assertEquals(expectedAd.getMin(), actualAd.getMin());
+            assertEquals(expectedAd.getMax(), actualAd.getMax());
+            assertEquals(expectedAd.getDefault(), actualAd.getDefault());
+            assertEquals(expectedAd.isRequired(), actualAd.isRequired());
+            assertEquals(expectedAd.getOtherAttributes(), actualAd.getOtherAttributes());
+
+            List<KapuaToption> expectedOptions = expectedAd.getOption();
+            List<KapuaToption> actualOptions = actualAd.getOption();
+            assertEquals(expectedOptions.size(), actualOptions.size());
+            for (int j = 0; j < expectedOptions.size(); j++) {
+                assertEquals(expectedOptions.get(j).getLabel(), actualOptions.get(j).getLabel());
+                assertEquals(expectedOptions.get(j).getValue(), actualOptions.get(j).getValue());
+            }
+        }
+
+        List<KapuaTicon> expectedIcons = expected.getIcon();
+        List<KapuaTicon> actualIcons = actual.getIcon();
+        assertEquals(expectedIcons.size(), actualIcons.size());
+        for (int i = 0; i < expectedIcons.size(); i++) {
+            assertEquals(expectedIcons.get(i).getResource(), actualIcons.get(i).getResource());
+            assertEquals(expectedIcons.get(i).getSize(), actualIcons.get(i).getSize());
+        }
+    }
+}
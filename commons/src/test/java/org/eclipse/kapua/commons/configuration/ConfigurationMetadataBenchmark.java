@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableService.ServiceMetadata;
+import org.eclipse.kapua.commons.configuration.metatype.TscalarImpl;
+import org.eclipse.kapua.commons.util.xml.JAXBContextProvider;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.model.config.metatype.KapuaTad;
+import org.eclipse.kapua.model.config.metatype.KapuaTdesignate;
+import org.eclipse.kapua.model.config.metatype.KapuaTicon;
+import org.eclipse.kapua.model.config.metatype.KapuaTmetadata;
+import org.eclipse.kapua.model.config.metatype.KapuaTobject;
+import org.eclipse.kapua.model.config.metatype.KapuaTocd;
+import org.eclipse.kapua.model.config.metatype.KapuaToption;
+import org.eclipse.kapua.model.config.metatype.MetatypeXmlRegistry;
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of the metadata resolution done by {@link AbstractKapuaConfigurableService#getConfigValues(org.eclipse.kapua.model.id.KapuaId)}.<br>
+ * It compares the metatype xml parsing done on every call (before the metadata cache) with the cached metadata lookup.<br>
+ * The database query is left out since it is the same in both cases.
+ * <p>
+ * Run it with: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.kapua.commons.configuration.ConfigurationMetadataBenchmark}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurationMetadataBenchmark {
+
+    private static final String PID = ConfigurationMetadataBenchmark.class.getName();
+
+    private Properties properties;
+
+    @Setup
+    public void setup() throws KapuaException {
+        XmlUtil.setContextProvider(new JAXBContextProvider() {
+
+            private JAXBContext context;
+
+            @Override
+            public JAXBContext getJAXBContext() throws KapuaException {
+                if (context == null) {
+                    try {
+                        context = JAXBContextFactory.createContext(new Class<?>[] {
+                                KapuaTmetadata.class,
+                                KapuaTocd.class,
+                                KapuaTad.class,
+                                KapuaTicon.class,
+                                TscalarImpl.class,
+                                KapuaToption.class,
+                                KapuaTdesignate.class,
+                                KapuaTobject.class,
+                                MetatypeXmlRegistry.class
+                        }, null);
+                    } catch (JAXBException e) {
+                        throw KapuaException.internalError(e);
+                    }
+                }
+                return context;
+            }
+        });
+
+        properties = new Properties();
+        properties.setProperty("maxCount", "25");
+
+        // Fail fast if the metadata cannot be read
+        if (AbstractKapuaConfigurableService.getMetadata(PID).getOcd() == null) {
+            throw new IllegalStateException("Metadata not found for " + PID);
+        }
+    }
+
+    /**
+     * Metadata parsed on every call (previous behavior)
+     */
+    @Benchmark
+    public Map<String, Object> parsedMetadata() throws Exception {
+        ServiceMetadata metadata = new ServiceMetadata(PID, AbstractKapuaConfigurableService.readMetadata(PID));
+        return toValues(metadata.getOcd(), properties);
+    }
+
+    /**
+     * Metadata read from the cache
+     */
+    @Benchmark
+    public Map<String, Object> cachedMetadata() throws Exception {
+        ServiceMetadata metadata = AbstractKapuaConfigurableService.getMetadata(PID);
+        return toValues(metadata.getOcd(), properties);
+    }
+
+    private static Map<String, Object> toValues(KapuaTocd ocd, Properties props) throws KapuaException {
+        Map<String, Object> values = new HashMap<>();
+        for (KapuaTad ad : ocd.getAD()) {
+            String valueStr = props.getProperty(ad.getId(), ad.getDefault());
+            values.put(ad.getId(), StringUtil.stringToValue(ad.getType().value(), valueStr));
+        }
+        return values;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConfigurationMetadataBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.configuration;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.kapua.commons.configuration.metatype.KapuaMetatypeFactoryImpl;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.KapuaObjectFactory;
+import org.eclipse.kapua.model.config.metatype.KapuaMetatypeFactory;
+import org.eclipse.kapua.service.KapuaService;
+
+/**
+ * Locator of the commons tests.<br>
+ * It provides only the metatype factory, used to unmarshal the service metatypes.
+ */
+public class MetatypeLocator extends KapuaLocator {
+
+    private final KapuaMetatypeFactory metatypeFactory = new KapuaMetatypeFactoryImpl();
+
+    @Override
+    public <S extends KapuaService> S getService(Class<S> serviceClass) {
+        return null;
+    }
+
+    @Override
+    public <F extends KapuaObjectFactory> F getFactory(Class<F> factoryClass) {
+        if (factoryClass.isInstance(metatypeFactory)) {
+            return factoryClass.cast(metatypeFactory);
+        }
+        return null;
+    }
+
+    @Override
+    public List<KapuaService> getServices() {
+        return Collections.emptyList();
+    }
+}
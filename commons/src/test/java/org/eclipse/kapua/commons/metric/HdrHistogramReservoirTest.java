@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Snapshot;
+
+public class HdrHistogramReservoirTest {
+
+    @Test
+    public void testBoundedSample() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(3, 60000);
+        for (int i = 1; i <= 100_000; i++) {
+            reservoir.update(i);
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        long[] values = snapshot.getValues();
+        assertEquals(HdrHistogramReservoir.SAMPLE_SIZE, values.length);
+        assertEquals(HdrHistogramReservoir.SAMPLE_SIZE, snapshot.size());
+        // the sample is sorted and covers all the ranks
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(values[i - 1] <= values[i]);
+        }
+        assertEquals(1, values[0]);
+        assertEquals(100_000, values[values.length - 1], 100);
+        assertEquals(50_000, values[values.length / 2], 100);
+        // the quantiles are computed on all the recorded values
+        assertEquals(99_000, snapshot.getValue(0.99), 100);
+
+        // fewer values than the sample size
+        HdrHistogramReservoir smallReservoir = new HdrHistogramReservoir(3, 60000);
+        smallReservoir.update(5);
+        smallReservoir.update(5);
+        smallReservoir.update(7);
+        long[] smallValues = smallReservoir.getSnapshot().getValues();
+        assertEquals(3, smallValues.length);
+        assertEquals(5, smallValues[0]);
+        assertEquals(5, smallValues[1]);
+        assertEquals(7, smallValues[2]);
+    }
+
+    @Test
+    public void testSizeWithoutSideEffects() throws Exception {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, 10);
+        reservoir.update(1);
+        reservoir.update(2);
+        // the recorded values are counted by the next snapshot
+        assertEquals(0, reservoir.size());
+        assertEquals(2, reservoir.getSnapshot().size());
+        assertEquals(2, reservoir.size());
+
+        // the windows are rolled only by the snapshots
+        Thread.sleep(50);
+        assertEquals(2, reservoir.size());
+        assertEquals(0, reservoir.getSnapshot().size());
+        assertEquals(0, reservoir.size());
+    }
+
+    @Test
+    public void testSum() throws Exception {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, 10);
+        for (int i = 1; i <= 1000; i++) {
+            reservoir.update(i);
+        }
+        reservoir.update(-10);
+        assertEquals(500_500, ((HdrHistogramReservoir.HdrHistogramSnapshot) reservoir.getSnapshot()).getSum());
+
+        // the sum is not limited to the windows
+        Thread.sleep(50);
+        HdrHistogramReservoir.HdrHistogramSnapshot snapshot = (HdrHistogramReservoir.HdrHistogramSnapshot) reservoir.getSnapshot();
+        assertEquals(0, snapshot.size());
+        assertEquals(500_500, snapshot.getSum());
+    }
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+public class PrometheusTextExporterTest {
+
+    @Test
+    public void testSummary() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        Timer timer = metricRegistry.register("converter.kapua.convert.time.s{connector=mqtt}", new Timer(new HdrHistogramReservoir(2, 60000)));
+        timer.update(2, TimeUnit.SECONDS);
+        timer.update(500, TimeUnit.MILLISECONDS);
+        Histogram histogram = metricRegistry.register("datastore.bulk.size", new Histogram(new HdrHistogramReservoir(2, 60000)));
+        histogram.update(10);
+        histogram.update(30);
+
+        StringWriter writer = new StringWriter();
+        PrometheusTextExporter.write(metricRegistry, writer);
+        String text = writer.toString();
+
+        assertTrue(text, text.contains("# TYPE kapua_converter_kapua_convert_time_s summary\n"));
+        assertTrue(text, text.contains("kapua_converter_kapua_convert_time_s_sum{connector=\"mqtt\"} 2.5\n"));
+        assertTrue(text, text.contains("kapua_converter_kapua_convert_time_s_count{connector=\"mqtt\"} 2\n"));
+        assertTrue(text, text.contains("kapua_datastore_bulk_size_sum 40\n"));
+        assertTrue(text, text.contains("kapua_datastore_bulk_size_count 2\n"));
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.commons.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.metric.MetricTags;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+public class ScopedMetricImplTest {
+
+    private static final KapuaId SCOPE_1 = new KapuaEid(BigInteger.valueOf(1));
+    private static final KapuaId SCOPE_2 = new KapuaEid(BigInteger.valueOf(2));
+    private static final KapuaId SCOPE_3 = new KapuaEid(BigInteger.valueOf(3));
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final ScopedMetricImpl<Timer> scopedTimer = new ScopedMetricImpl<>(metricRegistry, "module.component.time", MetricTags.of(MetricTags.MESSAGE_TYPE, "data"), Timer::new, 2);
+
+    @Test
+    public void testScopeMetric() {
+        Timer timer = scopedTimer.get(SCOPE_1);
+        assertSame(timer, scopedTimer.get(new KapuaEid(BigInteger.valueOf(1))));
+        assertNotSame(timer, scopedTimer.get(SCOPE_2));
+        assertSame(timer, metricRegistry.getTimers().get(name(SCOPE_1.toCompactId())));
+
+        // the operations without scope are tracked by the 'none' metric
+        Timer noScopeTimer = scopedTimer.get(null);
+        assertSame(noScopeTimer, metricRegistry.getTimers().get(name("none")));
+        assertSame(noScopeTimer, scopedTimer.get(null));
+    }
+
+    @Test
+    public void testEviction() {
+        Timer timer1 = scopedTimer.get(SCOPE_1);
+        scopedTimer.get(SCOPE_2);
+        // the least recently used scope is evicted and removed from the registry
+        scopedTimer.get(SCOPE_1);
+        scopedTimer.get(SCOPE_3);
+
+        assertTrue(metricRegistry.getTimers().containsKey(name(SCOPE_1.toCompactId())));
+        assertFalse(metricRegistry.getTimers().containsKey(name(SCOPE_2.toCompactId())));
+        assertTrue(metricRegistry.getTimers().containsKey(name(SCOPE_3.toCompactId())));
+        assertTrue(metricRegistry.getTimers().containsKey(name("none")));
+        assertEquals(3, metricRegistry.getTimers().size());
+
+        // an evicted scope gets a new metric
+        scopedTimer.get(SCOPE_2);
+        assertTrue(metricRegistry.getTimers().containsKey(name(SCOPE_2.toCompactId())));
+        assertFalse(metricRegistry.getTimers().containsKey(name(SCOPE_1.toCompactId())));
+        assertNotSame(timer1, scopedTimer.get(SCOPE_1));
+        assertEquals(3, metricRegistry.getTimers().size());
+    }
+
+    private static String name(String scope) {
+        return "module.component.time{message_type=data,scope=" + scope + "}";
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.app.api.v1.resources;
+
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.eclipse.kapua.commons.metric.MetricsDomain;
+import org.eclipse.kapua.commons.metric.PrometheusTextExporter;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.authorization.AuthorizationService;
+import org.eclipse.kapua.service.authorization.domain.Domain;
+import org.eclipse.kapua.service.authorization.permission.Actions;
+import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
+import org.eclipse.kapua.service.metric.MetricsService;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+@Api("Metrics")
+@Path("metrics")
+public class Metrics extends AbstractKapuaResource {
+
+    private static final Domain metricsDomain = new MetricsDomain();
+
+    private final KapuaLocator locator = KapuaLocator.getInstance();
+    private final MetricsService metricsService = locator.getService(MetricsService.class);
+    private final AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
+    private final PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
+
+    /**
+     * Gets the metrics of the REST API in the Prometheus text format.
+     * The metrics cover all the scopes, so they are available only to the users with the metrics read permission on all the scopes.
+     *
+     * @return The metrics in the Prometheus text format (version 0.0.4).
+     * @since 1.0.0
+     */
+    @ApiOperation(value = "Gets the metrics",
+            notes = "Returns the metrics of the REST API in the Prometheus text format. Requires the metrics:read permission on all the scopes.")
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response getMetrics() {
+        boolean allowed = false;
+        try {
+            allowed = authorizationService.isPermitted(permissionFactory.newPermission(metricsDomain, Actions.read, null));
+        } catch (Throwable t) {
+            handleException(t);
+        }
+        if (!allowed) {
+            throw newWebApplicationException(Response.Status.FORBIDDEN, "The metrics require the metrics:read permission on all the scopes");
+        }
+
+        StreamingOutput metrics = output -> PrometheusTextExporter.write(metricsService.getMetricRegistry(), new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        return Response.ok(metrics, PrometheusTextExporter.CONTENT_TYPE).build();
+    }
+}
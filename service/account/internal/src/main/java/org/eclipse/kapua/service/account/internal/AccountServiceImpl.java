@@ -17,6 +17,7 @@ import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaIllegalAccessException;
 import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.cache.EntityChangeNotifier;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableService;
 import org.eclipse.kapua.commons.configuration.KapuaConfigurationErrorCodes;
 import org.eclipse.kapua.commons.configuration.KapuaConfigurationException;
@@ -137,7 +138,7 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableService impleme
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(accountDomain, Actions.write, account.getScopeId()));
 
-        return entityManagerSession.onTransactedResult(em -> {
+        Account updatedAccount = entityManagerSession.onTransactedResult(em -> {
             Account oldAccount = AccountDAO.find(em, account.getId());
             if (oldAccount == null) {
                 throw new KapuaEntityNotFoundException(Account.TYPE, account.getId());
@@ -158,6 +159,9 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableService impleme
             // Update
             return AccountDAO.update(em, account);
         });
+
+        EntityChangeNotifier.notifyChange(Account.TYPE, updatedAccount.getScopeId(), updatedAccount.getId());
+        return updatedAccount;
     }
 
     @Override
@@ -202,6 +206,8 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableService impleme
 
             AccountDAO.delete(em, accountId);
         });
+
+        EntityChangeNotifier.notifyChange(Account.TYPE, scopeId, accountId);
     }
 
     @Override
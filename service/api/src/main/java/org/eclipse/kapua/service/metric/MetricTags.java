@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.metric;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of metric tags (dimensions), such as the scope, the connector or the message type of the measured operation.<br>
+ * The tags are sorted by key, so the same tags added in a different order identify the same metric.<br>
+ * The tags are appended to the metric name in the registry as {@code {key1=value1,key2=value2}} (see {@link #toString()}).
+ * The tag values are sanitized: the characters {@code , = { } " \} and the line breaks are replaced by {@code _}.
+ *
+ * @since 1.0
+ */
+public final class MetricTags {
+
+    /**
+     * Scope (account) tag key
+     */
+    public static final String SCOPE = "scope";
+
+    /**
+     * Broker connector tag key
+     */
+    public static final String CONNECTOR = "connector";
+
+    /**
+     * Message type tag key
+     */
+    public static final String MESSAGE_TYPE = "message_type";
+
+    /**
+     * No tags
+     */
+    public static final MetricTags EMPTY = new MetricTags(new String[0], new String[0]);
+
+    private final String[] keys;
+    private final String[] values;
+    private final int hashCode;
+    // built on first use (the tags are usually only looked up)
+    private String encoded;
+
+    private MetricTags(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+        hashCode = 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+    }
+
+    /**
+     * Create the tags with a single tag
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public static MetricTags of(String key, String value) {
+        return EMPTY.and(key, value);
+    }
+
+    /**
+     * Create new tags adding the specified tag to these tags (or replacing the value of the tag with the same key)
+     *
+     * @param key
+     *            the tag key (letters, digits and '_', not starting with a digit)
+     * @param value
+     *            the tag value ({@code null} is tagged as {@code "null"})
+     * @return
+     * @throws IllegalArgumentException
+     *             if the key is not valid
+     */
+    public MetricTags and(String key, String value) {
+        checkKey(key);
+        String sanitizedValue = sanitize(value);
+
+        int index = Arrays.binarySearch(keys, key);
+        if (index >= 0) {
+            String[] newValues = values.clone();
+            newValues[index] = sanitizedValue;
+            return new MetricTags(keys, newValues);
+        }
+
+        int insertion = -(index + 1);
+        String[] newKeys = new String[keys.length + 1];
+        String[] newValues = new String[keys.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, insertion);
+        System.arraycopy(values, 0, newValues, 0, insertion);
+        newKeys[insertion] = key;
+        newValues[insertion] = sanitizedValue;
+        System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+        System.arraycopy(values, insertion, newValues, insertion + 1, keys.length - insertion);
+        return new MetricTags(newKeys, newValues);
+    }
+
+    /**
+     * Tell if there are no tags
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * Get the tags sorted by key
+     *
+     * @return
+     */
+    public Map<String, String> asMap() {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Get the tags as appended to the metric name ({@code {key1=value1,key2=value2}}, or the empty string if there are no tags)
+     */
+    @Override
+    public String toString() {
+        if (encoded == null) {
+            if (keys.length == 0) {
+                encoded = "";
+            } else {
+                StringBuilder builder = new StringBuilder().append('{');
+                for (int i = 0; i < keys.length; i++) {
+                    if (i > 0) {
+                        builder.append(',');
+                    }
+                    builder.append(keys[i]).append('=').append(values[i]);
+                }
+                encoded = builder.append('}').toString();
+            }
+        }
+        return encoded;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof MetricTags)) {
+            return false;
+        }
+        MetricTags other = (MetricTags) obj;
+        return hashCode == other.hashCode && Arrays.equals(keys, other.keys) && Arrays.equals(values, other.values);
+    }
+
+    private static void checkKey(String key) {
+        if (key == null || key.isEmpty() || Character.isDigit(key.charAt(0))) {
+            throw new IllegalArgumentException("Invalid metric tag key: " + key);
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!(c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                throw new IllegalArgumentException("Invalid metric tag key: " + key);
+            }
+        }
+    }
+
+    private static String sanitize(String value) {
+        if (value == null) {
+            return "null";
+        }
+        char[] chars = null;
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+            case ',':
+            case '=':
+            case '{':
+            case '}':
+            case '"':
+            case '\\':
+            case '\n':
+            case '\r':
+                if (chars == null) {
+                    chars = value.toCharArray();
+                }
+                chars[i] = '_';
+                break;
+            default:
+                break;
+            }
+        }
+        return chars != null ? new String(chars) : value;
+    }
+}
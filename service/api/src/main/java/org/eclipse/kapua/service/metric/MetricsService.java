@@ -59,6 +59,51 @@ public interface MetricsService extends KapuaService {
      */
 	public Timer getTimer(String module, String component, String... names);
 	
+	/**
+     * Get a Counter for the specified name and tags. If the counter doesn't exist the method should create a new one counter with the specified name and tags.
+     * 
+     * @param tags
+     * @param module
+     * @param component
+     * @param names
+     * @return
+     */
+	public Counter getCounter(MetricTags tags, String module, String component, String... names);
+	
+	/**
+     * Get a Histogram for the specified name and tags. If the histogram doesn't exist the method should create a new one histogram with the specified name and tags.
+     * 
+     * @param tags
+     * @param module
+     * @param component
+     * @param names
+     * @return
+     */
+	public Histogram getHistogram(MetricTags tags, String module, String component, String... names);
+	
+	/**
+     * Get a Timer for the specified name and tags. If the timer doesn't exist the method should create a new one timer with the specified name and tags.
+     * 
+     * @param tags
+     * @param module
+     * @param component
+     * @param names
+     * @return
+     */
+	public Timer getTimer(MetricTags tags, String module, String component, String... names);
+	
+	/**
+     * Get the handle of the Timers for the specified name and tags, tagged also by scope (see {@link ScopedMetric}).<br>
+     * The scope tags are opt-in and the number of scopes tracked by the handle is bounded: the Timers of the least recently used scopes are removed from the registry.
+     * 
+     * @param tags
+     * @param module
+     * @param component
+     * @param names
+     * @return
+     */
+	public ScopedMetric<Timer> getScopedTimer(MetricTags tags, String module, String component, String... names);
+	
 	/**
      * Register a Gauge for the specified name. If the Gauge exists the method throws exception.
      * 
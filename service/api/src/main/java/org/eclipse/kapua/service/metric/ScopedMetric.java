@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.metric;
+
+import org.eclipse.kapua.model.id.KapuaId;
+
+import com.codahale.metrics.Metric;
+
+/**
+ * Metric tagged also by the scope of the measured operation (see {@link MetricTags#SCOPE}).<br>
+ * The handle is obtained once (see {@link MetricsService#getScopedTimer(MetricTags, String, String, String...)}) and the metric of a scope is looked up
+ * on each measure without building the tags.
+ *
+ * @param <M>
+ *            metric type
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface ScopedMetric<M extends Metric> {
+
+    /**
+     * Get the metric of the specified scope.<br>
+     * If the scope tags are disabled, the same metric (not tagged by scope) is returned for every scope.
+     *
+     * @param scopeId
+     *            the scope of the measured operation ({@code null} if unknown)
+     * @return
+     */
+    M get(KapuaId scopeId);
+}
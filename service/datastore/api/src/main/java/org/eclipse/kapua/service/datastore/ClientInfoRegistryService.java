@@ -17,6 +17,7 @@ import org.eclipse.kapua.service.KapuaService;
 import org.eclipse.kapua.service.config.KapuaConfigurableService;
 import org.eclipse.kapua.service.datastore.model.ClientInfo;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
+import org.eclipse.kapua.service.datastore.model.StorableCursor;
 import org.eclipse.kapua.service.datastore.model.StorableId;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
 
@@ -67,6 +68,59 @@ public interface ClientInfoRegistryService extends KapuaService, KapuaConfigurab
     public long count(ClientInfoQuery query)
             throws KapuaException;
 
+    /**
+     * Query for the clients informations objects matching the given query in cursor mode.<br>
+     * The result is the first page (the page size is the query limit, the offset must be 0) and its next key is the cursor to get the next page
+     * (see {@link #scroll(KapuaId, String)}), or {@code null} if there are no more pages.
+     * 
+     * @param query
+     * @return
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    public ClientInfoListResult scroll(ClientInfoQuery query)
+            throws KapuaException;
+
+    /**
+     * Get the next page of a cursor mode query (see {@link #scroll(ClientInfoQuery)}).<br>
+     * The result next key is the cursor to get the next page, or {@code null} if there are no more pages.
+     * 
+     * @param scopeId
+     * @param cursor
+     * @return
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    public ClientInfoListResult scroll(KapuaId scopeId, String cursor)
+            throws KapuaException;
+
+    /**
+     * Release the resources of a cursor mode query not read until the last page
+     * 
+     * @param scopeId
+     * @param cursor
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    public void closeCursor(KapuaId scopeId, String cursor)
+            throws KapuaException;
+
+    /**
+     * Open a cursor over the clients informations objects matching the given query.<br>
+     * The objects are fetched lazily a page at a time (the page size is the query limit, the offset must be 0).
+     * 
+     * @param query
+     * @return
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    public StorableCursor<ClientInfo> openCursor(ClientInfoQuery query)
+            throws KapuaException;
+
     /**
      * Delete client information by identifier
      * 
@@ -15,6 +15,7 @@ import org.eclipse.kapua.model.KapuaObjectFactory;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.StorableField;
 import org.eclipse.kapua.service.datastore.model.query.TermPredicate;
@@ -56,6 +57,16 @@ public interface DatastoreObjectFactory extends KapuaObjectFactory {
      */
     public MetricInfoQuery newMetricInfoQuery(KapuaId scopeId);
 
+    /**
+     * Return a new metric aggregation query
+     * 
+     * @param scopeId
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    public MetricAggregationQuery newMetricAggregationQuery(KapuaId scopeId);
+
     /**
      * Return a new term comparison predicate
      * 
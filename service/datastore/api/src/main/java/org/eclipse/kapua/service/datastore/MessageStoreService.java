@@ -18,8 +18,11 @@ import org.eclipse.kapua.service.KapuaService;
 import org.eclipse.kapua.service.config.KapuaConfigurableService;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationResult;
+import org.eclipse.kapua.service.datastore.model.StorableCursor;
 import org.eclipse.kapua.service.datastore.model.StorableId;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
 
 /**
@@ -81,6 +84,72 @@ public interface MessageStoreService extends KapuaService, KapuaConfigurableServ
     long count(MessageQuery query)
             throws KapuaException;
 
+    /**
+     * Aggregate the values of a metric of the messages matching the given query in time buckets.<br>
+     * The aggregation is computed by the datastore, so the messages are not fetched.
+     * 
+     * @param query
+     * @return
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    MetricAggregationResult aggregate(MetricAggregationQuery query)
+            throws KapuaException;
+
+    /**
+     * Query for the messages objects matching the given query in cursor mode.<br>
+     * The result is the first page (the page size is the query limit, the offset must be 0) and its next key is the cursor to get the next page
+     * (see {@link #scroll(KapuaId, String)}), or {@code null} if there are no more pages.
+     * 
+     * @param query
+     * @return
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    MessageListResult scroll(MessageQuery query)
+            throws KapuaException;
+
+    /**
+     * Get the next page of a cursor mode query (see {@link #scroll(MessageQuery)}).<br>
+     * The result next key is the cursor to get the next page, or {@code null} if there are no more pages.
+     * 
+     * @param scopeId
+     * @param cursor
+     * @return
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    MessageListResult scroll(KapuaId scopeId, String cursor)
+            throws KapuaException;
+
+    /**
+     * Release the resources of a cursor mode query not read until the last page
+     * 
+     * @param scopeId
+     * @param cursor
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    void closeCursor(KapuaId scopeId, String cursor)
+            throws KapuaException;
+
+    /**
+     * Open a cursor over the messages objects matching the given query.<br>
+     * The objects are fetched lazily a page at a time (the page size is the query limit, the offset must be 0).
+     * 
+     * @param query
+     * @return
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    StorableCursor<DatastoreMessage> openCursor(MessageQuery query)
+            throws KapuaException;
+
     /**
      * Delete message by identifier
      * 
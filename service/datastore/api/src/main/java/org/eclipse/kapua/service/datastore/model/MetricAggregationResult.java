@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.model;
+
+/**
+ * Metric aggregation result definition.<br>
+ * The result is a time series of buckets stored by column: the values of the i-th bucket are at the i-th position of the arrays.
+ * The buckets without values have count 0 and min, max, avg and percentiles {@link Double#NaN} (sum 0).
+ *
+ * @since 1.0.0
+ */
+public interface MetricAggregationResult {
+
+    /**
+     * Get the number of buckets
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public int getSize();
+
+    /**
+     * Get the bucket start timestamps (milliseconds, ascending)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public long[] getTimestamps();
+
+    /**
+     * Get the bucket value counts
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public long[] getCounts();
+
+    /**
+     * Get the bucket minimum values
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public double[] getMin();
+
+    /**
+     * Get the bucket maximum values
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public double[] getMax();
+
+    /**
+     * Get the bucket average values
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public double[] getAvg();
+
+    /**
+     * Get the bucket value sums
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public double[] getSum();
+
+    /**
+     * Get the computed percentiles (as requested by the query)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public double[] getPercentiles();
+
+    /**
+     * Get the bucket values of the given percentile
+     *
+     * @param percentile
+     *            one of the computed percentiles
+     * @return
+     * @throws IllegalArgumentException
+     *             if the percentile was not computed
+     *
+     * @since 1.0.0
+     */
+    public double[] getPercentileValues(double percentile);
+}
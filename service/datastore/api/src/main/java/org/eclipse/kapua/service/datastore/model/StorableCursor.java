@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.model;
+
+import java.util.NoSuchElementException;
+
+import org.eclipse.kapua.KapuaException;
+
+/**
+ * Cursor over the storable objects matching a query.<br>
+ * The objects are fetched lazily a page at a time (the page size is the query limit), so only a page is kept in memory whatever the number of matching objects.
+ * The cursor must be closed to release the resources held by the datastore (otherwise they are released once the cursor expires).
+ *
+ * @param <E>
+ *            persisted object type (such as messages, channeles information...)
+ * 
+ * @since 1.0.0
+ */
+public interface StorableCursor<E extends Storable> extends AutoCloseable {
+
+    /**
+     * Check if there are more objects (fetching the next page if needed)
+     * 
+     * @return
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    public boolean hasNext()
+            throws KapuaException;
+
+    /**
+     * Get the next object (fetching the next page if needed)
+     * 
+     * @return
+     * @throws NoSuchElementException
+     *             if there are no more objects
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    public E next()
+            throws KapuaException;
+
+    /**
+     * Close the cursor
+     * 
+     * @throws KapuaException
+     * 
+     * @since 1.0.0
+     */
+    @Override
+    public void close()
+            throws KapuaException;
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.model.query;
+
+import java.util.Date;
+
+import org.eclipse.kapua.model.id.KapuaId;
+
+/**
+ * Metric aggregation query definition.<br>
+ * The values of a numeric metric of the messages in the time range are aggregated by the datastore in time buckets of the given interval
+ * (count, min, max, avg, sum and the optional percentiles), so the time series can be charted without fetching the messages.
+ *
+ * @since 1.0.0
+ */
+public interface MetricAggregationQuery {
+
+    /**
+     * Gets the scope id
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public KapuaId getScopeId();
+
+    /**
+     * Get the client identifier (if null the messages of all the clients are aggregated)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public String getClientId();
+
+    /**
+     * Set the client identifier
+     *
+     * @param clientId
+     *
+     * @since 1.0.0
+     */
+    public void setClientId(String clientId);
+
+    /**
+     * Get the channel expression (may use wildcard, if null the messages of all the channels are aggregated)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public String getChannel();
+
+    /**
+     * Set the channel expression (may use wildcard)
+     *
+     * @param channel
+     *
+     * @since 1.0.0
+     */
+    public void setChannel(String channel);
+
+    /**
+     * Get the metric name
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public String getMetricName();
+
+    /**
+     * Set the metric name
+     *
+     * @param metricName
+     *
+     * @since 1.0.0
+     */
+    public void setMetricName(String metricName);
+
+    /**
+     * Get the metric type (the numeric types of the metric information: integer, long, float or double)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public String getMetricType();
+
+    /**
+     * Set the metric type
+     *
+     * @param metricType
+     *
+     * @since 1.0.0
+     */
+    public void setMetricType(String metricType);
+
+    /**
+     * Get the time range start (inclusive)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public Date getFrom();
+
+    /**
+     * Set the time range start (inclusive)
+     *
+     * @param from
+     *
+     * @since 1.0.0
+     */
+    public void setFrom(Date from);
+
+    /**
+     * Get the time range end (inclusive)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public Date getTo();
+
+    /**
+     * Set the time range end (inclusive)
+     *
+     * @param to
+     *
+     * @since 1.0.0
+     */
+    public void setTo(Date to);
+
+    /**
+     * Get the time bucket interval (milliseconds)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public long getInterval();
+
+    /**
+     * Set the time bucket interval (milliseconds)
+     *
+     * @param interval
+     *
+     * @since 1.0.0
+     */
+    public void setInterval(long interval);
+
+    /**
+     * Get the percentiles to compute for each bucket (0 to 100, empty if the percentiles are not computed)
+     *
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public double[] getPercentiles();
+
+    /**
+     * Set the percentiles to compute for each bucket (0 to 100)
+     *
+     * @param percentiles
+     *
+     * @since 1.0.0
+     */
+    public void setPercentiles(double... percentiles);
+}
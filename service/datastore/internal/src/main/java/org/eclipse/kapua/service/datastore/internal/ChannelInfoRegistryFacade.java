@@ -17,7 +17,6 @@ import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.ChannelInfoRegistryMediator;
-import org.eclipse.kapua.service.datastore.internal.elasticsearch.ChannelInfoXContentBuilder;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsConfigurationException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDocumentBuilderException;
@@ -28,7 +27,6 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema.Metad
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsChannelInfoDAO;
 import org.eclipse.kapua.service.datastore.internal.model.ChannelInfoListResultImpl;
-import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.IdsPredicateImpl;
@@ -52,7 +50,6 @@ public class ChannelInfoRegistryFacade {
 
     private final ChannelInfoRegistryMediator mediator;
     private final ConfigurationProvider configProvider;
-    private final Object metadataUpdateSync;
 
     /**
      * Constructs the channel info registry facade
@@ -65,7 +62,6 @@ public class ChannelInfoRegistryFacade {
     public ChannelInfoRegistryFacade(ConfigurationProvider configProvider, ChannelInfoRegistryMediator mediator) {
         this.configProvider = configProvider;
         this.mediator = mediator;
-        this.metadataUpdateSync = new Object();
     }
 
     /**
@@ -73,7 +69,6 @@ public class ChannelInfoRegistryFacade {
      * 
      * @param scopeId
      * @param channelInfo
-     * @return
      * @throws KapuaIllegalArgumentException
      * @throws EsDocumentBuilderException
      * @throws EsClientUnavailableException
@@ -81,7 +76,7 @@ public class ChannelInfoRegistryFacade {
      * 
      * @since 1.0.0
      */
-    public StorableId upstore(ChannelInfo channelInfo)
+    public void upstore(ChannelInfo channelInfo)
             throws KapuaIllegalArgumentException,
             EsDocumentBuilderException,
             EsClientUnavailableException,
@@ -94,17 +89,23 @@ public class ChannelInfoRegistryFacade {
         ArgumentValidator.notNull(channelInfo.getFirstMessageId(), "channelInfoCreator.messageId");
         ArgumentValidator.notNull(channelInfo.getFirstMessageOn(), "channelInfoCreator.messageTimestamp");
 
-        String channelInfoId = ChannelInfoXContentBuilder.getOrDeriveId(channelInfo.getId(), channelInfo);
+        MetadataKey channelInfoKey = MetadataKey.ofChannel(channelInfo);
 
         // Store channel. Look up channel in the cache, and cache it if it doesn't exist
-        if (!DatastoreCacheManager.getInstance().getChannelsCache().get(channelInfoId)) {
-
-            // The code is safe even without the synchronized block
-            // Synchronize in order to let the first thread complete its
-            // update then the others of the same type will find the cache
-            // updated and skip the update.
-            synchronized (this.metadataUpdateSync) {
-                if (!DatastoreCacheManager.getInstance().getChannelsCache().get(channelInfoId)) {
+        MetadataUpdateGuard updateGuard = DatastoreCacheManager.getInstance().getChannelsUpdateGuard();
+        while (!updateGuard.isRegistered(channelInfoKey)) {
+
+            // Only the first thread missing the cache does the update, the others
+            // of the same channel wait for it and find the cache updated.
+            // Different channels are updated in parallel.
+            MetadataUpdateGuard.Registration registration = updateGuard.begin(channelInfoKey);
+            if (!registration.isOwner()) {
+                registration.await();
+                continue;
+            }
+
+            try {
+                if (!updateGuard.isRegistered(channelInfoKey)) {
                     UpdateResponse response = null;
                     try {
                         Metadata metadata = this.mediator.getMetadata(channelInfo.getScopeId(),
@@ -116,21 +117,20 @@ public class ChannelInfoRegistryFacade {
                                 .index(metadata.getKapuaIndexName())
                                 .upsert(channelInfo);
 
-                        channelInfoId = response.getId();
-
                         logger.debug(String.format("Upsert on channel succesfully executed [%s.%s, %s]",
-                                kapuaIndexName, EsSchema.CHANNEL_TYPE_NAME, channelInfoId));
+                                kapuaIndexName, EsSchema.CHANNEL_TYPE_NAME, response.getId()));
 
                     } catch (DocumentAlreadyExistsException exc) {
                         logger.trace(String.format("Upsert failed because channel already exists [%s, %s]",
-                                channelInfoId, exc.getMessage()));
+                                channelInfo.getChannel(), exc.getMessage()));
                     }
                     // Update cache if channel update is completed successfully
-                    DatastoreCacheManager.getInstance().getChannelsCache().put(channelInfoId, true);
+                    updateGuard.setRegistered(channelInfoKey);
                 }
+            } finally {
+                registration.end();
             }
         }
-        return new StorableIdImpl(channelInfoId);
     }
 
     /**
@@ -257,6 +257,84 @@ public class ChannelInfoRegistryFacade {
                 .query(query);
     }
 
+    /**
+     * Find channels informations matching the given query in cursor mode (the first page, the page size is the query limit)
+     * 
+     * @param query
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsConfigurationException
+     * @throws EsClientUnavailableException
+     * @throws EsQueryConversionException
+     * @throws EsObjectBuilderException
+     * 
+     * @since 1.0.0
+     */
+    public ChannelInfoListResult scroll(ChannelInfoQuery query)
+            throws KapuaIllegalArgumentException,
+            EsConfigurationException,
+            EsClientUnavailableException,
+            EsQueryConversionException,
+            EsObjectBuilderException {
+        //
+        // Argument Validation
+        StorableCursors.checkQuery(query);
+
+        //
+        // Do the find
+        MessageStoreConfiguration accountServicePlan = configProvider.getConfiguration(query.getScopeId());
+        long ttl = accountServicePlan.getDataTimeToLiveMilliseconds();
+
+        if (!accountServicePlan.getDataStorageEnabled() || ttl == MessageStoreConfiguration.DISABLED) {
+            logger.debug("Storage not enabled for account {}, returning empty result", query.getScopeId());
+            return new ChannelInfoListResultImpl();
+        }
+
+        String indexName = EsSchema.getKapuaIndexName(query.getScopeId());
+        ChannelInfoListResult result = EsChannelInfoDAO.getInstance()
+                .index(indexName)
+                .scroll(query);
+        return StorableCursors.firstPage(query, result, ChannelInfoListResultImpl::new);
+    }
+
+    /**
+     * Find the next page of channels informations of a cursor mode query
+     * 
+     * @param scopeId
+     * @param cursor
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsClientUnavailableException
+     * @throws EsObjectBuilderException
+     * 
+     * @since 1.0.0
+     */
+    public ChannelInfoListResult scroll(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException,
+            EsObjectBuilderException {
+        return StorableCursors.nextPage(scopeId,
+                cursor,
+                cursorToken -> EsChannelInfoDAO.getInstance().scroll(cursorToken.getScrollId(), cursorToken.getLimit()),
+                ChannelInfoListResultImpl::new);
+    }
+
+    /**
+     * Release a cursor mode query
+     * 
+     * @param scopeId
+     * @param cursor
+     * @throws KapuaIllegalArgumentException
+     * @throws EsClientUnavailableException
+     * 
+     * @since 1.0.0
+     */
+    public void closeCursor(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException {
+        StorableCursors.close(scopeId, cursor, scrollId -> EsChannelInfoDAO.getInstance().clearScroll(scrollId));
+    }
+
     /**
      * Get channels informations count matching the given query
      * 
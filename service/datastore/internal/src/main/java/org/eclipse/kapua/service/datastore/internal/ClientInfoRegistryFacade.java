@@ -28,7 +28,6 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema.Metad
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsClientInfoDAO;
 import org.eclipse.kapua.service.datastore.internal.model.ClientInfoListResultImpl;
-import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ClientInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.IdsPredicateImpl;
@@ -52,7 +51,6 @@ public class ClientInfoRegistryFacade {
 
     private final ClientInfoRegistryMediator mediator;
     private final ConfigurationProvider configProvider;
-    private final Object metadataUpdateSync;
 
     /**
      * Constructs the client info registry facade
@@ -65,7 +63,6 @@ public class ClientInfoRegistryFacade {
     public ClientInfoRegistryFacade(ConfigurationProvider configProvider, ClientInfoRegistryMediator mediator) {
         this.configProvider = configProvider;
         this.mediator = mediator;
-        this.metadataUpdateSync = new Object();
     }
 
     /**
@@ -73,7 +70,6 @@ public class ClientInfoRegistryFacade {
      * 
      * @param scopeId
      * @param clientInfo
-     * @return
      * @throws KapuaIllegalArgumentException
      * @throws EsDocumentBuilderException
      * @throws EsClientUnavailableException
@@ -81,7 +77,7 @@ public class ClientInfoRegistryFacade {
      * 
      * @since 1.0.0
      */
-    public StorableId upstore(ClientInfo clientInfo)
+    public void upstore(ClientInfo clientInfo)
             throws KapuaIllegalArgumentException,
             EsDocumentBuilderException,
             EsClientUnavailableException,
@@ -93,38 +89,47 @@ public class ClientInfoRegistryFacade {
         ArgumentValidator.notNull(clientInfo.getFirstMessageId(), "clientInfoCreator.firstPublishedMessageId");
         ArgumentValidator.notNull(clientInfo.getFirstMessageOn(), "clientInfoCreator.firstPublishedMessageTimestamp");
 
-        ClientInfoXContentBuilder docBuilder = new ClientInfoXContentBuilder();
-        docBuilder.build(clientInfo);
-
         // Save client
-        if (!DatastoreCacheManager.getInstance().getClientsCache().get(docBuilder.getClientId())) {
-
-            // The code is safe even without the synchronized block
-            // Synchronize in order to let the first thread complete its update
-            // then the others of the same type will find the cache updated and
-            // skip the update.
-            synchronized (this.metadataUpdateSync) {
-                if (!DatastoreCacheManager.getInstance().getClientsCache().get(docBuilder.getClientId())) {
+        // The document (and its identifier) is built only if the client is not yet registered
+        MetadataKey clientInfoKey = MetadataKey.ofClient(clientInfo);
+        MetadataUpdateGuard updateGuard = DatastoreCacheManager.getInstance().getClientsUpdateGuard();
+        while (!updateGuard.isRegistered(clientInfoKey)) {
+
+            // Only the first thread missing the cache does the update, the others
+            // of the same client wait for it and find the cache updated.
+            // Different clients are updated in parallel.
+            MetadataUpdateGuard.Registration registration = updateGuard.begin(clientInfoKey);
+            if (!registration.isOwner()) {
+                registration.await();
+                continue;
+            }
+
+            try {
+                if (!updateGuard.isRegistered(clientInfoKey)) {
+                    ClientInfoXContentBuilder docBuilder = new ClientInfoXContentBuilder();
+                    docBuilder.build(clientInfo);
+                    String clientInfoId = docBuilder.getClientId();
+
                     UpdateResponse response = null;
                     try {
                         Metadata metadata = this.mediator.getMetadata(clientInfo.getScopeId(), clientInfo.getFirstMessageOn().getTime());
                         String kapuaIndexName = metadata.getKapuaIndexName();
 
                         response = EsClientInfoDAO.getInstance().index(kapuaIndexName)
-                                .upsert(docBuilder.getClientId(), docBuilder.getClientBuilder());
+                                .upsert(clientInfoId, docBuilder.getClientBuilder());
                         logger.debug(String.format("Upsert on asset succesfully executed [%s.%s, %s]", kapuaIndexName,
                                 EsSchema.CHANNEL_TYPE_NAME, response.getId()));
                     } catch (DocumentAlreadyExistsException exc) {
                         logger.trace(String.format("Upsert failed because asset already exists [%s, %s]",
-                                docBuilder.getClientId(), exc.getMessage()));
+                                clientInfoId, exc.getMessage()));
                     }
                     // Update cache if asset update is completed successfully
-                    DatastoreCacheManager.getInstance().getClientsCache().put(docBuilder.getClientId(), true);
+                    updateGuard.setRegistered(clientInfoKey);
                 }
+            } finally {
+                registration.end();
             }
         }
-
-        return new StorableIdImpl(docBuilder.getClientId());
     }
 
     /**
@@ -242,6 +247,84 @@ public class ClientInfoRegistryFacade {
                 .query(query);
     }
 
+    /**
+     * Find clients informations matching the given query in cursor mode (the first page, the page size is the query limit)
+     * 
+     * @param query
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsConfigurationException
+     * @throws EsClientUnavailableException
+     * @throws EsQueryConversionException
+     * @throws EsObjectBuilderException
+     * 
+     * @since 1.0.0
+     */
+    public ClientInfoListResult scroll(ClientInfoQuery query)
+            throws KapuaIllegalArgumentException,
+            EsConfigurationException,
+            EsClientUnavailableException,
+            EsQueryConversionException,
+            EsObjectBuilderException {
+        //
+        // Argument Validation
+        StorableCursors.checkQuery(query);
+
+        //
+        // Do the find
+        MessageStoreConfiguration accountServicePlan = configProvider.getConfiguration(query.getScopeId());
+        long ttl = accountServicePlan.getDataTimeToLiveMilliseconds();
+
+        if (!accountServicePlan.getDataStorageEnabled() || ttl == MessageStoreConfiguration.DISABLED) {
+            logger.debug("Storage not enabled for account {}, returning empty result", query.getScopeId());
+            return new ClientInfoListResultImpl();
+        }
+
+        String indexName = EsSchema.getKapuaIndexName(query.getScopeId());
+        ClientInfoListResult result = EsClientInfoDAO.getInstance()
+                .index(indexName)
+                .scroll(query);
+        return StorableCursors.firstPage(query, result, ClientInfoListResultImpl::new);
+    }
+
+    /**
+     * Find the next page of clients informations of a cursor mode query
+     * 
+     * @param scopeId
+     * @param cursor
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsClientUnavailableException
+     * @throws EsObjectBuilderException
+     * 
+     * @since 1.0.0
+     */
+    public ClientInfoListResult scroll(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException,
+            EsObjectBuilderException {
+        return StorableCursors.nextPage(scopeId,
+                cursor,
+                cursorToken -> EsClientInfoDAO.getInstance().scroll(cursorToken.getScrollId(), cursorToken.getLimit()),
+                ClientInfoListResultImpl::new);
+    }
+
+    /**
+     * Release a cursor mode query
+     * 
+     * @param scopeId
+     * @param cursor
+     * @throws KapuaIllegalArgumentException
+     * @throws EsClientUnavailableException
+     * 
+     * @since 1.0.0
+     */
+    public void closeCursor(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException {
+        StorableCursors.close(scopeId, cursor, scrollId -> EsClientInfoDAO.getInstance().clearScroll(scrollId));
+    }
+
     /**
      * Get clients informations count matching the given query
      * 
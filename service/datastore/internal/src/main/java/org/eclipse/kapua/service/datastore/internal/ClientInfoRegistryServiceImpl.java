@@ -16,6 +16,7 @@ import java.util.Date;
 import java.util.List;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableService;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.locator.KapuaLocator;
@@ -34,6 +35,7 @@ import org.eclipse.kapua.service.datastore.MessageStoreService;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.DatastoreMediator;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageField;
+import org.eclipse.kapua.service.datastore.internal.model.StorableCursorImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.RangePredicateImpl;
@@ -42,6 +44,7 @@ import org.eclipse.kapua.service.datastore.internal.model.query.StorableFieldImp
 import org.eclipse.kapua.service.datastore.model.ClientInfo;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.StorableCursor;
 import org.eclipse.kapua.service.datastore.model.StorableId;
 import org.eclipse.kapua.service.datastore.model.query.AndPredicate;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
@@ -151,6 +154,82 @@ public class ClientInfoRegistryServiceImpl extends AbstractKapuaConfigurableServ
         }
     }
 
+    @Override
+    public ClientInfoListResult scroll(ClientInfoQuery query)
+            throws KapuaException {
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        checkAccess(query.getScopeId(), Actions.read);
+
+        try {
+            ClientInfoListResult result = clientInfoFacade.scroll(query);
+
+            // populate the lastMessageTimestamp
+            for (ClientInfo clientInfo : result.getItems()) {
+                updateLastPublishedFields(clientInfo);
+            }
+
+            return result;
+        } catch (KapuaIllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
+    @Override
+    public ClientInfoListResult scroll(KapuaId scopeId, String cursor)
+            throws KapuaException {
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notEmptyOrNull(cursor, "cursor");
+
+        checkAccess(scopeId, Actions.read);
+
+        try {
+            ClientInfoListResult result = clientInfoFacade.scroll(scopeId, cursor);
+
+            // populate the lastMessageTimestamp
+            for (ClientInfo clientInfo : result.getItems()) {
+                updateLastPublishedFields(clientInfo);
+            }
+
+            return result;
+        } catch (KapuaIllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
+    @Override
+    public void closeCursor(KapuaId scopeId, String cursor)
+            throws KapuaException {
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notEmptyOrNull(cursor, "cursor");
+
+        checkAccess(scopeId, Actions.read);
+
+        try {
+            clientInfoFacade.closeCursor(scopeId, cursor);
+        } catch (KapuaIllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
+    @Override
+    public StorableCursor<ClientInfo> openCursor(ClientInfoQuery query)
+            throws KapuaException {
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        return new StorableCursorImpl<>(
+                cursor -> cursor == null ? scroll(query) : scroll(query.getScopeId(), cursor),
+                cursor -> closeCursor(query.getScopeId(), cursor));
+    }
+
     @Override
     public long count(ClientInfoQuery query)
             throws KapuaException {
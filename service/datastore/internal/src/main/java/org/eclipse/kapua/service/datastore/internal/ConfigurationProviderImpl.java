@@ -11,8 +11,14 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal;
 
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.cache.EntityChangeListener;
+import org.eclipse.kapua.commons.cache.LocalCache;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.account.Account;
 import org.eclipse.kapua.service.account.AccountService;
@@ -20,21 +26,54 @@ import org.eclipse.kapua.service.config.KapuaConfigurableService;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsConfigurationException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageInfo;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.metric.MetricsService;
+
+import com.codahale.metrics.Counter;
 
 /**
- * Datastore configuration provider implementation.
+ * Configuration provider implementation.<br>
+ * The message store configuration and the account information are cached by scope, so the store operation hits the database only on a cache miss.<br>
+ * The cached values are invalidated when the service configuration or the account is changed.
  * 
  * @since 1.0.0
  */
-public class ConfigurationProviderImpl implements ConfigurationProvider {
+public class ConfigurationProviderImpl implements ConfigurationProvider, EntityChangeListener {
+
+    private static final String METRIC_MODULE_NAME = "datastore";
+    private static final String METRIC_COMPONENT_NAME = "cache";
 
     private AccountService accountService;
     private KapuaConfigurableService configurableService;
 
+    private final LocalCache<BigInteger, MessageStoreConfiguration> configurationCache;
+    private final LocalCache<BigInteger, MessageInfo> infoCache;
+    // incremented by every invalidation, so a value loaded before an invalidation is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    // metrics
+    private final Counter metricConfigurationCacheHit;
+    private final Counter metricConfigurationCacheMiss;
+    private final Counter metricInfoCacheHit;
+    private final Counter metricInfoCacheMiss;
+
     public ConfigurationProviderImpl(KapuaConfigurableService configurableService,
             AccountService accountService) {
         this.accountService = accountService;
         this.configurableService = configurableService;
+
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        int expireAfter = config.getInt(DatastoreSettingKey.CONFIG_CACHE_CONFIGURATION_EXPIRE_AFTER, 60);
+        int sizeMax = config.getInt(DatastoreSettingKey.CONFIG_CACHE_CONFIGURATION_SIZE_MAXIMUM, 1000);
+        configurationCache = new LocalCache<>(sizeMax, expireAfter, null);
+        infoCache = new LocalCache<>(sizeMax, expireAfter, null);
+
+        MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        metricConfigurationCacheHit = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "configuration", "hit", "count");
+        metricConfigurationCacheMiss = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "configuration", "miss", "count");
+        metricInfoCacheHit = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "info", "hit", "count");
+        metricInfoCacheMiss = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "info", "miss", "count");
     }
 
     @Override
@@ -42,12 +81,25 @@ public class ConfigurationProviderImpl implements ConfigurationProvider {
             throws EsConfigurationException {
 
         MessageStoreConfiguration messageStoreConfiguration = null;
+        long loadGeneration = generation.get();
+        if (scopeId != null) {
+            messageStoreConfiguration = configurationCache.get(scopeId.getId());
+            if (messageStoreConfiguration != null) {
+                metricConfigurationCacheHit.inc();
+                return messageStoreConfiguration;
+            }
+            metricConfigurationCacheMiss.inc();
+        }
+
         try {
             messageStoreConfiguration = new MessageStoreConfiguration(configurableService.getConfigValues(scopeId));
         } catch (KapuaException e) {
             throw new EsConfigurationException(e);
         }
 
+        if (scopeId != null) {
+            putIfNotInvalidated(configurationCache, scopeId, messageStoreConfiguration, loadGeneration);
+        }
         return messageStoreConfiguration;
     }
 
@@ -57,6 +109,14 @@ public class ConfigurationProviderImpl implements ConfigurationProvider {
 
         Account account = null;
         if (scopeId != null) {
+            long loadGeneration = generation.get();
+            MessageInfo messageInfo = infoCache.get(scopeId.getId());
+            if (messageInfo != null) {
+                metricInfoCacheHit.inc();
+                return messageInfo;
+            }
+            metricInfoCacheMiss.inc();
+
             try {
                 account = KapuaSecurityUtils.doPrivileged(() -> accountService.find(scopeId));
             } catch (KapuaException exc) {
@@ -64,9 +124,50 @@ public class ConfigurationProviderImpl implements ConfigurationProvider {
             } catch (Exception exc) {
                 throw new EsConfigurationException(exc);
             }
+
+            // Do not cache missing accounts, they may be created later
+            if (account != null) {
+                messageInfo = new MessageInfo(account);
+                putIfNotInvalidated(infoCache, scopeId, messageInfo, loadGeneration);
+                return messageInfo;
+            }
         }
 
         return new MessageInfo(account);
     }
 
+    /**
+     * Invalidate the cached configuration and account information for the given scope
+     * 
+     * @param scopeId
+     */
+    public void invalidate(KapuaId scopeId) {
+        if (scopeId != null) {
+            generation.incrementAndGet();
+            configurationCache.remove(scopeId.getId());
+            infoCache.remove(scopeId.getId());
+        }
+    }
+
+    /**
+     * Cache the value loaded on a miss, unless an invalidation happened meanwhile (the value may be stale).<br>
+     * The generation is checked again after the put, since an invalidation between the check and the put would not remove the value.
+     */
+    private <V> void putIfNotInvalidated(LocalCache<BigInteger, V> cache, KapuaId scopeId, V value, long loadGeneration) {
+        if (generation.get() == loadGeneration) {
+            cache.put(scopeId.getId(), value);
+            if (generation.get() != loadGeneration) {
+                cache.remove(scopeId.getId());
+            }
+        }
+    }
+
+    @Override
+    public void onEntityChange(String entityType, KapuaId scopeId, KapuaId entityId) {
+        // the message store scope is the account id
+        if (Account.TYPE.equals(entityType)) {
+            invalidate(entityId);
+        }
+    }
+
 }
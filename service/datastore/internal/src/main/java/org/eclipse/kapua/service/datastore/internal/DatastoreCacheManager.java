@@ -25,9 +25,13 @@ public class DatastoreCacheManager {
 
     private static final DatastoreCacheManager instance = new DatastoreCacheManager();
 
-    private final LocalCache<String, Boolean> channelsCache;
-    private final LocalCache<String, Boolean> metricsCache;
-    private final LocalCache<String, Boolean> clientsCache;
+    private final LocalCache<MetadataKey, Boolean> channelsCache;
+    private final LocalCache<MetadataKey, Boolean> metricsCache;
+    private final LocalCache<MetadataKey, Boolean> clientsCache;
+
+    private final MetadataUpdateGuard channelsUpdateGuard;
+    private final MetadataUpdateGuard metricsUpdateGuard;
+    private final MetadataUpdateGuard clientsUpdateGuard;
 
     private DatastoreCacheManager() {
         DatastoreSettings config = DatastoreSettings.getInstance();
@@ -40,6 +44,10 @@ public class DatastoreCacheManager {
         channelsCache = new LocalCache<>(sizeMax, expireAfter, false);
         metricsCache = new LocalCache<>(sizeMax, expireAfter, false);
         clientsCache = new LocalCache<>(sizeMax, expireAfter, false);
+
+        channelsUpdateGuard = new MetadataUpdateGuard("channel", channelsCache);
+        metricsUpdateGuard = new MetadataUpdateGuard("metric", metricsCache);
+        clientsUpdateGuard = new MetadataUpdateGuard("client", clientsCache);
     }
 
     /**
@@ -60,7 +68,7 @@ public class DatastoreCacheManager {
      * 
      * @since 1.0.0
      */
-    public LocalCache<String, Boolean> getChannelsCache() {
+    public LocalCache<MetadataKey, Boolean> getChannelsCache() {
         return channelsCache;
     }
 
@@ -71,7 +79,7 @@ public class DatastoreCacheManager {
      * 
      * @since 1.0.0
      */
-    public LocalCache<String, Boolean> getMetricsCache() {
+    public LocalCache<MetadataKey, Boolean> getMetricsCache() {
         return metricsCache;
     }
 
@@ -82,7 +90,40 @@ public class DatastoreCacheManager {
      * 
      * @since 1.0.0
      */
-    public LocalCache<String, Boolean> getClientsCache() {
+    public LocalCache<MetadataKey, Boolean> getClientsCache() {
         return clientsCache;
     }
+
+    /**
+     * Get the channels informations update guard
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    public MetadataUpdateGuard getChannelsUpdateGuard() {
+        return channelsUpdateGuard;
+    }
+
+    /**
+     * Get the metrics informations update guard
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    public MetadataUpdateGuard getMetricsUpdateGuard() {
+        return metricsUpdateGuard;
+    }
+
+    /**
+     * Get the clients informations update guard
+     * 
+     * @return
+     * 
+     * @since 1.0.0
+     */
+    public MetadataUpdateGuard getClientsUpdateGuard() {
+        return clientsUpdateGuard;
+    }
 }
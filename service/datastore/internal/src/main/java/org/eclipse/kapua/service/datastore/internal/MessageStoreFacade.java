@@ -12,12 +12,14 @@
 package org.eclipse.kapua.service.datastore.internal;
 
 import java.util.Date;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.cache.LocalCache;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.commons.util.KapuaDateUtils;
+import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.message.KapuaMessage;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.DatastoreChannel;
@@ -28,33 +30,49 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsMetric;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsObjectBuilderException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConversionException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageBulkIndexer;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageInfo;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreMediator;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageXContentBuilder;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricAggregationQueryConverter;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsChannelInfoDAO;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsClientInfoDAO;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsMessageDAO;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsMetricInfoDAO;
 import org.eclipse.kapua.service.datastore.internal.model.DataIndexBy;
 import org.eclipse.kapua.service.datastore.internal.model.MessageListResultImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricAggregationResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelMatchPredicateImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ClientInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.IdsPredicateImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MetricInfoQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.eclipse.kapua.service.datastore.model.ChannelInfoListResult;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationResult;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.StorableId;
+import org.eclipse.kapua.service.datastore.model.query.AndPredicate;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+import org.eclipse.kapua.service.datastore.model.query.RangePredicate;
 import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
+import org.eclipse.kapua.service.datastore.model.query.StorablePredicate;
+import org.eclipse.kapua.service.metric.MetricTags;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.eclipse.kapua.service.metric.ScopedMetric;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Timer;
+
 /**
  * Message store facade
  * 
@@ -67,6 +85,12 @@ public final class MessageStoreFacade {
 
     private final MessageStoreMediator mediator;
     private final ConfigurationProvider configProvider;
+    private final MessageBulkIndexer bulkIndexer;
+    private final ScopedMetric<Timer> metricMetadataTime;
+    private final ScopedMetric<Timer> metricAggregateTime;
+    private final boolean indexPruningEnabled;
+    private final long indexPruningRangeMax;
+    private final long aggregationBucketsMax;
 
     /**
      * Constructs the message store facade
@@ -79,10 +103,22 @@ public final class MessageStoreFacade {
     public MessageStoreFacade(ConfigurationProvider confProvider, MessageStoreMediator mediator) {
         this.configProvider = confProvider;
         this.mediator = mediator;
+
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        boolean bulkEnabled = config.getBoolean(DatastoreSettingKey.CONFIG_BULK_ENABLE, false);
+        this.bulkIndexer = bulkEnabled ? MessageBulkIndexer.getInstance() : null;
+        this.indexPruningEnabled = config.getBoolean(DatastoreSettingKey.CONFIG_INDEX_PRUNING_ENABLE, false);
+        this.indexPruningRangeMax = config.getLong(DatastoreSettingKey.CONFIG_INDEX_PRUNING_RANGE_MAXIMUM, 1830) * KapuaDateUtils.DAY_MILLIS;
+        this.aggregationBucketsMax = config.getLong(DatastoreSettingKey.CONFIG_AGGREGATION_BUCKETS_MAXIMUM, 10000);
+
+        MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        this.metricMetadataTime = metricsService.getScopedTimer(MetricTags.EMPTY, "datastore", "store", "metadata", "time", "s");
+        this.metricAggregateTime = metricsService.getScopedTimer(MetricTags.EMPTY, "datastore", "aggregate", "time", "s");
     }
 
     /**
-     * Store a message
+     * Store a message.<br>
+     * If the bulk indexing is enabled the message is indexed through the {@link MessageBulkIndexer} and the method returns once the bulk request containing the message is completed.
      * 
      * @param message
      * @return
@@ -137,24 +173,37 @@ public final class MessageStoreFacade {
         Date indexedOnDt = new Date(indexedOn);
 
         // Parse document
-        MessageInfo messageInfo = configProvider.getInfo(message.getScopeId());
         MessageXContentBuilder docBuilder = new MessageXContentBuilder();
-        docBuilder.build(messageInfo.getAccount().getId(), message, indexedOnDt, message.getReceivedOn());
+        docBuilder.build(accountInfo.getAccount().getId(), message, indexedOnDt, message.getReceivedOn());
 
         // Possibly update the schema with new metric mappings
-        Map<String, EsMetric> esMetrics = docBuilder.getMetricMappings();
+        long metadataStart = System.nanoTime();
+        List<EsMetric> esMetrics = docBuilder.getMetricMappings();
         mediator.onUpdatedMappings(message.getScopeId(), indexedOn, esMetrics);
+        long metadataTime = System.nanoTime() - metadataStart;
 
         String indexName = schemaMetadata.getDataIndexName();
 
         // Save message (the big one)
         // TODO check response
-        EsMessageDAO.getInstance()
-                .index(indexName)
-                .upsert(docBuilder.getMessageId().toString(), docBuilder.getBuilder());
+        if (bulkIndexer != null) {
+            // Wait for the bulk request completion so the message is acknowledged only if stored
+            UpdateRequest upsertRequest = EsMessageDAO.getInstance()
+                    .index(indexName)
+                    .getUpsertRequest(docBuilder.getMessageId().toString(), docBuilder.getSource());
+            bulkIndexer.index(upsertRequest, docBuilder.getSource().length());
+        } else {
+            EsMessageDAO.getInstance()
+                    .index(indexName)
+                    .upsert(docBuilder.getMessageId().toString(), docBuilder.getSource());
+        }
 
+        metadataStart = System.nanoTime();
         mediator.onAfterMessageStore(docBuilder, message);
+        metadataTime += System.nanoTime() - metadataStart;
 
+        // metadata (mappings, client, channel and metric infos) update time by scope
+        metricMetadataTime.get(message.getScopeId()).update(metadataTime, TimeUnit.NANOSECONDS);
         return docBuilder.getMessageId();
     }
 
@@ -268,12 +317,164 @@ public final class MessageStoreFacade {
             return new MessageListResultImpl();
         }
 
-        String dataIndexName = EsSchema.getDataIndexName(query.getScopeId());
+        String[] dataIndexNames = getDataIndexNames(query, accountServicePlan);
+        if (dataIndexNames.length == 0) {
+            logger.debug("No data index covering the query time range for account {}, returning empty result", query.getScopeId());
+            return new MessageListResultImpl();
+        }
         return EsMessageDAO.getInstance()
-                .index(dataIndexName)
+                .index(dataIndexNames)
                 .query(query);
     }
 
+    /**
+     * Find messages matching the given query in cursor mode (the first page, the page size is the query limit)
+     * 
+     * @param query
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsConfigurationException
+     * @throws EsClientUnavailableException
+     * @throws EsQueryConversionException
+     * @throws EsObjectBuilderException
+     * 
+     * @since 1.0.0
+     */
+    public MessageListResult scroll(MessageQuery query)
+            throws KapuaIllegalArgumentException,
+            EsConfigurationException,
+            EsClientUnavailableException,
+            EsQueryConversionException, EsObjectBuilderException {
+        //
+        // Argument Validation
+        StorableCursors.checkQuery(query);
+
+        //
+        // Do the find
+        MessageStoreConfiguration accountServicePlan = this.configProvider.getConfiguration(query.getScopeId());
+        long ttl = accountServicePlan.getDataTimeToLiveMilliseconds();
+
+        if (!accountServicePlan.getDataStorageEnabled() || ttl == MessageStoreConfiguration.DISABLED) {
+            logger.debug("Storage not enabled for account {}, returning empty result", query.getScopeId());
+            return new MessageListResultImpl();
+        }
+
+        String[] dataIndexNames = getDataIndexNames(query, accountServicePlan);
+        if (dataIndexNames.length == 0) {
+            logger.debug("No data index covering the query time range for account {}, returning empty result", query.getScopeId());
+            return new MessageListResultImpl();
+        }
+        MessageListResult result = EsMessageDAO.getInstance()
+                .index(dataIndexNames)
+                .scroll(query);
+        return StorableCursors.firstPage(query, result, MessageListResultImpl::new);
+    }
+
+    /**
+     * Find the next page of messages of a cursor mode query
+     * 
+     * @param scopeId
+     * @param cursor
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsClientUnavailableException
+     * @throws EsObjectBuilderException
+     * 
+     * @since 1.0.0
+     */
+    public MessageListResult scroll(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException,
+            EsObjectBuilderException {
+        return StorableCursors.nextPage(scopeId,
+                cursor,
+                cursorToken -> EsMessageDAO.getInstance().scroll(cursorToken.getScrollId(), cursorToken.getLimit(), cursorToken.getFetchStyle()),
+                MessageListResultImpl::new);
+    }
+
+    /**
+     * Release a cursor mode query
+     * 
+     * @param scopeId
+     * @param cursor
+     * @throws KapuaIllegalArgumentException
+     * @throws EsClientUnavailableException
+     * 
+     * @since 1.0.0
+     */
+    public void closeCursor(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException {
+        StorableCursors.close(scopeId, cursor, scrollId -> EsMessageDAO.getInstance().clearScroll(scrollId));
+    }
+
+    /**
+     * Aggregate the values of a metric of the messages matching the given query in time buckets
+     * 
+     * @param query
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsConfigurationException
+     * @throws EsClientUnavailableException
+     * @throws EsQueryConversionException
+     * 
+     * @since 1.0.0
+     */
+    public MetricAggregationResult aggregate(MetricAggregationQuery query)
+            throws KapuaIllegalArgumentException,
+            EsConfigurationException,
+            EsClientUnavailableException,
+            EsQueryConversionException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+        ArgumentValidator.notEmptyOrNull(query.getMetricName(), "query.metricName");
+        ArgumentValidator.notEmptyOrNull(query.getMetricType(), "query.metricType");
+        ArgumentValidator.notNull(query.getFrom(), "query.from");
+        ArgumentValidator.notNull(query.getTo(), "query.to");
+        try {
+            MetricAggregationQueryConverter.getMetricField(query);
+        } catch (EsQueryConversionException e) {
+            throw new KapuaIllegalArgumentException("query.metricType", query.getMetricType());
+        }
+        long range = query.getTo().getTime() - query.getFrom().getTime();
+        if (range < 0) {
+            throw new KapuaIllegalArgumentException("query.to", query.getTo().toString());
+        }
+        if (query.getInterval() <= 0 || range / query.getInterval() >= aggregationBucketsMax) {
+            throw new KapuaIllegalArgumentException("query.interval", Long.toString(query.getInterval()));
+        }
+        for (double percentile : query.getPercentiles()) {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new KapuaIllegalArgumentException("query.percentiles", Double.toString(percentile));
+            }
+        }
+
+        //
+        // Do the aggregation
+        MessageStoreConfiguration accountServicePlan = this.configProvider.getConfiguration(query.getScopeId());
+        long ttl = accountServicePlan.getDataTimeToLiveMilliseconds();
+
+        if (!accountServicePlan.getDataStorageEnabled() || ttl == MessageStoreConfiguration.DISABLED) {
+            logger.debug("Storage not enabled for account {}, returning empty result", query.getScopeId());
+            return new MetricAggregationResultImpl(0, query.getPercentiles());
+        }
+
+        String[] dataIndexNames = getDataIndexNames(new MetricAggregationQueryConverter().toMessageQuery(query), accountServicePlan);
+        if (dataIndexNames.length == 0) {
+            logger.debug("No data index covering the query time range for account {}, returning empty result", query.getScopeId());
+            return new MetricAggregationResultImpl(0, query.getPercentiles());
+        }
+
+        long aggregateStart = System.nanoTime();
+        MetricAggregationResult result = EsMessageDAO.getInstance()
+                .index(dataIndexNames)
+                .aggregate(query);
+        metricAggregateTime.get(query.getScopeId()).update(System.nanoTime() - aggregateStart, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
     /**
      * Get messages count matching the given query
      * 
@@ -307,9 +508,13 @@ public final class MessageStoreFacade {
             return 0;
         }
 
-        String dataIndexName = EsSchema.getDataIndexName(query.getScopeId());
+        String[] dataIndexNames = getDataIndexNames(query, accountServicePlan);
+        if (dataIndexNames.length == 0) {
+            logger.debug("No data index covering the query time range for account {}, returning empty result", query.getScopeId());
+            return 0;
+        }
         return EsMessageDAO.getInstance()
-                .index(dataIndexName)
+                .index(dataIndexNames)
                 .count(query);
     }
 
@@ -345,12 +550,100 @@ public final class MessageStoreFacade {
             return;
         }
 
-        String dataIndexName = EsSchema.getDataIndexName(query.getScopeId());
+        String[] dataIndexNames = getDataIndexNames(query, accountServicePlan);
+        if (dataIndexNames.length == 0) {
+            logger.debug("No data index covering the query time range for account {}, skipping delete", query.getScopeId());
+            return;
+        }
         EsMessageDAO.getInstance()
-                .index(dataIndexName)
+                .index(dataIndexNames)
                 .deleteByQuery(query);
     }
 
+    /**
+     * Get the data indexes targeted by the query.<br>
+     * If the index pruning is enabled and the query predicates bound the time range the messages are indexed by (the timestamp, or the captured on
+     * if the account indexes the messages by device timestamp) the existing data indexes covering the range are returned.
+     * Otherwise the wildcard data index of the scope is returned.<br>
+     * The range end may be omitted if the messages are indexed by server timestamp (the messages cannot be indexed in the future).
+     * 
+     * @param query
+     * @param accountServicePlan
+     * @return
+     * @throws EsClientUnavailableException
+     */
+    private String[] getDataIndexNames(MessageQuery query, MessageStoreConfiguration accountServicePlan)
+            throws EsClientUnavailableException {
+        if (indexPruningEnabled) {
+            boolean indexedByDevice = DataIndexBy.DEVICE_TIMESTAMP.equals(accountServicePlan.getDataIndexBy());
+            long[] range = getIndexedOnRange(query.getPredicate(), indexedByDevice, KapuaDateUtils.getKapuaSysDate().getTime());
+            if (range[0] != Long.MIN_VALUE && range[1] != Long.MAX_VALUE) {
+                if (range[0] > range[1]) {
+                    return new String[0];
+                }
+                if (range[1] - range[0] <= indexPruningRangeMax) {
+                    return mediator.getDataIndexNames(query.getScopeId(), range[0], range[1]);
+                }
+            }
+        }
+        return new String[] { EsSchema.getDataIndexName(query.getScopeId()) };
+    }
+
+    /**
+     * Get the time range (milliseconds) the query predicate bounds the indexing time of the matching messages to.<br>
+     * An unbounded range start is {@link Long#MIN_VALUE} and an unbounded range end is {@link Long#MAX_VALUE}.
+     * The range end defaults to now if the messages are indexed by server timestamp.
+     * 
+     * @param predicate
+     * @param indexedByDevice
+     *            true if the messages are indexed by device timestamp (the captured on)
+     * @param now
+     * @return the range start and end
+     */
+    static long[] getIndexedOnRange(StorablePredicate predicate, boolean indexedByDevice, long now) {
+        long[] range = new long[] { Long.MIN_VALUE, Long.MAX_VALUE };
+        collectIndexedOnRange(predicate, indexedByDevice ? EsSchema.MESSAGE_CAPTURED_ON : null, range);
+        if (range[1] == Long.MAX_VALUE && !indexedByDevice) {
+            range[1] = now;
+        }
+        return range;
+    }
+
+    /**
+     * Narrow the range by the range predicates on the timestamp (or on the other field the messages are indexed by) matched by all the messages
+     * (the predicate itself or the and predicate terms)
+     */
+    private static void collectIndexedOnRange(StorablePredicate predicate, String indexedOnField, long[] range) {
+        if (predicate instanceof AndPredicate) {
+            for (StorablePredicate subPredicate : ((AndPredicate) predicate).getPredicates()) {
+                collectIndexedOnRange(subPredicate, indexedOnField, range);
+            }
+        } else if (predicate instanceof RangePredicate) {
+            RangePredicate rangePredicate = (RangePredicate) predicate;
+            String field = rangePredicate.getField() != null ? rangePredicate.getField().field() : null;
+            if (EsSchema.MESSAGE_TIMESTAMP.equals(field) || (indexedOnField != null && indexedOnField.equals(field))) {
+                Long min = toMillis(rangePredicate.getMinValue());
+                Long max = toMillis(rangePredicate.getMaxValue());
+                if (min != null) {
+                    range[0] = Math.max(range[0], min);
+                }
+                if (max != null) {
+                    range[1] = Math.min(range[1], max);
+                }
+            }
+        }
+    }
+
+    private static Long toMillis(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        // not bounded (or not a time value)
+        return null;
+    }
+
     // TODO cache will not be reset from the client code it should be automatically reset
     // after some time.
     private void resetCache(KapuaId scopeId, KapuaId deviceId, String channel, String clientId)
@@ -393,13 +686,13 @@ public final class MessageStoreFacade {
                     .index(dataIndexName).query(metricQuery);
 
             totalHits = metrics.getSize();
-            LocalCache<String, Boolean> metricsCache = DatastoreCacheManager.getInstance().getMetricsCache();
+            LocalCache<MetadataKey, Boolean> metricsCache = DatastoreCacheManager.getInstance().getMetricsCache();
             long toBeProcessed = totalHits > pageSize ? pageSize : totalHits;
 
             for (int i = 0; i < toBeProcessed; i++) {
-                String id = metrics.getItem(i).getId().toString();
-                if (metricsCache.get(id))
-                    metricsCache.remove(id);
+                MetadataKey key = MetadataKey.ofMetric(metrics.getItem(i));
+                if (metricsCache.get(key))
+                    metricsCache.remove(key);
             }
 
             if (totalHits > pageSize)
@@ -430,13 +723,13 @@ public final class MessageStoreFacade {
                     .index(dataIndexName).query(channelQuery);
 
             totalHits = channels.getSize();
-            LocalCache<String, Boolean> channelsCache = DatastoreCacheManager.getInstance().getChannelsCache();
+            LocalCache<MetadataKey, Boolean> channelsCache = DatastoreCacheManager.getInstance().getChannelsCache();
             long toBeProcessed = totalHits > pageSize ? pageSize : totalHits;
 
             for (int i = 0; i < toBeProcessed; i++) {
-                String id = channels.getItem(0).getId().toString();
-                if (channelsCache.get(id))
-                    channelsCache.remove(id);
+                MetadataKey key = MetadataKey.ofChannel(channels.getItem(i));
+                if (channelsCache.get(key))
+                    channelsCache.remove(key);
             }
             if (totalHits > pageSize)
                 offset += (pageSize + 1);
@@ -469,13 +762,13 @@ public final class MessageStoreFacade {
                         .query(clientInfoQuery);
 
                 totalHits = clients.getSize();
-                LocalCache<String, Boolean> clientsCache = DatastoreCacheManager.getInstance().getClientsCache();
+                LocalCache<MetadataKey, Boolean> clientsCache = DatastoreCacheManager.getInstance().getClientsCache();
                 long toBeProcessed = totalHits > pageSize ? pageSize : totalHits;
 
                 for (int i = 0; i < toBeProcessed; i++) {
-                    String id = clients.getItem(i).getId().toString();
-                    if (clientsCache.get(id))
-                        clientsCache.remove(id);
+                    MetadataKey key = MetadataKey.ofClient(clients.getItem(i));
+                    if (clientsCache.get(key))
+                        clientsCache.remove(key);
                 }
                 if (totalHits > pageSize)
                     offset += (pageSize + 1);
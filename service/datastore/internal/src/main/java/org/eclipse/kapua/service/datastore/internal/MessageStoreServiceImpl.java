@@ -11,7 +11,11 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal;
 
+import java.util.Map;
+
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.cache.EntityChangeNotifier;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableService;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.locator.KapuaLocator;
@@ -27,10 +31,14 @@ import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.datastore.DatastoreDomain;
 import org.eclipse.kapua.service.datastore.MessageStoreService;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.DatastoreMediator;
+import org.eclipse.kapua.service.datastore.internal.model.StorableCursorImpl;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationResult;
+import org.eclipse.kapua.service.datastore.model.StorableCursor;
 import org.eclipse.kapua.service.datastore.model.StorableId;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +62,7 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
     private final AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
     private final PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
 
+    private final ConfigurationProviderImpl configurationProvider;
     private final MessageStoreFacade esMessageStoreFacade;
 
     /**
@@ -64,7 +73,8 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
     public MessageStoreServiceImpl() {
         super(MessageStoreService.class.getName(), datastoreDomain, DatastoreEntityManagerFactory.getInstance());
 
-        ConfigurationProviderImpl configurationProvider = new ConfigurationProviderImpl(this, accountService);
+        this.configurationProvider = new ConfigurationProviderImpl(this, accountService);
+        EntityChangeNotifier.addListener(configurationProvider);
         this.esMessageStoreFacade = new MessageStoreFacade(configurationProvider, DatastoreMediator.getInstance());
         DatastoreMediator.getInstance().setMessageStoreFacade(esMessageStoreFacade);
     }
@@ -130,6 +140,68 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         }
     }
 
+    @Override
+    public MessageListResult scroll(MessageQuery query)
+            throws KapuaException {
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        checkDataAccess(query.getScopeId(), Actions.read);
+
+        try {
+            return esMessageStoreFacade.scroll(query);
+        } catch (KapuaIllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
+    @Override
+    public MessageListResult scroll(KapuaId scopeId, String cursor)
+            throws KapuaException {
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notEmptyOrNull(cursor, "cursor");
+
+        checkDataAccess(scopeId, Actions.read);
+
+        try {
+            return esMessageStoreFacade.scroll(scopeId, cursor);
+        } catch (KapuaIllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
+    @Override
+    public void closeCursor(KapuaId scopeId, String cursor)
+            throws KapuaException {
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notEmptyOrNull(cursor, "cursor");
+
+        checkDataAccess(scopeId, Actions.read);
+
+        try {
+            esMessageStoreFacade.closeCursor(scopeId, cursor);
+        } catch (KapuaIllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
+    @Override
+    public StorableCursor<DatastoreMessage> openCursor(MessageQuery query)
+            throws KapuaException {
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        return new StorableCursorImpl<>(
+                cursor -> cursor == null ? scroll(query) : scroll(query.getScopeId(), cursor),
+                cursor -> closeCursor(query.getScopeId(), cursor));
+    }
+
     @Override
     public long count(MessageQuery query)
             throws KapuaException {
@@ -145,6 +217,23 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         }
     }
 
+    @Override
+    public MetricAggregationResult aggregate(MetricAggregationQuery query)
+            throws KapuaException {
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+
+        checkDataAccess(query.getScopeId(), Actions.read);
+
+        try {
+            return esMessageStoreFacade.aggregate(query);
+        } catch (KapuaIllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+    }
+
     @Override
     public void delete(MessageQuery query)
             throws KapuaException {
@@ -160,6 +249,13 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         }
     }
 
+    @Override
+    public void setConfigValues(KapuaId scopeId, Map<String, Object> values)
+            throws KapuaException {
+        super.setConfigValues(scopeId, values);
+        configurationProvider.invalidate(scopeId);
+    }
+
     private void checkDataAccess(KapuaId scopeId, Actions action)
             throws KapuaException {
         //
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.math.BigInteger;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.model.ChannelInfo;
+import org.eclipse.kapua.service.datastore.model.ClientInfo;
+import org.eclipse.kapua.service.datastore.model.MetricInfo;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Metadata (client, channel and metric informations) cache key.<br>
+ * It's the 128 bit MurmurHash3 (Guava {@link Hashing#murmur3_128()}) of the raw metadata fields, hashed without building any intermediate string,
+ * so the cache lookups of the message store don't pay the document identifier derivation (SHA-256 of the concatenated fields, Base64 encoded).
+ * The document identifiers are derived only when the metadata are actually written.<br>
+ * The keys live only in the local caches, so the hashing can change between versions.
+ *
+ * @since 1.0.0
+ */
+public final class MetadataKey {
+
+    private static final byte CLIENT = 1;
+    private static final byte CHANNEL = 2;
+    private static final byte METRIC = 3;
+
+    private static final HashFunction MURMUR3 = Hashing.murmur3_128();
+
+    private final HashCode hash;
+
+    private MetadataKey(HashCode hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Get the client information key
+     *
+     * @param scopeId
+     * @param clientId
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static MetadataKey ofClient(KapuaId scopeId, String clientId) {
+        Hasher hasher = newHasher(CLIENT);
+        putId(hasher, scopeId);
+        putString(hasher, clientId);
+        return new MetadataKey(hasher.hash());
+    }
+
+    /**
+     * Get the client information key
+     *
+     * @param clientInfo
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static MetadataKey ofClient(ClientInfo clientInfo) {
+        return ofClient(clientInfo.getScopeId(), clientInfo.getClientId());
+    }
+
+    /**
+     * Get the channel information key
+     *
+     * @param scopeId
+     * @param clientId
+     * @param channel
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static MetadataKey ofChannel(KapuaId scopeId, String clientId, String channel) {
+        Hasher hasher = newHasher(CHANNEL);
+        putId(hasher, scopeId);
+        putString(hasher, clientId);
+        putString(hasher, channel);
+        return new MetadataKey(hasher.hash());
+    }
+
+    /**
+     * Get the channel information key
+     *
+     * @param channelInfo
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static MetadataKey ofChannel(ChannelInfo channelInfo) {
+        return ofChannel(channelInfo.getScopeId(), channelInfo.getClientId(), channelInfo.getChannel());
+    }
+
+    /**
+     * Get the metric information key
+     *
+     * @param scopeId
+     * @param clientId
+     * @param channel
+     * @param metricName
+     * @param metricType
+     *            the metric type (Kapua or Elasticsearch type name, see {@link EsUtils#convertToEsType(String)})
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static MetadataKey ofMetric(KapuaId scopeId, String clientId, String channel, String metricName, String metricType) {
+        Hasher hasher = newHasher(METRIC);
+        putId(hasher, scopeId);
+        putString(hasher, clientId);
+        putString(hasher, channel);
+        putString(hasher, metricName);
+        putString(hasher, EsUtils.convertToEsType(metricType));
+        return new MetadataKey(hasher.hash());
+    }
+
+    /**
+     * Get the metric information key
+     *
+     * @param metricInfo
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public static MetadataKey ofMetric(MetricInfo metricInfo) {
+        return ofMetric(metricInfo.getScopeId(), metricInfo.getClientId(), metricInfo.getChannel(), metricInfo.getName(), metricInfo.getType());
+    }
+
+    @Override
+    public int hashCode() {
+        // the bits are already well mixed
+        return hash.asInt();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof MetadataKey)) {
+            return false;
+        }
+        MetadataKey other = (MetadataKey) obj;
+        return hash.equals(other.hash);
+    }
+
+    @Override
+    public String toString() {
+        return hash.toString();
+    }
+
+    private static Hasher newHasher(byte kind) {
+        return MURMUR3.newHasher().putByte(kind);
+    }
+
+    /**
+     * Put the string prefixed by its length (and the null strings as -1), so the field boundaries are part of the hash
+     */
+    private static Hasher putString(Hasher hasher, CharSequence value) {
+        if (value == null) {
+            return hasher.putInt(-1);
+        }
+        return hasher.putInt(value.length()).putUnencodedChars(value);
+    }
+
+    private static Hasher putId(Hasher hasher, KapuaId id) {
+        if (id == null) {
+            return hasher.putInt(-1);
+        }
+        BigInteger value = id.getId();
+        int bitLength = value.bitLength();
+        hasher.putInt(bitLength).putLong(value.longValue());
+        // the identifiers are usually 64 bit long
+        for (int shift = 64; shift <= bitLength; shift += 64) {
+            hasher.putLong(value.shiftRight(shift).longValue());
+        }
+        return hasher;
+    }
+}
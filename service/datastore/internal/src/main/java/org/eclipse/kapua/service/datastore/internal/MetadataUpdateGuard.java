@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.metric.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+
+/**
+ * Metadata (channel, metric and client informations) update guard.<br>
+ * It replaces the single facade monitor with a per key registration: the first thread missing the cache for a key owns the registration and does the update,
+ * the other threads missing the same key meanwhile wait for that update instead of doing it again (so the duplicate registrations are merged in a single write),
+ * while the registrations of different keys proceed in parallel.
+ *
+ * <pre>
+ * while (!guard.isRegistered(key)) {
+ *     MetadataUpdateGuard.Registration registration = guard.begin(key);
+ *     if (registration.isOwner()) {
+ *         try {
+ *             // do the update
+ *             guard.setRegistered(key);
+ *         } finally {
+ *             registration.end();
+ *         }
+ *     } else {
+ *         registration.await();
+ *     }
+ * }
+ * </pre>
+ *
+ * @since 1.0.0
+ */
+public class MetadataUpdateGuard {
+
+    private static final String METRIC_MODULE_NAME = "datastore";
+    private static final String METRIC_COMPONENT_NAME = "metadata";
+
+    private final LocalCache<MetadataKey, Boolean> cache;
+    private final ConcurrentMap<MetadataKey, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    // metrics
+    private final Counter metricRegistered;
+    private final Counter metricMerged;
+    private final Timer metricWait;
+
+    /**
+     * Constructs the update guard of the given metadata cache
+     *
+     * @param metadataType
+     *            metadata type name (used as metrics name)
+     * @param cache
+     *            cache of the registered keys
+     *
+     * @since 1.0.0
+     */
+    public MetadataUpdateGuard(String metadataType, LocalCache<MetadataKey, Boolean> cache) {
+        this.cache = cache;
+
+        MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        metricRegistered = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, metadataType, "registered", "count");
+        metricMerged = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, metadataType, "merged", "count");
+        metricWait = metricsService.getTimer(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, metadataType, "wait", "time", "s");
+    }
+
+    /**
+     * Check if the key is already registered
+     *
+     * @param key
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public boolean isRegistered(MetadataKey key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Mark the key as registered (to be called by the registration owner once the update is completed successfully)
+     *
+     * @param key
+     *
+     * @since 1.0.0
+     */
+    public void setRegistered(MetadataKey key) {
+        cache.put(key, true);
+        metricRegistered.inc();
+    }
+
+    /**
+     * Begin the registration of the key.<br>
+     * The returned registration is owned by the caller if no other registration of the same key is in flight, otherwise it's the in flight registration to wait for.
+     *
+     * @param key
+     * @return
+     *
+     * @since 1.0.0
+     */
+    public Registration begin(MetadataKey key) {
+        CompletableFuture<Void> registration = new CompletableFuture<>();
+        CompletableFuture<Void> inFlightRegistration = inFlight.putIfAbsent(key, registration);
+        if (inFlightRegistration != null) {
+            metricMerged.inc();
+            return new Registration(key, inFlightRegistration, false);
+        }
+        return new Registration(key, registration, true);
+    }
+
+    /**
+     * Metadata key registration
+     *
+     * @since 1.0.0
+     */
+    public class Registration {
+
+        private final MetadataKey key;
+        private final CompletableFuture<Void> registration;
+        private final boolean owner;
+
+        private Registration(MetadataKey key, CompletableFuture<Void> registration, boolean owner) {
+            this.key = key;
+            this.registration = registration;
+            this.owner = owner;
+        }
+
+        /**
+         * Check if the caller owns the registration (so it has to do the update and then end the registration)
+         *
+         * @return
+         *
+         * @since 1.0.0
+         */
+        public boolean isOwner() {
+            return owner;
+        }
+
+        /**
+         * End the owned registration (whatever the update outcome) releasing the waiting threads
+         *
+         * @since 1.0.0
+         */
+        public void end() {
+            if (owner) {
+                inFlight.remove(key, registration);
+                registration.complete(null);
+            }
+        }
+
+        /**
+         * Wait for the end of the in flight registration.<br>
+         * The caller should check again the key since the owner update may be failed.
+         *
+         * @since 1.0.0
+         */
+        public void await() {
+            if (!owner && !registration.isDone()) {
+                Context waitContext = metricWait.time();
+                try {
+                    registration.join();
+                } finally {
+                    waitContext.stop();
+                }
+            }
+        }
+    }
+}
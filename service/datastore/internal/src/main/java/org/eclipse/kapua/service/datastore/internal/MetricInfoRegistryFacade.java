@@ -12,6 +12,7 @@
 package org.eclipse.kapua.service.datastore.internal;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
@@ -25,7 +26,6 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema.Metadata;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricInfoRegistryMediator;
-import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricInfoXContentBuilder;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsMetricInfoDAO;
 import org.eclipse.kapua.service.datastore.internal.model.MetricInfoListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
@@ -55,7 +55,6 @@ public class MetricInfoRegistryFacade {
 
     private final MetricInfoRegistryMediator mediator;
     private final ConfigurationProvider configProvider;
-    private final Object metadataUpdateSync;
 
     /**
      * Constructs the metric info registry facade
@@ -68,7 +67,6 @@ public class MetricInfoRegistryFacade {
     public MetricInfoRegistryFacade(ConfigurationProvider configProvider, MetricInfoRegistryMediator mediator) {
         this.configProvider = configProvider;
         this.mediator = mediator;
-        this.metadataUpdateSync = new Object();
     }
 
     /**
@@ -76,7 +74,6 @@ public class MetricInfoRegistryFacade {
      * 
      * @param scopeId
      * @param metricInfo
-     * @return
      * @throws KapuaIllegalArgumentException
      * @throws EsDocumentBuilderException
      * @throws EsClientUnavailableException
@@ -84,7 +81,7 @@ public class MetricInfoRegistryFacade {
      * 
      * @since 1.0.0
      */
-    public StorableId upstore(MetricInfo metricInfo)
+    public void upstore(MetricInfo metricInfo)
             throws KapuaIllegalArgumentException,
             EsDocumentBuilderException,
             EsClientUnavailableException,
@@ -96,17 +93,23 @@ public class MetricInfoRegistryFacade {
         ArgumentValidator.notNull(metricInfo.getFirstMessageId(), "metricInfoCreator.firstPublishedMessageId");
         ArgumentValidator.notNull(metricInfo.getFirstMessageOn(), "metricInfoCreator.firstPublishedMessageTimestamp");
 
-        String metricInfoId = MetricInfoXContentBuilder.getOrDeriveId(metricInfo.getId(), metricInfo);
+        MetadataKey metricInfoKey = MetadataKey.ofMetric(metricInfo);
+
+        // Store metric. Look up metric in the cache, and cache it if it doesn't exist
+        MetadataUpdateGuard updateGuard = DatastoreCacheManager.getInstance().getMetricsUpdateGuard();
+        while (!updateGuard.isRegistered(metricInfoKey)) {
 
-        // Store channel. Look up channel in the cache, and cache it if it doesn't exist
-        if (!DatastoreCacheManager.getInstance().getMetricsCache().get(metricInfoId)) {
+            // Only the first thread missing the cache does the update, the others
+            // of the same metric wait for it and find the cache updated.
+            // Different metrics are updated in parallel.
+            MetadataUpdateGuard.Registration registration = updateGuard.begin(metricInfoKey);
+            if (!registration.isOwner()) {
+                registration.await();
+                continue;
+            }
 
-            // The code is safe even without the synchronized block
-            // Synchronize in order to let the first thread complete its
-            // update then the others of the same type will find the cache
-            // updated and skip the update.
-            synchronized (this.metadataUpdateSync) {
-                if (!DatastoreCacheManager.getInstance().getChannelsCache().get(metricInfoId)) {
+            try {
+                if (!updateGuard.isRegistered(metricInfoKey)) {
                     UpdateResponse response = null;
                     try {
                         Metadata metadata = this.mediator.getMetadata(metricInfo.getScopeId(), metricInfo.getFirstMessageOn().getTime());
@@ -116,21 +119,20 @@ public class MetricInfoRegistryFacade {
                                 .index(metadata.getKapuaIndexName())
                                 .upsert(metricInfo);
 
-                        metricInfoId = response.getId();
-
                         logger.debug(String.format("Upsert on metric succesfully executed [%s.%s, %s]",
-                                kapuaIndexName, EsSchema.METRIC_TYPE_NAME, metricInfoId));
+                                kapuaIndexName, EsSchema.METRIC_TYPE_NAME, response.getId()));
 
                     } catch (DocumentAlreadyExistsException exc) {
-                        logger.trace(String.format("Upsert failed because metric already exists [%s, %s]",
-                                metricInfoId, exc.getMessage()));
+                        logger.trace(String.format("Upsert failed because metric already exists [%s, %s, %s]",
+                                metricInfo.getChannel(), metricInfo.getName(), exc.getMessage()));
                     }
-                    // Update cache if channel update is completed successfully
-                    DatastoreCacheManager.getInstance().getChannelsCache().put(metricInfoId, true);
+                    // Update cache if metric update is completed successfully
+                    updateGuard.setRegistered(metricInfoKey);
                 }
+            } finally {
+                registration.end();
             }
         }
-        return new StorableIdImpl(metricInfoId);
     }
 
     /**
@@ -155,42 +157,46 @@ public class MetricInfoRegistryFacade {
         // Argument Validation
         ArgumentValidator.notNull(metricInfos, "metricInfoCreator");
 
-        // Create a bulk request
-        BulkRequest bulkRequest = new BulkRequest();
-        for (MetricInfo metricInfo : metricInfos) {
-            String metricInfoId = MetricInfoXContentBuilder.getOrDeriveId(metricInfo.getId(), metricInfo);
-
-            if (DatastoreCacheManager.getInstance().getMetricsCache().get(metricInfoId))
-                continue;
-
-            Metadata metadata = mediator.getMetadata(metricInfo.getScopeId(), metricInfo.getFirstMessageOn().getTime());
-            String kapuaIndexName = metadata.getKapuaIndexName();
-
-            EsMetricInfoDAO.getInstance().index(kapuaIndexName);
-
-            bulkRequest.add(EsMetricInfoDAO.getInstance()
-                    .index(kapuaIndexName)
-                    .getUpsertRequest(metricInfo));
-        }
-
+        MetadataUpdateGuard updateGuard = DatastoreCacheManager.getInstance().getMetricsUpdateGuard();
+        List<MetricInfo> bulkMetricInfos = new ArrayList<>();
+        List<MetadataKey> bulkMetricInfoKeys = new ArrayList<>();
+        List<MetadataUpdateGuard.Registration> ownedRegistrations = new ArrayList<>();
+        List<MetadataUpdateGuard.Registration> inFlightRegistrations = new ArrayList<>();
         StorableId[] idResults = null;
+        try {
+            // Create a bulk request with the metrics not yet registered and not in flight
+            BulkRequest bulkRequest = new BulkRequest();
+            for (MetricInfo metricInfo : metricInfos) {
+                MetadataKey metricInfoKey = MetadataKey.ofMetric(metricInfo);
+
+                if (updateGuard.isRegistered(metricInfoKey))
+                    continue;
+
+                MetadataUpdateGuard.Registration registration = updateGuard.begin(metricInfoKey);
+                if (!registration.isOwner()) {
+                    inFlightRegistrations.add(registration);
+                    continue;
+                }
+                ownedRegistrations.add(registration);
 
-        if (bulkRequest.numberOfActions() <= 0)
-            return idResults;
+                Metadata metadata = mediator.getMetadata(metricInfo.getScopeId(), metricInfo.getFirstMessageOn().getTime());
+                String kapuaIndexName = metadata.getKapuaIndexName();
 
-        // The code is safe even without the synchronized block
-        // Synchronize in order to let the first thread complete its update
-        // then the others of the same type will find the cache updated and
-        // skip the update.
-        synchronized (this.metadataUpdateSync) {
-            BulkResponse response = EsMetricInfoDAO.getInstance().bulk(bulkRequest);
-            BulkItemResponse[] itemResponses = response.getItems();
-            idResults = new StorableId[itemResponses.length];
+                bulkRequest.add(EsMetricInfoDAO.getInstance()
+                        .index(kapuaIndexName)
+                        .getUpsertRequest(metricInfo));
+                bulkMetricInfos.add(metricInfo);
+                bulkMetricInfoKeys.add(metricInfoKey);
+            }
+
+            if (bulkRequest.numberOfActions() > 0) {
+                BulkResponse response = EsMetricInfoDAO.getInstance().bulk(bulkRequest);
+                BulkItemResponse[] itemResponses = response.getItems();
+                idResults = new StorableId[itemResponses.length];
 
-            if (itemResponses != null) {
                 for (BulkItemResponse bulkItemResponse : itemResponses) {
                     if (bulkItemResponse.isFailed()) {
-                        MetricInfo failedMetricInfoCreator = metricInfos[bulkItemResponse.getItemId()];
+                        MetricInfo failedMetricInfoCreator = bulkMetricInfos.get(bulkItemResponse.getItemId());
                         String failureMessage = bulkItemResponse.getFailureMessage();
                         logger.trace(String.format("Upsert failed [%s, %s, %s]",
                                 failedMetricInfoCreator.getChannel(), failedMetricInfoCreator.getName(), failureMessage));
@@ -205,14 +211,21 @@ public class MetricInfoRegistryFacade {
                     logger.debug(String.format("Upsert on channel metric succesfully executed [%s.%s, %s]",
                             kapuaIndexName, channelTypeName, channelMetricId));
 
-                    if (DatastoreCacheManager.getInstance().getMetricsCache().get(channelMetricId))
-                        continue;
-
                     // Update cache if channel metric update is completed
                     // successfully
-                    DatastoreCacheManager.getInstance().getMetricsCache().put(channelMetricId, true);
+                    updateGuard.setRegistered(bulkMetricInfoKeys.get(bulkItemResponse.getItemId()));
                 }
             }
+        } finally {
+            for (MetadataUpdateGuard.Registration registration : ownedRegistrations) {
+                registration.end();
+            }
+        }
+
+        // Wait for the same metrics registered meanwhile by other threads
+        // (they are left to the next store if that update failed)
+        for (MetadataUpdateGuard.Registration registration : inFlightRegistrations) {
+            registration.await();
         }
         return idResults;
     }
@@ -332,6 +345,84 @@ public class MetricInfoRegistryFacade {
                 .query(query);
     }
 
+    /**
+     * Find metrics informations matching the given query in cursor mode (the first page, the page size is the query limit)
+     * 
+     * @param query
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsConfigurationException
+     * @throws EsClientUnavailableException
+     * @throws EsQueryConversionException
+     * @throws EsObjectBuilderException
+     * 
+     * @since 1.0.0
+     */
+    public MetricInfoListResult scroll(MetricInfoQuery query)
+            throws KapuaIllegalArgumentException,
+            EsConfigurationException,
+            EsClientUnavailableException,
+            EsQueryConversionException,
+            EsObjectBuilderException {
+        //
+        // Argument Validation
+        StorableCursors.checkQuery(query);
+
+        //
+        // Do the find
+        MessageStoreConfiguration accountServicePlan = configProvider.getConfiguration(query.getScopeId());
+        long ttl = accountServicePlan.getDataTimeToLiveMilliseconds();
+
+        if (!accountServicePlan.getDataStorageEnabled() || ttl == MessageStoreConfiguration.DISABLED) {
+            logger.debug("Storage not enabled for account {}, returning empty result", query.getScopeId());
+            return new MetricInfoListResultImpl();
+        }
+
+        String indexName = EsSchema.getKapuaIndexName(query.getScopeId());
+        MetricInfoListResult result = EsMetricInfoDAO.getInstance()
+                .index(indexName)
+                .scroll(query);
+        return StorableCursors.firstPage(query, result, MetricInfoListResultImpl::new);
+    }
+
+    /**
+     * Find the next page of metrics informations of a cursor mode query
+     * 
+     * @param scopeId
+     * @param cursor
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws EsClientUnavailableException
+     * @throws EsObjectBuilderException
+     * 
+     * @since 1.0.0
+     */
+    public MetricInfoListResult scroll(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException,
+            EsObjectBuilderException {
+        return StorableCursors.nextPage(scopeId,
+                cursor,
+                cursorToken -> EsMetricInfoDAO.getInstance().scroll(cursorToken.getScrollId(), cursorToken.getLimit()),
+                MetricInfoListResultImpl::new);
+    }
+
+    /**
+     * Release a cursor mode query
+     * 
+     * @param scopeId
+     * @param cursor
+     * @throws KapuaIllegalArgumentException
+     * @throws EsClientUnavailableException
+     * 
+     * @since 1.0.0
+     */
+    public void closeCursor(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException {
+        StorableCursors.close(scopeId, cursor, scrollId -> EsMetricInfoDAO.getInstance().clearScroll(scrollId));
+    }
+
     /**
      * Get metrics informations count matching the given query
      * 
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cursor of the cursor mode queries.<br>
+ * It binds the Elasticsearch scroll id to the scope, the page size and the fetch style of the query, so the next pages are read as the first one
+ * and only in the same scope. The cursor is opaque to the callers (url safe base64).<br>
+ * The cursor is signed with a server side HMAC key ({@link DatastoreSettingKey#CURSOR_SIGNING_KEY}, or a random key of this node if not set),
+ * so a cursor modified by the caller (e.g. with the scope of another account) is rejected.
+ * 
+ * @since 1.0.0
+ */
+public class StorableCursorToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorableCursorToken.class);
+
+    private static final char SEPARATOR = '|';
+    private static final char SIGNATURE_SEPARATOR = '.';
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HMAC_KEY_LENGTH = 32;
+
+    private static final SecretKeySpec signingKey = newSigningKey();
+    private static final ThreadLocal<Mac> hmac = ThreadLocal.withInitial(() -> {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize the " + HMAC_ALGORITHM + " algorithm", e);
+        }
+    });
+
+    private final String scopeId;
+    private final int limit;
+    private final StorableFetchStyle fetchStyle;
+    private final String scrollId;
+
+    /**
+     * Constructor
+     * 
+     * @param scopeId
+     * @param limit
+     * @param fetchStyle
+     *            the fetch style (may be null)
+     * @param scrollId
+     */
+    public StorableCursorToken(KapuaId scopeId, int limit, StorableFetchStyle fetchStyle, String scrollId) {
+        this(scopeId.toCompactId(), limit, fetchStyle, scrollId);
+    }
+
+    private StorableCursorToken(String scopeId, int limit, StorableFetchStyle fetchStyle, String scrollId) {
+        this.scopeId = scopeId;
+        this.limit = limit;
+        this.fetchStyle = fetchStyle;
+        this.scrollId = scrollId;
+    }
+
+    /**
+     * Get the page size
+     * 
+     * @return
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the fetch style
+     * 
+     * @return
+     */
+    public StorableFetchStyle getFetchStyle() {
+        return fetchStyle;
+    }
+
+    /**
+     * Get the Elasticsearch scroll id
+     * 
+     * @return
+     */
+    public String getScrollId() {
+        return scrollId;
+    }
+
+    /**
+     * Get the cursor of the next page (same scope, page size and fetch style)
+     * 
+     * @param scrollId
+     *            the Elasticsearch scroll id of the next page
+     * @return
+     */
+    public StorableCursorToken next(String scrollId) {
+        return new StorableCursorToken(scopeId, limit, fetchStyle, scrollId);
+    }
+
+    /**
+     * Encode and sign the cursor
+     * 
+     * @return
+     */
+    public String encode() {
+        String cursor = new StringBuilder()
+                .append(scopeId).append(SEPARATOR)
+                .append(limit).append(SEPARATOR)
+                .append(fetchStyle != null ? fetchStyle.name() : "").append(SEPARATOR)
+                .append(scrollId)
+                .toString();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] payload = cursor.getBytes(StandardCharsets.UTF_8);
+        return encoder.encodeToString(payload) + SIGNATURE_SEPARATOR + encoder.encodeToString(sign(payload));
+    }
+
+    /**
+     * Decode the cursor checking its signature and that it belongs to the scope
+     * 
+     * @param scopeId
+     * @param cursor
+     * @return
+     * @throws KapuaIllegalArgumentException
+     *             if the cursor is not valid (or not signed by this server) or it belongs to another scope
+     */
+    public static StorableCursorToken decode(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException {
+        try {
+            int signatureIndex = cursor.lastIndexOf(SIGNATURE_SEPARATOR);
+            if (signatureIndex < 0) {
+                throw new KapuaIllegalArgumentException("cursor", cursor);
+            }
+            byte[] payload = Base64.getUrlDecoder().decode(cursor.substring(0, signatureIndex));
+            byte[] signature = Base64.getUrlDecoder().decode(cursor.substring(signatureIndex + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                throw new KapuaIllegalArgumentException("cursor", cursor);
+            }
+
+            String[] parts = new String(payload, StandardCharsets.UTF_8).split("\\|", 4);
+            if (parts.length == 4 && parts[0].equals(scopeId.toCompactId()) && !parts[3].isEmpty()) {
+                StorableFetchStyle fetchStyle = parts[2].isEmpty() ? null : StorableFetchStyle.valueOf(parts[2]);
+                return new StorableCursorToken(parts[0], Integer.parseInt(parts[1]), fetchStyle, parts[3]);
+            }
+        } catch (IllegalArgumentException e) {
+            // not a valid cursor (also NumberFormatException)
+        }
+        throw new KapuaIllegalArgumentException("cursor", cursor);
+    }
+
+    private static byte[] sign(byte[] payload) {
+        return hmac.get().doFinal(payload);
+    }
+
+    private static SecretKeySpec newSigningKey() {
+        String key = DatastoreSettings.getInstance().getString(DatastoreSettingKey.CURSOR_SIGNING_KEY, "");
+        byte[] keyBytes;
+        if (key != null && !key.isEmpty()) {
+            keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        } else {
+            // the cursors are valid only on this node
+            logger.info("No cursor signing key configured ({}), using a random key", DatastoreSettingKey.CURSOR_SIGNING_KEY.key());
+            keyBytes = new byte[HMAC_KEY_LENGTH];
+            new SecureRandom().nextBytes(keyBytes);
+        }
+        return new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.util.function.BiFunction;
+
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.util.ArgumentValidator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsClientUnavailableException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsObjectBuilderException;
+import org.eclipse.kapua.service.datastore.model.Storable;
+import org.eclipse.kapua.service.datastore.model.StorableListResult;
+import org.eclipse.kapua.service.datastore.model.query.StorableQuery;
+
+/**
+ * Cursor mode queries support of the datastore facades.<br>
+ * It checks the cursor mode queries and replaces the Elasticsearch scroll ids of the DAO results (see {@link StorableListResult#getNextKey()})
+ * with the cursors returned to the callers (see {@link StorableCursorToken}).
+ *
+ * @since 1.0.0
+ */
+public final class StorableCursors {
+
+    private StorableCursors() {
+    }
+
+    /**
+     * Check the query of a cursor mode query.<br>
+     * The page size (the query limit) must be positive and the offset must be 0, since the pages are read from the first matching object.
+     *
+     * @param query
+     * @throws KapuaIllegalArgumentException
+     */
+    public static void checkQuery(StorableQuery<?> query)
+            throws KapuaIllegalArgumentException {
+        ArgumentValidator.notNull(query, "query");
+        ArgumentValidator.notNull(query.getScopeId(), "query.scopeId");
+        if (query.getLimit() <= 0) {
+            throw new KapuaIllegalArgumentException("query.limit", Integer.toString(query.getLimit()));
+        }
+        if (query.getOffset() != 0) {
+            throw new KapuaIllegalArgumentException("query.offset", Integer.toString(query.getOffset()));
+        }
+    }
+
+    /**
+     * Get the first page of a cursor mode query
+     *
+     * @param query
+     * @param scrollResult
+     *            the first page of the scroll search of the query
+     * @param listResultFactory
+     *            the list result constructor (next key, total count)
+     * @return
+     */
+    public static <E extends Storable, L extends StorableListResult<E>> L firstPage(StorableQuery<E> query, L scrollResult, BiFunction<Object, Long, L> listResultFactory) {
+        StorableCursorToken cursorToken = new StorableCursorToken(query.getScopeId(), query.getLimit(), query.getFetchStyle(), null);
+        return toCursorResult(cursorToken, scrollResult, listResultFactory);
+    }
+
+    /**
+     * Get the next page of a cursor mode query
+     *
+     * @param scopeId
+     * @param cursor
+     * @param scrollReader
+     *            the reader of the next page of the scroll search
+     * @param listResultFactory
+     *            the list result constructor (next key, total count)
+     * @return
+     * @throws KapuaIllegalArgumentException
+     *             if the cursor is not valid or it belongs to another scope
+     * @throws EsClientUnavailableException
+     * @throws EsObjectBuilderException
+     */
+    public static <E extends Storable, L extends StorableListResult<E>> L nextPage(KapuaId scopeId, String cursor, ScrollReader<L> scrollReader, BiFunction<Object, Long, L> listResultFactory)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException,
+            EsObjectBuilderException {
+        StorableCursorToken cursorToken = decode(scopeId, cursor);
+        return toCursorResult(cursorToken, scrollReader.read(cursorToken), listResultFactory);
+    }
+
+    /**
+     * Release a cursor mode query
+     *
+     * @param scopeId
+     * @param cursor
+     * @param scrollCloser
+     *            the releaser of the scroll search
+     * @throws KapuaIllegalArgumentException
+     *             if the cursor is not valid or it belongs to another scope
+     * @throws EsClientUnavailableException
+     */
+    public static void close(KapuaId scopeId, String cursor, ScrollCloser scrollCloser)
+            throws KapuaIllegalArgumentException,
+            EsClientUnavailableException {
+        scrollCloser.close(decode(scopeId, cursor).getScrollId());
+    }
+
+    private static StorableCursorToken decode(KapuaId scopeId, String cursor)
+            throws KapuaIllegalArgumentException {
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notEmptyOrNull(cursor, "cursor");
+
+        return StorableCursorToken.decode(scopeId, cursor);
+    }
+
+    private static <E extends Storable, L extends StorableListResult<E>> L toCursorResult(StorableCursorToken cursorToken, L scrollResult, BiFunction<Object, Long, L> listResultFactory) {
+        String scrollId = (String) scrollResult.getNextKey();
+        String cursor = scrollId != null ? cursorToken.next(scrollId).encode() : null;
+        L result = listResultFactory.apply(cursor, scrollResult.getTotalCount());
+        result.addItems(scrollResult.getItems());
+        return result;
+    }
+
+    /**
+     * Reader of the next page of a scroll search
+     *
+     * @param <L>
+     *            list result type
+     */
+    @FunctionalInterface
+    public interface ScrollReader<L> {
+
+        /**
+         * Read the next page (its next key is the scroll id of the following page, or {@code null} if there are no more pages)
+         *
+         * @param cursorToken
+         *            the cursor of the page (scroll id, page size and fetch style)
+         * @return
+         * @throws EsClientUnavailableException
+         * @throws EsObjectBuilderException
+         */
+        L read(StorableCursorToken cursorToken)
+                throws EsClientUnavailableException,
+                EsObjectBuilderException;
+    }
+
+    /**
+     * Releaser of a scroll search
+     */
+    @FunctionalInterface
+    public interface ScrollCloser {
+
+        /**
+         * Release the scroll search
+         *
+         * @param scrollId
+         * @throws EsClientUnavailableException
+         */
+        void close(String scrollId)
+                throws EsClientUnavailableException;
+    }
+}
@@ -44,6 +44,22 @@ public abstract class AbstractStorableQueryConverter<S extends Storable, Q exten
      */
     public SearchRequestBuilder toCountRequestBuilder(String indices, String type, Q query)
             throws EsQueryConversionException, EsClientUnavailableException {
+        return toCountRequestBuilder(new String[] { indices }, type, query);
+    }
+
+    /**
+     * Convert to a count query on many indices
+     *
+     * @param indices
+     * @param type
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public SearchRequestBuilder toCountRequestBuilder(String[] indices, String type, Q query)
+            throws EsQueryConversionException, EsClientUnavailableException {
         if (query == null)
             throw new NullPointerException(String.format("Query parameter is undefined"));
 
@@ -68,6 +84,22 @@ public abstract class AbstractStorableQueryConverter<S extends Storable, Q exten
      */
     public SearchRequestBuilder toSearchRequestBuilder(String indices, String type, Q query)
             throws EsQueryConversionException, EsClientUnavailableException {
+        return toSearchRequestBuilder(new String[] { indices }, type, query);
+    }
+
+    /**
+     * Convert to a search query on many indices
+     *
+     * @param indices
+     * @param type
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public SearchRequestBuilder toSearchRequestBuilder(String[] indices, String type, Q query)
+            throws EsQueryConversionException, EsClientUnavailableException {
         if (query == null)
             throw new NullPointerException(String.format("Query parameter is undefined"));
 
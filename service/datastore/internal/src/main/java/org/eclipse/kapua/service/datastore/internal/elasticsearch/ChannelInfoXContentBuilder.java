@@ -96,7 +96,7 @@ public class ChannelInfoXContentBuilder {
      * @return
      * @since 1.0.0
      */
-    private static String getOrDeriveId(StorableId id, KapuaId scopeId, String clientId, String channel) {
+    public static String getOrDeriveId(StorableId id, KapuaId scopeId, String clientId, String channel) {
         if (id == null) {
             return getChannelKey(scopeId, clientId, channel);
         } else
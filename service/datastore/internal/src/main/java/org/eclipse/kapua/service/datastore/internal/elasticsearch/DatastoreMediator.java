@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal.elasticsearch;
 
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
@@ -29,10 +30,11 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema.Metad
 import org.eclipse.kapua.service.datastore.internal.model.ChannelInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.ClientInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.MetricInfoImpl;
-import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelMatchPredicateImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MetricInfoQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.eclipse.kapua.service.datastore.model.ChannelInfo;
 import org.eclipse.kapua.service.datastore.model.ClientInfo;
 import org.eclipse.kapua.service.datastore.model.MetricInfo;
@@ -50,6 +52,7 @@ public class DatastoreMediator implements MessageStoreMediator,
     private static DatastoreMediator instance;
 
     private final EsSchema esSchema;
+    private final MetadataRegistrationStage metadataRegistrationStage;
 
     private MessageStoreFacade messageStoreFacade;
     private ClientInfoRegistryFacade clientInfoStoreFacade;
@@ -63,10 +66,16 @@ public class DatastoreMediator implements MessageStoreMediator,
         KapuaLocator.getInstance().getService(ClientInfoRegistryService.class);
         KapuaLocator.getInstance().getService(ChannelInfoRegistryService.class);
         KapuaLocator.getInstance().getService(MetricInfoRegistryService.class);
+
+        // write the pending data on shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(instance::stop, "kapua-datastore-shutdown"));
     }
 
     private DatastoreMediator() {
         this.esSchema = new EsSchema();
+
+        boolean metadataAsyncEnabled = DatastoreSettings.getInstance().getBoolean(DatastoreSettingKey.CONFIG_METADATA_ASYNC_ENABLE, false);
+        this.metadataRegistrationStage = metadataAsyncEnabled ? MetadataRegistrationStage.getInstance() : null;
     }
 
     /**
@@ -79,6 +88,20 @@ public class DatastoreMediator implements MessageStoreMediator,
         return instance;
     }
 
+    /**
+     * Stop the background tasks of the datastore, writing their pending data
+     *
+     * @since 1.0.0
+     */
+    public void stop() {
+        // the pending messages are indexed before the metadata they refer to is registered
+        MessageBulkIndexer.stopInstance();
+        if (this.metadataRegistrationStage != null) {
+            this.metadataRegistrationStage.stop();
+        }
+        this.esSchema.stop();
+    }
+
     /**
      * Set the message store facade
      *
@@ -130,7 +153,13 @@ public class DatastoreMediator implements MessageStoreMediator,
     }
 
     @Override
-    public void onUpdatedMappings(KapuaId scopeId, long indexedOn, Map<String, EsMetric> esMetrics)
+    public String[] getDataIndexNames(KapuaId scopeId, long from, long to)
+            throws EsClientUnavailableException {
+        return this.esSchema.getDataIndexNames(scopeId, from, to);
+    }
+
+    @Override
+    public void onUpdatedMappings(KapuaId scopeId, long indexedOn, List<EsMetric> esMetrics)
             throws EsDocumentBuilderException, EsClientUnavailableException {
         this.esSchema.updateMessageMappings(scopeId, indexedOn, esMetrics);
     }
@@ -141,12 +170,17 @@ public class DatastoreMediator implements MessageStoreMediator,
             EsDocumentBuilderException,
             EsClientUnavailableException,
             EsConfigurationException {
+        if (this.metadataRegistrationStage != null) {
+            // Registered later by the flusher thread
+            this.metadataRegistrationStage.submit(docBuilder, message);
+            return;
+        }
+
+        // The metadata identifiers are derived only if they have to be registered
         ClientInfoImpl clientInfo = new ClientInfoImpl(docBuilder.getScopeId());
         clientInfo.setClientId(docBuilder.getClientId());
         clientInfo.setFirstMessageId(docBuilder.getMessageId());
         clientInfo.setFirstMessageOn(docBuilder.getTimestamp());
-        String clientInfoId = ClientInfoXContentBuilder.getOrDeriveId(null, docBuilder.getScopeId(), docBuilder.getClientId());
-        clientInfo.setId(new StorableIdImpl(clientInfoId));
         this.clientInfoStoreFacade.upstore(clientInfo);
 
         ChannelInfoImpl channelInfo = new ChannelInfoImpl(docBuilder.getScopeId());
@@ -154,7 +188,6 @@ public class DatastoreMediator implements MessageStoreMediator,
         channelInfo.setChannel(docBuilder.getChannel());
         channelInfo.setFirstMessageId(docBuilder.getMessageId());
         channelInfo.setFirstMessageOn(docBuilder.getTimestamp());
-        channelInfo.setId(new StorableIdImpl(ChannelInfoXContentBuilder.getOrDeriveId(null, channelInfo)));
         this.channelInfoStoreFacade.upstore(channelInfo);
 
         KapuaPayload payload = message.getPayload();
@@ -176,7 +209,6 @@ public class DatastoreMediator implements MessageStoreMediator,
             metricInfo.setFirstMessageId(docBuilder.getMessageId());
             metricInfo.setFirstMessageOn(docBuilder.getTimestamp());
             metricInfo.setValue(entry.getValue());
-            metricInfo.setId(new StorableIdImpl(MetricInfoXContentBuilder.getOrDeriveId(null, metricInfo)));
             messageMetrics[i++] = metricInfo;
         }
 
@@ -20,6 +20,7 @@ public class EsMetric {
 
     private String name;
     private String type;
+    private String mappedName;
 
     /**
      * Get the metric name
@@ -39,6 +40,19 @@ public class EsMetric {
         return type;
     }
 
+    /**
+     * Get the metric mapped name (the metric name with the type acronym suffix, see {@link EsUtils#getMetricValueQualifier(String, String)}).<br>
+     * It's the key of the metric mapping and it's computed once.
+     *
+     * @return
+     */
+    public String getMappedName() {
+        if (mappedName == null) {
+            mappedName = EsUtils.getMetricValueQualifier(name, type);
+        }
+        return mappedName;
+    }
+
     /**
      * Set the metric name
      *
@@ -46,6 +60,7 @@ public class EsMetric {
      */
     public void setName(String name) {
         this.name = name;
+        this.mappedName = null;
     }
 
     /**
@@ -55,6 +70,7 @@ public class EsMetric {
      */
     public void setType(String type) {
         this.type = type;
+        this.mappedName = null;
     }
 
 }
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded intern table of the metric names.<br>
+ * For every Kapua metric name it keeps the normalized name (see {@link EsUtils#normalizeMetricName(String)}) and, by Elasticsearch type,
+ * a shared {@link EsMetric} (with its type acronym and mapped name), so the message document builder doesn't escape, format and allocate them
+ * again for the metrics already seen.<br>
+ * The table is bounded by the {@link DatastoreSettingKey#CONFIG_CACHE_METRIC_NAMES_SIZE_MAXIMUM} setting; the evicted names are simply computed again.
+ * The returned {@link EsMetric} are shared, so they cannot be modified.
+ *
+ * @since 1.0.0
+ */
+public class EsMetricNames {
+
+    private static final String[] ES_TYPES = new String[] {
+            EsUtils.ES_TYPE_STRING,
+            EsUtils.ES_TYPE_INTEGER,
+            EsUtils.ES_TYPE_LONG,
+            EsUtils.ES_TYPE_FLOAT,
+            EsUtils.ES_TYPE_DOUBLE,
+            EsUtils.ES_TYPE_DATE,
+            EsUtils.ES_TYPE_BOOL,
+            EsUtils.ES_TYPE_BINARY
+    };
+
+    private static final EsMetricNames instance = new EsMetricNames();
+
+    private final Cache<String, MetricName> metricNames;
+
+    private EsMetricNames() {
+        int sizeMax = DatastoreSettings.getInstance().getInt(DatastoreSettingKey.CONFIG_CACHE_METRIC_NAMES_SIZE_MAXIMUM, 10000);
+        // the names never change, so they only have to be bounded
+        metricNames = CacheBuilder.newBuilder().maximumSize(sizeMax).build();
+    }
+
+    /**
+     * Get the metric names table instance
+     *
+     * @return
+     * @since 1.0.0
+     */
+    public static EsMetricNames getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the normalized metric name
+     *
+     * @param metricName
+     *            the Kapua metric name
+     * @return
+     * @since 1.0.0
+     */
+    public String getNormalizedName(String metricName) {
+        return getMetricName(metricName).normalizedName;
+    }
+
+    /**
+     * Get the (shared and immutable) metric mapping of the metric name and type
+     *
+     * @param metricName
+     *            the Kapua metric name
+     * @param esType
+     *            the Elasticsearch type
+     * @return
+     * @since 1.0.0
+     */
+    public EsMetric getMetric(String metricName, String esType) {
+        int typeIndex = indexOf(esType);
+        MetricName name = getMetricName(metricName);
+
+        EsMetric esMetric = name.metrics.get(typeIndex);
+        if (esMetric == null) {
+            esMetric = new SharedEsMetric(name.normalizedName, ES_TYPES[typeIndex]);
+            if (!name.metrics.compareAndSet(typeIndex, null, esMetric)) {
+                esMetric = name.metrics.get(typeIndex);
+            }
+        }
+        return esMetric;
+    }
+
+    private MetricName getMetricName(String metricName) {
+        MetricName name = metricNames.getIfPresent(metricName);
+        if (name == null) {
+            // concurrent misses compute the same value, the last one is kept
+            name = new MetricName(EsUtils.normalizeMetricName(metricName));
+            metricNames.put(metricName, name);
+        }
+        return name;
+    }
+
+    private static int indexOf(String esType) {
+        for (int i = 0; i < ES_TYPES.length; i++) {
+            if (ES_TYPES[i].equals(esType)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown type [%s]", esType));
+    }
+
+    private static class MetricName {
+
+        private final String normalizedName;
+        private final AtomicReferenceArray<EsMetric> metrics = new AtomicReferenceArray<>(ES_TYPES.length);
+
+        private MetricName(String normalizedName) {
+            this.normalizedName = normalizedName;
+        }
+    }
+
+    /**
+     * Shared metric: its name and type cannot be changed
+     */
+    private static final class SharedEsMetric extends EsMetric {
+
+        private SharedEsMetric(String name, String type) {
+            super.setName(name);
+            super.setType(type);
+            // compute it before publishing the instance
+            getMappedName();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Shared metric: it cannot be modified");
+        }
+
+        @Override
+        public void setType(String type) {
+            throw new UnsupportedOperationException("Shared metric: it cannot be modified");
+        }
+    }
+}
@@ -12,28 +12,47 @@
 package org.eclipse.kapua.service.datastore.internal.elasticsearch;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.commons.util.KapuaDateUtils;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequest;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
+import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
+import org.elasticsearch.action.admin.indices.get.GetIndexResponse;
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsRequest;
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Elasticsearch schema
  *
@@ -273,17 +292,40 @@ public class EsSchema {
      */
     public static final String CLIENT_MESSAGE_ID = "message_id";
 
-    private Map<String, Metadata> schemaCache;
-    private Object schemaCacheSync;
-    private Object mappingsSync;
+    private final ConcurrentMap<String, Metadata> schemaCache;
+    private final ConcurrentMap<String, CompletableFuture<Metadata>> dataIndexProvisioning;
+    private final ConcurrentMap<String, CompletableFuture<String>> kapuaIndexProvisioning;
+    private final Set<String> kapuaIndexCache;
+
+    // scopes having a provisioned data index (candidates for the next period data index pre-creation)
+    private final ConcurrentMap<String, KapuaId> activeScopes;
+    private ScheduledExecutorService preCreateScheduler;
+
+    // existing data indexes by scope (used to resolve the data indexes covering a time range)
+    private final LocalCache<String, DataIndexList> dataIndexListCache;
 
     /**
      * Construct the Elasticsearch schema
      */
     public EsSchema() {
-        schemaCache = new HashMap<String, Metadata>();
-        schemaCacheSync = new Object();
-        mappingsSync = new Object();
+        schemaCache = new ConcurrentHashMap<>();
+        dataIndexProvisioning = new ConcurrentHashMap<>();
+        kapuaIndexProvisioning = new ConcurrentHashMap<>();
+        kapuaIndexCache = ConcurrentHashMap.newKeySet();
+        activeScopes = new ConcurrentHashMap<>();
+
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        dataIndexListCache = new LocalCache<>(config.getInt(DatastoreSettingKey.CONFIG_CACHE_LOCAL_SIZE_MAXIMUM),
+                config.getInt(DatastoreSettingKey.CONFIG_INDEX_LIST_CACHE_EXPIRE_AFTER, 60),
+                null);
+        if (config.getBoolean(DatastoreSettingKey.CONFIG_INDEX_PRECREATE_ENABLE, false)) {
+            long preCreateInterval = Math.max(1, config.getLong(DatastoreSettingKey.CONFIG_INDEX_PRECREATE_INTERVAL, 600));
+            preCreateScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat(EsSchema.class.getSimpleName() + "-PreCreate-%d")
+                    .setDaemon(true)
+                    .build());
+            preCreateScheduler.scheduleWithFixedDelay(this::preCreateNextDataIndexes, preCreateInterval, preCreateInterval, TimeUnit.SECONDS);
+        }
     }
 
     /**
@@ -307,7 +349,57 @@ public class EsSchema {
     }
 
     /**
-     * Synchronize metadata
+     * Get the existing data indexes of the scope covering the time range.<br>
+     * The data indexes are checked against the cached list of the scope data indexes and the data indexes provisioned by this node.
+     * The data indexes covering the time after the list was loaded are always returned, since they may have been created meanwhile by another node
+     * (so the queries must ignore the missing indexes).
+     *
+     * @param scopeId
+     * @param from
+     *            the range start (milliseconds)
+     * @param to
+     *            the range end (milliseconds)
+     * @return the data indexes (empty if no data index covers the range)
+     * @throws EsClientUnavailableException
+     */
+    public String[] getDataIndexNames(KapuaId scopeId, long from, long to)
+            throws EsClientUnavailableException {
+        DataIndexList dataIndexList = getDataIndexList(scopeId);
+
+        List<String> dataIndexNames = new ArrayList<>();
+        for (Entry<String, Long> dataIndex : EsUtils.getDataIndexNames(scopeId, from, to).entrySet()) {
+            String dataIndexName = dataIndex.getKey();
+            if (dataIndexList.names.contains(dataIndexName) ||
+                    schemaCache.containsKey(dataIndexName) ||
+                    dataIndex.getValue() >= dataIndexList.loadedOn - KapuaDateUtils.DAY_MILLIS) {
+                dataIndexNames.add(dataIndexName);
+            }
+        }
+        return dataIndexNames.toArray(new String[dataIndexNames.size()]);
+    }
+
+    private DataIndexList getDataIndexList(KapuaId scopeId)
+            throws EsClientUnavailableException {
+        String scopeKey = scopeId.toCompactId();
+        DataIndexList dataIndexList = dataIndexListCache.get(scopeKey);
+        if (dataIndexList == null) {
+            long loadedOn = System.currentTimeMillis();
+            GetIndexResponse response = ElasticsearchClient.getInstance().admin().indices()
+                    .prepareGetIndex()
+                    .setIndices(EsUtils.getDataIndexName(scopeId))
+                    .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+                    .setFeatures(GetIndexRequest.Feature.ALIASES)
+                    .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+            dataIndexList = new DataIndexList(new HashSet<>(Arrays.asList(response.getIndices())), loadedOn);
+            dataIndexListCache.put(scopeKey, dataIndexList);
+        }
+        return dataIndexList;
+    }
+
+    /**
+     * Synchronize metadata.<br>
+     * The first caller missing the cache provisions the data index (and the kapua index of the scope, if not yet done),
+     * the other callers missing the same index meanwhile wait only for that index provisioning.
      *
      * @param scopeId
      * @param time
@@ -319,30 +411,72 @@ public class EsSchema {
             throws EsDocumentBuilderException, EsClientUnavailableException {
         String newIndex = EsUtils.getDataIndexName(scopeId, time);
 
-        synchronized (schemaCacheSync) {
-            if (schemaCache.containsKey(newIndex)) {
-                Metadata currentMetadata = schemaCache.get(newIndex);
-                return currentMetadata;
+        Metadata currentMetadata = schemaCache.get(newIndex);
+        if (currentMetadata != null) {
+            return currentMetadata;
+        }
+
+        CompletableFuture<Metadata> provisioning = new CompletableFuture<>();
+        CompletableFuture<Metadata> inFlightProvisioning = dataIndexProvisioning.putIfAbsent(newIndex, provisioning);
+        if (inFlightProvisioning != null) {
+            s_logger.debug("Waiting for the provisioning of the data index {}", newIndex);
+            return awaitProvisioning(inFlightProvisioning);
+        }
+
+        try {
+            // the previous owner may have completed the provisioning after the cache check
+            currentMetadata = schemaCache.get(newIndex);
+            if (currentMetadata == null) {
+                currentMetadata = provisionDataIndex(scopeId, newIndex);
+
+                // Current metadata can only increase the custom mappings
+                // other fields does not change within the same account id
+                // and custom mappings are not and must not be exposed to
+                // outside this class to preserve thread safetyness
+                schemaCache.put(newIndex, currentMetadata);
+                activeScopes.put(scopeId.toCompactId(), scopeId);
             }
+            provisioning.complete(currentMetadata);
+            return currentMetadata;
+        } catch (EsDocumentBuilderException | EsClientUnavailableException | RuntimeException e) {
+            provisioning.completeExceptionally(e);
+            throw e;
+        } finally {
+            dataIndexProvisioning.remove(newIndex, provisioning);
         }
+    }
 
-        s_logger.info("Before entering updating metadata");
+    /**
+     * Stop the next period data indexes pre-creation (if enabled)
+     */
+    public void stop() {
+        if (preCreateScheduler != null) {
+            preCreateScheduler.shutdownNow();
+        }
+    }
 
-        Metadata currentMetadata = null;
-        synchronized (mappingsSync) {
-            s_logger.info("Entered updating metadata");
-            currentMetadata = new Metadata();
+    /**
+     * Provision the data index (and the kapua index of the scope, if not yet done)
+     *
+     * @param scopeId
+     * @param newIndex
+     * @return
+     * @throws EsDocumentBuilderException
+     * @throws EsClientUnavailableException
+     */
+    Metadata provisionDataIndex(KapuaId scopeId, String newIndex)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        s_logger.info("Provisioning data index {}", newIndex);
 
-            IndicesExistsResponse existsResponse = null;
-            Client esClient = ElasticsearchClient.getInstance();
+        Client esClient = ElasticsearchClient.getInstance();
 
-            // Check existence of the data index
-            existsResponse = esClient.admin().indices()
-                    .exists(new IndicesExistsRequest(newIndex))
-                    .actionGet();
+        // Check existence of the data index
+        IndicesExistsResponse existsResponse = esClient.admin().indices()
+                .exists(new IndicesExistsRequest(newIndex))
+                .actionGet();
 
-            boolean indexExists = existsResponse.isExists();
-            if (!indexExists) {
+        if (!existsResponse.isExists()) {
+            try {
                 esClient.admin().indices()
                         .prepareCreate(newIndex)
                         .setSettings(this.getIndexSettings())
@@ -350,53 +484,138 @@ public class EsSchema {
                         .actionGet();
 
                 s_logger.info("Data index created: " + newIndex);
+            } catch (IndexAlreadyExistsException e) {
+                // created meanwhile by another node
+                s_logger.debug("Data index already created: " + newIndex);
             }
+        }
+
+        boolean enableAllField = false;
+        boolean enableSourceField = true;
+
+        this.initMessageMappings(newIndex, enableAllField, enableSourceField);
 
-            boolean enableAllField = false;
-            boolean enableSourceField = true;
+        Metadata currentMetadata = new Metadata();
+        currentMetadata.dataIndexName = newIndex;
+        currentMetadata.kapuaIndexName = provisionKapuaIndex(scopeId);
+        s_logger.info("Data index {} provisioned", newIndex);
+        return currentMetadata;
+    }
 
-            this.initMessageMappings(newIndex, enableAllField, enableSourceField);
+    private String provisionKapuaIndex(KapuaId scopeId)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        String newKapuaMetadataIdx = EsUtils.getKapuaIndexName(scopeId);
+        if (kapuaIndexCache.contains(newKapuaMetadataIdx)) {
+            return newKapuaMetadataIdx;
+        }
 
-            // Check existence of the kapua internal index
-            String newKapuaMetadataIdx = EsUtils.getKapuaIndexName(scopeId);
-            existsResponse = esClient.admin().indices()
-                    .exists(new IndicesExistsRequest(newKapuaMetadataIdx))
-                    .actionGet();
+        CompletableFuture<String> provisioning = new CompletableFuture<>();
+        CompletableFuture<String> inFlightProvisioning = kapuaIndexProvisioning.putIfAbsent(newKapuaMetadataIdx, provisioning);
+        if (inFlightProvisioning != null) {
+            return awaitProvisioning(inFlightProvisioning);
+        }
 
-            indexExists = existsResponse.isExists();
-            if (!indexExists) {
-                esClient.admin()
-                        .indices()
-                        .prepareCreate(newKapuaMetadataIdx)
-                        .setSettings(this.getIndexSettings())
-                        .execute()
+        try {
+            if (!kapuaIndexCache.contains(newKapuaMetadataIdx)) {
+                Client esClient = ElasticsearchClient.getInstance();
+
+                // Check existence of the kapua internal index
+                IndicesExistsResponse existsResponse = esClient.admin().indices()
+                        .exists(new IndicesExistsRequest(newKapuaMetadataIdx))
                         .actionGet();
 
-                s_logger.info("Metadata index created: " + newKapuaMetadataIdx);
+                if (!existsResponse.isExists()) {
+                    boolean created = false;
+                    try {
+                        esClient.admin()
+                                .indices()
+                                .prepareCreate(newKapuaMetadataIdx)
+                                .setSettings(this.getIndexSettings())
+                                .execute()
+                                .actionGet();
+                        created = true;
+
+                        s_logger.info("Metadata index created: " + newKapuaMetadataIdx);
+                    } catch (IndexAlreadyExistsException e) {
+                        // created meanwhile by another node (that also puts the mappings)
+                        s_logger.debug("Metadata index already created: " + newKapuaMetadataIdx);
+                    }
 
-                this.initTopicMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
-                this.initMetricMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
-                this.initClientMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
-            }
+                    if (created) {
+                        boolean enableAllField = false;
+                        boolean enableSourceField = true;
 
-            currentMetadata.dataIndexName = newIndex;
-            currentMetadata.kapuaIndexName = newKapuaMetadataIdx;
-            s_logger.info("Leaving updating metadata");
+                        this.initTopicMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
+                        this.initMetricMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
+                        this.initClientMappings(newKapuaMetadataIdx, enableAllField, enableSourceField);
+                    }
+                }
+                kapuaIndexCache.add(newKapuaMetadataIdx);
+            }
+            provisioning.complete(newKapuaMetadataIdx);
+            return newKapuaMetadataIdx;
+        } catch (EsDocumentBuilderException | EsClientUnavailableException | RuntimeException e) {
+            provisioning.completeExceptionally(e);
+            throw e;
+        } finally {
+            kapuaIndexProvisioning.remove(newKapuaMetadataIdx, provisioning);
         }
+    }
 
-        synchronized (schemaCacheSync) {
-            // Current metadata can only increase the custom mappings
-            // other fields does not change within the same account id
-            // and custom mappings are not and must not be exposed to
-            // outside this class to preserve thread safetyness
-            schemaCache.put(newIndex, currentMetadata);
+    private static <T> T awaitProvisioning(CompletableFuture<T> inFlightProvisioning)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        try {
+            return inFlightProvisioning.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof EsDocumentBuilderException) {
+                throw (EsDocumentBuilderException) cause;
+            }
+            if (cause instanceof EsClientUnavailableException) {
+                throw (EsClientUnavailableException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
         }
+    }
 
-        return currentMetadata;
+    /**
+     * Create the next period data index of the active scopes before the rollover
+     * (so the first messages of the new period don't wait for the index creation).<br>
+     * A scope is active if its current period data index is provisioned.
+     */
+    private void preCreateNextDataIndexes() {
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        long now = System.currentTimeMillis();
+        long next = now + config.getLong(DatastoreSettingKey.CONFIG_INDEX_PRECREATE_LEAD_TIME, 21600) * 1000;
+
+        for (KapuaId scopeId : activeScopes.values()) {
+            try {
+                String currentIndex = EsUtils.getDataIndexName(scopeId, now);
+                if (!schemaCache.containsKey(currentIndex)) {
+                    // no message stored in the current period: the scope will be active again at its next provisioning
+                    activeScopes.remove(scopeId.toCompactId(), scopeId);
+                    continue;
+                }
+
+                String nextIndex = EsUtils.getDataIndexName(scopeId, next);
+                if (!nextIndex.equals(currentIndex) && !schemaCache.containsKey(nextIndex)) {
+                    s_logger.info("Pre-creating data index {}", nextIndex);
+                    synch(scopeId, next);
+                }
+            } catch (Exception e) {
+                s_logger.warn("Cannot pre-create the next data index of the scope {}", scopeId, e);
+            }
+        }
     }
 
     /**
-     * Update metric mappings
+     * Update metric mappings (only the mappings not yet in the schema cache are sent).<br>
+     * The first caller adding a metric puts its mapping, the other callers adding the same metric meanwhile wait until the mapping is acknowledged,
+     * so they don't index a document with that metric before its mapping exists (Elasticsearch would infer a conflicting type).
+     * If the mapping cannot be put, it's removed from the cache so the next caller tries again.
      *
      * @param scopeId
      * @param time
@@ -404,29 +623,52 @@ public class EsSchema {
      * @throws EsDocumentBuilderException
      * @throws EsClientUnavailableException
      */
-    public void updateMessageMappings(KapuaId scopeId, long time, Map<String, EsMetric> esMetrics)
+    public void updateMessageMappings(KapuaId scopeId, long time, List<EsMetric> esMetrics)
             throws EsDocumentBuilderException, EsClientUnavailableException {
         if (esMetrics == null || esMetrics.size() == 0)
             return;
 
-        Metadata currentMetadata = null;
-        synchronized (schemaCacheSync) {
-            String newIndex = EsUtils.getDataIndexName(scopeId, time);
-            currentMetadata = schemaCache.get(newIndex);
-        }
+        Metadata currentMetadata = this.synch(scopeId, time);
 
-        XContentBuilder builder = null;
-        Map<String, EsMetric> diffs = null;
-
-        synchronized (mappingsSync) {
+        // Update mappings only if a metric is new (not in cache)
+        MessageMappingDiffs diffs = this.getMessageMappingDiffs(currentMetadata, esMetrics);
+        if (diffs == null)
+            return;
 
-            // Update mappings only if a metric is new (not in cache)
-            diffs = this.getMessageMappingDiffs(currentMetadata, esMetrics);
-            if (diffs == null || diffs.size() == 0)
-                return;
+        if (diffs.esMetrics != null) {
+            try {
+                this.putMessageMappings(currentMetadata.dataIndexName, diffs.esMetrics);
+                diffs.mapping.complete(null);
+            } catch (EsDocumentBuilderException | EsClientUnavailableException | RuntimeException e) {
+                // remove the mappings before failing the waiters, so the next callers put them again
+                ConcurrentMap<String, CompletableFuture<Void>> messageMappingsCache = currentMetadata.getMessageMappingsCache();
+                for (String mappedName : diffs.esMetrics.keySet()) {
+                    messageMappingsCache.remove(mappedName, diffs.mapping);
+                }
+                diffs.mapping.completeExceptionally(e);
+                throw e;
+            }
+        }
 
-            builder = this.getNewMessageMappingsBuilder(diffs);
+        // the own mappings are put before waiting the other callers ones
+        if (diffs.inFlightMappings != null) {
+            for (CompletableFuture<Void> inFlightMapping : diffs.inFlightMappings) {
+                awaitProvisioning(inFlightMapping);
+            }
         }
+    }
+
+    /**
+     * Put the message mappings of the metrics
+     *
+     * @param indexName
+     * @param esMetrics
+     * @throws EsDocumentBuilderException
+     * @throws EsClientUnavailableException
+     */
+    void putMessageMappings(String indexName, Map<String, EsMetric> esMetrics)
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        XContentBuilder builder = this.getNewMessageMappingsBuilder(esMetrics);
 
         try {
             s_logger.trace("Sending dynamic message mappings: " + builder.string());
@@ -434,7 +676,7 @@ public class EsSchema {
         }
 
         Client esClient = ElasticsearchClient.getInstance();
-        esClient.admin().indices().preparePutMapping(currentMetadata.dataIndexName)
+        esClient.admin().indices().preparePutMapping(indexName)
                 .setType(MESSAGE_TYPE_NAME)
                 .setSource(builder)
                 .execute().actionGet();
@@ -855,30 +1097,57 @@ public class EsSchema {
         }
     }
 
-    private Map<String, EsMetric> getMessageMappingDiffs(Metadata currentMetadata, Map<String, EsMetric> esMetrics) {
+    private MessageMappingDiffs getMessageMappingDiffs(Metadata currentMetadata, List<EsMetric> esMetrics) {
 
         if (esMetrics == null || esMetrics.size() == 0)
             return null;
 
-        Entry<String, EsMetric> el;
-        Map<String, EsMetric> diffs = null;
-        Iterator<Entry<String, EsMetric>> iter = esMetrics.entrySet().iterator();
-        while (iter.hasNext()) {
+        ConcurrentMap<String, CompletableFuture<Void>> messageMappingsCache = currentMetadata.getMessageMappingsCache();
+        MessageMappingDiffs diffs = null;
+        for (EsMetric esMetric : esMetrics) {
 
-            el = iter.next();
-            if (!currentMetadata.getMessageMappingsCache().containsKey(el.getKey())) {
+            String mappedName = esMetric.getMappedName();
+            // known (and acknowledged) mappings are checked without locking
+            CompletableFuture<Void> mapping = messageMappingsCache.get(mappedName);
+            if (mapping != null && mapping.isDone() && !mapping.isCompletedExceptionally())
+                continue;
 
-                if (diffs == null)
-                    diffs = new HashMap<String, EsMetric>(100);
+            if (diffs == null)
+                diffs = new MessageMappingDiffs();
 
-                currentMetadata.getMessageMappingsCache().put(el.getKey(), el.getValue());
-                diffs.put(el.getKey(), el.getValue());
+            // only the first caller adding the metric puts its mapping
+            if (mapping == null) {
+                mapping = messageMappingsCache.putIfAbsent(mappedName, diffs.mapping);
+                if (mapping == null) {
+                    if (diffs.esMetrics == null)
+                        diffs.esMetrics = new HashMap<String, EsMetric>(100);
+
+                    diffs.esMetrics.put(mappedName, esMetric);
+                    continue;
+                }
             }
+
+            // the mapping is being put by another caller
+            if (diffs.inFlightMappings == null)
+                diffs.inFlightMappings = new ArrayList<>();
+
+            diffs.inFlightMappings.add(mapping);
         }
 
         return diffs;
     }
 
+    /**
+     * Message mappings to be put by the caller and message mappings being put by other callers
+     */
+    private static class MessageMappingDiffs {
+
+        // completed when the mappings put by the caller are acknowledged
+        private final CompletableFuture<Void> mapping = new CompletableFuture<>();
+        private Map<String, EsMetric> esMetrics;
+        private List<CompletableFuture<Void>> inFlightMappings;
+    }
+
     /**
      * Metadata object
      *
@@ -892,12 +1161,13 @@ public class EsSchema {
         //
 
         // Custom mappings can only increase within the same account
-        // No removal of existing cached mappings or changes in the
-        // existing mappings.
-        private Map<String, EsMetric> messageMappingsCache;
+        // No changes in the existing mappings: a cached mapping is removed
+        // only if it cannot be put.
+        // The mapping future is completed once the mapping is acknowledged.
+        private ConcurrentMap<String, CompletableFuture<Void>> messageMappingsCache;
         //
 
-        private Map<String, EsMetric> getMessageMappingsCache() {
+        private ConcurrentMap<String, CompletableFuture<Void>> getMessageMappingsCache() {
             return messageMappingsCache;
         }
 
@@ -905,7 +1175,7 @@ public class EsSchema {
          * Contruct metadata
          */
         public Metadata() {
-            messageMappingsCache = new HashMap<String, EsMetric>(100);
+            messageMappingsCache = new ConcurrentHashMap<String, CompletableFuture<Void>>(100);
         }
 
         /**
@@ -927,4 +1197,18 @@ public class EsSchema {
         }
     }
 
+    /**
+     * Existing data indexes of a scope
+     */
+    private static class DataIndexList {
+
+        private final Set<String> names;
+        private final long loadedOn;
+
+        private DataIndexList(Set<String> names, long loadedOn) {
+            this.names = names;
+            this.loadedOn = loadedOn;
+        }
+    }
+
 }
@@ -15,6 +15,8 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.eclipse.kapua.commons.util.KapuaDateUtils;
@@ -73,21 +75,32 @@ public class EsUtils {
 
     /**
      * Normalize the metric name to be compliant to Kapua/Elasticserach constraints.<br>
-     * It escapes the '$' and '.'
+     * It escapes the '$' and '.' (the names without '.' are returned as they are).<br>
+     * The message store uses the names cached by {@link EsMetricNames}.
      *
      * @param name
      * @return
      * @since 1.0.0
      */
     public static String normalizeMetricName(String name) {
-        String newName = name;
-        if (newName.contains(".")) {
-            newName = newName.replace(String.valueOf(SPECIAL_DOLLAR), SPECIAL_DOLLAR_ESC);
-            newName = newName.replace(String.valueOf(SPECIAL_DOT), SPECIAL_DOT_ESC);
-            s_logger.trace(String.format("Metric %s contains a special char '%s' that will be replaced with '%s'", name, String.valueOf(SPECIAL_DOT), SPECIAL_DOT_ESC));
+        if (name.indexOf(SPECIAL_DOT) < 0) {
+            return name;
         }
 
-        return newName;
+        // single pass escape (the escaped sequences don't contain '.')
+        StringBuilder newName = new StringBuilder(name.length() + 8);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == SPECIAL_DOLLAR) {
+                newName.append(SPECIAL_DOLLAR_ESC);
+            } else if (c == SPECIAL_DOT) {
+                newName.append(SPECIAL_DOT_ESC);
+            } else {
+                newName.append(c);
+            }
+        }
+        s_logger.trace("Metric {} contains a special char '{}' that will be replaced with '{}'", name, SPECIAL_DOT, SPECIAL_DOT_ESC);
+        return newName.toString();
     }
 
     /**
@@ -192,6 +205,34 @@ public class EsUtils {
         return actualName;
     }
 
+    /**
+     * Get the data indexes for the specified scope covering the time range (see {@link #getDataIndexName(KapuaId, long)}).<br>
+     * The data indexes are returned in time order and mapped to the last time of the range they cover.
+     *
+     * @param scopeId
+     * @param from
+     *            the range start (milliseconds)
+     * @param to
+     *            the range end (milliseconds)
+     * @return
+     */
+    public static Map<String, Long> getDataIndexNames(KapuaId scopeId, long from, long to) {
+        String actualName = EsUtils.normalizedIndexName(scopeId.toStringId());
+        Map<String, Long> indexNames = new LinkedHashMap<>();
+        Calendar cal = KapuaDateUtils.getKapuaCalendar();
+        // step by day, since the year end days may belong to the first week of the year
+        for (cal.setTimeInMillis(from); cal.getTimeInMillis() < to; cal.add(Calendar.DAY_OF_YEAR, 1)) {
+            indexNames.put(getDataIndexName(actualName, cal), cal.getTimeInMillis());
+        }
+        cal.setTimeInMillis(to);
+        indexNames.put(getDataIndexName(actualName, cal), to);
+        return indexNames;
+    }
+
+    private static String getDataIndexName(String actualName, Calendar cal) {
+        return String.format("%s-%04d-%02d", actualName, cal.get(Calendar.YEAR), cal.get(Calendar.WEEK_OF_YEAR));
+    }
+
     /**
      * Get the Kapua index name for the specified base name
      *
@@ -227,7 +268,7 @@ public class EsUtils {
      */
     public static String getMetricValueQualifier(String name, String type) {
         String shortType = EsUtils.getEsTypeAcronym(type);
-        return String.format("%s.%s", name, shortType);
+        return name + SPECIAL_DOT + shortType;
     }
 
     /**
@@ -352,7 +393,7 @@ public class EsUtils {
         if ("string".equals(kapuaType) || "String".equals(kapuaType))
             return ES_TYPE_STRING;
 
-        if ("integer".equals(kapuaType) || "Integer".equals(kapuaType))
+        if ("int".equals(kapuaType) || "integer".equals(kapuaType) || "Integer".equals(kapuaType))
             return ES_TYPE_INTEGER;
 
         if ("long".equals(kapuaType) || "Long".equals(kapuaType))
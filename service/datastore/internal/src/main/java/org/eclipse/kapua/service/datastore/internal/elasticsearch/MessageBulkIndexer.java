@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.unit.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Message bulk indexer.<br>
+ * The upsert requests are queued into a bounded queue and grouped into {@link BulkRequest} by a pool of flusher threads.<br>
+ * A bulk request is flushed when the maximum number of actions or the maximum size is reached or when the linger time is elapsed.<br>
+ * Every submitted request is bound to a future completed when the bulk request containing it is completed, so the caller can acknowledge the message only if it was successfully indexed.
+ *
+ * @since 1.0.0
+ */
+public class MessageBulkIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageBulkIndexer.class);
+
+    private static final String METRIC_MODULE_NAME = "datastore";
+    private static final String METRIC_COMPONENT_NAME = "bulk";
+
+    private static MessageBulkIndexer instance;
+
+    private final BlockingQueue<BulkItem> queue;
+    private final ExecutorService flushers;
+
+    private final long offerTimeout;
+    private final int maxActions;
+    private final long maxSize;
+    private final long linger;
+    private final long indexTimeout;
+
+    private volatile boolean running;
+
+    // metrics
+    private final Counter metricRejected;
+    private final Counter metricFailed;
+    private final Histogram metricBatchSize;
+    private final Timer metricFlushTime;
+
+    private MessageBulkIndexer() {
+        this(DatastoreSettings.getInstance().getInt(DatastoreSettingKey.CONFIG_BULK_QUEUE_SIZE_MAXIMUM, 10000),
+                DatastoreSettings.getInstance().getInt(DatastoreSettingKey.CONFIG_BULK_FLUSHER_THREADS, 2),
+                DatastoreSettings.getInstance().getLong(DatastoreSettingKey.CONFIG_BULK_QUEUE_OFFER_TIMEOUT, 1000L),
+                DatastoreSettings.getInstance().getInt(DatastoreSettingKey.CONFIG_BULK_ACTIONS_MAXIMUM, 500),
+                DatastoreSettings.getInstance().getLong(DatastoreSettingKey.CONFIG_BULK_SIZE_MAXIMUM, 5242880L),
+                DatastoreSettings.getInstance().getLong(DatastoreSettingKey.CONFIG_BULK_LINGER, 20L),
+                EsUtils.getQueryTimeout());
+    }
+
+    /**
+     * Construct the bulk indexer and start the flusher threads
+     *
+     * @param queueSize
+     *            the maximum number of queued requests
+     * @param flusherThreads
+     *            the number of flusher threads
+     * @param offerTimeout
+     *            the time (milliseconds) a caller waits for room in the queue
+     * @param maxActions
+     *            the maximum number of requests of a bulk request
+     * @param maxSize
+     *            the maximum size (bytes) of a bulk request
+     * @param linger
+     *            the time (milliseconds) a flusher waits for more requests before flushing
+     * @param indexTimeout
+     *            the time (milliseconds) a caller waits for the bulk request containing its request
+     */
+    MessageBulkIndexer(int queueSize, int flusherThreads, long offerTimeout, int maxActions, long maxSize, long linger, long indexTimeout) {
+        this.offerTimeout = offerTimeout;
+        this.maxActions = maxActions;
+        this.maxSize = maxSize;
+        this.linger = linger;
+        this.indexTimeout = indexTimeout;
+
+        queue = new ArrayBlockingQueue<>(queueSize);
+
+        MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        metricRejected = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "rejected", "count");
+        metricFailed = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "failed", "count");
+        metricBatchSize = metricsService.getHistogram(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "batch", "size");
+        metricFlushTime = metricsService.getTimer(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "flush", "time", "s");
+        try {
+            metricsService.registerGauge(new Gauge<Integer>() {
+
+                @Override
+                public Integer getValue() {
+                    return queue.size();
+                }
+            }, METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "queue", "size");
+        } catch (KapuaException e) {
+            logger.warn("Cannot register the bulk queue size gauge", e);
+        }
+
+        running = true;
+        flushers = Executors.newFixedThreadPool(flusherThreads, new ThreadFactoryBuilder()
+                .setNameFormat("kapua-datastore-bulk-%d")
+                .setDaemon(true)
+                .build());
+        for (int i = 0; i < flusherThreads; i++) {
+            flushers.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    flushLoop();
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the bulk indexer instance (singleton).<br>
+     * The flusher threads are started on the first call.
+     *
+     * @return
+     * @since 1.0.0
+     */
+    public static synchronized MessageBulkIndexer getInstance() {
+        if (instance == null) {
+            instance = new MessageBulkIndexer();
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the bulk indexer instance, if it was started
+     *
+     * @since 1.0.0
+     */
+    public static synchronized void stopInstance() {
+        if (instance != null) {
+            instance.stop();
+        }
+    }
+
+    /**
+     * Queue the upsert request and wait until the bulk request containing it is completed.<br>
+     * If the request is not indexed in time it's removed from the queue (if not yet taken by a flusher).
+     *
+     * @param request
+     *            the upsert request
+     * @param estimatedSize
+     *            the estimated size (in bytes) of the request
+     * @throws EsClientUnavailableException
+     *             if the queue is full (backpressure), the indexer is stopped or the request is not indexed within the query timeout
+     * @since 1.0.0
+     */
+    public void index(UpdateRequest request, long estimatedSize)
+            throws EsClientUnavailableException {
+        BulkItem item = enqueue(request, estimatedSize);
+        try {
+            item.future.get(indexTimeout + linger, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new EsClientUnavailableException("Bulk indexing failed", e.getCause());
+        } catch (TimeoutException e) {
+            cancel(item);
+            throw new EsClientUnavailableException("Bulk indexing timed out", e);
+        } catch (InterruptedException e) {
+            cancel(item);
+            Thread.currentThread().interrupt();
+            throw new EsClientUnavailableException("Interrupted while waiting for bulk indexing", e);
+        }
+    }
+
+    /**
+     * Queue the upsert request.<br>
+     * The returned future is completed when the bulk request containing it is completed.
+     * If the caller cancels the future before a flusher takes the request, the request is not indexed.
+     *
+     * @param request
+     *            the upsert request
+     * @param estimatedSize
+     *            the estimated size (in bytes) of the request
+     * @return
+     * @throws EsClientUnavailableException
+     *             if the queue is full (backpressure) or the indexer is stopped
+     * @since 1.0.0
+     */
+    public CompletableFuture<Void> submit(UpdateRequest request, long estimatedSize)
+            throws EsClientUnavailableException {
+        return enqueue(request, estimatedSize).future;
+    }
+
+    private BulkItem enqueue(UpdateRequest request, long estimatedSize)
+            throws EsClientUnavailableException {
+        if (!running) {
+            throw new EsClientUnavailableException("Bulk indexer is stopped");
+        }
+
+        BulkItem item = new BulkItem(request, estimatedSize);
+        try {
+            if (!queue.offer(item, offerTimeout, TimeUnit.MILLISECONDS)) {
+                metricRejected.inc();
+                throw new EsClientUnavailableException(String.format("Bulk indexing queue is full (%d pending messages)", queue.size()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EsClientUnavailableException("Interrupted while queuing the message for bulk indexing", e);
+        }
+        // stopped while queuing: the flushers may already be gone
+        if (!running && queue.remove(item)) {
+            throw new EsClientUnavailableException("Bulk indexer is stopped");
+        }
+        return item;
+    }
+
+    private void cancel(BulkItem item) {
+        item.future.cancel(false);
+        // O(n), but only on the timeout path
+        queue.remove(item);
+    }
+
+    /**
+     * Stop the flusher threads.<br>
+     * The pending requests are flushed before the threads exit.
+     *
+     * @since 1.0.0
+     */
+    public void stop() {
+        running = false;
+        flushers.shutdown();
+        try {
+            if (!flushers.awaitTermination(indexTimeout + linger, TimeUnit.MILLISECONDS)) {
+                logger.warn("Bulk flusher threads did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        List<BulkItem> batch = new ArrayList<>(maxActions);
+        while (running || !queue.isEmpty()) {
+            try {
+                BulkItem first = queue.poll(linger, TimeUnit.MILLISECONDS);
+                if (first == null || first.future.isDone()) {
+                    // cancelled by the caller
+                    continue;
+                }
+
+                batch.add(first);
+                long batchSize = first.size;
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(linger);
+                while (batch.size() < maxActions && batchSize < maxSize) {
+                    BulkItem next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next.future.isDone()) {
+                        continue;
+                    }
+                    batch.add(next);
+                    batchSize += next.size;
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, e);
+                return;
+            } catch (Exception e) {
+                logger.error("Unexpected error while flushing the bulk request", e);
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<BulkItem> batch) {
+        BulkRequest bulkRequest = new BulkRequest();
+        for (BulkItem item : batch) {
+            bulkRequest.add(item.request);
+        }
+
+        metricBatchSize.update(batch.size());
+        Context metricFlushTimeContext = metricFlushTime.time();
+        BulkResponse bulkResponse;
+        try {
+            bulkResponse = executeBulk(bulkRequest);
+        } catch (Exception e) {
+            logger.warn("Bulk request of {} messages failed: {}", batch.size(), e.getMessage());
+            fail(batch, e);
+            return;
+        } finally {
+            metricFlushTimeContext.stop();
+        }
+
+        for (BulkItemResponse itemResponse : bulkResponse.getItems()) {
+            BulkItem item = batch.get(itemResponse.getItemId());
+            if (itemResponse.isFailed()) {
+                metricFailed.inc();
+                item.future.completeExceptionally(new EsDatastoreException(itemResponse.getFailureMessage()));
+            } else {
+                item.future.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Execute the bulk request
+     *
+     * @param bulkRequest
+     * @return
+     * @throws EsClientUnavailableException
+     */
+    BulkResponse executeBulk(BulkRequest bulkRequest)
+            throws EsClientUnavailableException {
+        return ElasticsearchClient.getInstance()
+                .bulk(bulkRequest)
+                .actionGet(TimeValue.timeValueMillis(indexTimeout));
+    }
+
+    private void fail(List<BulkItem> batch, Exception e) {
+        for (BulkItem item : batch) {
+            if (item.future.completeExceptionally(e)) {
+                metricFailed.inc();
+            }
+        }
+    }
+
+    private static class BulkItem {
+
+        private final UpdateRequest request;
+        private final long size;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private BulkItem(UpdateRequest request, long size) {
+            this.request = request;
+            this.size = size;
+        }
+    }
+}
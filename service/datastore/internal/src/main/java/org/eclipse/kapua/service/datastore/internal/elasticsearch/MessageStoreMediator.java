@@ -11,7 +11,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal.elasticsearch;
 
-import java.util.Map;
+import java.util.List;
 
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.message.KapuaMessage;
@@ -38,6 +38,21 @@ public interface MessageStoreMediator {
     public Metadata getMetadata(KapuaId scopeId, long indexedOn)
             throws EsDocumentBuilderException, EsClientUnavailableException;
 
+    /**
+     * Get the existing data indexes covering the time range
+     *
+     * @param scopeId
+     * @param from
+     *            the range start (milliseconds)
+     * @param to
+     *            the range end (milliseconds)
+     * @return
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public String[] getDataIndexNames(KapuaId scopeId, long from, long to)
+            throws EsClientUnavailableException;
+
     /**
      * On after message mappings event handler
      *
@@ -48,7 +63,7 @@ public interface MessageStoreMediator {
      * @throws EsClientUnavailableException
      * @since 1.0.0
      */
-    public void onUpdatedMappings(KapuaId scopeId, long indexedOn, Map<String, EsMetric> esMetrics)
+    public void onUpdatedMappings(KapuaId scopeId, long indexedOn, List<EsMetric> esMetrics)
             throws EsDocumentBuilderException, EsClientUnavailableException;
 
     /**
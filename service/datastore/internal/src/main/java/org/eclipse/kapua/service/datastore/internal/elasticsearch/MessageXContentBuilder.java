@@ -11,9 +11,12 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal.elasticsearch;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -23,23 +26,36 @@ import org.eclipse.kapua.message.KapuaPayload;
 import org.eclipse.kapua.message.KapuaPosition;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.eclipse.kapua.service.datastore.model.StorableId;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Message object content builder.<br>
- * This object creates an ElasticSearch {@link XContentBuilder} from the Kapua message object (marshal).
+ * This object writes the Elasticsearch document source of the Kapua message object (marshal) streaming the message fields and the payload metrics
+ * into a per thread reusable buffer (the document is then copied once, so it doesn't depend on the buffer anymore).
+ * The metric names and mappings are taken from the {@link EsMetricNames} table.<br>
+ * The document content type (json or smile) is set by the {@link DatastoreSettingKey#ELASTICSEARCH_MESSAGE_CONTENT_TYPE} setting.
  *
  * @since 1.0.0
  */
 public class MessageXContentBuilder {
 
-    @SuppressWarnings("unused")
     private static final Logger s_logger = LoggerFactory.getLogger(MessageXContentBuilder.class);
 
+    private static final XContentType CONTENT_TYPE = getContentType();
+
+    private static final ThreadLocal<DocumentBuffer> DOCUMENT_BUFFER = ThreadLocal.withInitial(DocumentBuffer::new);
+
+    private final XContentType contentType;
+
     private StorableIdImpl messageId;
     private KapuaId scopeId;
     private String clientId;
@@ -50,24 +66,47 @@ public class MessageXContentBuilder {
     private Date capturedOn;
     private Date receivedOn;
     private Date sentOn;
-    private XContentBuilder messageBuilder;
+    private BytesReference messageSource;
+
+    private List<EsMetric> metricMappings;
+
+    /**
+     * Construct the builder of the message documents with the configured content type
+     */
+    public MessageXContentBuilder() {
+        this(CONTENT_TYPE);
+    }
 
-    private Map<String, EsMetric> metricMappings;
+    MessageXContentBuilder(XContentType contentType) {
+        this.contentType = contentType;
+    }
 
     private void init() {
 
         messageId = null;
-        messageBuilder = null;
+        messageSource = null;
         metricMappings = null;
     }
 
-    private XContentBuilder build(KapuaMessage<?, ?> message, String messageId, Date timestamp, Date indexedOn, Date receivedOn)
+    private static XContentType getContentType() {
+        String contentType = DatastoreSettings.getInstance().getString(DatastoreSettingKey.ELASTICSEARCH_MESSAGE_CONTENT_TYPE, "json");
+        if ("smile".equalsIgnoreCase(contentType)) {
+            return XContentType.SMILE;
+        }
+        if (!"json".equalsIgnoreCase(contentType)) {
+            s_logger.warn("Unsupported message content type {}, json will be used", contentType);
+        }
+        return XContentType.JSON;
+    }
+
+    private BytesReference build(KapuaMessage<?, ?> message, String messageId, Date timestamp, Date indexedOn, Date receivedOn)
             throws EsDocumentBuilderException {
+        DocumentBuffer buffer = DOCUMENT_BUFFER.get();
         try {
             String accountIdStr = message.getScopeId() == null ? null : message.getScopeId().toCompactId();
             String deviceIdStr = message.getDeviceId() == null ? null : message.getDeviceId().toCompactId();
 
-            XContentBuilder messageBuilder = XContentFactory.jsonBuilder()
+            XContentBuilder messageBuilder = XContentFactory.contentBuilder(contentType, buffer)
                     .startObject()
                     .field(EsSchema.MESSAGE_TIMESTAMP, timestamp)
                     .field(EsSchema.MESSAGE_RECEIVED_ON, receivedOn) // TODO Which field ??
@@ -82,70 +121,62 @@ public class MessageXContentBuilder {
 
             KapuaPosition kapuaPosition = message.getPosition();
             if (kapuaPosition != null) {
-
-                Map<String, Object> location = null;
+                messageBuilder.startObject(EsSchema.MESSAGE_POSITION);
                 if (kapuaPosition.getLongitude() != null && kapuaPosition.getLatitude() != null) {
-                    location = new HashMap<>();
-                    location.put("lon", kapuaPosition.getLongitude());
-                    location.put("lat", kapuaPosition.getLatitude());
+                    messageBuilder.startObject(EsSchema.MESSAGE_POS_LOCATION)
+                            .field("lon", kapuaPosition.getLongitude())
+                            .field("lat", kapuaPosition.getLatitude())
+                            .endObject();
+                } else {
+                    messageBuilder.nullField(EsSchema.MESSAGE_POS_LOCATION);
                 }
-
-                Map<String, Object> position = new HashMap<>();
-                position.put(EsSchema.MESSAGE_POS_LOCATION, location);
-                position.put(EsSchema.MESSAGE_POS_ALT, kapuaPosition.getAltitude());
-                position.put(EsSchema.MESSAGE_POS_PRECISION, kapuaPosition.getPrecision());
-                position.put(EsSchema.MESSAGE_POS_HEADING, kapuaPosition.getHeading());
-                position.put(EsSchema.MESSAGE_POS_SPEED, kapuaPosition.getSpeed());
-                position.put(EsSchema.MESSAGE_POS_TIMESTAMP, kapuaPosition.getTimestamp());
-                position.put(EsSchema.MESSAGE_POS_SATELLITES, kapuaPosition.getSatellites());
-                position.put(EsSchema.MESSAGE_POS_STATUS, kapuaPosition.getStatus());
-                messageBuilder.field(EsSchema.MESSAGE_POSITION, position);
+                messageBuilder.field(EsSchema.MESSAGE_POS_ALT, kapuaPosition.getAltitude())
+                        .field(EsSchema.MESSAGE_POS_PRECISION, kapuaPosition.getPrecision())
+                        .field(EsSchema.MESSAGE_POS_HEADING, kapuaPosition.getHeading())
+                        .field(EsSchema.MESSAGE_POS_SPEED, kapuaPosition.getSpeed())
+                        .field(EsSchema.MESSAGE_POS_TIMESTAMP, kapuaPosition.getTimestamp())
+                        .field(EsSchema.MESSAGE_POS_SATELLITES, kapuaPosition.getSatellites())
+                        .field(EsSchema.MESSAGE_POS_STATUS, kapuaPosition.getStatus())
+                        .endObject();
             }
 
-            KapuaPayload payload = message.getPayload();
-            if (payload == null) {
-                messageBuilder.endObject();
-                return messageBuilder;
-            }
-
-            messageBuilder.field(EsSchema.MESSAGE_BODY, payload.getBody());
-
-            Map<String, EsMetric> metricMappings = new HashMap<>();
+            List<EsMetric> metricMappings = Collections.emptyList();
 
-            Map<String, Object> kapuaMetrics = payload.getProperties();
-            if (kapuaMetrics != null) {
-
-                Map<String, Object> metrics = new HashMap<>();
-                String[] metricNames = kapuaMetrics.keySet().toArray(new String[] {});
-                for (String kapuaMetricName : metricNames) {
-
-                    Object metricValue = kapuaMetrics.get(kapuaMetricName);
-
-                    // Sanitize field names: '.' is not allowed
-                    String esMetricName = EsUtils.normalizeMetricName(kapuaMetricName);
-                    String esType = EsUtils.getEsTypeFromValue(metricValue);
-                    String esTypeAcronim = EsUtils.getEsTypeAcronym(esType);
-                    EsMetric esMetric = new EsMetric();
-                    esMetric.setName(esMetricName);
-                    esMetric.setType(esType);
-
-                    Map<String, Object> field = new HashMap<>();
-                    field.put(esTypeAcronim, metricValue);
-                    metrics.put(esMetricName, field);
-
-                    // each metric is potentially a dynamic field so report it a new mapping
-                    String mappedName = EsUtils.getMetricValueQualifier(esMetricName, esType);
-                    metricMappings.put(mappedName, esMetric);
+            KapuaPayload payload = message.getPayload();
+            if (payload != null) {
+                messageBuilder.field(EsSchema.MESSAGE_BODY, payload.getBody());
+
+                Map<String, Object> kapuaMetrics = payload.getProperties();
+                if (kapuaMetrics != null) {
+                    EsMetricNames metricNames = EsMetricNames.getInstance();
+                    metricMappings = new ArrayList<>(kapuaMetrics.size());
+
+                    messageBuilder.startObject(EsSchema.MESSAGE_METRICS);
+                    for (Map.Entry<String, Object> kapuaMetric : kapuaMetrics.entrySet()) {
+                        Object metricValue = kapuaMetric.getValue();
+
+                        // Sanitize field names: '.' is not allowed
+                        // each metric is potentially a dynamic field so report it a new mapping
+                        EsMetric esMetric = metricNames.getMetric(kapuaMetric.getKey(), EsUtils.getEsTypeFromValue(metricValue));
+                        metricMappings.add(esMetric);
+
+                        messageBuilder.startObject(esMetric.getName())
+                                .field(EsUtils.getEsTypeAcronym(esMetric.getType()), metricValue)
+                                .endObject();
+                    }
+                    messageBuilder.endObject();
                 }
-                messageBuilder.field(EsSchema.MESSAGE_METRICS, metrics);
             }
 
             messageBuilder.endObject();
+            messageBuilder.close();
 
             this.setMetricMappings(metricMappings);
-            return messageBuilder;
+            return buffer.toBytesReference();
         } catch (IOException e) {
             throw new EsDocumentBuilderException("Unable to build message document", e);
+        } finally {
+            buffer.release();
         }
     }
 
@@ -183,7 +214,7 @@ public class MessageXContentBuilder {
         this.setChannel(DatastoreChannel.getChannel(parts));
         this.setChannelParts(parts.toArray(new String[] {}));
 
-        XContentBuilder messageBuilder = this.build(message, messageId.toString(), indexedOn, indexedOn, receivedOn);
+        BytesReference messageSource = this.build(message, messageId.toString(), indexedOn, indexedOn, receivedOn);
 
         this.setTimestamp(indexedOn);
         this.setIndexedOn(indexedOn);
@@ -192,7 +223,7 @@ public class MessageXContentBuilder {
         this.setCapturedOn(message.getCapturedOn());
 
         this.setMessageId(messageId);
-        this.setBuilder(messageBuilder);
+        this.setSource(messageSource);
         return this;
     }
 
@@ -397,42 +428,67 @@ public class MessageXContentBuilder {
     }
 
     /**
-     * Get the {@link XContentBuilder}
+     * Get the message document source
      *
      * @return
      * @since 1.0.0
      */
-    public XContentBuilder getBuilder() {
-        return messageBuilder;
+    public BytesReference getSource() {
+        return messageSource;
     }
 
     /**
-     * Set the {@link XContentBuilder}
+     * Set the message document source
      *
-     * @param esMessage
+     * @param messageSource
      * @since 1.0.0
      */
-    private void setBuilder(XContentBuilder esMessage) {
-        this.messageBuilder = esMessage;
+    private void setSource(BytesReference messageSource) {
+        this.messageSource = messageSource;
     }
 
     /**
-     * Get the metrics map
+     * Get the metric mappings of the message (one for every payload metric, shared by the messages with the same metrics, see {@link EsMetricNames})
      *
      * @return
      * @since 1.0.0
      */
-    public Map<String, EsMetric> getMetricMappings() {
+    public List<EsMetric> getMetricMappings() {
         return metricMappings;
     }
 
     /**
-     * Set the metrics map
+     * Set the metric mappings
      *
      * @param metricMappings
      * @since 1.0.0
      */
-    private void setMetricMappings(Map<String, EsMetric> metricMappings) {
+    private void setMetricMappings(List<EsMetric> metricMappings) {
         this.metricMappings = metricMappings;
     }
+
+    /**
+     * Per thread document buffer.<br>
+     * The buffer grown over the retained capacity by a big document is dropped after the document is copied.
+     */
+    private static class DocumentBuffer extends ByteArrayOutputStream {
+
+        private static final int INITIAL_CAPACITY = 4096;
+        private static final int RETAINED_CAPACITY = 1024 * 1024;
+
+        private DocumentBuffer() {
+            super(INITIAL_CAPACITY);
+        }
+
+        private BytesReference toBytesReference() {
+            return new BytesArray(Arrays.copyOf(buf, count));
+        }
+
+        private void release() {
+            if (buf.length > RETAINED_CAPACITY) {
+                buf = new byte[INITIAL_CAPACITY];
+            }
+            reset();
+        }
+    }
 }
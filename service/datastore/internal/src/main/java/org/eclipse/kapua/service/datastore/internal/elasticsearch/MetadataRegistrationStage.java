@@ -0,0 +1,402 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.message.KapuaMessage;
+import org.eclipse.kapua.message.KapuaPayload;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.DatastoreCacheManager;
+import org.eclipse.kapua.service.datastore.internal.MetadataKey;
+import org.eclipse.kapua.service.datastore.internal.MetadataUpdateGuard;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema.Metadata;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsChannelInfoDAO;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsClientInfoDAO;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsMetricInfoDAO;
+import org.eclipse.kapua.service.datastore.internal.model.ChannelInfoImpl;
+import org.eclipse.kapua.service.datastore.internal.model.ClientInfoImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricInfoImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.unit.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Deferred metadata (client, channel and metric informations) registration stage.<br>
+ * The store operation only collects the metadata not yet registered (checking the caches before allocating anything), de-duplicated by {@link MetadataKey},
+ * and the document identifiers are derived at flush time only for the collected metadata,
+ * then a flusher thread registers them as a single {@link BulkRequest} every flush interval.<br>
+ * So the ingest latency doesn't depend on the metadata registration. A metadata not registered (because of a failure) is collected again by the next store operation.<br>
+ * The store operation never registers the metadata itself: once the pending metadata reach the maximum the flusher thread is signaled
+ * and the new metadata are not collected (they are collected again by a later store operation, since not registered yet).
+ *
+ * @since 1.0.0
+ */
+public class MetadataRegistrationStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataRegistrationStage.class);
+
+    private static final String METRIC_MODULE_NAME = "datastore";
+    private static final String METRIC_COMPONENT_NAME = "metadata";
+
+    private static MetadataRegistrationStage instance;
+
+    private final ConcurrentMap<MetadataKey, ClientInfoImpl> pendingClients = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetadataKey, ChannelInfoImpl> pendingChannels = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetadataKey, MetricInfoImpl> pendingMetrics = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher;
+    private final Object flushSync = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final int pendingMaximum;
+    private final int maxActions;
+
+    // metrics
+    private final Counter metricCollected;
+    private final Counter metricDeduplicated;
+    private final Counter metricDiscarded;
+    private final Counter metricFailed;
+    private final Histogram metricBatchSize;
+    private final Timer metricFlushTime;
+
+    private MetadataRegistrationStage() {
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        long flushInterval = config.getLong(DatastoreSettingKey.CONFIG_METADATA_ASYNC_FLUSH_INTERVAL, 1000L);
+        pendingMaximum = config.getInt(DatastoreSettingKey.CONFIG_METADATA_ASYNC_PENDING_MAXIMUM, 10000);
+        maxActions = config.getInt(DatastoreSettingKey.CONFIG_METADATA_ASYNC_ACTIONS_MAXIMUM, 1000);
+
+        MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        metricCollected = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "async", "collected", "count");
+        metricDeduplicated = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "async", "deduplicated", "count");
+        metricDiscarded = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "async", "discarded", "count");
+        metricFailed = metricsService.getCounter(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "async", "failed", "count");
+        metricBatchSize = metricsService.getHistogram(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "async", "batch", "size");
+        metricFlushTime = metricsService.getTimer(METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "async", "flush", "time", "s");
+        try {
+            metricsService.registerGauge(new Gauge<Integer>() {
+
+                @Override
+                public Integer getValue() {
+                    return getPendingSize();
+                }
+            }, METRIC_MODULE_NAME, METRIC_COMPONENT_NAME, "async", "pending", "size");
+        } catch (KapuaException e) {
+            logger.warn("Cannot register the pending metadata size gauge", e);
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("kapua-datastore-metadata-%d")
+                .setDaemon(true)
+                .build());
+        flusher.scheduleWithFixedDelay(this::runFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the metadata registration stage instance (singleton).<br>
+     * The flusher thread is started on the first call.
+     *
+     * @return
+     * @since 1.0.0
+     */
+    public static synchronized MetadataRegistrationStage getInstance() {
+        if (instance == null) {
+            instance = new MetadataRegistrationStage();
+        }
+        return instance;
+    }
+
+    /**
+     * Collect the client, channel and metrics informations of the stored message not yet registered.<br>
+     * If too many metadata are pending the flusher thread is signaled and the metadata are not collected: the caller never waits for a registration.
+     *
+     * @param docBuilder
+     * @param message
+     * @since 1.0.0
+     */
+    public void submit(MessageXContentBuilder docBuilder, KapuaMessage<?, ?> message) {
+        DatastoreCacheManager cacheManager = DatastoreCacheManager.getInstance();
+        KapuaId scopeId = docBuilder.getScopeId();
+        String clientId = docBuilder.getClientId();
+        String channel = docBuilder.getChannel();
+
+        MetadataKey clientInfoKey = MetadataKey.ofClient(scopeId, clientId);
+        if (isToBeCollected(clientInfoKey, cacheManager.getClientsUpdateGuard(), pendingClients)) {
+            ClientInfoImpl clientInfo = new ClientInfoImpl(scopeId);
+            clientInfo.setClientId(clientId);
+            clientInfo.setFirstMessageId(docBuilder.getMessageId());
+            clientInfo.setFirstMessageOn(docBuilder.getTimestamp());
+            collect(clientInfoKey, clientInfo, pendingClients);
+        }
+
+        MetadataKey channelInfoKey = MetadataKey.ofChannel(scopeId, clientId, channel);
+        if (isToBeCollected(channelInfoKey, cacheManager.getChannelsUpdateGuard(), pendingChannels)) {
+            ChannelInfoImpl channelInfo = new ChannelInfoImpl(scopeId);
+            channelInfo.setClientId(clientId);
+            channelInfo.setChannel(channel);
+            channelInfo.setFirstMessageId(docBuilder.getMessageId());
+            channelInfo.setFirstMessageOn(docBuilder.getTimestamp());
+            collect(channelInfoKey, channelInfo, pendingChannels);
+        }
+
+        KapuaPayload payload = message.getPayload();
+        Map<String, Object> metrics = payload != null ? payload.getProperties() : null;
+        if (metrics != null) {
+            for (Map.Entry<String, Object> entry : metrics.entrySet()) {
+                String metricType = EsUtils.getEsTypeFromValue(entry.getValue());
+                MetadataKey metricInfoKey = MetadataKey.ofMetric(scopeId, clientId, channel, entry.getKey(), metricType);
+                if (isToBeCollected(metricInfoKey, cacheManager.getMetricsUpdateGuard(), pendingMetrics)) {
+                    MetricInfoImpl metricInfo = new MetricInfoImpl(scopeId);
+                    metricInfo.setClientId(clientId);
+                    metricInfo.setChannel(channel);
+                    metricInfo.setName(entry.getKey());
+                    metricInfo.setType(metricType);
+                    metricInfo.setFirstMessageId(docBuilder.getMessageId());
+                    metricInfo.setFirstMessageOn(docBuilder.getTimestamp());
+                    metricInfo.setValue(entry.getValue());
+                    collect(metricInfoKey, metricInfo, pendingMetrics);
+                }
+            }
+        }
+
+        if (getPendingSize() >= pendingMaximum) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Stop the flusher thread.<br>
+     * The pending metadata are flushed before the thread exits.
+     *
+     * @since 1.0.0
+     */
+    public void stop() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(EsUtils.getQueryTimeout(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Metadata flusher thread did not terminate in time");
+            }
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Cannot flush the pending metadata", e);
+        }
+    }
+
+    /**
+     * Register the pending metadata (a bulk request for every maximum number of actions)
+     *
+     * @throws EsDocumentBuilderException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public void flush()
+            throws EsDocumentBuilderException, EsClientUnavailableException {
+        synchronized (flushSync) {
+            DatastoreCacheManager cacheManager = DatastoreCacheManager.getInstance();
+            DatastoreMediator mediator = DatastoreMediator.getInstance();
+
+            BulkRequest bulkRequest = new BulkRequest();
+            List<PendingItem> bulkItems = new ArrayList<>(maxActions);
+
+            Iterator<Map.Entry<MetadataKey, ClientInfoImpl>> clients = pendingClients.entrySet().iterator();
+            while (clients.hasNext()) {
+                Map.Entry<MetadataKey, ClientInfoImpl> pendingClient = clients.next();
+                clients.remove();
+
+                MetadataKey clientInfoKey = pendingClient.getKey();
+                ClientInfoImpl clientInfo = pendingClient.getValue();
+                if (cacheManager.getClientsUpdateGuard().isRegistered(clientInfoKey)) {
+                    continue;
+                }
+
+                Metadata metadata = mediator.getMetadata(clientInfo.getScopeId(), clientInfo.getFirstMessageOn().getTime());
+                UpdateRequest request = EsClientInfoDAO.getInstance()
+                        .index(metadata.getKapuaIndexName())
+                        .getUpsertRequest(clientInfo);
+                bulkRequest = add(bulkRequest, bulkItems, request, clientInfoKey, cacheManager.getClientsUpdateGuard());
+            }
+
+            Iterator<Map.Entry<MetadataKey, ChannelInfoImpl>> channels = pendingChannels.entrySet().iterator();
+            while (channels.hasNext()) {
+                Map.Entry<MetadataKey, ChannelInfoImpl> pendingChannel = channels.next();
+                channels.remove();
+
+                MetadataKey channelInfoKey = pendingChannel.getKey();
+                ChannelInfoImpl channelInfo = pendingChannel.getValue();
+                if (cacheManager.getChannelsUpdateGuard().isRegistered(channelInfoKey)) {
+                    continue;
+                }
+
+                Metadata metadata = mediator.getMetadata(channelInfo.getScopeId(), channelInfo.getFirstMessageOn().getTime());
+                UpdateRequest request = EsChannelInfoDAO.getInstance()
+                        .index(metadata.getKapuaIndexName())
+                        .getUpsertRequest(channelInfo);
+                bulkRequest = add(bulkRequest, bulkItems, request, channelInfoKey, cacheManager.getChannelsUpdateGuard());
+            }
+
+            Iterator<Map.Entry<MetadataKey, MetricInfoImpl>> metrics = pendingMetrics.entrySet().iterator();
+            while (metrics.hasNext()) {
+                Map.Entry<MetadataKey, MetricInfoImpl> pendingMetric = metrics.next();
+                metrics.remove();
+
+                MetadataKey metricInfoKey = pendingMetric.getKey();
+                MetricInfoImpl metricInfo = pendingMetric.getValue();
+                if (cacheManager.getMetricsUpdateGuard().isRegistered(metricInfoKey)) {
+                    continue;
+                }
+
+                Metadata metadata = mediator.getMetadata(metricInfo.getScopeId(), metricInfo.getFirstMessageOn().getTime());
+                UpdateRequest request = EsMetricInfoDAO.getInstance()
+                        .index(metadata.getKapuaIndexName())
+                        .getUpsertRequest(metricInfo);
+                bulkRequest = add(bulkRequest, bulkItems, request, metricInfoKey, cacheManager.getMetricsUpdateGuard());
+            }
+
+            if (!bulkItems.isEmpty()) {
+                bulk(bulkRequest, bulkItems);
+            }
+        }
+    }
+
+    private boolean isToBeCollected(MetadataKey key, MetadataUpdateGuard updateGuard, ConcurrentMap<MetadataKey, ?> pending) {
+        if (updateGuard.isRegistered(key)) {
+            return false;
+        }
+        if (pending.containsKey(key)) {
+            metricDeduplicated.inc();
+            return false;
+        }
+        return true;
+    }
+
+    private <M> void collect(MetadataKey key, M metadata, ConcurrentMap<MetadataKey, M> pending) {
+        if (getPendingSize() >= pendingMaximum) {
+            // collected again by a later store operation, once the flusher thread drained the pending metadata
+            metricDiscarded.inc();
+            requestFlush();
+            return;
+        }
+        if (pending.putIfAbsent(key, metadata) == null) {
+            metricCollected.inc();
+        } else {
+            metricDeduplicated.inc();
+        }
+    }
+
+    /**
+     * Signal the flusher thread to register the pending metadata now (a single request at a time)
+     */
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::runFlush);
+            } catch (RejectedExecutionException e) {
+                // stopped
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void runFlush() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Unexpected error while flushing the metadata", e);
+        }
+    }
+
+    private int getPendingSize() {
+        return pendingClients.size() + pendingChannels.size() + pendingMetrics.size();
+    }
+
+    /**
+     * Add the request to the bulk request, flushing the bulk request if the maximum number of actions is reached
+     *
+     * @return the bulk request to be used for the next requests
+     */
+    private BulkRequest add(BulkRequest bulkRequest, List<PendingItem> bulkItems, UpdateRequest request, MetadataKey key, MetadataUpdateGuard updateGuard) {
+        bulkRequest.add(request);
+        bulkItems.add(new PendingItem(key, updateGuard));
+        if (bulkItems.size() < maxActions) {
+            return bulkRequest;
+        }
+
+        bulk(bulkRequest, bulkItems);
+        return new BulkRequest();
+    }
+
+    private void bulk(BulkRequest bulkRequest, List<PendingItem> bulkItems) {
+        metricBatchSize.update(bulkItems.size());
+        Context metricFlushTimeContext = metricFlushTime.time();
+        try {
+            BulkResponse bulkResponse = ElasticsearchClient.getInstance()
+                    .bulk(bulkRequest)
+                    .actionGet(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+
+            for (BulkItemResponse itemResponse : bulkResponse.getItems()) {
+                PendingItem item = bulkItems.get(itemResponse.getItemId());
+                if (itemResponse.isFailed()) {
+                    metricFailed.inc();
+                    logger.trace("Upsert failed [{}, {}]", itemResponse.getId(), itemResponse.getFailureMessage());
+                    continue;
+                }
+                item.updateGuard.setRegistered(item.key);
+            }
+        } catch (Exception e) {
+            metricFailed.inc(bulkItems.size());
+            logger.warn("Bulk request of {} metadata failed: {}", bulkItems.size(), e.getMessage());
+        } finally {
+            metricFlushTimeContext.stop();
+            bulkItems.clear();
+        }
+    }
+
+    private static class PendingItem {
+
+        private final MetadataKey key;
+        private final MetadataUpdateGuard updateGuard;
+
+        private PendingItem(MetadataKey key, MetadataUpdateGuard updateGuard) {
+            this.key = key;
+            this.updateGuard = updateGuard;
+        }
+    }
+}
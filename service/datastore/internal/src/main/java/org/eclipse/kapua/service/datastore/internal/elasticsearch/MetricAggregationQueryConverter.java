@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.ChannelMatchPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.ExistsPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.RangePredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.TermPredicateImpl;
+import org.eclipse.kapua.service.datastore.model.query.AndPredicate;
+import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramBuilder;
+
+import com.google.common.base.Strings;
+
+/**
+ * Metric aggregation query converter.<br>
+ * The query is converted to a {@code date_histogram} aggregation on the message timestamp with the {@code stats} (count, min, max, avg and sum)
+ * and the {@code percentiles} sub aggregations on the metric value field ({@code metrics.<name>.<type acronym>}). No message is fetched.
+ *
+ * @since 1.0.0
+ */
+public class MetricAggregationQueryConverter {
+
+    /**
+     * Time buckets aggregation name
+     */
+    public static final String HISTOGRAM_AGGREGATION = "histogram";
+
+    /**
+     * Bucket statistics aggregation name
+     */
+    public static final String STATS_AGGREGATION = "stats";
+
+    /**
+     * Bucket percentiles aggregation name
+     */
+    public static final String PERCENTILES_AGGREGATION = "percentiles";
+
+    /**
+     * Get the message field storing the values of the aggregated metric
+     *
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     *             if the metric type is not numeric
+     * @since 1.0.0
+     */
+    public static String getMetricField(MetricAggregationQuery query)
+            throws EsQueryConversionException {
+        String esType;
+        try {
+            esType = EsUtils.convertToEsType(query.getMetricType());
+        } catch (IllegalArgumentException e) {
+            throw new EsQueryConversionException(e);
+        }
+        if (!EsUtils.ES_TYPE_INTEGER.equals(esType) &&
+                !EsUtils.ES_TYPE_LONG.equals(esType) &&
+                !EsUtils.ES_TYPE_FLOAT.equals(esType) &&
+                !EsUtils.ES_TYPE_DOUBLE.equals(esType)) {
+            throw new EsQueryConversionException(String.format("Metric type [%s] cannot be aggregated", query.getMetricType()));
+        }
+        return String.format("%s.%s", EsSchema.MESSAGE_METRICS, EsUtils.getMetricValueQualifier(EsUtils.normalizeMetricName(query.getMetricName()), esType));
+    }
+
+    /**
+     * Convert to the query of the aggregated messages (the messages of the client and channel in the time range having the metric)
+     *
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @since 1.0.0
+     */
+    public MessageQuery toMessageQuery(MetricAggregationQuery query)
+            throws EsQueryConversionException {
+        AndPredicate andPredicate = new AndPredicateImpl();
+        andPredicate.getPredicates().add(new RangePredicateImpl(MessageField.TIMESTAMP, query.getFrom(), query.getTo()));
+        andPredicate.getPredicates().add(new ExistsPredicateImpl(getMetricField(query)));
+        if (!Strings.isNullOrEmpty(query.getClientId())) {
+            andPredicate.getPredicates().add(new TermPredicateImpl(MessageField.CLIENT_ID, query.getClientId()));
+        }
+        if (!Strings.isNullOrEmpty(query.getChannel())) {
+            andPredicate.getPredicates().add(new ChannelMatchPredicateImpl(query.getChannel()));
+        }
+
+        MessageQueryImpl messageQuery = new MessageQueryImpl(query.getScopeId());
+        messageQuery.setPredicate(andPredicate);
+        return messageQuery;
+    }
+
+    /**
+     * Convert to an aggregation search on many indices
+     *
+     * @param indices
+     * @param type
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public SearchRequestBuilder toSearchRequestBuilder(String[] indices, String type, MetricAggregationQuery query)
+            throws EsQueryConversionException, EsClientUnavailableException {
+        if (query == null)
+            throw new NullPointerException(String.format("Query parameter is undefined"));
+
+        String metricField = getMetricField(query);
+
+        // the empty buckets are returned too, so the time series has a fixed step
+        DateHistogramBuilder histogram = AggregationBuilders.dateHistogram(HISTOGRAM_AGGREGATION)
+                .field(MessageField.TIMESTAMP.field())
+                .interval(query.getInterval())
+                .minDocCount(0)
+                .extendedBounds(query.getFrom().getTime(), query.getTo().getTime())
+                .subAggregation(AggregationBuilders.stats(STATS_AGGREGATION).field(metricField));
+        if (query.getPercentiles().length > 0) {
+            histogram.subAggregation(AggregationBuilders.percentiles(PERCENTILES_AGGREGATION)
+                    .field(metricField)
+                    .percentiles(query.getPercentiles()));
+        }
+
+        SearchRequestBuilder searchReqBuilder = ElasticsearchClient.getInstance().prepareSearch(indices);
+        searchReqBuilder.setTypes(type)
+                .setQuery(PredicateConverter.convertQueryPredicates(toMessageQuery(query)))
+                .setSize(0)
+                .addAggregation(histogram);
+
+        return searchReqBuilder;
+    }
+}
@@ -113,7 +113,7 @@ public class MetricInfoXContentBuilder {
      * @throws EsDocumentBuilderException
      * @since 1.0.0
      */
-    private static String getOrDeriveId(StorableId id, KapuaId scopeId, String clientId, String channel, String metricName, String metricType)
+    public static String getOrDeriveId(StorableId id, KapuaId scopeId, String clientId, String channel, String metricName, String metricType)
             throws EsDocumentBuilderException {
         if (id == null) {
             String metricMappedName = EsUtils.getMetricValueQualifier(metricName, EsUtils.convertToEsType(metricType));
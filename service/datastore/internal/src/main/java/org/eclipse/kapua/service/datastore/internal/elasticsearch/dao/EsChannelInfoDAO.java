@@ -26,6 +26,7 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConvers
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.PredicateConverter;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsTypeDAO.SearchHitReader;
 import org.eclipse.kapua.service.datastore.internal.model.ChannelInfoListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.model.ChannelInfo;
@@ -34,6 +35,7 @@ import org.eclipse.kapua.service.datastore.model.ChannelInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -110,6 +112,20 @@ public class EsChannelInfoDAO {
         return this;
     }
 
+    /**
+     * Build the upsert request
+     *
+     * @param channelInfo
+     * @return
+     * @throws EsDocumentBuilderException
+     * @since 1.0.0
+     */
+    public UpdateRequest getUpsertRequest(ChannelInfo channelInfo)
+            throws EsDocumentBuilderException {
+        ChannelInfoXContentBuilder documentBuilder = new ChannelInfoXContentBuilder().build(channelInfo);
+        return this.esTypeDAO.getUpsertRequest(documentBuilder.getChannelId(), documentBuilder.getBuilder());
+    }
+
     /**
      * Upsert action (insert the document (if not present) or update the document (if present) into the database)
      *
@@ -257,6 +273,57 @@ public class EsChannelInfoDAO {
         return result;
     }
 
+    /**
+     * Scroll query action (return the first page of the objects matching the given query, the page size is the query limit).<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @throws EsObjectBuilderException
+     * @since 1.0.0
+     */
+    public ChannelInfoListResult scroll(ChannelInfoQuery query)
+            throws EsQueryConversionException,
+            EsClientUnavailableException,
+            EsObjectBuilderException {
+        ChannelInfoQueryConverter converter = new ChannelInfoQueryConverter();
+        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
+        return esTypeDAO.scroll(builder, query, newSearchHitReader(), ChannelInfoListResultImpl::new);
+    }
+
+    /**
+     * Scroll query action (return the next page of a scroll query).<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param scrollId
+     * @param limit
+     *            the page size
+     * @return
+     * @throws EsObjectBuilderException
+     * @since 1.0.0
+     */
+    public ChannelInfoListResult scroll(String scrollId, int limit)
+            throws EsObjectBuilderException {
+        return esTypeDAO.scroll(scrollId, limit, newSearchHitReader(), ChannelInfoListResultImpl::new);
+    }
+
+    /**
+     * Release a scroll query
+     *
+     * @param scrollId
+     * @since 1.0.0
+     */
+    public void clearScroll(String scrollId) {
+        esTypeDAO.clearScroll(scrollId);
+    }
+
+    private static SearchHitReader<ChannelInfo> newSearchHitReader() {
+        ChannelInfoObjectBuilder objectBuilder = new ChannelInfoObjectBuilder();
+        return searchHit -> objectBuilder.build(searchHit).getChannelInfo();
+    }
+
     /**
      * Query count action (return the count of the objects matching the given query)
      *
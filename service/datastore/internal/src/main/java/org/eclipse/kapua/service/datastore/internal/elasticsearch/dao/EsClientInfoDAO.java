@@ -26,6 +26,7 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsQueryConvers
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.PredicateConverter;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsTypeDAO.SearchHitReader;
 import org.eclipse.kapua.service.datastore.internal.model.ClientInfoListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ClientInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.model.ClientInfo;
@@ -33,6 +34,7 @@ import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -109,6 +111,20 @@ public class EsClientInfoDAO {
         return this;
     }
 
+    /**
+     * Build the upsert request
+     *
+     * @param clientInfo
+     * @return
+     * @throws EsDocumentBuilderException
+     * @since 1.0.0
+     */
+    public UpdateRequest getUpsertRequest(ClientInfo clientInfo)
+            throws EsDocumentBuilderException {
+        ClientInfoXContentBuilder clientInfoBuilder = new ClientInfoXContentBuilder().build(clientInfo);
+        return this.esTypeDAO.getUpsertRequest(clientInfoBuilder.getClientId(), clientInfoBuilder.getClientBuilder());
+    }
+
     /**
      * Upsert action (insert the document (if not present) or update the document (if present) into the database)
      *
@@ -242,6 +258,57 @@ public class EsClientInfoDAO {
         return result;
     }
 
+    /**
+     * Scroll query action (return the first page of the objects matching the given query, the page size is the query limit).<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @throws EsObjectBuilderException
+     * @since 1.0.0
+     */
+    public ClientInfoListResult scroll(ClientInfoQuery query)
+            throws EsQueryConversionException,
+            EsClientUnavailableException,
+            EsObjectBuilderException {
+        ClientInfoQueryConverter converter = new ClientInfoQueryConverter();
+        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
+        return esTypeDAO.scroll(builder, query, newSearchHitReader(), ClientInfoListResultImpl::new);
+    }
+
+    /**
+     * Scroll query action (return the next page of a scroll query).<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param scrollId
+     * @param limit
+     *            the page size
+     * @return
+     * @throws EsObjectBuilderException
+     * @since 1.0.0
+     */
+    public ClientInfoListResult scroll(String scrollId, int limit)
+            throws EsObjectBuilderException {
+        return esTypeDAO.scroll(scrollId, limit, newSearchHitReader(), ClientInfoListResultImpl::new);
+    }
+
+    /**
+     * Release a scroll query
+     *
+     * @param scrollId
+     * @since 1.0.0
+     */
+    public void clearScroll(String scrollId) {
+        esTypeDAO.clearScroll(scrollId);
+    }
+
+    private static SearchHitReader<ClientInfo> newSearchHitReader() {
+        ClientInfoObjectBuilder objectBuilder = new ClientInfoObjectBuilder();
+        return searchHit -> objectBuilder.build(searchHit).getClientInfo();
+    }
+
     /**
      * Query count action (return the count of the objects matching the given query)
      *
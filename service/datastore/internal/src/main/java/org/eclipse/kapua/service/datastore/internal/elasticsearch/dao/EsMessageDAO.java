@@ -23,20 +23,31 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageObjectBuilder;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageQueryConverter;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricAggregationQueryConverter;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.PredicateConverter;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsTypeDAO.SearchHitReader;
 import org.eclipse.kapua.service.datastore.internal.model.MessageListResultImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricAggregationResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationResult;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.metrics.percentiles.Percentiles;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.joda.time.ReadableInstant;
 
 /**
  * Message DAO
@@ -108,6 +119,19 @@ public class EsMessageDAO {
         return this;
     }
 
+    /**
+     * Set many index names (for the query, count and delete by query actions).<br>
+     * The missing indexes are ignored.
+     *
+     * @param indexNames
+     * @return
+     * @since 1.0.0
+     */
+    public EsMessageDAO index(String[] indexNames) {
+        this.esTypeDAO.type(indexNames, EsSchema.MESSAGE_TYPE_NAME);
+        return this;
+    }
+
     /**
      * Build the upsert request
      *
@@ -132,6 +156,30 @@ public class EsMessageDAO {
         return this.esTypeDAO.upsert(id, esClient);
     }
 
+    /**
+     * Build the upsert request of the document source
+     *
+     * @param id
+     * @param source
+     * @return
+     * @since 1.0.0
+     */
+    public UpdateRequest getUpsertRequest(String id, BytesReference source) {
+        return this.esTypeDAO.getUpsertRequest(id, source);
+    }
+
+    /**
+     * Upsert action of the document source (insert the document (if not present) or update the document (if present) into the database)
+     *
+     * @param id
+     * @param source
+     * @return
+     * @since 1.0.0
+     */
+    public UpdateResponse upsert(String id, BytesReference source) {
+        return this.esTypeDAO.upsert(id, source);
+    }
+
     /**
      * Delete query action (delete documents from the database)
      *
@@ -163,7 +211,9 @@ public class EsMessageDAO {
         localQuery.setLimit(query.getLimit() + 1);
 
         MessageQueryConverter converter = new MessageQueryConverter();
-        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), localQuery);
+        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexNames(), esTypeDAO.getTypeName(), localQuery);
+        if (esTypeDAO.getIndicesOptions() != null)
+            builder.setIndicesOptions(esTypeDAO.getIndicesOptions());
         SearchResponse response = builder.get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
         SearchHits searchHits = response.getHits();
 
@@ -205,6 +255,101 @@ public class EsMessageDAO {
         return result;
     }
 
+    /**
+     * Scroll query action (return the first page of the objects matching the given query, the page size is the query limit).<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @throws EsObjectBuilderException
+     * @since 1.0.0
+     */
+    public MessageListResult scroll(MessageQuery query)
+            throws EsQueryConversionException,
+            EsClientUnavailableException,
+            EsObjectBuilderException {
+        MessageQueryConverter converter = new MessageQueryConverter();
+        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexNames(), esTypeDAO.getTypeName(), query);
+        return esTypeDAO.scroll(builder, query, newSearchHitReader(query.getFetchStyle()), MessageListResultImpl::new);
+    }
+
+    /**
+     * Scroll query action (return the next page of a scroll query).<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param scrollId
+     * @param limit
+     *            the page size
+     * @param fetchStyle
+     * @return
+     * @throws EsObjectBuilderException
+     * @since 1.0.0
+     */
+    public MessageListResult scroll(String scrollId, int limit, StorableFetchStyle fetchStyle)
+            throws EsObjectBuilderException {
+        return esTypeDAO.scroll(scrollId, limit, newSearchHitReader(fetchStyle), MessageListResultImpl::new);
+    }
+
+    /**
+     * Release a scroll query
+     *
+     * @param scrollId
+     * @since 1.0.0
+     */
+    public void clearScroll(String scrollId) {
+        esTypeDAO.clearScroll(scrollId);
+    }
+
+    private static SearchHitReader<DatastoreMessage> newSearchHitReader(StorableFetchStyle fetchStyle) {
+        MessageObjectBuilder objectBuilder = new MessageObjectBuilder();
+        return searchHit -> objectBuilder.build(searchHit, fetchStyle).getMessage();
+    }
+
+    /**
+     * Metric aggregation action (the aggregation is computed by Elasticsearch, no message is fetched)
+     *
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @since 1.0.0
+     */
+    public MetricAggregationResult aggregate(MetricAggregationQuery query)
+            throws EsQueryConversionException,
+            EsClientUnavailableException {
+        MetricAggregationQueryConverter converter = new MetricAggregationQueryConverter();
+        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexNames(), esTypeDAO.getTypeName(), query);
+        if (esTypeDAO.getIndicesOptions() != null)
+            builder.setIndicesOptions(esTypeDAO.getIndicesOptions());
+        SearchResponse response = builder.get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+
+        Histogram histogram = response.getAggregations() != null ? response.getAggregations().get(MetricAggregationQueryConverter.HISTOGRAM_AGGREGATION) : null;
+        if (histogram == null)
+            return new MetricAggregationResultImpl(0, query.getPercentiles());
+
+        List<? extends Histogram.Bucket> buckets = histogram.getBuckets();
+        double[] percentiles = query.getPercentiles();
+        MetricAggregationResultImpl result = new MetricAggregationResultImpl(buckets.size(), percentiles);
+        int index = 0;
+        for (Histogram.Bucket bucket : buckets) {
+            Object key = bucket.getKey();
+            long timestamp = key instanceof ReadableInstant ? ((ReadableInstant) key).getMillis() : ((Number) key).longValue();
+
+            Stats stats = bucket.getAggregations().get(MetricAggregationQueryConverter.STATS_AGGREGATION);
+            result.setBucket(index, timestamp, stats.getCount(), stats.getMin(), stats.getMax(), stats.getAvg(), stats.getSum());
+            if (percentiles.length > 0 && stats.getCount() > 0) {
+                Percentiles bucketPercentiles = bucket.getAggregations().get(MetricAggregationQueryConverter.PERCENTILES_AGGREGATION);
+                for (int i = 0; i < percentiles.length; i++) {
+                    result.setPercentileValue(i, index, bucketPercentiles.percentile(percentiles[i]));
+                }
+            }
+            index++;
+        }
+        return result;
+    }
+
     /**
      * Query count action (return the count of the objects matching the given query)
      *
@@ -218,7 +363,9 @@ public class EsMessageDAO {
             throws EsQueryConversionException,
             EsClientUnavailableException {
         MessageQueryConverter converter = new MessageQueryConverter();
-        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
+        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexNames(), esTypeDAO.getTypeName(), query);
+        if (esTypeDAO.getIndicesOptions() != null)
+            builder.setIndicesOptions(esTypeDAO.getIndicesOptions());
         SearchResponse response = builder.get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
         SearchHits searchHits = response.getHits();
 
@@ -27,6 +27,7 @@ import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricInfoQuer
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricInfoXContentBuilder;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricXContentBuilder;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.PredicateConverter;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.dao.EsTypeDAO.SearchHitReader;
 import org.eclipse.kapua.service.datastore.internal.model.MetricInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.MetricInfoListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
@@ -303,6 +304,57 @@ public class EsMetricInfoDAO {
         return result;
     }
 
+    /**
+     * Scroll query action (return the first page of the objects matching the given query, the page size is the query limit).<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param query
+     * @return
+     * @throws EsQueryConversionException
+     * @throws EsClientUnavailableException
+     * @throws EsObjectBuilderException
+     * @since 1.0.0
+     */
+    public MetricInfoListResult scroll(MetricInfoQuery query)
+            throws EsQueryConversionException,
+            EsClientUnavailableException,
+            EsObjectBuilderException {
+        MetricInfoQueryConverter converter = new MetricInfoQueryConverter();
+        SearchRequestBuilder builder = converter.toSearchRequestBuilder(esTypeDAO.getIndexName(), esTypeDAO.getTypeName(), query);
+        return esTypeDAO.scroll(builder, query, newSearchHitReader(), MetricInfoListResultImpl::new);
+    }
+
+    /**
+     * Scroll query action (return the next page of a scroll query).<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param scrollId
+     * @param limit
+     *            the page size
+     * @return
+     * @throws EsObjectBuilderException
+     * @since 1.0.0
+     */
+    public MetricInfoListResult scroll(String scrollId, int limit)
+            throws EsObjectBuilderException {
+        return esTypeDAO.scroll(scrollId, limit, newSearchHitReader(), MetricInfoListResultImpl::new);
+    }
+
+    /**
+     * Release a scroll query
+     *
+     * @param scrollId
+     * @since 1.0.0
+     */
+    public void clearScroll(String scrollId) {
+        esTypeDAO.clearScroll(scrollId);
+    }
+
+    private static SearchHitReader<MetricInfo> newSearchHitReader() {
+        MetricInfoObjectBuilder objectBuilder = new MetricInfoObjectBuilder();
+        return searchHit -> objectBuilder.build(searchHit).getKapuaMetricInfo();
+    }
+
     /**
      * Query count action (return the count of the objects matching the given query)
      *
@@ -11,21 +11,33 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal.elasticsearch.dao;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsDatastoreException;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsObjectBuilderException;
 import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.model.Storable;
+import org.eclipse.kapua.service.datastore.model.StorableListResult;
+import org.eclipse.kapua.service.datastore.model.query.StorableQuery;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.sort.SortOrder;
 
 /**
@@ -41,6 +53,8 @@ public class EsTypeDAO {
     private Client client;
 
     private String indexName;
+    private String[] indexNames;
+    private IndicesOptions indicesOptions;
     private String typeName;
     private EsDaoListener eventListener;
 
@@ -56,6 +70,14 @@ public class EsTypeDAO {
         return indexName;
     }
 
+    protected String[] getIndexNames() {
+        return indexNames;
+    }
+
+    protected IndicesOptions getIndicesOptions() {
+        return indicesOptions;
+    }
+
     protected String getTypeName() {
         return typeName;
     }
@@ -101,6 +123,24 @@ public class EsTypeDAO {
      */
     public EsTypeDAO type(String indexName, String typeName) {
         this.indexName = indexName;
+        this.indexNames = new String[] { indexName };
+        this.indicesOptions = null;
+        this.typeName = typeName;
+        return this;
+    }
+
+    /**
+     * Set the DAO type by many index names (for the search and delete by query actions) and type name (schema).<br>
+     * The missing indexes are ignored.
+     *
+     * @param indexNames
+     * @param typeName
+     * @return
+     */
+    public EsTypeDAO type(String[] indexNames, String typeName) {
+        this.indexName = null;
+        this.indexNames = indexNames;
+        this.indicesOptions = IndicesOptions.lenientExpandOpen();
         this.typeName = typeName;
         return this;
     }
@@ -177,6 +217,35 @@ public class EsTypeDAO {
         return response;
     }
 
+    /**
+     * Build the upsert request of the document source
+     *
+     * @param id
+     * @param source
+     * @return
+     */
+    public UpdateRequest getUpsertRequest(String id, BytesReference source) {
+        if (this.client == null)
+            throw new IllegalStateException(CLIENT_UNDEFINED_MSG);
+
+        IndexRequest idxRequest = new IndexRequest(this.indexName, this.typeName, id).source(source);
+        UpdateRequest updRequest = new UpdateRequest(this.indexName, this.typeName, id).doc(new IndexRequest().source(source));
+        updRequest.upsert(idxRequest);
+        return updRequest;
+    }
+
+    /**
+     * Upsert action of the document source (insert the document (if not present) or update the document (if present) into the database)
+     *
+     * @param id
+     * @param source
+     * @return
+     */
+    public UpdateResponse upsert(String id, BytesReference source) {
+        long timeout = EsUtils.getQueryTimeout();
+        return this.client.update(getUpsertRequest(id, source)).actionGet(TimeValue.timeValueMillis(timeout));
+    }
+
     /**
      * Delete query action (delete documents from the database)
      *
@@ -187,7 +256,10 @@ public class EsTypeDAO {
         TimeValue scrollTimeout = TimeValue.timeValueMillis(EsUtils.getScrollTimeout());
 
         // delete by query API is deprecated, scroll with bulk delete must be used
-        SearchResponse scrollResponse = this.client.prepareSearch(this.getIndexName())
+        SearchRequestBuilder searchRequestBuilder = this.client.prepareSearch(this.getIndexNames());
+        if (this.getIndicesOptions() != null)
+            searchRequestBuilder.setIndicesOptions(this.getIndicesOptions());
+        SearchResponse scrollResponse = searchRequestBuilder
                 .setTypes(this.getTypeName())
                 .setFetchSource(false)
                 .addSort("_doc", SortOrder.ASC)
@@ -226,6 +298,108 @@ public class EsTypeDAO {
         }
     }
 
+    /**
+     * Start a scroll search of the given query (the first page is returned, the page size is the query limit).<br>
+     * If the query is not sorted the documents are returned in index order (the cheapest scroll order).<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param searchRequestBuilder
+     *            the search of the query
+     * @param query
+     * @param searchHitReader
+     *            the reader of the objects from the search hits
+     * @param listResultFactory
+     *            the list result constructor (next key, total count)
+     * @return
+     * @throws EsObjectBuilderException
+     */
+    public <E extends Storable, L extends StorableListResult<E>> L scroll(SearchRequestBuilder searchRequestBuilder,
+            StorableQuery<E> query,
+            SearchHitReader<E> searchHitReader,
+            BiFunction<Object, Long, L> listResultFactory)
+            throws EsObjectBuilderException {
+        if (this.client == null)
+            throw new IllegalStateException(CLIENT_UNDEFINED_MSG);
+
+        if (this.getIndicesOptions() != null)
+            searchRequestBuilder.setIndicesOptions(this.getIndicesOptions());
+        if (query.getSortFields() == null || query.getSortFields().isEmpty())
+            searchRequestBuilder.addSort("_doc", SortOrder.ASC);
+
+        SearchResponse response = searchRequestBuilder
+                .setFrom(0)
+                .setScroll(TimeValue.timeValueMillis(EsUtils.getScrollTimeout()))
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+        return toScrollResult(response, query.getLimit(), searchHitReader, listResultFactory);
+    }
+
+    /**
+     * Get the next page of a scroll search.<br>
+     * The result next key is the scroll id, or {@code null} if there are no more pages (the scroll is already released).
+     *
+     * @param scrollId
+     * @param limit
+     *            the page size
+     * @param searchHitReader
+     *            the reader of the objects from the search hits
+     * @param listResultFactory
+     *            the list result constructor (next key, total count)
+     * @return
+     * @throws EsObjectBuilderException
+     */
+    public <E extends Storable, L extends StorableListResult<E>> L scroll(String scrollId,
+            int limit,
+            SearchHitReader<E> searchHitReader,
+            BiFunction<Object, Long, L> listResultFactory)
+            throws EsObjectBuilderException {
+        if (this.client == null)
+            throw new IllegalStateException(CLIENT_UNDEFINED_MSG);
+
+        SearchResponse response = this.client.prepareSearchScroll(scrollId)
+                .setScroll(TimeValue.timeValueMillis(EsUtils.getScrollTimeout()))
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+        return toScrollResult(response, limit, searchHitReader, listResultFactory);
+    }
+
+    /**
+     * Release the resources of a scroll search
+     *
+     * @param scrollId
+     */
+    public void clearScroll(String scrollId) {
+        if (this.client == null)
+            throw new IllegalStateException(CLIENT_UNDEFINED_MSG);
+
+        this.client.prepareClearScroll()
+                .addScrollId(scrollId)
+                .get(TimeValue.timeValueMillis(EsUtils.getQueryTimeout()));
+    }
+
+    private <E extends Storable, L extends StorableListResult<E>> L toScrollResult(SearchResponse response,
+            int limit,
+            SearchHitReader<E> searchHitReader,
+            BiFunction<Object, Long, L> listResultFactory)
+            throws EsObjectBuilderException {
+        SearchHits searchHits = response.getHits();
+
+        List<E> objects = new ArrayList<>(searchHits.getHits().length);
+        for (SearchHit searchHit : searchHits.getHits()) {
+            objects.add(searchHitReader.read(searchHit));
+        }
+
+        String scrollId = response.getScrollId();
+        if (objects.size() < limit) {
+            // last page
+            if (scrollId != null)
+                clearScroll(scrollId);
+            scrollId = null;
+        }
+
+        L result = listResultFactory.apply(scrollId, searchHits.getTotalHits());
+        result.addItems(objects);
+        return result;
+    }
+
     /**
      * Execute bulk request
      *
@@ -241,4 +415,24 @@ public class EsTypeDAO {
         BulkResponse bulkResponse = this.getClient().bulk(bulkRequest).actionGet(timeout);
         return bulkResponse;
     }
+
+    /**
+     * Reader of the objects of a search
+     *
+     * @param <E>
+     *            persisted object type
+     */
+    @FunctionalInterface
+    public interface SearchHitReader<E extends Storable> {
+
+        /**
+         * Read the object of the search hit
+         *
+         * @param searchHit
+         * @return
+         * @throws EsObjectBuilderException
+         */
+        E read(SearchHit searchHit)
+                throws EsObjectBuilderException;
+    }
 }
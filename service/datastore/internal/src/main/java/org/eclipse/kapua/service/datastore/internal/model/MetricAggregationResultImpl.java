@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model;
+
+import java.util.Arrays;
+
+import org.eclipse.kapua.service.datastore.model.MetricAggregationResult;
+
+/**
+ * Metric aggregation result implementation.<br>
+ * The buckets are filled by position (see {@link #setBucket(int, long, long, double, double, double, double)} and {@link #setPercentileValue(int, int, double)}).
+ *
+ * @since 1.0.0
+ */
+public class MetricAggregationResultImpl implements MetricAggregationResult {
+
+    private final long[] timestamps;
+    private final long[] counts;
+    private final double[] min;
+    private final double[] max;
+    private final double[] avg;
+    private final double[] sum;
+    private final double[] percentiles;
+    private final double[][] percentileValues;
+
+    /**
+     * Construct a result with the given number of buckets (all empty)
+     *
+     * @param size
+     *            the number of buckets
+     * @param percentiles
+     *            the computed percentiles
+     */
+    public MetricAggregationResultImpl(int size, double[] percentiles) {
+        timestamps = new long[size];
+        counts = new long[size];
+        min = new double[size];
+        max = new double[size];
+        avg = new double[size];
+        sum = new double[size];
+        this.percentiles = percentiles.clone();
+        percentileValues = new double[percentiles.length][size];
+
+        Arrays.fill(min, Double.NaN);
+        Arrays.fill(max, Double.NaN);
+        Arrays.fill(avg, Double.NaN);
+        for (double[] values : percentileValues) {
+            Arrays.fill(values, Double.NaN);
+        }
+    }
+
+    /**
+     * Set the values of a bucket (the empty buckets only need the timestamp)
+     *
+     * @param index
+     * @param timestamp
+     * @param count
+     * @param min
+     * @param max
+     * @param avg
+     * @param sum
+     */
+    public void setBucket(int index, long timestamp, long count, double min, double max, double avg, double sum) {
+        timestamps[index] = timestamp;
+        counts[index] = count;
+        if (count > 0) {
+            this.min[index] = min;
+            this.max[index] = max;
+            this.avg[index] = avg;
+            this.sum[index] = sum;
+        }
+    }
+
+    /**
+     * Set a percentile value of a bucket
+     *
+     * @param percentileIndex
+     *            the position of the percentile in {@link #getPercentiles()}
+     * @param index
+     * @param value
+     */
+    public void setPercentileValue(int percentileIndex, int index, double value) {
+        percentileValues[percentileIndex][index] = value;
+    }
+
+    @Override
+    public int getSize() {
+        return timestamps.length;
+    }
+
+    @Override
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    @Override
+    public long[] getCounts() {
+        return counts;
+    }
+
+    @Override
+    public double[] getMin() {
+        return min;
+    }
+
+    @Override
+    public double[] getMax() {
+        return max;
+    }
+
+    @Override
+    public double[] getAvg() {
+        return avg;
+    }
+
+    @Override
+    public double[] getSum() {
+        return sum;
+    }
+
+    @Override
+    public double[] getPercentiles() {
+        return percentiles;
+    }
+
+    @Override
+    public double[] getPercentileValues(double percentile) {
+        for (int i = 0; i < percentiles.length; i++) {
+            if (Double.compare(percentiles[i], percentile) == 0) {
+                return percentileValues[i];
+            }
+        }
+        throw new IllegalArgumentException(String.format("Percentile [%s] not computed", percentile));
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.service.datastore.model.Storable;
+import org.eclipse.kapua.service.datastore.model.StorableCursor;
+import org.eclipse.kapua.service.datastore.model.StorableListResult;
+
+/**
+ * Storable cursor implementation.<br>
+ * The pages are read by the cursor mode query of the service (the first page on the first {@link #hasNext()} call) and only the current page is kept.
+ * 
+ * @param <E>
+ *            persisted object type (such as messages, channels information...)
+ * 
+ * @since 1.0.0
+ */
+public class StorableCursorImpl<E extends Storable> implements StorableCursor<E> {
+
+    /**
+     * Page reader (the cursor mode query of the service)
+     *
+     * @param <E>
+     */
+    @FunctionalInterface
+    public interface PageReader<E extends Storable> {
+
+        /**
+         * Read a page
+         * 
+         * @param cursor
+         *            the cursor of the page to read, {@code null} for the first page
+         * @return the page (its next key is the cursor of the next page, or {@code null} if there are no more pages)
+         * @throws KapuaException
+         */
+        StorableListResult<E> read(String cursor)
+                throws KapuaException;
+    }
+
+    /**
+     * Cursor closer (releases a cursor not read until the last page)
+     */
+    @FunctionalInterface
+    public interface CursorCloser {
+
+        /**
+         * Close the cursor
+         * 
+         * @param cursor
+         * @throws KapuaException
+         */
+        void close(String cursor)
+                throws KapuaException;
+    }
+
+    private final PageReader<E> pageReader;
+    private final CursorCloser cursorCloser;
+
+    private Iterator<E> page;
+    private String cursor;
+    private boolean closed;
+
+    /**
+     * Constructor
+     * 
+     * @param pageReader
+     * @param cursorCloser
+     */
+    public StorableCursorImpl(PageReader<E> pageReader, CursorCloser cursorCloser) {
+        this.pageReader = pageReader;
+        this.cursorCloser = cursorCloser;
+    }
+
+    @Override
+    public boolean hasNext()
+            throws KapuaException {
+        while (!closed && (page == null || !page.hasNext())) {
+            if (page != null && cursor == null) {
+                // last page read
+                return false;
+            }
+            StorableListResult<E> result = pageReader.read(cursor);
+            cursor = (String) result.getNextKey();
+            page = result.getItems().iterator();
+        }
+        return !closed;
+    }
+
+    @Override
+    public E next()
+            throws KapuaException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    @Override
+    public void close()
+            throws KapuaException {
+        if (!closed) {
+            closed = true;
+            page = null;
+            if (cursor != null) {
+                String openCursor = cursor;
+                cursor = null;
+                cursorCloser.close(openCursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model.query;
+
+import java.util.Date;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
+
+/**
+ * Metric aggregation query implementation
+ *
+ * @since 1.0.0
+ */
+public class MetricAggregationQueryImpl implements MetricAggregationQuery {
+
+    private static final double[] NO_PERCENTILES = new double[0];
+
+    private KapuaId scopeId;
+    private String clientId;
+    private String channel;
+    private String metricName;
+    private String metricType;
+    private Date from;
+    private Date to;
+    private long interval;
+    private double[] percentiles = NO_PERCENTILES;
+
+    /**
+     * Constructor.
+     *
+     * @param scopeId
+     *
+     * @since 1.0.0
+     */
+    public MetricAggregationQueryImpl(KapuaId scopeId) {
+        this.scopeId = scopeId;
+    }
+
+    @Override
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    @Override
+    public String getClientId() {
+        return clientId;
+    }
+
+    @Override
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    @Override
+    public String getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public String getMetricName() {
+        return metricName;
+    }
+
+    @Override
+    public void setMetricName(String metricName) {
+        this.metricName = metricName;
+    }
+
+    @Override
+    public String getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public void setMetricType(String metricType) {
+        this.metricType = metricType;
+    }
+
+    @Override
+    public Date getFrom() {
+        return from;
+    }
+
+    @Override
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    @Override
+    public Date getTo() {
+        return to;
+    }
+
+    @Override
+    public void setTo(Date to) {
+        this.to = to;
+    }
+
+    @Override
+    public long getInterval() {
+        return interval;
+    }
+
+    @Override
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    public double[] getPercentiles() {
+        return percentiles;
+    }
+
+    @Override
+    public void setPercentiles(double... percentiles) {
+        this.percentiles = percentiles != null ? percentiles : NO_PERCENTILES;
+    }
+}
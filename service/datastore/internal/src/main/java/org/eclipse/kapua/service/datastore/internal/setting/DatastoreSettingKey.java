@@ -55,6 +55,10 @@ public enum DatastoreSettingKey implements SettingKey
      * Elasticsearch index refresh interval (the data is available for a search operation only if it is indexed)
      */
     ELASTICSEARCH_IDX_REFRESH_INTERVAL("datastore.elasticsearch.index.refresh_interval"),
+    /**
+     * Elasticsearch message document content type (json or smile)
+     */
+    ELASTICSEARCH_MESSAGE_CONTENT_TYPE("datastore.elasticsearch.message.content_type"),
 
     /**
      * Local cache expire time
@@ -64,6 +68,18 @@ public enum DatastoreSettingKey implements SettingKey
      * Local cache maximum size
      */
     CONFIG_CACHE_LOCAL_SIZE_MAXIMUM("datastore.cache.local.size.maximum"),
+    /**
+     * Message store configuration and account information cache expire time
+     */
+    CONFIG_CACHE_CONFIGURATION_EXPIRE_AFTER("datastore.cache.configuration.expire.after"),
+    /**
+     * Message store configuration and account information cache maximum size
+     */
+    CONFIG_CACHE_CONFIGURATION_SIZE_MAXIMUM("datastore.cache.configuration.size.maximum"),
+    /**
+     * Maximum number of normalized metric names cached by the message document builder
+     */
+    CONFIG_CACHE_METRIC_NAMES_SIZE_MAXIMUM("datastore.cache.metric.names.size.maximum"),
     /**
      * Enable datastore timing profile
      */
@@ -71,7 +87,87 @@ public enum DatastoreSettingKey implements SettingKey
     /**
      * Datastore timing profile threshold
      */
-    CONFIG_DATA_STORAGE_TIMING_PROFILE_THRESHOLD("datastore.timingProfileThreshold");
+    CONFIG_DATA_STORAGE_TIMING_PROFILE_THRESHOLD("datastore.timingProfileThreshold"),
+
+    /**
+     * Enable the asynchronous bulk indexing of the messages
+     */
+    CONFIG_BULK_ENABLE("datastore.bulk.enable"),
+    /**
+     * Maximum number of messages waiting to be indexed (when the queue is full the store operation is rejected)
+     */
+    CONFIG_BULK_QUEUE_SIZE_MAXIMUM("datastore.bulk.queue.size.maximum"),
+    /**
+     * Maximum time (in milliseconds) a store operation waits for room in the bulk queue
+     */
+    CONFIG_BULK_QUEUE_OFFER_TIMEOUT("datastore.bulk.queue.offer.timeout"),
+    /**
+     * Maximum number of messages grouped in a single bulk request
+     */
+    CONFIG_BULK_ACTIONS_MAXIMUM("datastore.bulk.actions.maximum"),
+    /**
+     * Maximum size (in bytes) of the messages grouped in a single bulk request
+     */
+    CONFIG_BULK_SIZE_MAXIMUM("datastore.bulk.size.maximum"),
+    /**
+     * Maximum time (in milliseconds) a bulk request waits for more messages before being flushed
+     */
+    CONFIG_BULK_LINGER("datastore.bulk.linger"),
+    /**
+     * Number of threads flushing the bulk requests
+     */
+    CONFIG_BULK_FLUSHER_THREADS("datastore.bulk.flusher.threads"),
+
+    /**
+     * Enable the deferred registration of the client, channel and metric informations
+     */
+    CONFIG_METADATA_ASYNC_ENABLE("datastore.metadata.async.enable"),
+    /**
+     * Maximum number of metadata waiting to be registered (when reached the flusher thread is signaled and the new metadata are not collected)
+     */
+    CONFIG_METADATA_ASYNC_PENDING_MAXIMUM("datastore.metadata.async.pending.maximum"),
+    /**
+     * Maximum number of metadata grouped in a single bulk request
+     */
+    CONFIG_METADATA_ASYNC_ACTIONS_MAXIMUM("datastore.metadata.async.actions.maximum"),
+    /**
+     * Time (in milliseconds) between two registrations of the pending metadata
+     */
+    CONFIG_METADATA_ASYNC_FLUSH_INTERVAL("datastore.metadata.async.flush.interval"),
+
+    /**
+     * Enable the creation of the next period data indexes before the rollover
+     */
+    CONFIG_INDEX_PRECREATE_ENABLE("datastore.index.precreate.enable"),
+    /**
+     * Time (in seconds) between two checks of the next period data indexes
+     */
+    CONFIG_INDEX_PRECREATE_INTERVAL("datastore.index.precreate.interval"),
+    /**
+     * Time (in seconds) before the rollover from which the next period data indexes are created
+     */
+    CONFIG_INDEX_PRECREATE_LEAD_TIME("datastore.index.precreate.lead.time"),
+
+    /**
+     * Enable the resolution of the data indexes covering the time range of the message queries (instead of querying all the scope data indexes)
+     */
+    CONFIG_INDEX_PRUNING_ENABLE("datastore.index.pruning.enable"),
+    /**
+     * Maximum time range (in days) of the message queries resolved to the covering data indexes (the longer ranges query all the scope data indexes)
+     */
+    CONFIG_INDEX_PRUNING_RANGE_MAXIMUM("datastore.index.pruning.range.maximum"),
+    /**
+     * Expire timeout (in seconds) of the cached list of the existing data indexes of a scope
+     */
+    CONFIG_INDEX_LIST_CACHE_EXPIRE_AFTER("datastore.index.list.cache.expire.after"),
+    /**
+     * Maximum number of time buckets of the metric aggregation queries
+     */
+    CONFIG_AGGREGATION_BUCKETS_MAXIMUM("datastore.aggregation.buckets.maximum"),
+    /**
+     * Key signing the cursors of the cursor mode queries (a random key of the node if empty)
+     */
+    CURSOR_SIGNING_KEY("datastore.cursor.signing.key");
 
     private String key;
 
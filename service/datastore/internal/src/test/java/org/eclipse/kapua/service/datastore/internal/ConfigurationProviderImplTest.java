@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.config.KapuaConfigurableService;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageInfo;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageStoreConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigurationProviderImplTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+
+    private final AtomicInteger configurationLoads = new AtomicInteger();
+    private final AtomicInteger accountLoads = new AtomicInteger();
+    private volatile CountDownLatch configurationLoading;
+    private volatile CountDownLatch configurationReleased;
+    private volatile boolean missingAccount;
+
+    private ConfigurationProviderImpl configurationProvider;
+
+    @Before
+    public void setUp() {
+        configurationProvider = new ConfigurationProviderImpl(newConfigurableService(), newAccountService());
+    }
+
+    @Test
+    public void testConfigurationCached() throws Exception {
+        MessageStoreConfiguration configuration = configurationProvider.getConfiguration(SCOPE_ID);
+
+        assertSame(configuration, configurationProvider.getConfiguration(SCOPE_ID));
+        assertEquals(1, configurationLoads.get());
+
+        // other scope
+        configurationProvider.getConfiguration(new KapuaEid(BigInteger.TEN));
+        assertEquals(2, configurationLoads.get());
+    }
+
+    @Test
+    public void testInfoCached() throws Exception {
+        MessageInfo info = configurationProvider.getInfo(SCOPE_ID);
+
+        assertSame(info, configurationProvider.getInfo(SCOPE_ID));
+        assertEquals(1, accountLoads.get());
+    }
+
+    @Test
+    public void testMissingAccountNotCached() throws Exception {
+        missingAccount = true;
+        assertNull(configurationProvider.getInfo(SCOPE_ID).getAccount());
+        assertNull(configurationProvider.getInfo(SCOPE_ID).getAccount());
+        assertEquals(2, accountLoads.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        MessageStoreConfiguration configuration = configurationProvider.getConfiguration(SCOPE_ID);
+        MessageInfo info = configurationProvider.getInfo(SCOPE_ID);
+
+        configurationProvider.invalidate(SCOPE_ID);
+
+        assertNotSame(configuration, configurationProvider.getConfiguration(SCOPE_ID));
+        assertNotSame(info, configurationProvider.getInfo(SCOPE_ID));
+        assertEquals(2, configurationLoads.get());
+        assertEquals(2, accountLoads.get());
+    }
+
+    @Test
+    public void testAccountChangeInvalidates() throws Exception {
+        MessageInfo info = configurationProvider.getInfo(SCOPE_ID);
+
+        configurationProvider.onEntityChange("other", null, SCOPE_ID);
+        assertSame(info, configurationProvider.getInfo(SCOPE_ID));
+
+        configurationProvider.onEntityChange(Account.TYPE, null, SCOPE_ID);
+        assertNotSame(info, configurationProvider.getInfo(SCOPE_ID));
+    }
+
+    @Test
+    public void testInvalidationDuringLoad() throws Exception {
+        configurationLoading = new CountDownLatch(1);
+        configurationReleased = new CountDownLatch(1);
+
+        CompletableFuture<MessageStoreConfiguration> loaded = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                loaded.complete(configurationProvider.getConfiguration(SCOPE_ID));
+            } catch (Exception e) {
+                loaded.completeExceptionally(e);
+            }
+        }).start();
+
+        // the configuration is changed while the previous one is loaded
+        assertTrue(configurationLoading.await(10, TimeUnit.SECONDS));
+        configurationProvider.invalidate(SCOPE_ID);
+        configurationLoading = null;
+        configurationReleased.countDown();
+        MessageStoreConfiguration staleConfiguration = loaded.get(10, TimeUnit.SECONDS);
+
+        // the stale configuration is not cached
+        MessageStoreConfiguration configuration = configurationProvider.getConfiguration(SCOPE_ID);
+        assertNotSame(staleConfiguration, configuration);
+        assertEquals(2, configurationLoads.get());
+        assertSame(configuration, configurationProvider.getConfiguration(SCOPE_ID));
+    }
+
+    private KapuaConfigurableService newConfigurableService() {
+        return (KapuaConfigurableService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { KapuaConfigurableService.class }, (proxy, method, args) -> {
+            if (!"getConfigValues".equals(method.getName())) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            configurationLoads.incrementAndGet();
+            CountDownLatch loading = configurationLoading;
+            if (loading != null) {
+                loading.countDown();
+                configurationReleased.await(10, TimeUnit.SECONDS);
+            }
+            Map<String, Object> values = new HashMap<>();
+            values.put(MessageStoreConfiguration.CONFIGURATION_DATA_STORAGE_ENABLED_KEY, "true");
+            return values;
+        });
+    }
+
+    private AccountService newAccountService() {
+        return (AccountService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { AccountService.class }, (proxy, method, args) -> {
+            if (!"find".equals(method.getName()) || args.length != 1) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            accountLoads.incrementAndGet();
+            return missingAccount ? null : newAccount();
+        });
+    }
+
+    private Account newAccount() {
+        return (Account) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Account.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "getId":
+                return SCOPE_ID;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "account";
+            default:
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Date;
+
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MessageField;
+import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.RangePredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.TermPredicateImpl;
+import org.eclipse.kapua.service.datastore.model.query.StorablePredicate;
+import org.junit.Test;
+
+public class MessageStoreFacadeTest {
+
+    private static final long NOW = 1_000_000_000L;
+
+    @Test
+    public void testUnboundedRange() {
+        assertRange(Long.MIN_VALUE, NOW, null, false);
+        assertRange(Long.MIN_VALUE, Long.MAX_VALUE, null, true);
+        assertRange(Long.MIN_VALUE, NOW, new TermPredicateImpl(MessageField.CLIENT_ID, "client"), false);
+    }
+
+    @Test
+    public void testBoundedRange() {
+        assertRange(100, 200, new RangePredicateImpl(MessageField.TIMESTAMP, new Date(100), new Date(200)), false);
+        assertRange(100, 200, new RangePredicateImpl(MessageField.TIMESTAMP, 100L, 200L), true);
+    }
+
+    @Test
+    public void testOpenEndedRange() {
+        // the messages indexed by server timestamp cannot be in the future
+        assertRange(100, NOW, new RangePredicateImpl(MessageField.TIMESTAMP, new Date(100), null), false);
+        assertRange(Long.MIN_VALUE, 200, new RangePredicateImpl(MessageField.TIMESTAMP, null, new Date(200)), false);
+
+        // the messages indexed by device timestamp may be
+        assertRange(100, Long.MAX_VALUE, new RangePredicateImpl(MessageField.CAPTURED_ON, new Date(100), null), true);
+        assertRange(Long.MIN_VALUE, 200, new RangePredicateImpl(MessageField.CAPTURED_ON, null, new Date(200)), true);
+    }
+
+    @Test
+    public void testIndexedOnField() {
+        // the captured on bounds the range only if the messages are indexed by device timestamp
+        RangePredicateImpl capturedOn = new RangePredicateImpl(MessageField.CAPTURED_ON, new Date(100), new Date(200));
+        assertRange(Long.MIN_VALUE, NOW, capturedOn, false);
+        assertRange(100, 200, capturedOn, true);
+
+        // other date fields never bound the range
+        assertRange(Long.MIN_VALUE, Long.MAX_VALUE, new RangePredicateImpl(MessageField.RECEIVED_ON, new Date(100), new Date(200)), true);
+    }
+
+    @Test
+    public void testNestedAndRange() {
+        AndPredicateImpl nested = new AndPredicateImpl();
+        nested.addPredicate(new TermPredicateImpl(MessageField.CLIENT_ID, "client"));
+        nested.addPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(100), new Date(300)));
+
+        AndPredicateImpl and = new AndPredicateImpl();
+        and.addPredicate(nested);
+        and.addPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(200), new Date(400)));
+        // intersection of the ranges
+        assertRange(200, 300, and, false);
+
+        // disjoint ranges (the caller returns an empty result)
+        and.addPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(500), null));
+        assertRange(500, 300, and, false);
+    }
+
+    private static void assertRange(long from, long to, StorablePredicate predicate, boolean indexedByDevice) {
+        assertArrayEquals(new long[] { from, to }, MessageStoreFacade.getIndexedOnRange(predicate, indexedByDevice, NOW));
+    }
+}
@@ -72,6 +72,7 @@ import org.eclipse.kapua.service.datastore.model.ClientInfo;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricAggregationResult;
 import org.eclipse.kapua.service.datastore.model.MetricInfo;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.StorableId;
@@ -81,6 +82,7 @@ import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.ChannelMatchPredicate;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricAggregationQuery;
 import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.RangePredicate;
 import org.eclipse.kapua.service.datastore.model.query.SortDirection;
@@ -857,6 +859,61 @@ public class MessageStoreServiceTest extends AbstractMessageStoreServiceTest
         checkListOrder(metricList, sort);
     }
 
+    /**
+     * Check the metric aggregation by time buckets (count, min, max, avg, sum and percentiles of the metric values)
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMetricAggregation()
+        throws Exception
+    {
+        Account account = getTestAccountCreator(adminScopeId);
+        String clientId = String.format("device-%d", new Date().getTime());
+        DeviceCreator deviceCreator = deviceFactory.newCreator(account.getId(), clientId);
+        Device device = deviceRegistryService.create(deviceCreator);
+        String metric = "aggr_metric";
+        String semanticTopic = "aggr/1/2";
+
+        // 2 one minute buckets (the buckets start at the multiples of the interval)
+        long interval = 60000;
+        long bucketStart = (new Date().getTime() / interval - 10) * interval;
+        long[] capturedOn = new long[] { bucketStart + 1000, bucketStart + 2000, bucketStart + 3000, bucketStart + interval + 1000, bucketStart + interval + 2000 };
+        double[] values = new double[] { 1d, 2d, 3d, 10d, 20d };
+
+        // the messages are indexed by the captured on timestamp
+        updateConfiguration(messageStoreService, account.getId(), DataIndexBy.DEVICE_TIMESTAMP, MetricsIndexBy.TIMESTAMP, 30, true);
+        for (int i = 0; i < capturedOn.length; i++) {
+            KapuaDataMessage message = getMessage(clientId, account.getId(), device.getId(), new Date(), new Date(capturedOn[i]), new Date());
+            updateChannel(message, semanticTopic);
+            initMetrics(message);
+            message.getPayload().getProperties().put(metric, values[i]);
+            insertMessages(false, message);
+        }
+        waitEsRefresh();
+
+        MetricAggregationQuery query = datastoreObjectFactory.newMetricAggregationQuery(account.getId());
+        query.setClientId(clientId);
+        query.setChannel("aggr/#");
+        query.setMetricName(metric);
+        query.setMetricType("double");
+        query.setFrom(new Date(bucketStart));
+        query.setTo(new Date(bucketStart + 2 * interval - 1));
+        query.setInterval(interval);
+        query.setPercentiles(50);
+
+        MetricAggregationResult result = messageStoreService.aggregate(query);
+        assertEquals(2, result.getSize());
+        assertArrayEquals(new long[] { bucketStart, bucketStart + interval }, result.getTimestamps());
+        assertArrayEquals(new long[] { 3, 2 }, result.getCounts());
+        assertArrayEquals(new double[] { 1d, 10d }, result.getMin(), 0.0001);
+        assertArrayEquals(new double[] { 3d, 20d }, result.getMax(), 0.0001);
+        assertArrayEquals(new double[] { 2d, 15d }, result.getAvg(), 0.0001);
+        assertArrayEquals(new double[] { 6d, 30d }, result.getSum(), 0.0001);
+        assertEquals(2, result.getPercentileValues(50).length);
+        assertEquals(2d, result.getPercentileValues(50)[0], 0.0001);
+    }
+
     @Test
     /**
      * Check the correctness of the client info data stored by retrieving the client information by account.
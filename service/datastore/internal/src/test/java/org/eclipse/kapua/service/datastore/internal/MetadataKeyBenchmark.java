@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.ChannelInfoXContentBuilder;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.ClientInfoXContentBuilder;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsUtils;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.MetricInfoXContentBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of the metadata registration checks done for every stored message once the client, the channel and the metrics are already registered
+ * (the steady state of the message store).<br>
+ * It compares the lookup of the metadata caches by document identifier (SHA-256 digest of the concatenated fields, Base64 encoded - previous behavior)
+ * with the lookup by {@link MetadataKey}, for messages with 1, 50 and 500 metrics.
+ * <p>
+ * Run it with: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.kapua.service.datastore.internal.MetadataKeyBenchmark}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataKeyBenchmark {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.valueOf(1234567890L));
+    private static final String CLIENT_ID = "gateway-1";
+    private static final String CHANNEL = "heater/data/telemetry";
+
+    @Param({ "1", "50", "500" })
+    private int metricsCount;
+
+    private String[] metricNames;
+    private String[] metricTypes;
+
+    private LocalCache<String, Boolean> clientsIdCache;
+    private LocalCache<String, Boolean> channelsIdCache;
+    private LocalCache<String, Boolean> metricsIdCache;
+
+    private LocalCache<MetadataKey, Boolean> clientsKeyCache;
+    private LocalCache<MetadataKey, Boolean> channelsKeyCache;
+    private LocalCache<MetadataKey, Boolean> metricsKeyCache;
+
+    @Setup
+    public void setup() throws Exception {
+        metricNames = new String[metricsCount];
+        metricTypes = new String[metricsCount];
+        for (int i = 0; i < metricsCount; i++) {
+            metricNames[i] = "sensor.temperature_" + i;
+            metricTypes[i] = i % 2 == 0 ? EsUtils.ES_TYPE_DOUBLE : EsUtils.ES_TYPE_INTEGER;
+        }
+
+        clientsIdCache = new LocalCache<>(10000, 3600, false);
+        channelsIdCache = new LocalCache<>(10000, 3600, false);
+        metricsIdCache = new LocalCache<>(10000, 3600, false);
+        clientsKeyCache = new LocalCache<>(10000, 3600, false);
+        channelsKeyCache = new LocalCache<>(10000, 3600, false);
+        metricsKeyCache = new LocalCache<>(10000, 3600, false);
+
+        clientsIdCache.put(ClientInfoXContentBuilder.getOrDeriveId(null, SCOPE_ID, CLIENT_ID), true);
+        channelsIdCache.put(ChannelInfoXContentBuilder.getOrDeriveId(null, SCOPE_ID, CLIENT_ID, CHANNEL), true);
+        clientsKeyCache.put(MetadataKey.ofClient(SCOPE_ID, CLIENT_ID), true);
+        channelsKeyCache.put(MetadataKey.ofChannel(SCOPE_ID, CLIENT_ID, CHANNEL), true);
+        for (int i = 0; i < metricsCount; i++) {
+            metricsIdCache.put(MetricInfoXContentBuilder.getOrDeriveId(null, SCOPE_ID, CLIENT_ID, CHANNEL, metricNames[i], metricTypes[i]), true);
+            metricsKeyCache.put(MetadataKey.ofMetric(SCOPE_ID, CLIENT_ID, CHANNEL, metricNames[i], metricTypes[i]), true);
+        }
+    }
+
+    @Benchmark
+    public int documentId() throws Exception {
+        int registered = 0;
+        if (clientsIdCache.get(ClientInfoXContentBuilder.getOrDeriveId(null, SCOPE_ID, CLIENT_ID))) {
+            registered++;
+        }
+        if (channelsIdCache.get(ChannelInfoXContentBuilder.getOrDeriveId(null, SCOPE_ID, CLIENT_ID, CHANNEL))) {
+            registered++;
+        }
+        for (int i = 0; i < metricsCount; i++) {
+            if (metricsIdCache.get(MetricInfoXContentBuilder.getOrDeriveId(null, SCOPE_ID, CLIENT_ID, CHANNEL, metricNames[i], metricTypes[i]))) {
+                registered++;
+            }
+        }
+        return registered;
+    }
+
+    @Benchmark
+    public int metadataKey() {
+        int registered = 0;
+        if (clientsKeyCache.get(MetadataKey.ofClient(SCOPE_ID, CLIENT_ID))) {
+            registered++;
+        }
+        if (channelsKeyCache.get(MetadataKey.ofChannel(SCOPE_ID, CLIENT_ID, CHANNEL))) {
+            registered++;
+        }
+        for (int i = 0; i < metricsCount; i++) {
+            if (metricsKeyCache.get(MetadataKey.ofMetric(SCOPE_ID, CLIENT_ID, CHANNEL, metricNames[i], metricTypes[i]))) {
+                registered++;
+            }
+        }
+        return registered;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MetadataKeyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.math.BigInteger;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.junit.Test;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+public class MetadataKeyTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+
+    @Test
+    public void testMurmur3Key() {
+        HashCode expected = Hashing.murmur3_128().newHasher()
+                .putByte((byte) 1)
+                .putInt(SCOPE_ID.getId().bitLength())
+                .putLong(SCOPE_ID.getId().longValue())
+                .putInt("gateway-1".length())
+                .putUnencodedChars("gateway-1")
+                .hash();
+        assertEquals(expected.toString(), MetadataKey.ofClient(SCOPE_ID, "gateway-1").toString());
+    }
+
+    @Test
+    public void testKeys() {
+        assertEquals(MetadataKey.ofClient(SCOPE_ID, "client"), MetadataKey.ofClient(new KapuaEid(BigInteger.ONE), "client"));
+        assertEquals(MetadataKey.ofClient(SCOPE_ID, "client").hashCode(), MetadataKey.ofClient(SCOPE_ID, "client").hashCode());
+        assertNotEquals(MetadataKey.ofClient(SCOPE_ID, "client"), MetadataKey.ofClient(new KapuaEid(BigInteger.TEN), "client"));
+        assertNotEquals(MetadataKey.ofClient(SCOPE_ID, "client"), MetadataKey.ofClient(SCOPE_ID, "client2"));
+
+        // field boundaries and metadata kind are part of the key
+        assertNotEquals(MetadataKey.ofChannel(SCOPE_ID, "client", "a/b"), MetadataKey.ofChannel(SCOPE_ID, "client/a", "b"));
+        assertNotEquals(MetadataKey.ofChannel(SCOPE_ID, "client", "a"), MetadataKey.ofMetric(SCOPE_ID, "client", "a", null, "string"));
+
+        // Kapua and Elasticsearch type names are the same type
+        assertEquals(MetadataKey.ofMetric(SCOPE_ID, "client", "a", "metric", "int"), MetadataKey.ofMetric(SCOPE_ID, "client", "a", "metric", "integer"));
+        assertNotEquals(MetadataKey.ofMetric(SCOPE_ID, "client", "a", "metric", "int"), MetadataKey.ofMetric(SCOPE_ID, "client", "a", "metric", "long"));
+
+        // identifiers longer than 64 bit
+        BigInteger big = BigInteger.ONE.shiftLeft(100);
+        assertNotEquals(MetadataKey.ofClient(new KapuaEid(big), "client"), MetadataKey.ofClient(new KapuaEid(big.add(BigInteger.ONE.shiftLeft(64))), "client"));
+    }
+}
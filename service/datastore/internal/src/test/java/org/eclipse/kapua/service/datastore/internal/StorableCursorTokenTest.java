@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.model.query.ChannelInfoQueryImpl;
+import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
+import org.junit.Test;
+
+public class StorableCursorTokenTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+    private static final KapuaId OTHER_SCOPE_ID = new KapuaEid(BigInteger.TEN);
+    private static final String SCROLL_ID = "c2Nhbjs1OzE6MjpXeHVkTjRTT1FyS0hXbHZwY3pIb1pBOzE7dG90YWxfaGl0czoxMDA7";
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        String cursor = new StorableCursorToken(SCOPE_ID, 50, StorableFetchStyle.SOURCE_SELECT, null).next(SCROLL_ID).encode();
+
+        StorableCursorToken cursorToken = StorableCursorToken.decode(SCOPE_ID, cursor);
+        assertEquals(50, cursorToken.getLimit());
+        assertEquals(StorableFetchStyle.SOURCE_SELECT, cursorToken.getFetchStyle());
+        assertEquals(SCROLL_ID, cursorToken.getScrollId());
+
+        cursorToken = StorableCursorToken.decode(SCOPE_ID, new StorableCursorToken(SCOPE_ID, 1, null, SCROLL_ID).encode());
+        assertNull(cursorToken.getFetchStyle());
+    }
+
+    @Test
+    public void testOtherScope() throws Exception {
+        assertInvalid(OTHER_SCOPE_ID, new StorableCursorToken(SCOPE_ID, 50, null, SCROLL_ID).encode());
+    }
+
+    @Test
+    public void testModifiedCursor() throws Exception {
+        String cursor = new StorableCursorToken(SCOPE_ID, 50, null, SCROLL_ID).encode();
+        int signatureIndex = cursor.lastIndexOf('.');
+        String signature = cursor.substring(signatureIndex + 1);
+
+        // the same cursor for another scope, with the original signature
+        String otherScopePayload = OTHER_SCOPE_ID.toCompactId() + "|50||" + SCROLL_ID;
+        assertInvalid(OTHER_SCOPE_ID, encode(otherScopePayload) + "." + signature);
+
+        // a larger page size
+        assertInvalid(SCOPE_ID, encode(SCOPE_ID.toCompactId() + "|10000||" + SCROLL_ID) + "." + signature);
+
+        // a wrong signature
+        char last = signature.charAt(signature.length() - 1);
+        assertInvalid(SCOPE_ID, cursor.substring(0, cursor.length() - 1) + (last == 'A' ? 'B' : 'A'));
+
+        // not signed
+        assertInvalid(SCOPE_ID, cursor.substring(0, signatureIndex));
+        assertInvalid(SCOPE_ID, cursor.substring(0, signatureIndex + 1));
+        assertInvalid(SCOPE_ID, "not a cursor");
+        assertInvalid(SCOPE_ID, ".");
+    }
+
+    @Test
+    public void testCheckQuery() throws Exception {
+        ChannelInfoQueryImpl query = new ChannelInfoQueryImpl(SCOPE_ID);
+        query.setOffset(0);
+        query.setLimit(100);
+        StorableCursors.checkQuery(query);
+
+        // the pages are read from the first object
+        query.setOffset(10);
+        assertInvalid(query);
+
+        query.setOffset(0);
+        query.setLimit(0);
+        assertInvalid(query);
+    }
+
+    private static void assertInvalid(KapuaId scopeId, String cursor) {
+        try {
+            StorableCursorToken.decode(scopeId, cursor);
+            fail("Invalid cursor decoded: " + cursor);
+        } catch (KapuaIllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static void assertInvalid(ChannelInfoQueryImpl query) {
+        try {
+            StorableCursors.checkQuery(query);
+            fail("Invalid cursor mode query accepted");
+        } catch (KapuaIllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static String encode(String payload) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.elasticsearch.EsSchema.Metadata;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EsSchemaTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+    private static final int THREADS = 8;
+
+    private ExecutorService executor;
+    private TestEsSchema esSchema;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        esSchema = new TestEsSchema();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        esSchema.stop();
+    }
+
+    @Test
+    public void testConcurrentProvisioning() throws Exception {
+        long now = System.currentTimeMillis();
+        List<Future<Metadata>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> esSchema.synch(SCOPE_ID, now)));
+        }
+
+        // the other callers wait for the provisioning in flight
+        assertTrue(esSchema.provisioningStarted.await(10, TimeUnit.SECONDS));
+        esSchema.provisioningReleased.countDown();
+
+        Metadata metadata = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<Metadata> result : results) {
+            assertSame(metadata, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, esSchema.provisionings.get());
+
+        // cached
+        assertSame(metadata, esSchema.synch(SCOPE_ID, now));
+        assertEquals(1, esSchema.provisionings.get());
+    }
+
+    @Test
+    public void testFailedProvisioningIsEvicted() throws Exception {
+        long now = System.currentTimeMillis();
+        esSchema.failProvisioning = true;
+
+        List<Future<Metadata>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> esSchema.synch(SCOPE_ID, now)));
+        }
+        assertTrue(esSchema.provisioningStarted.await(10, TimeUnit.SECONDS));
+        esSchema.provisioningReleased.countDown();
+
+        // the callers waiting for the failed provisioning get its failure
+        for (Future<Metadata> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("The provisioning should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof EsClientUnavailableException);
+            }
+        }
+        int failedProvisionings = esSchema.provisionings.get();
+
+        // a later call provisions the index again
+        esSchema.failProvisioning = false;
+        Metadata metadata = esSchema.synch(SCOPE_ID, now);
+        assertEquals(failedProvisionings + 1, esSchema.provisionings.get());
+        assertSame(metadata, esSchema.synch(SCOPE_ID, now));
+    }
+
+    @Test
+    public void testConcurrentMappings() throws Exception {
+        long now = System.currentTimeMillis();
+        esSchema.provisioningReleased.countDown();
+        esSchema.blockMappings = true;
+
+        List<Future<Void>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                esSchema.updateMessageMappings(SCOPE_ID, now, Arrays.asList(newMetric("temperature", EsUtils.ES_TYPE_DOUBLE)));
+                return null;
+            }));
+        }
+
+        // the other callers wait until the mapping is acknowledged
+        assertTrue(esSchema.mappingStarted.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        for (Future<Void> result : results) {
+            assertFalse(result.isDone());
+        }
+        esSchema.mappingReleased.countDown();
+
+        for (Future<Void> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(1, esSchema.mappings.size());
+        assertEquals(Collections.singleton("temperature.dbl"), esSchema.mappings.get(0));
+
+        // cached: only the new metrics are put
+        esSchema.updateMessageMappings(SCOPE_ID, now, Arrays.asList(newMetric("temperature", EsUtils.ES_TYPE_DOUBLE), newMetric("humidity", EsUtils.ES_TYPE_INTEGER)));
+        assertEquals(2, esSchema.mappings.size());
+        assertEquals(Collections.singleton("humidity.int"), esSchema.mappings.get(1));
+    }
+
+    @Test
+    public void testFailedMappingIsEvicted() throws Exception {
+        long now = System.currentTimeMillis();
+        esSchema.provisioningReleased.countDown();
+        esSchema.blockMappings = true;
+        esSchema.failMappings = true;
+
+        List<Future<Void>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                esSchema.updateMessageMappings(SCOPE_ID, now, Arrays.asList(newMetric("temperature", EsUtils.ES_TYPE_DOUBLE)));
+                return null;
+            }));
+        }
+        assertTrue(esSchema.mappingStarted.await(10, TimeUnit.SECONDS));
+        esSchema.mappingReleased.countDown();
+
+        for (Future<Void> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("The mapping should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof EsClientUnavailableException);
+            }
+        }
+        int failedMappings = esSchema.mappings.size();
+
+        // a later call puts the mapping again
+        esSchema.failMappings = false;
+        esSchema.updateMessageMappings(SCOPE_ID, now, Arrays.asList(newMetric("temperature", EsUtils.ES_TYPE_DOUBLE)));
+        assertEquals(failedMappings + 1, esSchema.mappings.size());
+
+        esSchema.updateMessageMappings(SCOPE_ID, now, Arrays.asList(newMetric("temperature", EsUtils.ES_TYPE_DOUBLE)));
+        assertEquals(failedMappings + 1, esSchema.mappings.size());
+    }
+
+    @Test
+    public void testSynchDifferentIndexes() throws Exception {
+        esSchema.provisioningReleased.countDown();
+        long now = System.currentTimeMillis();
+
+        Metadata metadata = esSchema.synch(SCOPE_ID, now);
+        Metadata otherScopeMetadata = esSchema.synch(new KapuaEid(BigInteger.TEN), now);
+
+        assertNotSame(metadata, otherScopeMetadata);
+        assertEquals(2, esSchema.provisionings.get());
+    }
+
+    private static EsMetric newMetric(String name, String type) {
+        EsMetric esMetric = new EsMetric();
+        esMetric.setName(name);
+        esMetric.setType(type);
+        return esMetric;
+    }
+
+    /**
+     * Elasticsearch schema provisioning the indexes and putting the mappings in memory
+     */
+    private static class TestEsSchema extends EsSchema {
+
+        private final AtomicInteger provisionings = new AtomicInteger();
+        private final CountDownLatch provisioningStarted = new CountDownLatch(1);
+        private final CountDownLatch provisioningReleased = new CountDownLatch(1);
+        private volatile boolean failProvisioning;
+
+        private final List<Set<String>> mappings = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch mappingStarted = new CountDownLatch(1);
+        private final CountDownLatch mappingReleased = new CountDownLatch(1);
+        private volatile boolean blockMappings;
+        private volatile boolean failMappings;
+
+        @Override
+        Metadata provisionDataIndex(KapuaId scopeId, String newIndex)
+                throws EsDocumentBuilderException, EsClientUnavailableException {
+            provisionings.incrementAndGet();
+            provisioningStarted.countDown();
+            await(provisioningReleased);
+            if (failProvisioning) {
+                throw new EsClientUnavailableException("Provisioning failure");
+            }
+            return new Metadata();
+        }
+
+        @Override
+        void putMessageMappings(String indexName, Map<String, EsMetric> esMetrics)
+                throws EsDocumentBuilderException, EsClientUnavailableException {
+            mappings.add(new HashSet<>(esMetrics.keySet()));
+            if (blockMappings) {
+                mappingStarted.countDown();
+                await(mappingReleased);
+            }
+            if (failMappings) {
+                throw new EsClientUnavailableException("Mapping failure");
+            }
+        }
+
+        private static void await(CountDownLatch latch) throws EsClientUnavailableException {
+            try {
+                if (!latch.await(10, TimeUnit.SECONDS)) {
+                    throw new EsClientUnavailableException("Timeout");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EsClientUnavailableException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.util.KapuaDateUtils;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.junit.Test;
+
+public class EsUtilsTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void testSingleTimeDataIndex() {
+        long time = time(2017, Calendar.MARCH, 15, 10);
+        Map<String, Long> dataIndexNames = EsUtils.getDataIndexNames(SCOPE_ID, time, time);
+
+        assertEquals(Collections.singletonMap(EsUtils.getDataIndexName(SCOPE_ID, time), time), dataIndexNames);
+    }
+
+    @Test
+    public void testWeekDataIndexes() {
+        long from = time(2017, Calendar.MARCH, 1, 10);
+        long to = time(2017, Calendar.MARCH, 20, 10);
+        Map<String, Long> dataIndexNames = EsUtils.getDataIndexNames(SCOPE_ID, from, to);
+
+        // the data indexes of the weeks in the range, in time order
+        assertEquals(sampleDataIndexNames(from, to), dataIndexNames.keySet());
+        assertEquals(4, dataIndexNames.size());
+        for (Map.Entry<String, Long> dataIndex : dataIndexNames.entrySet()) {
+            assertEquals(dataIndex.getKey(), EsUtils.getDataIndexName(SCOPE_ID, dataIndex.getValue()));
+            assertTrue(dataIndex.getValue() >= from && dataIndex.getValue() <= to);
+        }
+        assertEquals(Long.valueOf(to), dataIndexNames.get(EsUtils.getDataIndexName(SCOPE_ID, to)));
+    }
+
+    @Test
+    public void testYearBoundaryDataIndexes() {
+        // the last days of the year may belong to the first week of the next year (and the first days to the last week of the previous one)
+        for (int year = 2014; year <= 2022; year++) {
+            long from = time(year, Calendar.DECEMBER, 24, 23);
+            long to = time(year + 1, Calendar.JANUARY, 8, 1);
+            assertEquals(String.valueOf(year), sampleDataIndexNames(from, to), EsUtils.getDataIndexNames(SCOPE_ID, from, to).keySet());
+
+            // a range within the year end days
+            from = time(year, Calendar.DECEMBER, 30, 12);
+            to = time(year + 1, Calendar.JANUARY, 2, 12);
+            assertEquals(String.valueOf(year), sampleDataIndexNames(from, to), EsUtils.getDataIndexNames(SCOPE_ID, from, to).keySet());
+        }
+    }
+
+    /**
+     * Get the data indexes the messages of the range are stored into, sampled every hour
+     */
+    private static Set<String> sampleDataIndexNames(long from, long to) {
+        Set<String> dataIndexNames = new LinkedHashSet<>();
+        for (long time = from; time < to; time += HOUR) {
+            dataIndexNames.add(EsUtils.getDataIndexName(SCOPE_ID, time));
+        }
+        dataIndexNames.add(EsUtils.getDataIndexName(SCOPE_ID, to));
+        return dataIndexNames;
+    }
+
+    private static long time(int year, int month, int day, int hour) {
+        Calendar cal = KapuaDateUtils.getKapuaCalendar();
+        cal.clear();
+        cal.set(year, month, day, hour, 0);
+        return cal.getTimeInMillis();
+    }
+}
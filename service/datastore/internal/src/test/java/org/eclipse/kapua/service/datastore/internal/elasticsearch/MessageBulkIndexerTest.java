@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.ActionWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.junit.After;
+import org.junit.Test;
+
+public class MessageBulkIndexerTest {
+
+    private static final long LONG_LINGER = TimeUnit.SECONDS.toMillis(2);
+
+    private TestBulkIndexer bulkIndexer;
+
+    @After
+    public void tearDown() {
+        if (bulkIndexer != null) {
+            bulkIndexer.release.countDown();
+            bulkIndexer.stop();
+        }
+    }
+
+    @Test
+    public void testBatchByCount() throws Exception {
+        bulkIndexer = new TestBulkIndexer(5, Long.MAX_VALUE, LONG_LINGER, 10000);
+
+        List<CompletableFuture<Void>> futures = submit(10, 10);
+        awaitAll(futures);
+
+        // the batches are flushed by count, without waiting the linger time
+        assertEquals(Arrays.asList(5, 5), bulkIndexer.batchSizes);
+    }
+
+    @Test
+    public void testBatchBySize() throws Exception {
+        bulkIndexer = new TestBulkIndexer(100, 100, LONG_LINGER, 10000);
+
+        // the batch is flushed once its size reaches the maximum (3 x 40 bytes)
+        List<CompletableFuture<Void>> futures = submit(6, 40);
+        awaitAll(futures);
+
+        assertEquals(Arrays.asList(3, 3), bulkIndexer.batchSizes);
+    }
+
+    @Test
+    public void testBatchByTime() throws Exception {
+        long linger = 200;
+        bulkIndexer = new TestBulkIndexer(100, Long.MAX_VALUE, linger, 10000);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = submit(2, 10);
+        awaitAll(futures);
+
+        assertEquals(Collections.singletonList(2), bulkIndexer.batchSizes);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= linger);
+    }
+
+    @Test
+    public void testIndexTimeoutRemovesQueuedRequest() throws Exception {
+        bulkIndexer = new TestBulkIndexer(1, Long.MAX_VALUE, 10, 100);
+        bulkIndexer.blocking = true;
+
+        // the flusher is blocked on the first bulk request
+        CompletableFuture<Void> first = bulkIndexer.submit(newRequest(0), 10);
+        assertTrue(bulkIndexer.started.await(10, TimeUnit.SECONDS));
+
+        try {
+            bulkIndexer.index(newRequest(1), 10);
+            fail("The indexing should time out");
+        } catch (EsClientUnavailableException e) {
+            // expected
+        }
+
+        bulkIndexer.release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+
+        // the timed out request is not indexed
+        bulkIndexer.stop();
+        assertEquals(Collections.singletonList(1), bulkIndexer.batchSizes);
+    }
+
+    @Test
+    public void testCancelledRequestIsSkipped() throws Exception {
+        bulkIndexer = new TestBulkIndexer(3, Long.MAX_VALUE, 10, 10000);
+        bulkIndexer.blocking = true;
+
+        CompletableFuture<Void> first = bulkIndexer.submit(newRequest(0), 10);
+        assertTrue(bulkIndexer.started.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> cancelled = bulkIndexer.submit(newRequest(1), 10);
+        CompletableFuture<Void> indexed = bulkIndexer.submit(newRequest(2), 10);
+        cancelled.cancel(false);
+
+        bulkIndexer.release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        indexed.get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(1, 1), bulkIndexer.batchSizes);
+    }
+
+    @Test
+    public void testPartialBulkFailure() throws Exception {
+        bulkIndexer = new TestBulkIndexer(3, Long.MAX_VALUE, LONG_LINGER, 10000);
+        bulkIndexer.failedItems = Collections.singleton(1);
+
+        List<CompletableFuture<Void>> futures = submit(3, 10);
+
+        futures.get(0).get(10, TimeUnit.SECONDS);
+        futures.get(2).get(10, TimeUnit.SECONDS);
+        try {
+            futures.get(1).get(10, TimeUnit.SECONDS);
+            fail("The failed item should complete exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof EsDatastoreException);
+        }
+    }
+
+    @Test
+    public void testBulkFailure() throws Exception {
+        bulkIndexer = new TestBulkIndexer(2, Long.MAX_VALUE, LONG_LINGER, 10000);
+        bulkIndexer.failBulk = true;
+
+        for (CompletableFuture<Void> future : submit(2, 10)) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("The bulk request should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof EsClientUnavailableException);
+            }
+        }
+    }
+
+    @Test
+    public void testStopFlushesPendingRequests() throws Exception {
+        bulkIndexer = new TestBulkIndexer(100, Long.MAX_VALUE, 100, 10000);
+
+        List<CompletableFuture<Void>> futures = submit(3, 10);
+        bulkIndexer.stop();
+
+        for (CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone());
+            assertFalse(future.isCompletedExceptionally());
+        }
+        try {
+            bulkIndexer.submit(newRequest(3), 10);
+            fail("The stopped indexer should reject the requests");
+        } catch (EsClientUnavailableException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSubmitConcurrentWithStop() throws Exception {
+        bulkIndexer = new TestBulkIndexer(10, Long.MAX_VALUE, 10, 10000);
+
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        CountDownLatch submitting = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            producers.execute(() -> {
+                submitting.countDown();
+                try {
+                    for (int id = 0;; id++) {
+                        futures.add(bulkIndexer.submit(newRequest(id), 10));
+                    }
+                } catch (EsClientUnavailableException e) {
+                    // stopped
+                }
+            });
+        }
+        submitting.await(10, TimeUnit.SECONDS);
+        bulkIndexer.stop();
+        producers.shutdown();
+        assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+
+        // the requests accepted while stopping are flushed, the others are rejected
+        for (CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone());
+        }
+    }
+
+    private List<CompletableFuture<Void>> submit(int count, long size) throws EsClientUnavailableException {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(bulkIndexer.submit(newRequest(i), size));
+        }
+        return futures;
+    }
+
+    private static void awaitAll(List<CompletableFuture<Void>> futures) throws Exception {
+        for (CompletableFuture<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static UpdateRequest newRequest(int id) {
+        return new UpdateRequest("index", EsSchema.MESSAGE_TYPE_NAME, String.valueOf(id));
+    }
+
+    /**
+     * Bulk indexer executing the bulk requests in memory (with a single flusher thread, so the batches are deterministic)
+     */
+    private static class TestBulkIndexer extends MessageBulkIndexer {
+
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocking;
+        private volatile boolean failBulk;
+        private volatile Set<Integer> failedItems = Collections.emptySet();
+
+        private TestBulkIndexer(int maxActions, long maxSize, long linger, long indexTimeout) {
+            super(1000, 1, 1000, maxActions, maxSize, linger, indexTimeout);
+        }
+
+        @Override
+        BulkResponse executeBulk(BulkRequest bulkRequest) throws EsClientUnavailableException {
+            batchSizes.add(bulkRequest.numberOfActions());
+            if (blocking) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failBulk) {
+                throw new EsClientUnavailableException("Bulk failure");
+            }
+
+            BulkItemResponse[] items = new BulkItemResponse[bulkRequest.numberOfActions()];
+            for (int i = 0; i < items.length; i++) {
+                if (failedItems.contains(i)) {
+                    items[i] = new BulkItemResponse(i, "update", new BulkItemResponse.Failure("index", EsSchema.MESSAGE_TYPE_NAME, String.valueOf(i), new IllegalArgumentException("Mapping conflict")));
+                } else {
+                    items[i] = new BulkItemResponse(i, "update", (ActionWriteResponse) null);
+                }
+            }
+            return new BulkResponse(items, 1);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.message.KapuaMessage;
+import org.eclipse.kapua.message.KapuaPayload;
+import org.eclipse.kapua.message.KapuaPosition;
+import org.eclipse.kapua.message.internal.KapuaPositionImpl;
+import org.eclipse.kapua.message.internal.device.data.KapuaDataChannelImpl;
+import org.eclipse.kapua.message.internal.device.data.KapuaDataMessageImpl;
+import org.eclipse.kapua.message.internal.device.data.KapuaDataPayloadImpl;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+public class MessageXContentBuilderTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+
+    @Test
+    public void testDocument() throws Exception {
+        KapuaDataMessageImpl message = newMessage();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("temperature", 21.5d);
+        metrics.put("humidity", 40.5f);
+        metrics.put("count", 10);
+        metrics.put("distance", 1L);
+        metrics.put("label", "label");
+        metrics.put("enabled", true);
+        metrics.put("date", new Date(1000));
+        // escaped metric names
+        metrics.put("sensor.temperature", 22.5d);
+        metrics.put("$sensor.humidity$", 41);
+        message.getPayload().setProperties(metrics);
+
+        assertDocumentEquals(message, XContentType.JSON);
+    }
+
+    @Test
+    public void testNullPositionLocation() throws Exception {
+        KapuaDataMessageImpl message = newMessage();
+        message.getPosition().setLongitude(null);
+        message.getPosition().setLatitude(null);
+
+        assertDocumentEquals(message, XContentType.JSON);
+    }
+
+    @Test
+    public void testNullPosition() throws Exception {
+        KapuaDataMessageImpl message = newMessage();
+        message.setPosition(null);
+
+        assertDocumentEquals(message, XContentType.JSON);
+    }
+
+    @Test
+    public void testNullPayload() throws Exception {
+        KapuaDataMessageImpl message = newMessage();
+        message.setPayload(null);
+
+        assertDocumentEquals(message, XContentType.JSON);
+    }
+
+    @Test
+    public void testNullMetrics() throws Exception {
+        KapuaDataMessageImpl message = newMessage();
+        message.getPayload().setProperties(null);
+
+        assertDocumentEquals(message, XContentType.JSON);
+    }
+
+    @Test
+    public void testSmileDocument() throws Exception {
+        KapuaDataMessageImpl message = newMessage();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("temperature", 21.5d);
+        metrics.put("distance", 1L);
+        metrics.put("label", "label");
+        metrics.put("date", new Date(1000));
+        metrics.put("sensor.temperature", 22.5d);
+        message.getPayload().setProperties(metrics);
+
+        assertDocumentEquals(message, XContentType.SMILE);
+    }
+
+    @Test
+    public void testSharedMetrics() {
+        EsMetric esMetric = EsMetricNames.getInstance().getMetric("sensor.temperature", EsUtils.ES_TYPE_DOUBLE);
+
+        assertSame(esMetric, EsMetricNames.getInstance().getMetric("sensor.temperature", EsUtils.ES_TYPE_DOUBLE));
+        assertEquals(EsUtils.normalizeMetricName("sensor.temperature"), esMetric.getName());
+        assertEquals(EsUtils.getMetricValueQualifier(esMetric.getName(), EsUtils.ES_TYPE_DOUBLE), esMetric.getMappedName());
+
+        // the shared metrics cannot be modified
+        try {
+            esMetric.setName("other");
+            fail("The shared metric should not be modified");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            esMetric.setType(EsUtils.ES_TYPE_LONG);
+            fail("The shared metric should not be modified");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(EsUtils.ES_TYPE_DOUBLE, esMetric.getType());
+    }
+
+    private static void assertDocumentEquals(KapuaMessage<?, ?> message, XContentType contentType) throws Exception {
+        Date indexedOn = new Date();
+        Date receivedOn = new Date(indexedOn.getTime() - 1000);
+
+        MessageXContentBuilder builder = new MessageXContentBuilder(contentType).build(SCOPE_ID, message, indexedOn, receivedOn);
+        Map<String, EsMetric> expectedMappings = new HashMap<>();
+        BytesReference expected = buildReference(builder, message, indexedOn, receivedOn, contentType, expectedMappings);
+
+        assertEquals(contentType, XContentFactory.xContentType(builder.getSource()));
+        assertEquals(toMap(expected), toMap(builder.getSource()));
+
+        List<EsMetric> mappings = builder.getMetricMappings();
+        assertEquals(expectedMappings.size(), mappings.size());
+        for (EsMetric esMetric : mappings) {
+            EsMetric expectedMetric = expectedMappings.get(esMetric.getMappedName());
+            assertEquals(expectedMetric.getName(), esMetric.getName());
+            assertEquals(expectedMetric.getType(), esMetric.getType());
+        }
+    }
+
+    private static Map<String, Object> toMap(BytesReference source) {
+        return normalize(XContentHelper.convertToMap(source, false).v2());
+    }
+
+    /**
+     * Compare the binary values (the smile body) by content
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> normalize(Map<String, Object> map) {
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (entry.getValue() instanceof byte[]) {
+                entry.setValue(Base64.getEncoder().encodeToString((byte[]) entry.getValue()));
+            } else if (entry.getValue() instanceof Map) {
+                normalize((Map<String, Object>) entry.getValue());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Copy of the previous document builder, building the position and the metrics as maps
+     */
+    private static BytesReference buildReference(MessageXContentBuilder builder, KapuaMessage<?, ?> message, Date indexedOn, Date receivedOn,
+            XContentType contentType, Map<String, EsMetric> metricMappings)
+            throws Exception {
+        String accountIdStr = message.getScopeId() == null ? null : message.getScopeId().toCompactId();
+        String deviceIdStr = message.getDeviceId() == null ? null : message.getDeviceId().toCompactId();
+
+        XContentBuilder messageBuilder = XContentFactory.contentBuilder(contentType)
+                .startObject()
+                .field(EsSchema.MESSAGE_TIMESTAMP, indexedOn)
+                .field(EsSchema.MESSAGE_RECEIVED_ON, receivedOn)
+                .field(EsSchema.MESSAGE_IP_ADDRESS, "127.0.0.1")
+                .field(EsSchema.MESSAGE_SCOPE_ID, accountIdStr)
+                .field(EsSchema.MESSAGE_DEVICE_ID, deviceIdStr)
+                .field(EsSchema.MESSAGE_CLIENT_ID, builder.getClientId())
+                .field(EsSchema.MESSAGE_CHANNEL, builder.getChannel())
+                .field(EsSchema.MESSAGE_CHANNEL_PARTS, builder.getChannelParts())
+                .field(EsSchema.MESSAGE_CAPTURED_ON, message.getCapturedOn())
+                .field(EsSchema.MESSAGE_SENT_ON, message.getSentOn());
+
+        KapuaPosition kapuaPosition = message.getPosition();
+        if (kapuaPosition != null) {
+            Map<String, Object> location = null;
+            if (kapuaPosition.getLongitude() != null && kapuaPosition.getLatitude() != null) {
+                location = new HashMap<>();
+                location.put("lon", kapuaPosition.getLongitude());
+                location.put("lat", kapuaPosition.getLatitude());
+            }
+
+            Map<String, Object> position = new HashMap<>();
+            position.put(EsSchema.MESSAGE_POS_LOCATION, location);
+            position.put(EsSchema.MESSAGE_POS_ALT, kapuaPosition.getAltitude());
+            position.put(EsSchema.MESSAGE_POS_PRECISION, kapuaPosition.getPrecision());
+            position.put(EsSchema.MESSAGE_POS_HEADING, kapuaPosition.getHeading());
+            position.put(EsSchema.MESSAGE_POS_SPEED, kapuaPosition.getSpeed());
+            position.put(EsSchema.MESSAGE_POS_TIMESTAMP, kapuaPosition.getTimestamp());
+            position.put(EsSchema.MESSAGE_POS_SATELLITES, kapuaPosition.getSatellites());
+            position.put(EsSchema.MESSAGE_POS_STATUS, kapuaPosition.getStatus());
+            messageBuilder.field(EsSchema.MESSAGE_POSITION, position);
+        }
+
+        KapuaPayload payload = message.getPayload();
+        if (payload != null) {
+            messageBuilder.field(EsSchema.MESSAGE_BODY, payload.getBody());
+
+            Map<String, Object> kapuaMetrics = payload.getProperties();
+            if (kapuaMetrics != null) {
+                Map<String, Object> metrics = new HashMap<>();
+                for (Map.Entry<String, Object> kapuaMetric : kapuaMetrics.entrySet()) {
+                    String esMetricName = EsUtils.normalizeMetricName(kapuaMetric.getKey());
+                    String esType = EsUtils.getEsTypeFromValue(kapuaMetric.getValue());
+
+                    Map<String, Object> field = new HashMap<>();
+                    field.put(EsUtils.getEsTypeAcronym(esType), kapuaMetric.getValue());
+                    metrics.put(esMetricName, field);
+
+                    EsMetric esMetric = new EsMetric();
+                    esMetric.setName(esMetricName);
+                    esMetric.setType(esType);
+                    metricMappings.put(EsUtils.getMetricValueQualifier(esMetricName, esType), esMetric);
+                }
+                messageBuilder.field(EsSchema.MESSAGE_METRICS, metrics);
+            }
+        }
+
+        messageBuilder.endObject();
+        return messageBuilder.bytes();
+    }
+
+    private static KapuaDataMessageImpl newMessage() {
+        KapuaDataMessageImpl message = new KapuaDataMessageImpl();
+        message.setScopeId(SCOPE_ID);
+        message.setDeviceId(new KapuaEid(BigInteger.TEN));
+        message.setClientId("gateway-1");
+        message.setCapturedOn(new Date(2000));
+        message.setSentOn(new Date(3000));
+
+        KapuaDataChannelImpl channel = new KapuaDataChannelImpl();
+        channel.setSemanticParts(Arrays.asList("heater", "data"));
+        message.setChannel(channel);
+
+        KapuaPositionImpl position = new KapuaPositionImpl();
+        position.setLongitude(9.19);
+        position.setLatitude(45.46);
+        position.setAltitude(120.0);
+        position.setPrecision(1.5);
+        position.setHeading(90.0);
+        position.setSpeed(10.0);
+        position.setTimestamp(new Date(1500));
+        position.setSatellites(7);
+        position.setStatus(4);
+        message.setPosition(position);
+
+        KapuaDataPayloadImpl payload = new KapuaDataPayloadImpl();
+        payload.setBody("body".getBytes());
+        message.setPayload(payload);
+        return message;
+    }
+}
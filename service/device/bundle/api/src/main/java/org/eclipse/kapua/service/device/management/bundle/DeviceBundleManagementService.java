@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.management.bundle;
 
+import java.util.concurrent.CompletionStage;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.KapuaService;
@@ -37,6 +39,20 @@ public interface DeviceBundleManagementService extends KapuaService {
     public DeviceBundles get(KapuaId scopeId, KapuaId deviceId, Long timeout)
             throws KapuaException;
 
+    /**
+     * Get the device bundles list for the given device identifier without blocking the caller while waiting for the device response
+     *
+     * @param scopeId
+     * @param deviceId
+     * @param timeout
+     *            timeout waiting for the device response
+     * @return the future device bundles list
+     * @throws KapuaException
+     *             if the request cannot be sent
+     */
+    public CompletionStage<DeviceBundles> getAsync(KapuaId scopeId, KapuaId deviceId, Long timeout)
+            throws KapuaException;
+
     /**
      * Start the device bundle identified by the given device identifier and device bundle identifier
      *
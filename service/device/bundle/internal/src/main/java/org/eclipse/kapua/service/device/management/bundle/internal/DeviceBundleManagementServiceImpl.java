@@ -13,6 +13,7 @@
 package org.eclipse.kapua.service.device.management.bundle.internal;
 
 import java.util.Date;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
@@ -57,6 +58,38 @@ public class DeviceBundleManagementServiceImpl implements DeviceBundleManagement
     @Override
     public DeviceBundles get(KapuaId scopeId, KapuaId deviceId, Long timeout)
             throws KapuaException {
+        BundleRequestMessage bundleRequestMessage = prepareGetRequest(scopeId, deviceId);
+
+        //
+        // Do get
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(bundleRequestMessage, timeout);
+        BundleResponseMessage responseMessage = (BundleResponseMessage) deviceApplicationCall.send();
+
+        return handleGetResponse(scopeId, deviceId, responseMessage);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public CompletionStage<DeviceBundles> getAsync(KapuaId scopeId, KapuaId deviceId, Long timeout)
+            throws KapuaException {
+        BundleRequestMessage bundleRequestMessage = prepareGetRequest(scopeId, deviceId);
+
+        //
+        // Do get
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(bundleRequestMessage, timeout);
+        return deviceApplicationCall.sendAsync(responseMessage -> handleGetResponse(scopeId, deviceId, (BundleResponseMessage) responseMessage));
+    }
+
+    /**
+     * Validate the arguments, check the access and prepare the bundles list request
+     *
+     * @param scopeId
+     * @param deviceId
+     * @return
+     * @throws KapuaException
+     */
+    private BundleRequestMessage prepareGetRequest(KapuaId scopeId, KapuaId deviceId)
+            throws KapuaException {
         //
         // Argument Validation
         ArgumentValidator.notNull(scopeId, "scopeId");
@@ -84,12 +117,20 @@ public class DeviceBundleManagementServiceImpl implements DeviceBundleManagement
         bundleRequestMessage.setCapturedOn(new Date());
         bundleRequestMessage.setPayload(bundleRequestPayload);
         bundleRequestMessage.setChannel(bundleRequestChannel);
+        return bundleRequestMessage;
+    }
 
-        //
-        // Do get
-        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(bundleRequestMessage, timeout);
-        BundleResponseMessage responseMessage = (BundleResponseMessage) deviceApplicationCall.send();
-
+    /**
+     * Parse the bundles list response and create the device event
+     *
+     * @param scopeId
+     * @param deviceId
+     * @param responseMessage
+     * @return
+     * @throws KapuaException
+     */
+    private DeviceBundles handleGetResponse(KapuaId scopeId, KapuaId deviceId, BundleResponseMessage responseMessage)
+            throws KapuaException {
         //
         // Parse the response
         BundleResponsePayload responsePayload = responseMessage.getPayload();
@@ -116,6 +157,7 @@ public class DeviceBundleManagementServiceImpl implements DeviceBundleManagement
 
         //
         // Create event
+        KapuaLocator locator = KapuaLocator.getInstance();
         DeviceEventService deviceEventService = locator.getService(DeviceEventService.class);
         DeviceEventFactory deviceEventFactory = locator.getFactory(DeviceEventFactory.class);
 
@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.call;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.service.device.call.message.DeviceMessage;
 import org.eclipse.kapua.service.device.call.message.app.request.DeviceRequestMessage;
@@ -96,6 +98,19 @@ public interface DeviceCall<RQ extends DeviceRequestMessage, RS extends DeviceRe
     public RS options(RQ requestMessage, Long timeout)
         throws KapuaException;
 
+    /**
+     * Executes the command set in the request message channel without blocking the caller while waiting for the response.<br>
+     * The returned future is completed with the response or exceptionally if the command fails or times out.
+     * 
+     * @param requestMessage
+     * @param timeout
+     * @return
+     * @throws KapuaException
+     *             if the request cannot be sent
+     */
+    public CompletableFuture<RS> sendAsync(RQ requestMessage, Long timeout)
+        throws KapuaException;
+
     /**
      * Get the device base message type
      * 
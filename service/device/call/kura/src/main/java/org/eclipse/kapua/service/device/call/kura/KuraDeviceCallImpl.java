@@ -13,6 +13,8 @@ package org.eclipse.kapua.service.device.call.kura;
 
 import java.util.Date;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.locator.KapuaLocator;
@@ -38,6 +40,12 @@ import org.eclipse.kapua.transport.message.TransportMessage;
 @SuppressWarnings("rawtypes")
 public class KuraDeviceCallImpl implements DeviceCall<KuraRequestMessage, KuraResponseMessage>
 {
+    /**
+     * Request id sequence, shared by all the requests so the ids are unique within the node.<br>
+     * It starts from a random value so the ids of a restarted node don't match the responses to the previous run requests.
+     */
+    private static final AtomicLong REQUEST_ID = new AtomicLong(new Random().nextLong());
+
     @Override
     public KuraResponseMessage create(KuraRequestMessage requestMessage, Long timeout)
         throws KapuaException
@@ -80,6 +88,79 @@ public class KuraDeviceCallImpl implements DeviceCall<KuraRequestMessage, KuraRe
         return send(requestMessage, timeout);
     }
 
+    @Override
+    @SuppressWarnings({ "unchecked" })
+    public CompletableFuture<KuraResponseMessage> sendAsync(KuraRequestMessage requestMessage, Long timeout)
+        throws KapuaException
+    {
+        TransportFacade transportFacade = null;
+        try {
+            //
+            // Borrow a KapuaClient
+            transportFacade = borrowClient();
+
+            //
+            // Get Kura to transport translator for the request and vice versa
+            Translator translatorKuraTransport = getTranslator(KuraRequestMessage.class, transportFacade.getMessageClass());
+            Translator translatorTransportKura = getTranslator(transportFacade.getMessageClass(), KuraResponseMessage.class);
+
+            prepareRequest(requestMessage, transportFacade, timeout);
+
+            //
+            // Do send
+            CompletableFuture<TransportMessage> transportResponseFuture;
+            try {
+                transportResponseFuture = transportFacade.sendAsync((TransportMessage) translatorKuraTransport.translate(requestMessage), timeout);
+            }
+            catch (KapuaException e) {
+                throw new KuraMqttDeviceCallException(KuraMqttDeviceCallErrorCodes.CLIENT_SEND_ERROR,
+                                                      e,
+                                                      (Object[]) null);
+            }
+
+            //
+            // Translate response and release the client once completed
+            final TransportFacade usedTransportFacade = transportFacade;
+            transportFacade = null;
+            CompletableFuture<KuraResponseMessage> responseFuture = new CompletableFuture<>();
+            transportResponseFuture.whenComplete((transportResponseMessage, throwable) -> {
+                try {
+                    if (throwable != null) {
+                        responseFuture.completeExceptionally(new KuraMqttDeviceCallException(KuraMqttDeviceCallErrorCodes.CLIENT_SEND_ERROR,
+                                                                                             throwable,
+                                                                                             (Object[]) null));
+                    }
+                    else if (transportResponseMessage == null) {
+                        // no response expected
+                        responseFuture.complete(null);
+                    }
+                    else {
+                        responseFuture.complete((KuraResponseMessage) translatorTransportKura.translate(transportResponseMessage));
+                    }
+                }
+                catch (KapuaException | RuntimeException e) {
+                    responseFuture.completeExceptionally(new KuraMqttDeviceCallException(KuraMqttDeviceCallErrorCodes.CALL_ERROR,
+                                                                                         e,
+                                                                                         (Object[]) null));
+                }
+                finally {
+                    usedTransportFacade.clean();
+                }
+            });
+            return responseFuture;
+        }
+        catch (KapuaException ke) {
+            throw new KuraMqttDeviceCallException(KuraMqttDeviceCallErrorCodes.CALL_ERROR,
+                                                  ke,
+                                                  (Object[]) null);
+        }
+        finally {
+            if (transportFacade != null) {
+                transportFacade.clean();
+            }
+        }
+    }
+
     @SuppressWarnings({ "unchecked" })
     private KuraResponseMessage send(KuraRequestMessage requestMessage, Long timeout)
         throws KuraMqttDeviceCallException
@@ -96,30 +177,11 @@ public class KuraDeviceCallImpl implements DeviceCall<KuraRequestMessage, KuraRe
             Translator translatorKuraTransport = getTranslator(KuraRequestMessage.class, transportFacade.getMessageClass());
             Translator translatorTransportKura = getTranslator(transportFacade.getMessageClass(), KuraResponseMessage.class);
 
-            //
-            // Make the request
-            // Add requestId and requesterClientId to both payload and channel if response is expected
-            // Note: Adding to both payload and channel to let the translator choose what to do base on the transport used.
-            KuraRequestChannel requestChannel = requestMessage.getChannel();
-            KuraRequestPayload requestPayload = requestMessage.getPayload();
-            if (timeout != null) {
-                // FIXME: create an utilty class to use the same synchronized random instance to avoid duplicates
-                Random r = new Random();
-                String requestId = String.valueOf(r.nextLong());
-
-                requestChannel.setRequestId(requestId);
-                requestChannel.setRequesterClientId(transportFacade.getClientId());
-
-                requestPayload.setRequestId(requestId);
-                requestPayload.setRequesterClientId(transportFacade.getClientId());
-            }
+            prepareRequest(requestMessage, transportFacade, timeout);
 
             //
             // Do send
             try {
-                // Set current timestamp
-                requestMessage.setTimestamp(new Date());
-
                 // Send
                 TransportMessage transportResponseMessage = transportFacade.sendSync((TransportMessage) translatorKuraTransport.translate(requestMessage), timeout);
 
@@ -156,6 +218,35 @@ public class KuraDeviceCallImpl implements DeviceCall<KuraRequestMessage, KuraRe
     //
     // Private methods
     //
+
+    /**
+     * Add requestId and requesterClientId to both payload and channel if response is expected and set the current timestamp
+     * 
+     * @param requestMessage
+     * @param transportFacade
+     * @param timeout
+     */
+    private void prepareRequest(KuraRequestMessage requestMessage, TransportFacade transportFacade, Long timeout)
+    {
+        //
+        // Make the request
+        // Add requestId and requesterClientId to both payload and channel if response is expected
+        // Note: Adding to both payload and channel to let the translator choose what to do base on the transport used.
+        KuraRequestChannel requestChannel = requestMessage.getChannel();
+        KuraRequestPayload requestPayload = requestMessage.getPayload();
+        if (timeout != null) {
+            String requestId = String.valueOf(REQUEST_ID.incrementAndGet());
+
+            requestChannel.setRequestId(requestId);
+            requestChannel.setRequesterClientId(transportFacade.getClientId());
+
+            requestPayload.setRequestId(requestId);
+            requestPayload.setRequesterClientId(transportFacade.getClientId());
+        }
+
+        // Set current timestamp
+        requestMessage.setTimestamp(new Date());
+    }
     private TransportFacade borrowClient()
         throws KuraMqttDeviceCallException
     {
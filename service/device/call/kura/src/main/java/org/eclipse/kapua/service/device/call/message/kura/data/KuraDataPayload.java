@@ -13,6 +13,7 @@
 package org.eclipse.kapua.service.device.call.message.kura.data;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -29,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 /**
@@ -167,24 +169,42 @@ public class KuraDataPayload implements DevicePayload
     public void readFromByteArray(byte[] bytes)
         throws KapuaException
     {
-        if (GZIPUtils.isCompressed(bytes)) {
-            try {
-                bytes = GZIPUtils.decompress(bytes);
-            }
-            catch (IOException e) {
-                // throw new KapuaDeviceCallException(KapuaDeviceCallErrorCodes.)
-                // FIXME: manage!
-                throw KapuaException.internalError(e);
-            }
-        }
+        readFromByteArray(bytes, 0, bytes.length);
+    }
 
+    /**
+     * Read the payload from the byte array range (e.g. the content of a transport message) without copying it.<br>
+     * The GZIP compressed payloads are uncompressed into a buffer reused by the calling thread before decoding them.
+     *
+     * @param bytes
+     * @param offset
+     *            the payload start
+     * @param length
+     *            the payload length
+     * @throws KapuaException
+     */
+    public void readFromByteArray(byte[] bytes, int offset, int length)
+        throws KapuaException
+    {
         KuraPayloadProto.KuraPayload protoMsg = null;
         try {
-            protoMsg = KuraPayloadProto.KuraPayload.parseFrom(bytes);
+            if (GZIPUtils.isCompressed(bytes, offset, length)) {
+                // the decoded message doesn't reference the (reused) uncompressed data buffer
+                ByteBuffer uncompressed = GZIPUtils.decompressToSharedBuffer(bytes, offset, length);
+                protoMsg = KuraPayloadProto.KuraPayload.parseFrom(CodedInputStream.newInstance(uncompressed.array(), uncompressed.arrayOffset() + uncompressed.position(), uncompressed.remaining()));
+            }
+            else {
+                protoMsg = KuraPayloadProto.KuraPayload.parseFrom(CodedInputStream.newInstance(bytes, offset, length));
+            }
         }
         catch (InvalidProtocolBufferException | ExceptionInInitializerError ipbe) {
             throw new MessageException(MessageErrorCodes.INVALID_MESSAGE, ipbe, new Object[] { ipbe.getMessage() });
         }
+        catch (IOException e) {
+            // throw new KapuaDeviceCallException(KapuaDeviceCallErrorCodes.)
+            // FIXME: manage!
+            throw KapuaException.internalError(e);
+        }
 
         //
         // Add timestamp
@@ -200,6 +220,10 @@ public class KuraDataPayload implements DevicePayload
 
         //
         // Add metrics
+        if (metrics.isEmpty() && protoMsg.getMetricCount() > 12) {
+            // size the map once for all the metrics (the default capacity holds 12 entries)
+            metrics = new HashMap<>(protoMsg.getMetricCount() * 4 / 3 + 1);
+        }
         for (int i = 0; i < protoMsg.getMetricCount(); i++) {
             String name = protoMsg.getMetric(i).getName();
             try {
@@ -32,7 +32,12 @@ public enum DeviceCallSettingKeys implements SettingKey
     /**
      * Destination reply part
      */
-    DESTINATION_REPLY_PART("destination.reply.part");
+    DESTINATION_REPLY_PART("destination.reply.part"),
+
+    /**
+     * Maximum size (bytes) of the uncompressed data of a GZIP compressed payload
+     */
+    GZIP_DECOMPRESSED_SIZE_MAXIMUM("gzip.decompressed.size.maximum");
 
     private String key;
 
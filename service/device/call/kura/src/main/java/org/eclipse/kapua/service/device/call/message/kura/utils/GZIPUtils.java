@@ -13,24 +13,63 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.call.message.kura.utils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
-import com.google.common.io.ByteSource;
-import com.google.common.io.ByteStreams;
+import org.eclipse.kapua.service.device.call.message.kura.setting.DeviceCallSetting;
+import org.eclipse.kapua.service.device.call.message.kura.setting.DeviceCallSettingKeys;
 
 /**
- * Gzip utilities.
+ * Gzip utilities.<br>
+ * <br>
+ * The data is compressed and uncompressed by a {@link Deflater} and an {@link Inflater} reused by each thread (instead of the native ones allocated by every
+ * {@link java.util.zip.GZIPOutputStream} and {@link GZIPInputStream}), into buffers reused by each thread too.<br>
+ * The uncompressed data is sized by the size declared by the gzip trailer (ISIZE), and it is limited to the configured maximum size
+ * ({@link DeviceCallSettingKeys#GZIP_DECOMPRESSED_SIZE_MAXIMUM}).<br>
+ * As with {@link GZIPInputStream}, concatenated gzip members are uncompressed as a single stream and the data following the last member is ignored.
  *
  * @since 1.0
  *
  */
 public class GZIPUtils {
 
+    private static final int GZIP_HEADER_LENGTH = 10;
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    // gzip header flags (RFC 1952)
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final byte[] GZIP_HEADER = new byte[] {
+            (byte) GZIPInputStream.GZIP_MAGIC, // magic number
+            (byte) (GZIPInputStream.GZIP_MAGIC >> 8), // magic number
+            Deflater.DEFLATED, // compression method
+            0, // flags
+            0, 0, 0, 0, // modification time
+            0, // extra flags
+            0 // operating system
+    };
+
+    // deflate can't compress more than about 1032:1
+    private static final int DEFLATE_RATIO_MAXIMUM = 1032;
+
+    private static final int BUFFER_SIZE_INITIAL = 8192;
+    // the larger buffers are not kept by the threads
+    private static final int BUFFER_SIZE_RETAINED_MAXIMUM = 1024 * 1024;
+
+    private static final int DECOMPRESSED_SIZE_MAXIMUM = DeviceCallSetting.getInstance().getInt(DeviceCallSettingKeys.GZIP_DECOMPRESSED_SIZE_MAXIMUM, 10485760);
+
+    private static final ThreadLocal<GZIPCodec> codecs = ThreadLocal.withInitial(GZIPCodec::new);
+
     private GZIPUtils() {
     }
 
@@ -41,10 +80,27 @@ public class GZIPUtils {
      * @return
      */
     public static boolean isCompressed(byte[] bytes) {
-        if (bytes == null || bytes.length < 2) {
+        if (bytes == null) {
+            return false;
+        }
+        return isCompressed(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Check if the byte array range represents compressed data
+     *
+     * @param bytes
+     * @param offset
+     *            the range start
+     * @param length
+     *            the range length
+     * @return
+     */
+    public static boolean isCompressed(byte[] bytes, int offset, int length) {
+        if (bytes == null || length < 2) {
             return false;
         } else {
-            return bytes[0] == (byte) GZIPInputStream.GZIP_MAGIC && bytes[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+            return bytes[offset] == (byte) GZIPInputStream.GZIP_MAGIC && bytes[offset + 1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
         }
     }
 
@@ -63,11 +119,34 @@ public class GZIPUtils {
             return null;
         }
 
-        final ByteArrayOutputStream result = new ByteArrayOutputStream();
-        try (final OutputStream out = new GZIPOutputStream(result)) {
-            ByteSource.wrap(source).copyTo(out);
+        GZIPCodec codec = codecs.get();
+        byte[] output = codec.getBuffer(GZIP_HEADER_LENGTH + GZIP_TRAILER_LENGTH + source.length / 2);
+        System.arraycopy(GZIP_HEADER, 0, output, 0, GZIP_HEADER_LENGTH);
+        int count = GZIP_HEADER_LENGTH;
+
+        Deflater deflater = codec.getDeflater();
+        deflater.reset();
+        deflater.setInput(source);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (count == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            count += deflater.deflate(output, count, output.length - count);
         }
-        return result.toByteArray();
+
+        if (output.length - count < GZIP_TRAILER_LENGTH) {
+            output = Arrays.copyOf(output, count + GZIP_TRAILER_LENGTH);
+        }
+        CRC32 crc = codec.crc;
+        crc.reset();
+        crc.update(source);
+        writeInt(output, count, (int) crc.getValue());
+        writeInt(output, count + 4, source.length);
+        count += GZIP_TRAILER_LENGTH;
+
+        codec.setBuffer(output);
+        return Arrays.copyOf(output, count);
     }
 
     /**
@@ -77,13 +156,230 @@ public class GZIPUtils {
      *            the data to uncompress
      * @return the uncompressed data, returns {@code null} if the input was {@code null}
      * @throws IOException
-     *             in case of an I/O error
+     *             in case of an I/O error (e.g. invalid GZIP data or uncompressed data exceeding the maximum size)
      */
     public static byte[] decompress(byte[] source) throws IOException {
         if (source == null) {
             return null;
         }
 
-        return ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(source)));
+        // inflate directly into the result array, sized by the trailer
+        GZIPCodec codec = codecs.get();
+        int count = inflate(codec, source, 0, source.length, new byte[getSizeHint(source, 0, source.length)]);
+        byte[] output = codec.output;
+        codec.output = null;
+        return output.length == count ? output : Arrays.copyOf(output, count);
+    }
+
+    /**
+     * Uncompress the GZIP compressed data of the byte array range into a buffer reused by the calling thread.<br>
+     * The returned buffer content is valid until the next compression or decompression performed by the calling thread,
+     * so it must be consumed (e.g. decoded) before.
+     *
+     * @param source
+     *            the data to uncompress
+     * @param offset
+     *            the range start
+     * @param length
+     *            the range length
+     * @return the buffer wrapping the uncompressed data
+     * @throws IOException
+     *             in case of an I/O error (e.g. invalid GZIP data or uncompressed data exceeding the maximum size)
+     */
+    public static ByteBuffer decompressToSharedBuffer(byte[] source, int offset, int length) throws IOException {
+        GZIPCodec codec = codecs.get();
+        int count = inflate(codec, source, offset, length, codec.getBuffer(getSizeHint(source, offset, length)));
+        byte[] output = codec.output;
+        codec.output = null;
+        codec.setBuffer(output);
+        return ByteBuffer.wrap(output, 0, count);
+    }
+
+    /**
+     * Inflate the gzip members of the byte array range into the output array (grown if needed).<br>
+     * The concatenated members are uncompressed as a single stream and the data following the last member, if not a gzip member, is ignored
+     * (as {@link GZIPInputStream} does).<br>
+     * The (possibly grown) output array is left in {@link GZIPCodec#output}.
+     *
+     * @return the uncompressed data length
+     */
+    private static int inflate(GZIPCodec codec, byte[] source, int offset, int length, byte[] output) throws IOException {
+        int end = offset + length;
+        int dataOffset = readHeader(source, offset, end);
+
+        codec.output = output;
+        int count = 0;
+        while (true) {
+            int memberStart = count;
+            count = inflateMember(codec, source, dataOffset, end, count);
+
+            // check the trailer
+            int remaining = codec.inflater.getRemaining();
+            if (remaining < GZIP_TRAILER_LENGTH) {
+                throw new ZipException("Truncated GZIP trailer");
+            }
+            int trailerOffset = end - remaining;
+            CRC32 crc = codec.crc;
+            crc.reset();
+            crc.update(codec.output, memberStart, count - memberStart);
+            if (readInt(source, trailerOffset) != (int) crc.getValue() || readInt(source, trailerOffset + 4) != count - memberStart) {
+                throw new ZipException("Corrupt GZIP trailer");
+            }
+
+            // next member
+            int memberOffset = trailerOffset + GZIP_TRAILER_LENGTH;
+            if (memberOffset == end) {
+                return count;
+            }
+            try {
+                dataOffset = readHeader(source, memberOffset, end);
+            } catch (ZipException e) {
+                // trailing data
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Inflate a gzip member compressed data, appending it to the {@link GZIPCodec#output} array (grown if needed) from the given position
+     *
+     * @return the uncompressed data length (including the data before the member)
+     */
+    private static int inflateMember(GZIPCodec codec, byte[] source, int dataOffset, int end, int count) throws IOException {
+        byte[] output = codec.output;
+        Inflater inflater = codec.inflater;
+        inflater.reset();
+        inflater.setInput(source, dataOffset, end - dataOffset);
+        try {
+            while (!inflater.finished()) {
+                int inflated;
+                if (count < output.length) {
+                    inflated = inflater.inflate(output, count, output.length - count);
+                    count += inflated;
+                } else {
+                    // output full: check for more data before growing it (the size hint is usually exact)
+                    inflated = inflater.inflate(codec.probe);
+                    if (inflated > 0) {
+                        if (count >= DECOMPRESSED_SIZE_MAXIMUM) {
+                            throw new ZipException("Uncompressed data exceeds the maximum size of " + DECOMPRESSED_SIZE_MAXIMUM + " bytes");
+                        }
+                        output = Arrays.copyOf(output, (int) Math.min(Math.max(output.length * 2L, BUFFER_SIZE_INITIAL), DECOMPRESSED_SIZE_MAXIMUM));
+                        codec.output = output;
+                        output[count++] = codec.probe[0];
+                    }
+                }
+                if (inflated == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ZipException("Truncated GZIP data");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage() != null ? e.getMessage() : "Invalid GZIP data");
+        }
+        return count;
+    }
+
+    /**
+     * Read the gzip header of the byte array range
+     *
+     * @return the compressed data offset
+     */
+    private static int readHeader(byte[] source, int offset, int end) throws IOException {
+        if (end - offset < GZIP_HEADER_LENGTH + GZIP_TRAILER_LENGTH || !isCompressed(source, offset, end - offset)) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (source[offset + 2] != Deflater.DEFLATED) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = source[offset + 3] & 0xff;
+        int position = offset + GZIP_HEADER_LENGTH;
+        if ((flags & FEXTRA) == FEXTRA) {
+            position += 2 + ((source[position] & 0xff) | (source[position + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) == FNAME) {
+            position = skipZeroTerminated(source, position, end);
+        }
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            position = skipZeroTerminated(source, position, end);
+        }
+        if ((flags & FHCRC) == FHCRC) {
+            position += 2;
+        }
+        if (position > end - GZIP_TRAILER_LENGTH) {
+            throw new ZipException("Truncated GZIP header");
+        }
+        return position;
+    }
+
+    private static int skipZeroTerminated(byte[] source, int position, int end) throws IOException {
+        while (position < end) {
+            if (source[position++] == 0) {
+                return position;
+            }
+        }
+        throw new ZipException("Truncated GZIP header");
+    }
+
+    /**
+     * Get the uncompressed data size declared by the gzip trailer (ISIZE) of the byte array range, limited to the maximum size.<br>
+     * The declared size is just a hint (it's the size modulo 2^32 and the data may be corrupted), so it's also limited to the maximum deflate compression ratio.
+     */
+    private static int getSizeHint(byte[] source, int offset, int length) {
+        if (length < GZIP_HEADER_LENGTH + GZIP_TRAILER_LENGTH) {
+            return BUFFER_SIZE_INITIAL;
+        }
+        long size = readInt(source, offset + length - 4) & 0xffffffffL;
+        return (int) Math.min(Math.max(size, 1), Math.min((long) length * DEFLATE_RATIO_MAXIMUM, DECOMPRESSED_SIZE_MAXIMUM));
+    }
+
+    private static int readInt(byte[] source, int offset) {
+        return (source[offset] & 0xff) | (source[offset + 1] & 0xff) << 8 | (source[offset + 2] & 0xff) << 16 | (source[offset + 3] & 0xff) << 24;
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >> 8);
+        target[offset + 2] = (byte) (value >> 16);
+        target[offset + 3] = (byte) (value >> 24);
+    }
+
+    /**
+     * Compression state reused by a thread
+     */
+    private static class GZIPCodec {
+
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private final byte[] probe = new byte[1];
+
+        private Deflater deflater;
+        private byte[] buffer = new byte[BUFFER_SIZE_INITIAL];
+        private byte[] output;
+
+        /**
+         * Get the deflater (created on first use, since most of the threads only uncompress)
+         */
+        private Deflater getDeflater() {
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            }
+            return deflater;
+        }
+
+        /**
+         * Get the reusable buffer, grown to the given size if needed
+         */
+        private byte[] getBuffer(int size) {
+            if (buffer.length < size) {
+                buffer = new byte[size];
+            }
+            return buffer;
+        }
+
+        /**
+         * Keep the (possibly grown) buffer for the next use, if it's not too large
+         */
+        private void setBuffer(byte[] buffer) {
+            this.buffer = buffer.length <= BUFFER_SIZE_RETAINED_MAXIMUM ? buffer : new byte[BUFFER_SIZE_INITIAL];
+        }
     }
 }
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.call.message.kura;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.kapua.service.device.call.message.kura.data.KuraDataPayload;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto;
+import org.eclipse.kapua.service.device.call.message.kura.utils.GZIPUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Benchmark of the Kura data payload decoding of the broker data path.<br>
+ * It compares the previous decoding (copy of the transport message body, uncompressed copy of the compressed payloads, metrics map copied by the translator)
+ * with the decoding of the transport message content range by {@link KuraDataPayload#readFromByteArray(byte[], int, int)}.<br>
+ * The payload is placed at an offset of a larger buffer, as the content of a received transport message is.
+ * <p>
+ * Run it (with the allocation rate profiler) with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.kapua.service.device.call.message.kura.KuraPayloadDecodeBenchmark}
+ * or add {@code -prof gc} to the JMH command line.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KuraPayloadDecodeBenchmark {
+
+    private static final int BUFFER_OFFSET = 64;
+
+    @Param({ "10", "100", "1000" })
+    private int metricCount;
+
+    @Param({ "false", "true" })
+    private boolean compressed;
+
+    private byte[] buffer;
+    private int length;
+
+    @Setup
+    public void setup() throws Exception {
+        KuraDataPayload payload = new KuraDataPayload();
+        payload.setTimestamp(new Date());
+        for (int i = 0; i < metricCount; i++) {
+            payload.getMetrics().put("metric_" + i, i % 2 == 0 ? (Object) (double) i : (Object) ("value_" + i));
+        }
+        payload.setBody(new byte[256]);
+
+        byte[] bytes = payload.toByteArray();
+        if (compressed) {
+            bytes = GZIPUtils.compress(bytes);
+        }
+        length = bytes.length;
+        buffer = new byte[BUFFER_OFFSET + length + BUFFER_OFFSET];
+        System.arraycopy(bytes, 0, buffer, BUFFER_OFFSET, length);
+    }
+
+    @Benchmark
+    public Map<String, Object> copy() throws Exception {
+        // previous behavior
+        byte[] bytes = Arrays.copyOfRange(buffer, BUFFER_OFFSET, BUFFER_OFFSET + length);
+        if (GZIPUtils.isCompressed(bytes)) {
+            bytes = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+        }
+        KuraPayloadProto.KuraPayload protoMsg = KuraPayloadProto.KuraPayload.parseFrom(bytes);
+        Map<String, Object> metrics = new HashMap<>();
+        for (int i = 0; i < protoMsg.getMetricCount(); i++) {
+            KuraPayloadProto.KuraPayload.KuraMetric metric = protoMsg.getMetric(i);
+            metrics.put(metric.getName(), metric.hasDoubleValue() ? (Object) metric.getDoubleValue() : (Object) metric.getStringValue());
+        }
+        protoMsg.getBody().toByteArray();
+        return new HashMap<>(metrics);
+    }
+
+    @Benchmark
+    public Map<String, Object> view() throws Exception {
+        KuraDataPayload payload = new KuraDataPayload();
+        payload.readFromByteArray(buffer, BUFFER_OFFSET, length);
+        return payload.getMetrics();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(KuraPayloadDecodeBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.call.message.kura.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Benchmark of the {@link GZIPUtils} compression and decompression.<br>
+ * It compares the previous implementation (new {@link GZIPInputStream}/{@link GZIPOutputStream}, with their native inflater/deflater, for every call
+ * and output grown by copies) with the current one (inflater/deflater and buffers reused by each thread, output sized by the gzip trailer).
+ * <p>
+ * Run it (with the allocation rate profiler) with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.kapua.service.device.call.message.kura.utils.GZIPUtilsBenchmark}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GZIPUtilsBenchmark {
+
+    @Param({ "256", "4096", "65536" })
+    private int size;
+
+    private byte[] uncompressed;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() throws Exception {
+        // payload like data: compressible but not trivially
+        Random random = new Random(size);
+        uncompressed = new byte[size];
+        for (int i = 0; i < size; i++) {
+            uncompressed[i] = (byte) (i % 16 == 0 ? random.nextInt(256) : 'a' + random.nextInt(8));
+        }
+        compressed = previousCompress(uncompressed);
+
+        // Fail fast if the implementations are not compatible
+        if (!Arrays.equals(GZIPUtils.decompress(compressed), uncompressed) || !Arrays.equals(previousDecompress(GZIPUtils.compress(uncompressed)), uncompressed)) {
+            throw new IllegalStateException("Incompatible GZIP implementations");
+        }
+    }
+
+    @Benchmark
+    public byte[] previousDecompress() throws IOException {
+        return previousDecompress(compressed);
+    }
+
+    @Benchmark
+    public byte[] decompress() throws IOException {
+        return GZIPUtils.decompress(compressed);
+    }
+
+    @Benchmark
+    public byte[] previousCompress() throws IOException {
+        return previousCompress(uncompressed);
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        return GZIPUtils.compress(uncompressed);
+    }
+
+    private static byte[] previousDecompress(byte[] source) throws IOException {
+        return ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(source)));
+    }
+
+    private static byte[] previousCompress(byte[] source) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (final OutputStream out = new GZIPOutputStream(result)) {
+            ByteSource.wrap(source).copyTo(out);
+        }
+        return result.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GZIPUtilsBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build())
+                .run();
+    }
+}
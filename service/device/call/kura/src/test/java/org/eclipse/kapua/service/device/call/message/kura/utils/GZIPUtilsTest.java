@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.call.message.kura.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.eclipse.kapua.service.device.call.message.kura.setting.DeviceCallSetting;
+import org.eclipse.kapua.service.device.call.message.kura.setting.DeviceCallSettingKeys;
+import org.junit.Test;
+
+public class GZIPUtilsTest {
+
+    private static final byte[] TEXT = "temperature=21.5;humidity=40;pressure=1013;temperature=21.5;humidity=40;pressure=1013".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        assertNull(GZIPUtils.compress(null));
+        assertNull(GZIPUtils.decompress(null));
+
+        for (byte[] data : new byte[][] { new byte[0], TEXT, random(100_000), new byte[100_000] }) {
+            byte[] compressed = GZIPUtils.compress(data);
+            assertTrue(GZIPUtils.isCompressed(compressed));
+            assertArrayEquals(data, GZIPUtils.decompress(compressed));
+            // the JDK stream reads the compressed data and vice versa
+            assertArrayEquals(data, jdkDecompress(compressed));
+            assertArrayEquals(data, GZIPUtils.decompress(jdkCompress(data)));
+        }
+    }
+
+    @Test
+    public void testDecompressToSharedBuffer() throws Exception {
+        byte[] compressed = GZIPUtils.compress(TEXT);
+        byte[] source = new byte[compressed.length + 10];
+        System.arraycopy(compressed, 0, source, 5, compressed.length);
+
+        assertTrue(GZIPUtils.isCompressed(source, 5, compressed.length));
+        assertFalse(GZIPUtils.isCompressed(source, 0, compressed.length));
+        ByteBuffer buffer = GZIPUtils.decompressToSharedBuffer(source, 5, compressed.length);
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        assertArrayEquals(TEXT, data);
+    }
+
+    @Test
+    public void testOptionalHeaderFields() throws Exception {
+        byte[] compressed = jdkCompress(TEXT);
+        byte[] header = Arrays.copyOf(compressed, 10);
+        byte[] member = Arrays.copyOfRange(compressed, 10, compressed.length);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // FHCRC | FEXTRA | FNAME | FCOMMENT
+        header[3] = 2 | 4 | 8 | 16;
+        out.write(header);
+        // extra field (little endian length)
+        out.write(new byte[] { 3, 0, 'a', 'b', 'c' });
+        out.write("name.txt\0".getBytes(StandardCharsets.ISO_8859_1));
+        out.write("comment\0".getBytes(StandardCharsets.ISO_8859_1));
+        // header crc (low 16 bit of the header crc32)
+        byte[] headerBytes = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(headerBytes);
+        out.write(new byte[] { (byte) crc.getValue(), (byte) (crc.getValue() >> 8) });
+        out.write(member);
+
+        byte[] source = out.toByteArray();
+        assertArrayEquals(TEXT, jdkDecompress(source));
+        assertArrayEquals(TEXT, GZIPUtils.decompress(source));
+    }
+
+    @Test
+    public void testTruncatedData() throws Exception {
+        byte[] compressed = GZIPUtils.compress(random(1000));
+        // header, compressed data and trailer
+        for (int length : new int[] { 1, 9, 17, compressed.length / 2, compressed.length - 8, compressed.length - 1 }) {
+            assertInvalid(Arrays.copyOf(compressed, length));
+        }
+
+        // truncated optional header field
+        byte[] header = Arrays.copyOf(compressed, 30);
+        header[3] = 8;
+        Arrays.fill(header, 10, header.length, (byte) 'a');
+        assertInvalid(header);
+    }
+
+    @Test
+    public void testCorruptTrailer() throws Exception {
+        byte[] compressed = GZIPUtils.compress(TEXT);
+
+        byte[] wrongCrc = compressed.clone();
+        wrongCrc[compressed.length - 8] ^= 1;
+        assertInvalid(wrongCrc);
+
+        byte[] wrongSize = compressed.clone();
+        wrongSize[compressed.length - 4] ^= 1;
+        assertInvalid(wrongSize);
+    }
+
+    @Test
+    public void testNotCompressed() throws Exception {
+        assertFalse(GZIPUtils.isCompressed(TEXT));
+        assertInvalid(TEXT);
+
+        byte[] wrongMethod = GZIPUtils.compress(TEXT);
+        wrongMethod[2] = 7;
+        assertInvalid(wrongMethod);
+    }
+
+    @Test
+    public void testDecompressedSizeMaximum() throws Exception {
+        int sizeMax = DeviceCallSetting.getInstance().getInt(DeviceCallSettingKeys.GZIP_DECOMPRESSED_SIZE_MAXIMUM, 10485760);
+
+        byte[] maximum = new byte[sizeMax];
+        assertEquals(sizeMax, GZIPUtils.decompress(GZIPUtils.compress(maximum)).length);
+
+        // the declared size (ISIZE) is only a hint: the actual data is limited too
+        byte[] compressed = GZIPUtils.compress(new byte[sizeMax + 1]);
+        assertInvalid(compressed);
+        byte[] smallSize = compressed.clone();
+        Arrays.fill(smallSize, compressed.length - 4, compressed.length, (byte) 0);
+        smallSize[compressed.length - 4] = 100;
+        assertInvalid(smallSize);
+    }
+
+    @Test
+    public void testConcatenatedMembers() throws Exception {
+        byte[] first = GZIPUtils.compress(TEXT);
+        byte[] second = jdkCompress(random(20_000));
+
+        byte[] members = concat(first, second, first);
+        byte[] expected = jdkDecompress(members);
+        assertEquals(2 * TEXT.length + 20_000, expected.length);
+        assertArrayEquals(expected, GZIPUtils.decompress(members));
+
+        // the data following the last member is ignored
+        byte[] trailing = concat(first, "trailing data".getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals(jdkDecompress(trailing), GZIPUtils.decompress(trailing));
+        assertArrayEquals(TEXT, GZIPUtils.decompress(trailing));
+
+        // but a truncated member is not
+        assertInvalid(concat(first, Arrays.copyOf(second, second.length - 1)));
+        byte[] corrupt = concat(first, second);
+        corrupt[corrupt.length - 8] ^= 1;
+        assertInvalid(corrupt);
+    }
+
+    private static void assertInvalid(byte[] source) {
+        try {
+            GZIPUtils.decompress(source);
+            fail("Invalid data decompressed");
+        } catch (ZipException e) {
+            // expected
+        } catch (IOException e) {
+            fail("Unexpected exception " + e);
+        }
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] concat(byte[]... arrays) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] array : arrays) {
+            out.write(array);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] jdkCompress(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] jdkDecompress(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = gzip.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.management.command;
 
+import java.util.concurrent.CompletionStage;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.KapuaService;
@@ -38,4 +40,18 @@ public interface DeviceCommandManagementService extends KapuaService
      */
     public DeviceCommandOutput exec(KapuaId scopeId, KapuaId deviceId, DeviceCommandInput commandInput, Long timeout)
         throws KapuaException;
+
+    /**
+     * Execute the given device command with the provided options without blocking the caller while waiting for the device response
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param commandInput
+     * @param timeout command timeout
+     * @return the future command output
+     * @throws KapuaException
+     *             if the request cannot be sent
+     */
+    public CompletionStage<DeviceCommandOutput> execAsync(KapuaId scopeId, KapuaId deviceId, DeviceCommandInput commandInput, Long timeout)
+        throws KapuaException;
 }
@@ -12,6 +12,7 @@
 package org.eclipse.kapua.service.device.management.command.internal;
 
 import java.util.Date;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
@@ -52,6 +53,39 @@ public class DeviceCommandManagementServiceImpl implements DeviceCommandManageme
     @Override
     public DeviceCommandOutput exec(KapuaId scopeId, KapuaId deviceId, DeviceCommandInput commandInput, Long timeout)
             throws KapuaException {
+        CommandRequestMessage commandRequestMessage = prepareRequest(scopeId, deviceId, commandInput);
+
+        //
+        // Do exec
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(commandRequestMessage, timeout);
+        CommandResponseMessage responseMessage = (CommandResponseMessage) deviceApplicationCall.send();
+
+        return handleResponse(scopeId, deviceId, responseMessage);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public CompletionStage<DeviceCommandOutput> execAsync(KapuaId scopeId, KapuaId deviceId, DeviceCommandInput commandInput, Long timeout)
+            throws KapuaException {
+        CommandRequestMessage commandRequestMessage = prepareRequest(scopeId, deviceId, commandInput);
+
+        //
+        // Do exec
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(commandRequestMessage, timeout);
+        return deviceApplicationCall.sendAsync(responseMessage -> handleResponse(scopeId, deviceId, (CommandResponseMessage) responseMessage));
+    }
+
+    /**
+     * Validate the arguments, check the access and prepare the command request
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param commandInput
+     * @return
+     * @throws KapuaException
+     */
+    private CommandRequestMessage prepareRequest(KapuaId scopeId, KapuaId deviceId, DeviceCommandInput commandInput)
+            throws KapuaException {
         //
         // Argument Validation
         ArgumentValidator.notNull(scopeId, "scopeId");
@@ -90,14 +124,23 @@ public class DeviceCommandManagementServiceImpl implements DeviceCommandManageme
         commandRequestMessage.setCapturedOn(new Date());
         commandRequestMessage.setPayload(commandRequestPayload);
         commandRequestMessage.setChannel(commandRequestChannel);
+        return commandRequestMessage;
+    }
 
-        //
-        // Do exec
-        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(commandRequestMessage, timeout);
-        CommandResponseMessage responseMessage = (CommandResponseMessage) deviceApplicationCall.send();
-
+    /**
+     * Create the device event and parse the command response
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param responseMessage
+     * @return
+     * @throws KapuaException
+     */
+    private DeviceCommandOutput handleResponse(KapuaId scopeId, KapuaId deviceId, CommandResponseMessage responseMessage)
+            throws KapuaException {
         //
         // Create event
+        KapuaLocator locator = KapuaLocator.getInstance();
         DeviceEventService deviceEventService = locator.getService(DeviceEventService.class);
         DeviceEventFactory deviceEventFactory = locator.getFactory(DeviceEventFactory.class);
 
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.commons.call;
+
+import java.util.concurrent.Callable;
+
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+
+/**
+ * Security context of the caller of a device call.<br>
+ * It keeps the caller {@link KapuaSession} and Shiro {@link Subject} so the work done on the device management threads
+ * (sending the fan-out requests and handling the asynchronous responses) is authorized with the caller permissions.
+ *
+ * @since 1.0
+ *
+ */
+class DeviceCallContext
+{
+
+    private final KapuaSession session;
+    private final Subject      subject;
+
+    /**
+     * Captures the security context of the current thread
+     */
+    DeviceCallContext()
+    {
+        this.session = KapuaSecurityUtils.getSession();
+        this.subject = ThreadContext.getSubject();
+    }
+
+    /**
+     * Executes the action in the caller security context, restoring the security context of the current thread afterwards
+     *
+     * @param action
+     * @return the action result
+     * @throws KapuaException
+     */
+    <T> T execute(Callable<T> action)
+        throws KapuaException
+    {
+        KapuaSession previousSession = KapuaSecurityUtils.getSession();
+        Subject previousSubject = ThreadContext.getSubject();
+
+        KapuaSecurityUtils.setSession(session);
+        // the subject is unbound too if the caller has none (the subject thread local is inherited by the pool threads)
+        bindSubject(subject);
+        try {
+            return action.call();
+        }
+        catch (KapuaException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw KapuaException.internalError(e);
+        }
+        finally {
+            bindSubject(previousSubject);
+            KapuaSecurityUtils.setSession(previousSession);
+        }
+    }
+
+    private static void bindSubject(Subject subject)
+    {
+        if (subject != null) {
+            ThreadContext.bind(subject);
+        }
+        else {
+            ThreadContext.unbindSubject();
+        }
+    }
+}
@@ -12,6 +12,11 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.management.commons.call;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.service.device.call.DeviceCall;
@@ -28,6 +33,8 @@ import org.eclipse.kapua.service.device.management.request.KapuaRequestPayload;
 import org.eclipse.kapua.service.device.management.response.KapuaResponseMessage;
 import org.eclipse.kapua.translator.Translator;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Device call executor definition.<br>
  * This object executes call, collecting the response from the device.
@@ -43,6 +50,11 @@ import org.eclipse.kapua.translator.Translator;
 @SuppressWarnings("rawtypes")
 public class DeviceCallExecutor<C extends KapuaRequestChannel, P extends KapuaRequestPayload, RQ extends KapuaRequestMessage<C, P>, RS extends KapuaResponseMessage>
 {
+    private static final ExecutorService responseExecutor = Executors.newFixedThreadPool(DeviceManagementSetting.getInstance().getInt(DeviceManagementSettingKey.REQUEST_ASYNC_THREADS, 8),
+                                                                                         new ThreadFactoryBuilder().setNameFormat("kapua-device-management-%d")
+                                                                                                                   .setDaemon(true)
+                                                                                                                   .build());
+
     private RQ   requestMessage;
     private Long timeout;
 
@@ -132,4 +144,78 @@ public class DeviceCallExecutor<C extends KapuaRequestChannel, P extends KapuaRe
 
         return (RS) tClientToKapua.translate(responseMessage);
     }
+
+    /**
+     * Performs the device call without blocking the caller while waiting for the device response.<br>
+     * The translated response is handed to the response handler on a shared device management thread, in the caller session and subject
+     * (so the response handler has the caller permissions, as in {@link #send()}).<br>
+     * The caller is not blocked only when the transport sends asynchronously (MQTT response dispatcher enabled, see {@code transport.dispatcher.enable}):
+     * otherwise the request is sent and its response awaited on the caller thread, and the returned future is already completed.
+     * Use {@link DeviceCallFanOut} to send many requests concurrently in both cases.
+     * 
+     * @param responseHandler
+     *            the handler of the response
+     * @return the future result of the response handler
+     * @throws KapuaException
+     *             if the request cannot be sent
+     */
+    @SuppressWarnings({ "unchecked" })
+    public <T> CompletableFuture<T> sendAsync(ResponseHandler<RS, T> responseHandler)
+        throws KapuaException
+    {
+        if (requestMessage.getChannel().getMethod() == null) {
+            throw new DeviceManagementException(DeviceManagementErrorCodes.REQUEST_BAD_METHOD,
+                                                null,
+                                                (Object) null);
+        }
+
+        //
+        // Get the correct device call
+        KapuaLocator locator = KapuaLocator.getInstance();
+        DeviceCallFactory kapuaDeviceCallFactory = locator.getFactory(DeviceCallFactory.class);
+        DeviceCall<DeviceRequestMessage, DeviceResponseMessage> deviceCall = kapuaDeviceCallFactory.newDeviceCall();
+        Translator tKapuaToClient = Translator.getTranslatorFor(requestMessage.getRequestClass(),
+                                                                deviceCall.getBaseMessageClass());
+        Translator tClientToKapua = Translator.getTranslatorFor(deviceCall.getBaseMessageClass(),
+                                                                requestMessage.getResponseClass());
+
+        timeout = timeout == null ? DeviceManagementSetting.getInstance().getLong(DeviceManagementSettingKey.REQUEST_TIMEOUT) : timeout;
+
+        DeviceRequestMessage deviceRequestMessage = (DeviceRequestMessage) tKapuaToClient.translate(requestMessage);
+
+        DeviceCallContext callerContext = new DeviceCallContext();
+        return deviceCall.sendAsync(deviceRequestMessage, timeout)
+                         .thenApplyAsync(responseMessage -> {
+                             try {
+                                 return callerContext.execute(() -> responseHandler.handle((RS) tClientToKapua.translate(responseMessage)));
+                             }
+                             catch (KapuaException e) {
+                                 throw new CompletionException(e);
+                             }
+                         }, responseExecutor);
+    }
+
+    /**
+     * Device call response handler.<br>
+     * It converts the device response to the expected result type.
+     * 
+     * @param <RS> response message type
+     * @param <T> result type
+     * 
+     * @since 1.0
+     */
+    @FunctionalInterface
+    public interface ResponseHandler<RS, T>
+    {
+
+        /**
+         * Handle the device response
+         * 
+         * @param responseMessage
+         * @return
+         * @throws KapuaException
+         */
+        public T handle(RS responseMessage)
+            throws KapuaException;
+    }
 }
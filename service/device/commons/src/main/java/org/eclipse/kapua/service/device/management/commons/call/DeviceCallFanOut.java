@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.commons.call;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.management.commons.setting.DeviceManagementSetting;
+import org.eclipse.kapua.service.device.management.commons.setting.DeviceManagementSettingKey;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Device call fan-out.<br>
+ * It sends the same request to many devices through an asynchronous device management operation, keeping at most a window of requests in flight.
+ * So the whole fan-out takes about (devices / window) device timeouts instead of one device timeout per device.<br>
+ * The operations are started on a shared pool of {@link DeviceManagementSettingKey#REQUEST_FANOUT_THREADS} sender threads, in the caller session and subject:
+ * <ul>
+ * <li>with the MQTT response dispatcher enabled ({@code transport.dispatcher.enable}) a sender thread only sends the request, so the window bounds the concurrency</li>
+ * <li>with the dispatcher disabled a sender thread waits for the device response, so at most (sender threads) operations are actually in flight</li>
+ * </ul>
+ *
+ * @param <T> result type of the device management operation
+ *
+ * @since 1.0
+ *
+ */
+public class DeviceCallFanOut<T>
+{
+
+    private final Map<KapuaId, CompletableFuture<T>> results = new LinkedHashMap<>();
+    private final Iterator<Entry<KapuaId, CompletableFuture<T>>> pending;
+    private final DeviceOperation<T> operation;
+    private final int window;
+    private final Executor executor;
+    private final DeviceCallContext callerContext;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    private static final ExecutorService senderExecutor = Executors.newFixedThreadPool(DeviceManagementSetting.getInstance().getInt(DeviceManagementSettingKey.REQUEST_FANOUT_THREADS, 50),
+                                                                                       new ThreadFactoryBuilder().setNameFormat("kapua-device-fanout-%d")
+                                                                                                                 .setDaemon(true)
+                                                                                                                 .build());
+
+    private DeviceCallFanOut(Collection<KapuaId> deviceIds, int window, Executor executor, DeviceOperation<T> operation)
+    {
+        for (KapuaId deviceId : deviceIds) {
+            results.put(deviceId, new CompletableFuture<>());
+        }
+        this.pending = results.entrySet().iterator();
+        this.operation = operation;
+        this.window = Math.max(1, window);
+        this.executor = executor;
+        this.callerContext = new DeviceCallContext();
+    }
+
+    /**
+     * Executes the operation on all the given devices with the configured concurrency window
+     *
+     * @param deviceIds
+     * @param operation
+     * @return
+     * @see #execute(Collection, int, DeviceOperation)
+     */
+    public static <T> CompletableFuture<Map<KapuaId, CompletableFuture<T>>> execute(Collection<KapuaId> deviceIds, DeviceOperation<T> operation)
+    {
+        return execute(deviceIds,
+                       DeviceManagementSetting.getInstance().getInt(DeviceManagementSettingKey.REQUEST_FANOUT_WINDOW, 500),
+                       operation);
+    }
+
+    /**
+     * Executes the operation on all the given devices keeping at most window operations in flight.<br>
+     * The returned future is completed when all the operations are completed, with the (completed) result of the operation by device id.
+     * A failed operation doesn't stop the fan-out: its result is completed exceptionally.
+     *
+     * @param deviceIds
+     * @param window
+     *            maximum number of in-flight operations
+     * @param operation
+     * @return
+     */
+    public static <T> CompletableFuture<Map<KapuaId, CompletableFuture<T>>> execute(Collection<KapuaId> deviceIds, int window, DeviceOperation<T> operation)
+    {
+        return execute(deviceIds, window, senderExecutor, operation);
+    }
+
+    /**
+     * Executes the operation on all the given devices keeping at most window operations in flight, starting them on the given executor
+     *
+     * @param deviceIds
+     * @param window
+     *            maximum number of in-flight operations
+     * @param executor
+     *            executor starting the operations
+     * @param operation
+     * @return
+     */
+    static <T> CompletableFuture<Map<KapuaId, CompletableFuture<T>>> execute(Collection<KapuaId> deviceIds, int window, Executor executor, DeviceOperation<T> operation)
+    {
+        DeviceCallFanOut<T> fanOut = new DeviceCallFanOut<>(deviceIds, window, executor, operation);
+        CompletableFuture<Map<KapuaId, CompletableFuture<T>>> allResults = CompletableFuture.allOf(fanOut.results.values().toArray(new CompletableFuture[0]))
+                                                                                           .handle((v, t) -> Collections.unmodifiableMap(fanOut.results));
+        fanOut.drain();
+        return allResults;
+    }
+
+    /**
+     * Starts the pending operations while the window is not full.<br>
+     * Only one thread at a time iterates the pending operations; a drain requested meanwhile is run by that thread
+     * (so an operation completing on the starting thread doesn't recurse).
+     */
+    private void drain()
+    {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            while (inFlight.get() < window && pending.hasNext()) {
+                inFlight.incrementAndGet();
+                start(pending.next());
+            }
+        }
+        while (drainRequests.decrementAndGet() != 0);
+    }
+
+    private void start(Entry<KapuaId, CompletableFuture<T>> entry)
+    {
+        try {
+            executor.execute(() -> send(entry));
+        }
+        catch (RejectedExecutionException e) {
+            entry.getValue().completeExceptionally(e);
+            onCompleted();
+        }
+    }
+
+    private void send(Entry<KapuaId, CompletableFuture<T>> entry)
+    {
+        CompletableFuture<T> result = entry.getValue();
+        try {
+            CompletionStage<T> operationResult = callerContext.execute(() -> operation.execute(entry.getKey()));
+            operationResult.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                }
+                else {
+                    result.complete(value);
+                }
+                onCompleted();
+            });
+        }
+        catch (KapuaException | RuntimeException e) {
+            result.completeExceptionally(e);
+            onCompleted();
+        }
+    }
+
+    private void onCompleted()
+    {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    /**
+     * Asynchronous device management operation executed by the fan-out on each device
+     *
+     * @param <T> result type
+     *
+     * @since 1.0
+     */
+    @FunctionalInterface
+    public interface DeviceOperation<T>
+    {
+
+        /**
+         * Starts the operation on the given device
+         *
+         * @param deviceId
+         * @return
+         * @throws KapuaException
+         */
+        public CompletionStage<T> execute(KapuaId deviceId)
+            throws KapuaException;
+    }
+}
@@ -31,7 +31,22 @@ public enum DeviceManagementSettingKey implements SettingKey
     /**
      * Request timeout
      */
-    REQUEST_TIMEOUT("request.timeout");
+    REQUEST_TIMEOUT("request.timeout"),
+
+    /**
+     * Number of threads handling the responses of the asynchronous requests
+     */
+    REQUEST_ASYNC_THREADS("request.async.threads"),
+
+    /**
+     * Maximum number of in-flight requests of a fan-out to many devices
+     */
+    REQUEST_FANOUT_WINDOW("request.fanout.window"),
+
+    /**
+     * Number of threads sending the requests of the fan-outs to many devices
+     */
+    REQUEST_FANOUT_THREADS("request.fanout.threads");
 
     private String key;
 
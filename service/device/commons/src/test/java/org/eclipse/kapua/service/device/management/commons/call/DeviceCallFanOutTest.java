@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.management.commons.call;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.subject.support.DelegatingSubject;
+import org.apache.shiro.util.ThreadContext;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.junit.Test;
+
+public class DeviceCallFanOutTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void testWindow() throws Exception {
+        List<KapuaId> deviceIds = deviceIds(100);
+        Queue<CompletableFuture<String>> inFlightOperations = new ConcurrentLinkedQueue<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger inFlightMax = new AtomicInteger();
+
+        CompletableFuture<Map<KapuaId, CompletableFuture<String>>> results = DeviceCallFanOut.execute(deviceIds, 10, DIRECT, deviceId -> {
+            inFlightMax.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<String> operation = new CompletableFuture<>();
+            inFlightOperations.add(operation);
+            return operation.thenApply(v -> deviceId.toString());
+        });
+
+        // the window is filled, the other operations wait for a completion
+        assertEquals(10, inFlightOperations.size());
+        CompletableFuture<String> operation;
+        int completed = 0;
+        while ((operation = inFlightOperations.poll()) != null) {
+            assertFalse(results.isDone());
+            inFlight.decrementAndGet();
+            operation.complete(null);
+            completed++;
+            assertTrue(inFlightOperations.size() <= 10);
+        }
+
+        assertEquals(100, completed);
+        assertEquals(10, inFlightMax.get());
+        Map<KapuaId, CompletableFuture<String>> resultsByDevice = results.get(1, TimeUnit.SECONDS);
+        assertEquals(deviceIds, new ArrayList<>(resultsByDevice.keySet()));
+        for (KapuaId deviceId : deviceIds) {
+            assertEquals(deviceId.toString(), resultsByDevice.get(deviceId).get());
+        }
+    }
+
+    @Test
+    public void testFailedOperations() throws Exception {
+        List<KapuaId> deviceIds = deviceIds(30);
+
+        Map<KapuaId, CompletableFuture<String>> results = DeviceCallFanOut.execute(deviceIds, 4, DIRECT, deviceId -> {
+            switch (deviceId.getId().intValue() % 3) {
+            case 0:
+                throw KapuaException.internalError("send error");
+            case 1:
+                CompletableFuture<String> failed = new CompletableFuture<>();
+                failed.completeExceptionally(KapuaException.internalError("device error"));
+                return failed;
+            default:
+                return CompletableFuture.completedFuture(deviceId.toString());
+            }
+        }).get(1, TimeUnit.SECONDS);
+
+        // a failure doesn't stop the fan-out
+        assertEquals(30, results.size());
+        for (KapuaId deviceId : deviceIds) {
+            CompletableFuture<String> result = results.get(deviceId);
+            if (deviceId.getId().intValue() % 3 < 2) {
+                assertTrue(result.isCompletedExceptionally());
+            } else {
+                assertEquals(deviceId.toString(), result.get());
+            }
+        }
+    }
+
+    @Test
+    public void testRejectedOperations() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        Map<KapuaId, CompletableFuture<String>> results = DeviceCallFanOut.execute(deviceIds(5), 2, executor, deviceId -> CompletableFuture.completedFuture("ok"))
+                .get(1, TimeUnit.SECONDS);
+
+        assertEquals(5, results.size());
+        for (CompletableFuture<String> result : results.values()) {
+            assertTrue(result.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void testSynchronousOperations() throws Exception {
+        // operations completed before returning (e.g. MQTT response dispatcher disabled) don't recurse
+        Map<KapuaId, CompletableFuture<Integer>> results = DeviceCallFanOut.execute(deviceIds(100_000), 10, DIRECT,
+                deviceId -> CompletableFuture.completedFuture(deviceId.getId().intValue()))
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(100_000, results.size());
+        for (Map.Entry<KapuaId, CompletableFuture<Integer>> result : results.entrySet()) {
+            assertEquals(result.getKey().getId().intValue(), result.getValue().get().intValue());
+        }
+    }
+
+    @Test
+    public void testBlockingOperationsRunConcurrently() throws Exception {
+        // operations waiting for the device response on the sending thread (MQTT response dispatcher disabled)
+        // still run concurrently: each one waits for all the others of the window to start
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(10);
+            Map<KapuaId, CompletableFuture<Boolean>> results = DeviceCallFanOut.execute(deviceIds(50), 10, executor, deviceId -> {
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                    return CompletableFuture.completedFuture(true);
+                } catch (Exception e) {
+                    throw KapuaException.internalError(e);
+                }
+            }).get(30, TimeUnit.SECONDS);
+
+            assertEquals(50, results.size());
+            for (CompletableFuture<Boolean> result : results.values()) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallerSession() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        KapuaSession session = new KapuaSession();
+        KapuaSecurityUtils.setSession(session);
+        try {
+            Map<KapuaId, CompletableFuture<KapuaSession>> results = DeviceCallFanOut.execute(deviceIds(3), 1, executor,
+                    deviceId -> CompletableFuture.completedFuture(KapuaSecurityUtils.getSession()))
+                    .get(1, TimeUnit.SECONDS);
+
+            for (CompletableFuture<KapuaSession> result : results.values()) {
+                assertSame(session, result.get());
+            }
+            // the sender thread session is restored
+            assertNull(executor.submit(KapuaSecurityUtils::getSession).get());
+        } finally {
+            KapuaSecurityUtils.clearSession();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallerSubject() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        // start the sender thread before binding the subject (the subject is inherited by the new threads)
+        executor.submit(() -> null).get();
+        Subject subject = new DelegatingSubject(new DefaultSecurityManager());
+        ThreadContext.bind(subject);
+        try {
+            // the operations are authorized with the caller permissions, not in trusted mode
+            Map<KapuaId, CompletableFuture<Subject>> results = DeviceCallFanOut.execute(deviceIds(3), 1, executor,
+                    deviceId -> CompletableFuture.completedFuture(ThreadContext.getSubject()))
+                    .get(1, TimeUnit.SECONDS);
+
+            for (CompletableFuture<Subject> result : results.values()) {
+                assertSame(subject, result.get());
+            }
+            // the sender thread subject is restored
+            assertNull(executor.submit(ThreadContext::getSubject).get());
+        } finally {
+            ThreadContext.unbindSubject();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNoDevices() throws InterruptedException, ExecutionException {
+        assertTrue(DeviceCallFanOut.execute(new ArrayList<KapuaId>(), 10, DIRECT, deviceId -> CompletableFuture.completedFuture("ok")).get().isEmpty());
+    }
+
+    private static List<KapuaId> deviceIds(int count) {
+        List<KapuaId> deviceIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            deviceIds.add(new KapuaEid(BigInteger.valueOf(i)));
+        }
+        return deviceIds;
+    }
+}
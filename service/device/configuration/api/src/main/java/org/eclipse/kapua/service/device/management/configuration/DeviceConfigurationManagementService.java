@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.management.configuration;
 
+import java.util.concurrent.CompletionStage;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.KapuaService;
@@ -43,6 +45,24 @@ public interface DeviceConfigurationManagementService extends KapuaService
                                    Long timeout)
         throws KapuaException;
 
+    /**
+     * Get the device configuration for the given device identifier and configuration identifier without blocking the caller while waiting for the device response
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param configurationId
+     * @param configurationComponentPid
+     * @param timeout timeout waiting for the device response
+     * @return the future device configuration
+     * @throws KapuaException if the request cannot be sent
+     */
+    public CompletionStage<DeviceConfiguration> getAsync(KapuaId scopeId,
+                                                         KapuaId deviceId,
+                                                         String configurationId,
+                                                         String configurationComponentPid,
+                                                         Long timeout)
+        throws KapuaException;
+
     /**
      * Put the provided configuration to the device identified by the provided device identifier
      * 
@@ -67,6 +87,19 @@ public interface DeviceConfigurationManagementService extends KapuaService
     public void put(KapuaId scopeId, KapuaId deviceId, DeviceConfiguration deviceConfig, Long timeout)
         throws KapuaException;
 
+    /**
+     * Put the provided configuration to the device identified by the provided device identifier without blocking the caller while waiting for the device response
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param deviceConfig
+     * @param timeout timeout waiting for the device response
+     * @return the future completed when the device has applied the configuration
+     * @throws KapuaException if the request cannot be sent
+     */
+    public CompletionStage<Void> putAsync(KapuaId scopeId, KapuaId deviceId, DeviceConfiguration deviceConfig, Long timeout)
+        throws KapuaException;
+
     /**
      * Put the provided configuration to the device identified by the provided device identifier
      * 
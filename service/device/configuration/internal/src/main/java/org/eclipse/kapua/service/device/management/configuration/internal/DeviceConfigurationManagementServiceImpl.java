@@ -14,6 +14,7 @@ package org.eclipse.kapua.service.device.management.configuration.internal;
 
 import java.io.StringWriter;
 import java.util.Date;
+import java.util.concurrent.CompletionStage;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.stream.FactoryConfigurationError;
@@ -65,6 +66,40 @@ public class DeviceConfigurationManagementServiceImpl implements DeviceConfigura
     @Override
     public DeviceConfiguration get(KapuaId scopeId, KapuaId deviceId, String configurationId, String configurationComponentPid, Long timeout)
             throws KapuaException {
+        ConfigurationRequestMessage configurationRequestMessage = prepareGetRequest(scopeId, deviceId, configurationId, configurationComponentPid);
+
+        //
+        // Do get
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(configurationRequestMessage, timeout);
+        ConfigurationResponseMessage responseMessage = (ConfigurationResponseMessage) deviceApplicationCall.send();
+
+        return handleGetResponse(scopeId, deviceId, responseMessage);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public CompletionStage<DeviceConfiguration> getAsync(KapuaId scopeId, KapuaId deviceId, String configurationId, String configurationComponentPid, Long timeout)
+            throws KapuaException {
+        ConfigurationRequestMessage configurationRequestMessage = prepareGetRequest(scopeId, deviceId, configurationId, configurationComponentPid);
+
+        //
+        // Do get
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(configurationRequestMessage, timeout);
+        return deviceApplicationCall.sendAsync(responseMessage -> handleGetResponse(scopeId, deviceId, (ConfigurationResponseMessage) responseMessage));
+    }
+
+    /**
+     * Validate the arguments, check the access and prepare the configuration read request
+     *
+     * @param scopeId
+     * @param deviceId
+     * @param configurationId
+     * @param configurationComponentPid
+     * @return
+     * @throws KapuaException
+     */
+    private ConfigurationRequestMessage prepareGetRequest(KapuaId scopeId, KapuaId deviceId, String configurationId, String configurationComponentPid)
+            throws KapuaException {
         //
         // Argument Validation
         ArgumentValidator.notNull(scopeId, "scopeId");
@@ -94,12 +129,20 @@ public class DeviceConfigurationManagementServiceImpl implements DeviceConfigura
         configurationRequestMessage.setCapturedOn(new Date());
         configurationRequestMessage.setPayload(configurationRequestPayload);
         configurationRequestMessage.setChannel(configurationRequestChannel);
+        return configurationRequestMessage;
+    }
 
-        //
-        // Do get
-        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(configurationRequestMessage, timeout);
-        ConfigurationResponseMessage responseMessage = (ConfigurationResponseMessage) deviceApplicationCall.send();
-
+    /**
+     * Parse the configuration read response and create the device event
+     *
+     * @param scopeId
+     * @param deviceId
+     * @param responseMessage
+     * @return
+     * @throws KapuaException
+     */
+    private DeviceConfiguration handleGetResponse(KapuaId scopeId, KapuaId deviceId, ConfigurationResponseMessage responseMessage)
+            throws KapuaException {
         //
         // Parse the response
         ConfigurationResponsePayload responsePayload = responseMessage.getPayload();
@@ -127,6 +170,7 @@ public class DeviceConfigurationManagementServiceImpl implements DeviceConfigura
 
         //
         // Create event
+        KapuaLocator locator = KapuaLocator.getInstance();
         DeviceEventService deviceEventService = locator.getService(DeviceEventService.class);
         DeviceEventFactory deviceEventFactory = locator.getFactory(DeviceEventFactory.class);
 
@@ -199,20 +243,7 @@ public class DeviceConfigurationManagementServiceImpl implements DeviceConfigura
         DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(configurationRequestMessage, timeout);
         ConfigurationResponseMessage responseMessage = (ConfigurationResponseMessage) deviceApplicationCall.send();
 
-        //
-        // Create event
-        DeviceEventService deviceEventService = locator.getService(DeviceEventService.class);
-        DeviceEventFactory deviceEventFactory = locator.getFactory(DeviceEventFactory.class);
-
-        DeviceEventCreator deviceEventCreator = deviceEventFactory.newCreator(scopeId, deviceId, responseMessage.getReceivedOn(), DeviceConfigurationAppProperties.APP_NAME.getValue());
-        deviceEventCreator.setPosition(responseMessage.getPosition());
-        deviceEventCreator.setSentOn(responseMessage.getSentOn());
-        deviceEventCreator.setAction(KapuaMethod.WRITE);
-        deviceEventCreator.setResponseCode(responseMessage.getResponseCode());
-        deviceEventCreator.setEventMessage(responseMessage.getPayload().toDisplayString());
-
-        deviceEventService.create(deviceEventCreator);
-
+        handlePutResponse(scopeId, deviceId, responseMessage);
     }
 
     @Override
@@ -233,6 +264,42 @@ public class DeviceConfigurationManagementServiceImpl implements DeviceConfigura
     @Override
     public void put(KapuaId scopeId, KapuaId deviceId, DeviceConfiguration deviceConfiguration, Long timeout)
             throws KapuaException {
+        ConfigurationRequestMessage configurationRequestMessage = preparePutRequest(scopeId, deviceId, deviceConfiguration);
+
+        //
+        // Do put
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(configurationRequestMessage, timeout);
+        ConfigurationResponseMessage responseMessage = (ConfigurationResponseMessage) deviceApplicationCall.send();
+
+        handlePutResponse(scopeId, deviceId, responseMessage);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public CompletionStage<Void> putAsync(KapuaId scopeId, KapuaId deviceId, DeviceConfiguration deviceConfiguration, Long timeout)
+            throws KapuaException {
+        ConfigurationRequestMessage configurationRequestMessage = preparePutRequest(scopeId, deviceId, deviceConfiguration);
+
+        //
+        // Do put
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(configurationRequestMessage, timeout);
+        return deviceApplicationCall.sendAsync(responseMessage -> {
+            handlePutResponse(scopeId, deviceId, (ConfigurationResponseMessage) responseMessage);
+            return null;
+        });
+    }
+
+    /**
+     * Validate the arguments, check the access and prepare the configuration write request
+     *
+     * @param scopeId
+     * @param deviceId
+     * @param deviceConfiguration
+     * @return
+     * @throws KapuaException
+     */
+    private ConfigurationRequestMessage preparePutRequest(KapuaId scopeId, KapuaId deviceId, DeviceConfiguration deviceConfiguration)
+            throws KapuaException {
         //
         // Argument Validation
         ArgumentValidator.notNull(scopeId, "scopeId");
@@ -274,14 +341,22 @@ public class DeviceConfigurationManagementServiceImpl implements DeviceConfigura
         configurationRequestMessage.setCapturedOn(new Date());
         configurationRequestMessage.setPayload(configurationRequestPayload);
         configurationRequestMessage.setChannel(configurationRequestChannel);
+        return configurationRequestMessage;
+    }
 
-        //
-        // Do put
-        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(configurationRequestMessage, timeout);
-        ConfigurationResponseMessage responseMessage = (ConfigurationResponseMessage) deviceApplicationCall.send();
-
+    /**
+     * Create the device event of the configuration write response
+     *
+     * @param scopeId
+     * @param deviceId
+     * @param responseMessage
+     * @throws KapuaException
+     */
+    private void handlePutResponse(KapuaId scopeId, KapuaId deviceId, ConfigurationResponseMessage responseMessage)
+            throws KapuaException {
         //
         // Create event
+        KapuaLocator locator = KapuaLocator.getInstance();
         DeviceEventService deviceEventService = locator.getService(DeviceEventService.class);
         DeviceEventFactory deviceEventFactory = locator.getFactory(DeviceEventFactory.class);
 
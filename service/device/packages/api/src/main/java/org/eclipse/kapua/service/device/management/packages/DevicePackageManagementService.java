@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.management.packages;
 
+import java.util.concurrent.CompletionStage;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.KapuaService;
@@ -44,6 +46,18 @@ public interface DevicePackageManagementService extends KapuaService
     public DevicePackages getInstalled(KapuaId scopeId, KapuaId deviceId, Long timeout)
         throws KapuaException;
 
+    /**
+     * Get the installed packages list without blocking the caller while waiting for the device response
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param timeout
+     * @return the future installed packages list
+     * @throws KapuaException if the request cannot be sent
+     */
+    public CompletionStage<DevicePackages> getInstalledAsync(KapuaId scopeId, KapuaId deviceId, Long timeout)
+        throws KapuaException;
+
     /**
      * Starts a download package operation
      * 
@@ -56,6 +70,19 @@ public interface DevicePackageManagementService extends KapuaService
     public void downloadExec(KapuaId scopeId, KapuaId deviceId, DevicePackageDownloadRequest packageDownloadRequest, Long timeout)
         throws KapuaException;
 
+    /**
+     * Starts a download package operation without blocking the caller while waiting for the device response
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param packageDownloadRequest
+     * @param timeout
+     * @return the future completed when the device has accepted the download operation
+     * @throws KapuaException if the request cannot be sent
+     */
+    public CompletionStage<Void> downloadExecAsync(KapuaId scopeId, KapuaId deviceId, DevicePackageDownloadRequest packageDownloadRequest, Long timeout)
+        throws KapuaException;
+
     /**
      * Interrupt a download package operation
      * 
@@ -12,6 +12,7 @@
 package org.eclipse.kapua.service.device.management.packages.internal;
 
 import java.util.Date;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.model.id.IdGenerator;
@@ -69,6 +70,39 @@ public class DevicePackageManagementServiceImpl implements DevicePackageManageme
     @Override
     public DevicePackages getInstalled(KapuaId scopeId, KapuaId deviceId, Long timeout)
             throws KapuaException {
+        PackageRequestMessage packageRequestMessage = prepareGetInstalledRequest(scopeId, deviceId);
+
+        //
+        // Do get
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(packageRequestMessage, timeout);
+        PackageResponseMessage responseMessage = (PackageResponseMessage) deviceApplicationCall.send();
+
+        return handleGetInstalledResponse(scopeId, deviceId, responseMessage);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public CompletionStage<DevicePackages> getInstalledAsync(KapuaId scopeId, KapuaId deviceId, Long timeout)
+            throws KapuaException {
+        PackageRequestMessage packageRequestMessage = prepareGetInstalledRequest(scopeId, deviceId);
+
+        //
+        // Do get
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(packageRequestMessage, timeout);
+        return deviceApplicationCall.sendAsync(responseMessage -> handleGetInstalledResponse(scopeId, deviceId, (PackageResponseMessage) responseMessage));
+    }
+
+    /**
+     * Validate the arguments, check the access and prepare the installed packages request
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @return
+     * @throws KapuaException
+     */
+    private PackageRequestMessage prepareGetInstalledRequest(KapuaId scopeId, KapuaId deviceId)
+            throws KapuaException {
         //
         // Argument Validation
         ArgumentValidator.notNull(scopeId, "scopeId");
@@ -97,13 +131,20 @@ public class DevicePackageManagementServiceImpl implements DevicePackageManageme
         packageRequestMessage.setCapturedOn(new Date());
         packageRequestMessage.setPayload(packageRequestPayload);
         packageRequestMessage.setChannel(packageRequestChannel);
+        return packageRequestMessage;
+    }
 
-        //
-        // Do get
-        @SuppressWarnings({ "rawtypes", "unchecked" })
-        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(packageRequestMessage, timeout);
-        PackageResponseMessage responseMessage = (PackageResponseMessage) deviceApplicationCall.send();
-
+    /**
+     * Parse the installed packages response and create the device event
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param responseMessage
+     * @return
+     * @throws KapuaException
+     */
+    private DevicePackages handleGetInstalledResponse(KapuaId scopeId, KapuaId deviceId, PackageResponseMessage responseMessage)
+            throws KapuaException {
         //
         // Parse the response
         PackageResponsePayload responsePayload = responseMessage.getPayload();
@@ -133,6 +174,7 @@ public class DevicePackageManagementServiceImpl implements DevicePackageManageme
 
         //
         // Create event
+        KapuaLocator locator = KapuaLocator.getInstance();
         DeviceEventService deviceEventService = locator.getService(DeviceEventService.class);
         DeviceEventFactory deviceEventFactory = locator.getFactory(DeviceEventFactory.class);
 
@@ -151,6 +193,43 @@ public class DevicePackageManagementServiceImpl implements DevicePackageManageme
     @Override
     public void downloadExec(KapuaId scopeId, KapuaId deviceId, DevicePackageDownloadRequest packageDownloadRequest, Long timeout)
             throws KapuaException {
+        PackageRequestMessage packageRequestMessage = prepareDownloadExecRequest(scopeId, deviceId, packageDownloadRequest);
+
+        //
+        // Do exec
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(packageRequestMessage, timeout);
+        PackageResponseMessage responseMessage = (PackageResponseMessage) deviceApplicationCall.send();
+
+        handleDownloadExecResponse(scopeId, deviceId, responseMessage);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public CompletionStage<Void> downloadExecAsync(KapuaId scopeId, KapuaId deviceId, DevicePackageDownloadRequest packageDownloadRequest, Long timeout)
+            throws KapuaException {
+        PackageRequestMessage packageRequestMessage = prepareDownloadExecRequest(scopeId, deviceId, packageDownloadRequest);
+
+        //
+        // Do exec
+        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(packageRequestMessage, timeout);
+        return deviceApplicationCall.sendAsync(responseMessage -> {
+            handleDownloadExecResponse(scopeId, deviceId, (PackageResponseMessage) responseMessage);
+            return null;
+        });
+    }
+
+    /**
+     * Validate the arguments, check the access and prepare the download package request
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param packageDownloadRequest
+     * @return
+     * @throws KapuaException
+     */
+    private PackageRequestMessage prepareDownloadExecRequest(KapuaId scopeId, KapuaId deviceId, DevicePackageDownloadRequest packageDownloadRequest)
+            throws KapuaException {
         //
         // Argument Validation
         ArgumentValidator.notNull(scopeId, "scopeId");
@@ -194,15 +273,22 @@ public class DevicePackageManagementServiceImpl implements DevicePackageManageme
         packageRequestMessage.setCapturedOn(new Date());
         packageRequestMessage.setPayload(packageRequestPayload);
         packageRequestMessage.setChannel(packageRequestChannel);
+        return packageRequestMessage;
+    }
 
-        //
-        // Do exec
-        @SuppressWarnings({ "rawtypes", "unchecked" })
-        DeviceCallExecutor deviceApplicationCall = new DeviceCallExecutor(packageRequestMessage, timeout);
-        PackageResponseMessage responseMessage = (PackageResponseMessage) deviceApplicationCall.send();
-
+    /**
+     * Create the device event of the download package response
+     * 
+     * @param scopeId
+     * @param deviceId
+     * @param responseMessage
+     * @throws KapuaException
+     */
+    private void handleDownloadExecResponse(KapuaId scopeId, KapuaId deviceId, PackageResponseMessage responseMessage)
+            throws KapuaException {
         //
         // Create event
+        KapuaLocator locator = KapuaLocator.getInstance();
         DeviceEventService deviceEventService = locator.getService(DeviceEventService.class);
         DeviceEventFactory deviceEventFactory = locator.getFactory(DeviceEventFactory.class);
 
@@ -69,4 +69,27 @@ public interface DeviceConnectionService extends KapuaEntityService<DeviceConnec
      */
     public void disconnect(KapuaId scopeId, String clientId)
             throws KapuaException;
+
+    /**
+     * Updated the status of provided device connection to the given disconnection status
+     * 
+     * @param scopeId
+     * @param clientId
+     * @param status
+     *            the disconnection status ({@link DeviceConnectionStatus#DISCONNECTED} or {@link DeviceConnectionStatus#MISSING} if the client disconnected unexpectedly)
+     * @throws KapuaException
+     */
+    public void disconnect(KapuaId scopeId, String clientId, DeviceConnectionStatus status)
+            throws KapuaException;
+
+    /**
+     * Reconcile the device connection statuses with the broker state after a broker (re)start:
+     * the device connections still {@link DeviceConnectionStatus#CONNECTED} (e.g. whose disconnection was lost by a crash) are set to {@link DeviceConnectionStatus#MISSING}.<br>
+     * To be called before accepting any client connection.
+     * 
+     * @return the number of device connections set to {@link DeviceConnectionStatus#MISSING}
+     * @throws KapuaException
+     */
+    public int reconcile()
+            throws KapuaException;
 }
@@ -12,15 +12,21 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.registry.connection.internal;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
 import org.eclipse.kapua.commons.service.internal.ServiceDAO;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCreator;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionListResult;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionPredicates;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
 
 /**
@@ -100,6 +106,67 @@ public class DeviceConnectionDAO extends ServiceDAO {
         return ServiceDAO.count(em, DeviceConnection.class, DeviceConnectionImpl.class, query);
     }
 
+    /**
+     * Apply the status transitions to the device connections of the clients of the scope.<br>
+     * The device connections are loaded by a single query and updated at commit (so the updates can be sent in a single JDBC batch);
+     * the missing device connections are created (connect transitions only).
+     *
+     * @param em
+     * @param scopeId
+     * @param transitions
+     *            the transitions of the clients of the scope (at most one for each client)
+     * @throws KapuaException
+     */
+    static void apply(EntityManager em, KapuaId scopeId, Collection<DeviceConnectionStatusTransition> transitions)
+            throws KapuaException {
+        Map<String, DeviceConnectionStatusTransition> transitionsByClientId = new HashMap<>();
+        for (DeviceConnectionStatusTransition transition : transitions) {
+            transitionsByClientId.put(transition.getClientId(), transition);
+        }
+
+        DeviceConnectionQueryImpl query = new DeviceConnectionQueryImpl(scopeId);
+        query.setPredicate(new AttributePredicate<String[]>(DeviceConnectionPredicates.CLIENT_ID, transitionsByClientId.keySet().toArray(new String[transitionsByClientId.size()])));
+        for (DeviceConnection deviceConnection : query(em, query).getItems()) {
+            DeviceConnectionStatusTransition transition = transitionsByClientId.remove(deviceConnection.getClientId());
+            if (transition != null) {
+                transition.applyTo(deviceConnection);
+            }
+        }
+
+        for (DeviceConnectionStatusTransition transition : transitionsByClientId.values()) {
+            DeviceConnectionCreator deviceConnectionCreator = transition.toCreator();
+            if (deviceConnectionCreator != null) {
+                transition.applyTo(create(em, deviceConnectionCreator));
+            }
+        }
+    }
+
+    /**
+     * Set the status of the device connections (of any scope) with the given status
+     *
+     * @param em
+     * @param status
+     *            the current status
+     * @param newStatus
+     *            the status to set
+     * @param limit
+     *            the maximum number of device connections to update
+     * @return the number of updated device connections
+     * @throws KapuaException
+     */
+    public static int updateStatus(EntityManager em, DeviceConnectionStatus status, DeviceConnectionStatus newStatus, int limit)
+            throws KapuaException {
+        DeviceConnectionQueryImpl query = new DeviceConnectionQueryImpl(null);
+        query.setPredicate(new AttributePredicate<DeviceConnectionStatus>(DeviceConnectionPredicates.STATUS, status));
+        query.setLimit(limit);
+
+        DeviceConnectionListResult deviceConnections = query(em, query);
+        for (DeviceConnection deviceConnection : deviceConnections.getItems()) {
+            deviceConnection.setStatus(newStatus);
+        }
+        return deviceConnections.getSize();
+    }
+
     /**
      * Delete the device connection by device connection identifier
      *
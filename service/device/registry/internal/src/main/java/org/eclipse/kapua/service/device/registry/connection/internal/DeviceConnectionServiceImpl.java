@@ -12,8 +12,11 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.registry.connection.internal;
 
+import java.util.Collections;
+
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
 import org.eclipse.kapua.commons.service.internal.AbstractKapuaService;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
@@ -31,11 +34,14 @@ import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCrea
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionListResult;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionPredicates;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
 import org.eclipse.kapua.service.device.registry.internal.DeviceEntityManagerFactory;
 
 /**
  * DeviceConnectionService exposes APIs to retrieve Device connections under a scope.
- * It includes APIs to find, list, and update devices connections associated with a scope.
+ * It includes APIs to find, list, and update devices connections associated with a scope.<br>
+ * The connect/disconnect status transitions are written in background if the write-behind is enabled (see {@link DeviceConnectionStatusWriter});
+ * the device connections read are then updated with the latest transitions not written yet.
  *
  * @since 1.0
  */
@@ -44,6 +50,8 @@ public class DeviceConnectionServiceImpl extends AbstractKapuaService implements
 
     private static final Domain deviceConnectonDomain = new DeviceConnectionDomain();
 
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
     public DeviceConnectionServiceImpl() {
         super(DeviceEntityManagerFactory.instance());
     }
@@ -107,7 +115,9 @@ public class DeviceConnectionServiceImpl extends AbstractKapuaService implements
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(deviceConnectonDomain, Actions.read, scopeId));
 
-        return entityManagerSession.onResult(em -> DeviceConnectionDAO.find(em, entityId));
+        DeviceConnection deviceConnection = entityManagerSession.onResult(em -> DeviceConnectionDAO.find(em, entityId));
+        applyPendingTransitions(deviceConnection);
+        return deviceConnection;
     }
 
     @Override
@@ -150,7 +160,11 @@ public class DeviceConnectionServiceImpl extends AbstractKapuaService implements
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(deviceConnectonDomain, Actions.read, query.getScopeId()));
 
-        return entityManagerSession.onResult(em -> DeviceConnectionDAO.query(em, query));
+        DeviceConnectionListResult deviceConnections = entityManagerSession.onResult(em -> DeviceConnectionDAO.query(em, query));
+        for (DeviceConnection deviceConnection : deviceConnections.getItems()) {
+            applyPendingTransitions(deviceConnection);
+        }
+        return deviceConnections;
     }
 
     @Override
@@ -197,15 +211,89 @@ public class DeviceConnectionServiceImpl extends AbstractKapuaService implements
     @Override
     public void connect(DeviceConnectionCreator creator)
             throws KapuaException {
-        // TODO Auto-generated method stub
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(creator, "deviceConnectionCreator");
+        ArgumentValidator.notNull(creator.getScopeId(), "deviceConnectionCreator.scopeId");
+        ArgumentValidator.notEmptyOrNull(creator.getClientId(), "deviceConnectionCreator.clientId");
+        ArgumentValidator.notNull(creator.getUserId(), "deviceConnectionCreator.userId");
 
+        submit(DeviceConnectionStatusTransition.connect(creator));
     }
 
     @Override
     public void disconnect(KapuaId scopeId, String clientId)
             throws KapuaException {
-        // TODO Auto-generated method stub
+        disconnect(scopeId, clientId, DeviceConnectionStatus.DISCONNECTED);
+    }
+
+    @Override
+    public void disconnect(KapuaId scopeId, String clientId, DeviceConnectionStatus status)
+            throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notEmptyOrNull(clientId, "clientId");
+        ArgumentValidator.notNull(status, "status");
+        if (status == DeviceConnectionStatus.CONNECTED) {
+            throw new KapuaIllegalArgumentException("status", status.name());
+        }
+
+        submit(DeviceConnectionStatusTransition.disconnect(scopeId, clientId, status));
+    }
+
+    @Override
+    public int reconcile()
+            throws KapuaException {
+        //
+        // Check Access
+        KapuaLocator locator = KapuaLocator.getInstance();
+        AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
+        PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
+        authorizationService.checkPermission(permissionFactory.newPermission(deviceConnectonDomain, Actions.write, null));
 
+        // write the pending transitions (if any) first
+        DeviceConnectionStatusWriter writer = DeviceConnectionStatusWriter.getStartedInstance();
+        if (writer != null) {
+            writer.flush();
+        }
+
+        int reconciled = 0;
+        int updated;
+        do {
+            updated = entityManagerSession.onTransactedResult(em -> DeviceConnectionDAO.updateStatus(em, DeviceConnectionStatus.CONNECTED, DeviceConnectionStatus.MISSING, RECONCILE_BATCH_SIZE));
+            reconciled += updated;
+        } while (updated == RECONCILE_BATCH_SIZE);
+        return reconciled;
+    }
+
+    /**
+     * Submit the status transition to the write-behind writer if enabled, otherwise write it
+     */
+    private void submit(DeviceConnectionStatusTransition transition) throws KapuaException {
+        //
+        // Check Access
+        KapuaLocator locator = KapuaLocator.getInstance();
+        AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
+        PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
+        authorizationService.checkPermission(permissionFactory.newPermission(deviceConnectonDomain, Actions.write, transition.getScopeId()));
+
+        DeviceConnectionStatusWriter writer = DeviceConnectionStatusWriter.getInstance();
+        if (writer != null) {
+            writer.submit(transition);
+        } else {
+            entityManagerSession.onTransactedAction(em -> DeviceConnectionDAO.apply(em, transition.getScopeId(), Collections.singletonList(transition)));
+        }
+    }
+
+    /**
+     * Apply the latest status transition not written yet (if any) to the device connection
+     */
+    private static void applyPendingTransitions(DeviceConnection deviceConnection) {
+        DeviceConnectionStatusWriter writer = DeviceConnectionStatusWriter.getStartedInstance();
+        if (writer != null) {
+            writer.applyPending(deviceConnection);
+        }
     }
 
 }
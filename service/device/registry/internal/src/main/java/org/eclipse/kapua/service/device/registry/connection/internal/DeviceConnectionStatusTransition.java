@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.registry.connection.internal;
+
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCreator;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
+
+/**
+ * Device connection status transition (connect or disconnect) of a client.<br>
+ * The transition keeps the session of the submitter, so the write-behind is done on behalf of the same user of a synchronous update.
+ *
+ * @since 1.0
+ */
+class DeviceConnectionStatusTransition {
+
+    private final KapuaId scopeId;
+    private final String clientId;
+    private final DeviceConnectionStatus status;
+
+    // connection informations (connect only)
+    private final KapuaId userId;
+    private final String protocol;
+    private final String clientIp;
+    private final String serverIp;
+
+    private final KapuaSession session;
+
+    // failed writes (written by the writer flusher only)
+    private volatile int failures;
+    private volatile long retryAt;
+
+    private DeviceConnectionStatusTransition(KapuaId scopeId, String clientId, DeviceConnectionStatus status, KapuaId userId, String protocol, String clientIp, String serverIp) {
+        this(scopeId, clientId, status, userId, protocol, clientIp, serverIp, KapuaSecurityUtils.getSession());
+    }
+
+    private DeviceConnectionStatusTransition(KapuaId scopeId, String clientId, DeviceConnectionStatus status, KapuaId userId, String protocol, String clientIp, String serverIp,
+            KapuaSession session) {
+        this.scopeId = scopeId;
+        this.clientId = clientId;
+        this.status = status;
+        this.userId = userId;
+        this.protocol = protocol;
+        this.clientIp = clientIp;
+        this.serverIp = serverIp;
+        this.session = session;
+    }
+
+    /**
+     * Build the connect transition of the client described by the creator
+     *
+     * @param creator
+     * @return
+     */
+    static DeviceConnectionStatusTransition connect(DeviceConnectionCreator creator) {
+        return new DeviceConnectionStatusTransition(creator.getScopeId(),
+                creator.getClientId(),
+                DeviceConnectionStatus.CONNECTED,
+                creator.getUserId(),
+                creator.getProtocol(),
+                creator.getClientIp(),
+                creator.getServerIp());
+    }
+
+    /**
+     * Build the disconnect transition of the client
+     *
+     * @param scopeId
+     * @param clientId
+     * @param status
+     *            the disconnection status ({@link DeviceConnectionStatus#DISCONNECTED} or {@link DeviceConnectionStatus#MISSING})
+     * @return
+     */
+    static DeviceConnectionStatusTransition disconnect(KapuaId scopeId, String clientId, DeviceConnectionStatus status) {
+        return new DeviceConnectionStatusTransition(scopeId, clientId, status, null, null, null, null);
+    }
+
+    /**
+     * Get the key identifying the client (scope id and client id)
+     *
+     * @param scopeId
+     * @param clientId
+     * @return
+     */
+    static String getKey(KapuaId scopeId, String clientId) {
+        return scopeId.toCompactId() + ":" + clientId;
+    }
+
+    String getKey() {
+        return getKey(scopeId, clientId);
+    }
+
+    KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    String getClientId() {
+        return clientId;
+    }
+
+    DeviceConnectionStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the session of the submitter
+     *
+     * @return
+     */
+    KapuaSession getSession() {
+        return session;
+    }
+
+    /**
+     * Get the number of failed writes of the transition
+     *
+     * @return
+     */
+    int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Check if the transition can be written (not failed or retry delay elapsed)
+     *
+     * @param now
+     *            the current time (milliseconds)
+     * @return
+     */
+    boolean isWriteDue(long now) {
+        return failures == 0 || now >= retryAt;
+    }
+
+    /**
+     * Record a failed write of the transition
+     *
+     * @param now
+     *            the current time (milliseconds)
+     * @param retryDelay
+     *            the delay (milliseconds) before the next write
+     */
+    void writeFailed(long now, long retryDelay) {
+        failures++;
+        retryAt = now + retryDelay;
+    }
+
+    /**
+     * Merge the transition with the newer one: the newer status wins, keeping the connection informations of the latest connect
+     *
+     * @param newer
+     * @return
+     */
+    DeviceConnectionStatusTransition mergeWith(DeviceConnectionStatusTransition newer) {
+        if (newer.status == DeviceConnectionStatus.CONNECTED || status != DeviceConnectionStatus.CONNECTED) {
+            return newer;
+        }
+        return new DeviceConnectionStatusTransition(scopeId, clientId, newer.status, userId, protocol, clientIp, serverIp, newer.session);
+    }
+
+    /**
+     * Apply the transition to the device connection
+     *
+     * @param deviceConnection
+     */
+    void applyTo(DeviceConnection deviceConnection) {
+        deviceConnection.setStatus(status);
+        if (userId != null) {
+            deviceConnection.setUserId(userId);
+            deviceConnection.setProtocol(protocol);
+            deviceConnection.setClientIp(clientIp);
+            deviceConnection.setServerIp(serverIp);
+        }
+    }
+
+    /**
+     * Build the creator of the device connection of the client (first connection)
+     *
+     * @return the creator or {@code null} if the transition cannot create the device connection (disconnect without any connect)
+     */
+    DeviceConnectionCreator toCreator() {
+        if (userId == null) {
+            return null;
+        }
+        DeviceConnectionCreator creator = new DeviceConnectionCreatorImpl(scopeId);
+        creator.setClientId(clientId);
+        creator.setUserId(userId);
+        creator.setProtocol(protocol);
+        creator.setClientIp(clientIp);
+        creator.setServerIp(serverIp);
+        return creator;
+    }
+}
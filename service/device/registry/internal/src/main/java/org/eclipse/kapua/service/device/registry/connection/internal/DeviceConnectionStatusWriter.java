@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.registry.connection.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManagerSession;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
+import org.eclipse.kapua.service.device.registry.internal.DeviceEntityManagerFactory;
+import org.eclipse.kapua.service.device.registry.internal.setting.DeviceRegistrySetting;
+import org.eclipse.kapua.service.device.registry.internal.setting.DeviceRegistrySettingKeys;
+import org.eclipse.kapua.service.metric.MetricsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Write-behind of the device connection status transitions.<br>
+ * The connect/disconnect transitions are kept in memory instead of being written by the caller (e.g. the broker connection thread),
+ * and only the latest transition of each client (scope id and client id) is kept: the transitions of the flapping clients are merged.<br>
+ * The pending transitions are written by a single thread every flush interval, by transactions of at most batch size transitions
+ * (the device connections of a scope are loaded by a single query and updated at commit, so the updates are sent in JDBC batches).<br>
+ * A transition failed to be written (e.g. database outage) is kept pending and written again by a later flush, with an exponential backoff
+ * from the flush interval up to the retry maximum delay: it is removed only when written or replaced by a newer transition of the same client.<br>
+ * The pending transitions are applied to the device connections read by {@link DeviceConnectionServiceImpl} in the same JVM, so the readers see the latest status.<br>
+ * <br>
+ * The pending transitions are lost by a crash: see {@link DeviceConnectionServiceImpl#reconcile()} to reconcile the statuses on restart.
+ *
+ * @since 1.0
+ */
+public class DeviceConnectionStatusWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceConnectionStatusWriter.class);
+
+    private static volatile DeviceConnectionStatusWriter instance;
+    private static volatile boolean initialized;
+
+    private final EntityManagerSession entityManagerSession = new EntityManagerSession(DeviceEntityManagerFactory.instance());
+
+    private final ConcurrentMap<String, DeviceConnectionStatusTransition> pendingTransitions = new ConcurrentHashMap<>();
+    private final long flushInterval;
+    private final int batchSize;
+    private final long retryDelayMax;
+    private final ScheduledExecutorService flusher;
+
+    // metrics
+    private final Counter metricSubmitted;
+    private final Counter metricMerged;
+    private final Counter metricFailed;
+    private final Counter metricRetried;
+    private final Timer metricFlushTime;
+
+    /**
+     * Build and start a writer (the tests build their own writers, the services use {@link #getInstance()})
+     *
+     * @param flushInterval
+     *            the flush interval (milliseconds)
+     * @param batchSize
+     *            the maximum number of transitions written by a transaction
+     * @param retryDelayMax
+     *            the maximum delay (milliseconds) before writing again a failed transition
+     */
+    DeviceConnectionStatusWriter(long flushInterval, int batchSize, long retryDelayMax) {
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+        this.retryDelayMax = retryDelayMax;
+
+        MetricsService metricsService = KapuaLocator.getInstance().getService(MetricsService.class);
+        metricSubmitted = metricsService.getCounter("device", "connection", "writer", "submitted", "count");
+        metricMerged = metricsService.getCounter("device", "connection", "writer", "merged", "count");
+        metricFailed = metricsService.getCounter("device", "connection", "writer", "failed", "count");
+        metricRetried = metricsService.getCounter("device", "connection", "writer", "retried", "count");
+        metricFlushTime = metricsService.getTimer("device", "connection", "writer", "flush", "time", "s");
+
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat(DeviceConnectionStatusWriter.class.getSimpleName() + "-%d")
+                .setDaemon(true)
+                .build());
+        flusher.scheduleWithFixedDelay(() -> flush(false), flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the writer, starting it on first use
+     *
+     * @return the writer or {@code null} if the write-behind is disabled
+     */
+    public static DeviceConnectionStatusWriter getInstance() {
+        if (!initialized) {
+            synchronized (DeviceConnectionStatusWriter.class) {
+                if (!initialized) {
+                    DeviceRegistrySetting setting = DeviceRegistrySetting.getInstance();
+                    if (setting.getBoolean(DeviceRegistrySettingKeys.DEVICE_CONNECTION_WRITER_ENABLE, false)) {
+                        DeviceConnectionStatusWriter writer = new DeviceConnectionStatusWriter(setting.getLong(DeviceRegistrySettingKeys.DEVICE_CONNECTION_WRITER_FLUSH_INTERVAL, 100L),
+                                setting.getInt(DeviceRegistrySettingKeys.DEVICE_CONNECTION_WRITER_BATCH_SIZE, 500),
+                                setting.getLong(DeviceRegistrySettingKeys.DEVICE_CONNECTION_WRITER_RETRY_DELAY_MAX, 60000L));
+
+                        // write the pending transitions on shutdown
+                        Runtime.getRuntime().addShutdownHook(new Thread(writer::stop, DeviceConnectionStatusWriter.class.getSimpleName() + "-shutdown"));
+                        instance = writer;
+                    }
+                    initialized = true;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Set the writer used by the services, replacing the configured one (used by the tests)
+     *
+     * @param writer
+     *            the writer or {@code null} to use the configured one again
+     */
+    static void setInstance(DeviceConnectionStatusWriter writer) {
+        synchronized (DeviceConnectionStatusWriter.class) {
+            instance = writer;
+            initialized = writer != null;
+        }
+    }
+
+    /**
+     * Get the writer if already started (the readers don't start it, since only the JVM submitting the transitions has pending ones)
+     *
+     * @return the writer or {@code null} if not started
+     */
+    static DeviceConnectionStatusWriter getStartedInstance() {
+        return instance;
+    }
+
+    /**
+     * Submit a status transition: it replaces the pending transition of the same client
+     *
+     * @param transition
+     */
+    void submit(DeviceConnectionStatusTransition transition) {
+        metricSubmitted.inc();
+        pendingTransitions.compute(transition.getKey(), (key, pendingTransition) -> {
+            if (pendingTransition == null) {
+                return transition;
+            }
+            metricMerged.inc();
+            return pendingTransition.mergeWith(transition);
+        });
+    }
+
+    /**
+     * Apply the pending transition (if any) of the client to the device connection read from the database
+     *
+     * @param deviceConnection
+     */
+    void applyPending(DeviceConnection deviceConnection) {
+        if (deviceConnection != null) {
+            DeviceConnectionStatusTransition transition = pendingTransitions.get(DeviceConnectionStatusTransition.getKey(deviceConnection.getScopeId(), deviceConnection.getClientId()));
+            if (transition != null) {
+                transition.applyTo(deviceConnection);
+            }
+        }
+    }
+
+    /**
+     * Get the pending transitions (as taken by a flush)
+     *
+     * @return
+     */
+    List<DeviceConnectionStatusTransition> getPendingTransitions() {
+        return new ArrayList<>(pendingTransitions.values());
+    }
+
+    /**
+     * Stop the flusher thread and write the pending transitions
+     */
+    void stop() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!pendingTransitions.isEmpty()) {
+            logger.error("Cannot write {} device connection status transitions on stop", pendingTransitions.size());
+        }
+    }
+
+    /**
+     * Write all the pending transitions (also the failed ones waiting for their retry delay), batch by batch
+     */
+    void flush() {
+        flush(true);
+    }
+
+    /**
+     * Write the pending transitions, batch by batch
+     *
+     * @param all
+     *            {@code true} to write also the failed transitions waiting for their retry delay
+     */
+    synchronized void flush(boolean all) {
+        if (pendingTransitions.isEmpty()) {
+            return;
+        }
+
+        Context flushTimeContext = metricFlushTime.time();
+        try {
+            long now = System.currentTimeMillis();
+            List<DeviceConnectionStatusTransition> batch = new ArrayList<>(Math.min(batchSize, pendingTransitions.size()));
+            for (DeviceConnectionStatusTransition transition : pendingTransitions.values()) {
+                if (!all && !transition.isWriteDue(now)) {
+                    continue;
+                }
+                if (transition.getFailures() > 0) {
+                    metricRetried.inc();
+                }
+                batch.add(transition);
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } catch (Throwable t) {
+            logger.error("Cannot write the device connection status transitions", t);
+        } finally {
+            flushTimeContext.stop();
+        }
+    }
+
+    /**
+     * Write a batch of pending transitions: the transitions written are removed from the pending ones, unless replaced meanwhile by a newer transition.<br>
+     * The transitions failed to be written are kept pending, to be written again after their retry delay.
+     *
+     * @param batch
+     */
+    void write(List<DeviceConnectionStatusTransition> batch) {
+        Set<DeviceConnectionStatusTransition> failedTransitions = Collections.newSetFromMap(new IdentityHashMap<>());
+        // the transitions are written on behalf of their submitters: a transaction for each submitter user
+        Map<KapuaId, List<DeviceConnectionStatusTransition>> transitionsByUser = new HashMap<>();
+        for (DeviceConnectionStatusTransition transition : batch) {
+            KapuaId userId = transition.getSession() != null ? transition.getSession().getUserId() : null;
+            transitionsByUser.computeIfAbsent(userId, key -> new ArrayList<>()).add(transition);
+        }
+
+        for (List<DeviceConnectionStatusTransition> transitions : transitionsByUser.values()) {
+            try {
+                write(transitions.get(0).getSession(), transitions);
+            } catch (Exception e) {
+                // write one by one, so a failed transition (e.g. concurrent update of the device connection) doesn't fail the others
+                logger.warn("Cannot write the device connection status transitions batch: writing them one by one", e);
+                for (DeviceConnectionStatusTransition transition : transitions) {
+                    try {
+                        write(transition.getSession(), Collections.singletonList(transition));
+                    } catch (Exception e1) {
+                        metricFailed.inc();
+                        failedTransitions.add(transition);
+                        logger.warn("Cannot update the device connection of the client {} (scope {}) to {}: retrying later", transition.getClientId(), transition.getScopeId(),
+                                transition.getStatus(), e1);
+                    }
+                }
+            }
+        }
+
+        // the transitions submitted meanwhile are kept for the next flush
+        long now = System.currentTimeMillis();
+        for (DeviceConnectionStatusTransition transition : batch) {
+            if (failedTransitions.contains(transition)) {
+                transition.writeFailed(now, getRetryDelay(transition.getFailures()));
+            } else {
+                pendingTransitions.remove(transition.getKey(), transition);
+            }
+        }
+    }
+
+    /**
+     * Get the delay before writing again a transition: it doubles at each failure, starting from the flush interval up to the retry maximum delay
+     *
+     * @param failures
+     *            the failed writes of the transition
+     * @return the delay (milliseconds)
+     */
+    long getRetryDelay(int failures) {
+        long delay = flushInterval << Math.min(failures, 30);
+        return delay > 0 ? Math.min(delay, retryDelayMax) : retryDelayMax;
+    }
+
+    /**
+     * Write the transitions of a submitter in a single transaction
+     *
+     * @param session
+     *            the session of the submitter
+     * @param transitions
+     * @throws KapuaException
+     */
+    void write(KapuaSession session, List<DeviceConnectionStatusTransition> transitions) throws KapuaException {
+        Map<KapuaId, List<DeviceConnectionStatusTransition>> transitionsByScope = new HashMap<>();
+        for (DeviceConnectionStatusTransition transition : transitions) {
+            transitionsByScope.computeIfAbsent(transition.getScopeId(), key -> new ArrayList<>()).add(transition);
+        }
+
+        // the writes may be done by the caller thread too (e.g. the flush done by the reconciliation), so its session is restored
+        KapuaSession callerSession = KapuaSecurityUtils.getSession();
+        KapuaSecurityUtils.setSession(session);
+        try {
+            KapuaSecurityUtils.doPrivileged(() -> {
+                entityManagerSession.onTransactedAction(em -> {
+                    for (Map.Entry<KapuaId, List<DeviceConnectionStatusTransition>> scopeTransitions : transitionsByScope.entrySet()) {
+                        DeviceConnectionDAO.apply(em, scopeTransitions.getKey(), scopeTransitions.getValue());
+                    }
+                });
+                return null;
+            });
+        } finally {
+            if (callerSession != null) {
+                KapuaSecurityUtils.setSession(callerSession);
+            } else {
+                KapuaSecurityUtils.clearSession();
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@ package org.eclipse.kapua.service.device.registry.internal;
 
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.cache.EntityChangeNotifier;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
 import org.eclipse.kapua.commons.service.internal.AbstractKapuaService;
 import org.eclipse.kapua.locator.KapuaProvider;
@@ -55,7 +56,10 @@ public class DeviceRegistryServiceImpl extends AbstractKapuaService implements D
     @Override
     public Device create(DeviceCreator deviceCreator) throws KapuaException {
         DeviceValidation.validateCreatePreconditions(deviceCreator);
-        return entityManagerSession.onTransactedInsert(entityManager -> DeviceDAO.create(entityManager, deviceCreator));
+        Device device = entityManagerSession.onTransactedInsert(entityManager -> DeviceDAO.create(entityManager, deviceCreator));
+
+        EntityChangeNotifier.notifyChange(Device.TYPE, device.getScopeId(), device.getId(), device.getClientId());
+        return device;
     }
 
     @Override
@@ -120,7 +124,13 @@ public class DeviceRegistryServiceImpl extends AbstractKapuaService implements D
     @Override
     public void delete(KapuaId scopeId, KapuaId deviceId) throws KapuaException {
         DeviceValidation.validateDeletePreconditions(scopeId, deviceId);
-        entityManagerSession.onTransactedAction(entityManager -> DeviceDAO.delete(entityManager, deviceId));
+        Device device = entityManagerSession.onTransactedResult(entityManager -> {
+            Device deletedDevice = DeviceDAO.find(entityManager, deviceId);
+            DeviceDAO.delete(entityManager, deviceId);
+            return deletedDevice;
+        });
+
+        EntityChangeNotifier.notifyChange(Device.TYPE, scopeId, deviceId, device != null ? device.getClientId() : null);
     }
 
     @Override
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.registry.internal.setting;
+
+import org.eclipse.kapua.commons.setting.AbstractKapuaSetting;
+
+/**
+ * Device registry setting implementation.
+ *
+ * @since 1.0
+ */
+public class DeviceRegistrySetting extends AbstractKapuaSetting<DeviceRegistrySettingKeys> {
+
+    private static final String DEVICE_REGISTRY_SETTING_RESOURCE = "kapua-device-registry-setting.properties";
+
+    private static final DeviceRegistrySetting instance = new DeviceRegistrySetting();
+
+    /**
+     * Construct a new device registry setting reading settings from {@link DeviceRegistrySetting#DEVICE_REGISTRY_SETTING_RESOURCE}
+     */
+    private DeviceRegistrySetting() {
+        super(DEVICE_REGISTRY_SETTING_RESOURCE);
+    }
+
+    /**
+     * Return the device registry setting instance (singleton)
+     *
+     * @return
+     */
+    public static DeviceRegistrySetting getInstance() {
+        return instance;
+    }
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.registry.internal.setting;
+
+import org.eclipse.kapua.commons.setting.SettingKey;
+
+/**
+ * Device registry setting key
+ *
+ * @since 1.0
+ */
+public enum DeviceRegistrySettingKeys implements SettingKey {
+
+    /**
+     * Enable the write-behind of the device connection status transitions
+     */
+    DEVICE_CONNECTION_WRITER_ENABLE("device.connection.writer.enable"),
+    /**
+     * Time (in milliseconds) between two writes of the pending device connection status transitions
+     */
+    DEVICE_CONNECTION_WRITER_FLUSH_INTERVAL("device.connection.writer.flush.interval"),
+    /**
+     * Maximum number of device connection status transitions written by a single transaction
+     */
+    DEVICE_CONNECTION_WRITER_BATCH_SIZE("device.connection.writer.batch.size"),
+    /**
+     * Maximum delay (in milliseconds) before writing again a device connection status transition which failed to be written
+     */
+    DEVICE_CONNECTION_WRITER_RETRY_DELAY_MAX("device.connection.writer.retry.delay.max");
+
+    private String key;
+
+    private DeviceRegistrySettingKeys(String key) {
+        this.key = key;
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+}
@@ -20,10 +20,14 @@ import java.math.BigInteger;
 import java.security.acl.Permission;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.configuration.KapuaConfigurableServiceSchemaUtils;
 import org.eclipse.kapua.commons.configuration.metatype.KapuaMetatypeFactoryImpl;
+import org.eclipse.kapua.commons.jpa.EntityManagerSession;
+import org.eclipse.kapua.commons.metric.MetricsServiceImpl;
+import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.commons.security.KapuaSession;
@@ -36,6 +40,7 @@ import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCreator;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionFactory;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionListResult;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionPredicates;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionQuery;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
@@ -43,6 +48,7 @@ import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionSumm
 import org.eclipse.kapua.service.device.registry.internal.DeviceEntityManagerFactory;
 import org.eclipse.kapua.service.device.registry.internal.DeviceRegistryServiceTestSteps;
 import org.eclipse.kapua.service.liquibase.KapuaLiquibaseClient;
+import org.eclipse.kapua.service.metric.MetricsService;
 import org.eclipse.kapua.test.KapuaTest;
 import org.eclipse.kapua.test.MockedLocator;
 import org.mockito.Mockito;
@@ -68,6 +74,26 @@ import cucumber.api.java.en.When;
 
 public class DeviceRegistryConnectionTestSteps extends KapuaTest {
 
+    /**
+     * Write-behind whose writes fail while the database is set as unavailable
+     */
+    static class UnavailableDatabaseWriter extends DeviceConnectionStatusWriter {
+
+        volatile boolean unavailable;
+
+        UnavailableDatabaseWriter(long flushInterval, int batchSize, long retryDelayMax) {
+            super(flushInterval, batchSize, retryDelayMax);
+        }
+
+        @Override
+        void write(KapuaSession session, List<DeviceConnectionStatusTransition> transitions) throws KapuaException {
+            if (unavailable) {
+                throw KapuaException.internalError("Database unavailable");
+            }
+            super.write(session, transitions);
+        }
+    }
+
     public static String DEFAULT_PATH = "src/main/sql/H2";
     public static String DEFAULT_COMMONS_PATH = "../../../commons";
     public static String CREATE_DEVICE_TABLES = "dvc_*_create.sql";
@@ -94,6 +120,9 @@ public class DeviceRegistryConnectionTestSteps extends KapuaTest {
     DeviceConnection connection = null;
     DeviceConnectionListResult connectionList = null;
 
+    // Device connection status write-behind (if enabled by the scenario)
+    UnavailableDatabaseWriter writer = null;
+
     // Device registry related objects
     DeviceConnectionCreator connectionCreator = null;
     Device device = null;
@@ -171,6 +200,12 @@ public class DeviceRegistryConnectionTestSteps extends KapuaTest {
     @After
     public void afterScenario()
             throws Exception {
+        if (writer != null) {
+            DeviceConnectionStatusWriter.setInstance(null);
+            writer.stop();
+            writer = null;
+        }
+
         // Drop the Account Service tables
         scriptSession(DeviceEntityManagerFactory.instance(), DROP_DEVICE_TABLES);
         KapuaConfigurableServiceSchemaUtils.dropSchemaObjects(DEFAULT_COMMONS_PATH);
@@ -291,6 +326,99 @@ public class DeviceRegistryConnectionTestSteps extends KapuaTest {
         connection = deviceConnectionService.create(connectionCreator);
     }
 
+    @Given("^The device connection status write-behind$")
+    public void enableStatusWriteBehind() {
+        MockedLocator mockLocator = (MockedLocator) locator;
+        mockLocator.setMockedService(MetricsService.class, new MetricsServiceImpl());
+
+        // the transitions are written only when the scenario flushes them
+        writer = new UnavailableDatabaseWriter(TimeUnit.HOURS.toMillis(1), 500, TimeUnit.HOURS.toMillis(1));
+        DeviceConnectionStatusWriter.setInstance(writer);
+    }
+
+    @When("^The client \"(.+)\" connects from \"(.+)\"$")
+    public void connectClient(String clientId, String clientIp)
+            throws KapuaException {
+        DeviceConnectionCreator tmpCreator = new DeviceConnectionCreatorImpl(scopeId);
+        tmpCreator.setUserId(userId);
+        tmpCreator.setClientId(clientId);
+        tmpCreator.setClientIp(clientIp);
+        tmpCreator.setServerIp(SERVER_IP);
+        tmpCreator.setProtocol("tcp");
+        deviceConnectionService.connect(tmpCreator);
+    }
+
+    @When("^The client \"(.+)\" disconnects$")
+    public void disconnectClient(String clientId)
+            throws KapuaException {
+        deviceConnectionService.disconnect(scopeId, clientId);
+    }
+
+    @When("^The client \"(.+)\" disconnects unexpectedly$")
+    public void disconnectClientUnexpectedly(String clientId)
+            throws KapuaException {
+        deviceConnectionService.disconnect(scopeId, clientId, DeviceConnectionStatus.MISSING);
+    }
+
+    @When("^The pending transitions are flushed$")
+    public void flushPendingTransitions() {
+        assertNotNull(writer);
+        writer.flush();
+    }
+
+    @When("^The due pending transitions are flushed$")
+    public void flushDuePendingTransitions() {
+        assertNotNull(writer);
+        writer.flush(false);
+    }
+
+    @When("^The device connection database is (unavailable|available)$")
+    public void setDatabaseAvailability(String availability) {
+        assertNotNull(writer);
+        writer.unavailable = "unavailable".equals(availability);
+    }
+
+    @Then("^There are (\\d+) pending transitions$")
+    public void checkPendingTransitions(int target) {
+        assertNotNull(writer);
+        assertEquals(target, writer.getPendingTransitions().size());
+    }
+
+    @When("^The pending transitions are being flushed while the client \"(.+)\" reconnects from \"(.+)\"$")
+    public void flushPendingTransitionsWhileReconnecting(String clientId, String clientIp)
+            throws KapuaException {
+        assertNotNull(writer);
+        // the flush takes the pending transitions, then the client reconnects before they are written
+        List<DeviceConnectionStatusTransition> batch = writer.getPendingTransitions();
+        connectClient(clientId, clientIp);
+        writer.write(batch);
+    }
+
+    @When("^I reconcile the connection statuses$")
+    public void reconcileConnectionStatuses()
+            throws KapuaException {
+        intVal = deviceConnectionService.reconcile();
+    }
+
+    @Then("^I reconciled (\\d+) connections$")
+    public void checkReconciledConnections(int target) {
+        assertEquals(target, intVal);
+    }
+
+    @Then("^No connection is stored for the client \"(.+)\"$")
+    public void checkNoStoredConnection(String clientId)
+            throws KapuaException {
+        assertNull(findStoredConnection(clientId));
+    }
+
+    @Then("^The stored connection status of \"(.+)\" is \"(.+)\"$")
+    public void checkStoredConnectionStatus(String clientId, String status)
+            throws KapuaException {
+        connection = findStoredConnection(clientId);
+        assertNotNull(connection);
+        assertEquals(DeviceConnectionStatus.valueOf(status), connection.getStatus());
+    }
+
     @Then("^The connection object is regular$")
     public void checkConnectionObject() {
         assertNotNull(connection);
@@ -475,6 +603,16 @@ public class DeviceRegistryConnectionTestSteps extends KapuaTest {
     // * Private Helpers *
     // *******************
 
+    // Find the device connection as stored in the database (without the pending transitions of the write-behind).
+    DeviceConnection findStoredConnection(String clientId)
+            throws KapuaException {
+        DeviceConnectionQuery tmpQuery = new DeviceConnectionQueryImpl(scopeId);
+        tmpQuery.setPredicate(new AttributePredicate<String>(DeviceConnectionPredicates.CLIENT_ID, clientId));
+        DeviceConnectionListResult tmpResult = new EntityManagerSession(DeviceEntityManagerFactory.instance())
+                .onResult(em -> DeviceConnectionDAO.query(em, tmpQuery));
+        return tmpResult.isEmpty() ? null : tmpResult.getFirstItem();
+    }
+
     // Create a connection creator object. The creator is pre-filled with default data.
     DeviceConnectionCreator prepareRegularConnectionCreator(KapuaId scopeId, KapuaId userId) {
         DeviceConnectionCreatorImpl tmpCreator = new DeviceConnectionCreatorImpl(scopeId);
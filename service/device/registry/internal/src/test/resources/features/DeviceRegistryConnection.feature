@@ -224,3 +224,159 @@ Scenario: Check the sanity of the Device Connection Domain data initialization
 	
 Scenario: Check the Device Connection Domain data seetting
 	Then The device connection domain data can be updated
+
+Scenario: Connect and disconnect a client
+	The connect and disconnect transitions must update the status and the connection 
+	details of the existing device connection.
+
+	Given User 1 in scope 1
+	When The client "testClient1" connects from "127.0.0.101"
+	And I search for a connection with the client ID "testClient1"
+	Then The connection status is "CONNECTED"
+	And The connection details match
+		| clientId    | clientIp    |
+		| testClient1 | 127.0.0.101 |
+	When The client "testClient1" disconnects
+	And I search for a connection with the client ID "testClient1"
+	Then The connection status is "DISCONNECTED"
+	When The client "testClient1" connects from "127.0.0.102"
+	And I search for a connection with the client ID "testClient1"
+	Then The connection status is "CONNECTED"
+	And The connection details match
+		| clientId    | clientIp    |
+		| testClient1 | 127.0.0.102 |
+	When The client "testClient1" disconnects unexpectedly
+	And I search for a connection with the client ID "testClient1"
+	Then The connection status is "MISSING"
+	And I count 1 connections in scope 1
+
+Scenario: Disconnect a client without connection
+	A disconnect transition must not create the device connection.
+
+	Given User 1 in scope 1
+	When The client "testClient1" disconnects
+	And I search for a connection with the client ID "testClient1"
+	Then No connection was found
+
+Scenario: Reconcile the connection statuses
+	The reconciliation must set the connections still connected to MISSING, leaving 
+	the disconnected ones unchanged.
+
+	Given User 1 in scope 1
+	And I have the following connections
+		| clientId    | clientIp    | serverIp   | protocol |
+		| testClient1 | 127.0.0.101 | 127.0.0.10 | tcp      |
+		| testClient2 | 127.0.0.102 | 127.0.0.10 | tcp      |
+		| testClient3 | 127.0.0.103 | 127.0.0.10 | tcp      |
+	When The client "testClient2" disconnects
+	And I reconcile the connection statuses
+	Then I reconciled 2 connections
+	When I search for a connection with the client ID "testClient1"
+	Then The connection status is "MISSING"
+	When I search for a connection with the client ID "testClient2"
+	Then The connection status is "DISCONNECTED"
+	When I search for a connection with the client ID "testClient3"
+	Then The connection status is "MISSING"
+	When I reconcile the connection statuses
+	Then I reconciled 0 connections
+
+Scenario: Write-behind connect and disconnect
+	The transitions must be written by the flush only, while the reads must see the 
+	pending transitions.
+
+	Given User 1 in scope 1
+	And The device connection status write-behind
+	When The client "testClient1" connects from "127.0.0.101"
+	Then No connection is stored for the client "testClient1"
+	When The pending transitions are flushed
+	Then The stored connection status of "testClient1" is "CONNECTED"
+	When The client "testClient1" disconnects
+	Then The stored connection status of "testClient1" is "CONNECTED"
+	When I search for a connection with the client ID "testClient1"
+	Then The connection status is "DISCONNECTED"
+	When The pending transitions are flushed
+	Then The stored connection status of "testClient1" is "DISCONNECTED"
+
+Scenario: Write-behind merge of the flapping client transitions
+	Only the latest transition of a client must be written, keeping the connection 
+	details of the latest connect.
+
+	Given User 1 in scope 1
+	And The device connection status write-behind
+	When The client "testClient1" connects from "127.0.0.101"
+	And The client "testClient1" disconnects
+	And The pending transitions are flushed
+	Then The stored connection status of "testClient1" is "DISCONNECTED"
+	And The connection details match
+		| clientId    | clientIp    |
+		| testClient1 | 127.0.0.101 |
+	When The client "testClient1" connects from "127.0.0.102"
+	And The client "testClient1" disconnects unexpectedly
+	And The client "testClient1" connects from "127.0.0.103"
+	And The client "testClient1" disconnects
+	And The pending transitions are flushed
+	Then The stored connection status of "testClient1" is "DISCONNECTED"
+	And The connection details match
+		| clientId    | clientIp    |
+		| testClient1 | 127.0.0.103 |
+	And I count 1 connections in scope 1
+
+Scenario: Write-behind stale disconnect written after a reconnect
+	A disconnect written by a flush while the client reconnects must not hide the 
+	reconnection: the reconnect is kept and written by the next flush.
+
+	Given User 1 in scope 1
+	And The device connection status write-behind
+	When The client "testClient1" connects from "127.0.0.101"
+	And The pending transitions are flushed
+	And The client "testClient1" disconnects
+	And The pending transitions are being flushed while the client "testClient1" reconnects from "127.0.0.102"
+	Then The stored connection status of "testClient1" is "DISCONNECTED"
+	When I search for a connection with the client ID "testClient1"
+	Then The connection status is "CONNECTED"
+	When The pending transitions are flushed
+	Then The stored connection status of "testClient1" is "CONNECTED"
+	And The connection details match
+		| clientId    | clientIp    |
+		| testClient1 | 127.0.0.102 |
+
+Scenario: Write-behind reconciliation
+	The reconciliation must write the pending transitions first.
+
+	Given User 1 in scope 1
+	And The device connection status write-behind
+	When The client "testClient1" connects from "127.0.0.101"
+	And The client "testClient2" connects from "127.0.0.102"
+	And The pending transitions are flushed
+	And The client "testClient2" disconnects
+	And I reconcile the connection statuses
+	Then I reconciled 1 connections
+	And The stored connection status of "testClient1" is "MISSING"
+	And The stored connection status of "testClient2" is "DISCONNECTED"
+
+Scenario: Write-behind retry of the transitions failed to be written
+	The transitions failed to be written (e.g. database outage) must be kept and written 
+	again after their retry delay, unless replaced by a newer transition of the same client.
+
+	Given User 1 in scope 1
+	And The device connection status write-behind
+	When The client "testClient1" connects from "127.0.0.101"
+	And The pending transitions are flushed
+	And The device connection database is unavailable
+	And The client "testClient1" disconnects
+	And The client "testClient2" connects from "127.0.0.102"
+	And The pending transitions are flushed
+	Then There are 2 pending transitions
+	And The stored connection status of "testClient1" is "CONNECTED"
+	And No connection is stored for the client "testClient2"
+	When The device connection database is available
+	And The due pending transitions are flushed
+	Then There are 2 pending transitions
+	When The client "testClient2" disconnects
+	And The due pending transitions are flushed
+	Then There are 1 pending transitions
+	And The stored connection status of "testClient2" is "DISCONNECTED"
+	And The stored connection status of "testClient1" is "CONNECTED"
+	When The pending transitions are flushed
+	Then There are 0 pending transitions
+	And The stored connection status of "testClient1" is "DISCONNECTED"
@@ -29,6 +29,7 @@ import org.eclipse.kapua.model.query.predicate.KapuaAttributePredicate.Operator;
 import org.eclipse.kapua.model.query.predicate.KapuaPredicate;
 import org.eclipse.kapua.service.authentication.credential.*;
 import org.eclipse.kapua.service.authentication.shiro.AuthenticationEntityManagerFactory;
+import org.eclipse.kapua.service.authentication.shiro.realm.VerifiedCredentialsCache;
 import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSetting;
 import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSettingKeys;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
@@ -159,7 +160,7 @@ public class CredentialServiceImpl extends AbstractKapuaService implements Crede
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(credentialDomain, Actions.write, credential.getScopeId()));
 
-        return entityManagerSession.onTransactedResult(em -> {
+        Credential updatedCredential = entityManagerSession.onTransactedResult(em -> {
             Credential currentCredential = CredentialDAO.find(em, credential.getId());
 
             if (currentCredential == null) {
@@ -173,6 +174,10 @@ public class CredentialServiceImpl extends AbstractKapuaService implements Crede
             // Passing attributes??
             return CredentialDAO.update(em, credential);
         });
+
+        // after the commit, since a login running before it still reads (and caches) the previous credential
+        VerifiedCredentialsCache.invalidate(credential.getId());
+        return updatedCredential;
     }
 
     @Override
@@ -249,6 +254,7 @@ public class CredentialServiceImpl extends AbstractKapuaService implements Crede
             }
             CredentialDAO.delete(em, credentialId);
         });
+        VerifiedCredentialsCache.invalidate(credentialId);
     }
 
     @Override
@@ -30,6 +30,9 @@ import org.springframework.security.crypto.bcrypt.BCrypt;
  */
 public class ApiKeyCredentialsMatcher implements CredentialsMatcher {
 
+    // null if disabled
+    private final VerifiedCredentialsCache verifiedCredentialsCache = VerifiedCredentialsCache.getInstance(CredentialType.API_KEY);
+
     @Override
     public boolean doCredentialsMatch(AuthenticationToken authenticationToken, AuthenticationInfo authenticationInfo) {
         //
@@ -57,10 +60,16 @@ public class ApiKeyCredentialsMatcher implements CredentialsMatcher {
             String infoPre = fullApiKey.split(preSeparator)[0];
             String infoHashedKey = fullApiKey.split(preSeparator)[1];
 
-            if (tokenPre.equals(infoPre) && BCrypt.checkpw(tokenKey, infoHashedKey)) {
-                credentialMatch = true;
-
-                // FIXME: if true cache token password for authentication performance improvement
+            if (tokenPre.equals(infoPre)) {
+                Boolean cachedMatch = verifiedCredentialsCache != null ? verifiedCredentialsCache.getVerification(infoCredential, tokenKey) : null;
+                if (cachedMatch != null) {
+                    credentialMatch = cachedMatch;
+                } else {
+                    credentialMatch = BCrypt.checkpw(tokenKey, infoHashedKey);
+                    if (verifiedCredentialsCache != null) {
+                        verifiedCredentialsCache.putVerification(infoCredential, tokenKey, credentialMatch);
+                    }
+                }
             }
         }
 
@@ -35,6 +35,9 @@ public class UserPassCredentialsMatcher implements CredentialsMatcher {
     @SuppressWarnings("unused")
     private static final Logger s_logger = LoggerFactory.getLogger(UserPassCredentialsMatcher.class);
 
+    // null if disabled
+    private final VerifiedCredentialsCache verifiedCredentialsCache = VerifiedCredentialsCache.getInstance(CredentialType.PASSWORD);
+
     @Override
     public boolean doCredentialsMatch(AuthenticationToken authenticationToken, AuthenticationInfo authenticationInfo) {
 
@@ -53,10 +56,16 @@ public class UserPassCredentialsMatcher implements CredentialsMatcher {
         //
         // Match token with info
         boolean credentialMatch = false;
-        if (tokenUsername.equals(infoUser.getName()) && CredentialType.PASSWORD.equals(infoCredential.getCredentialType()) && BCrypt.checkpw(tokenPassword, infoCredential.getCredentialKey())) {
-            credentialMatch = true;
-
-            // FIXME: if true cache token password for authentication performance improvement
+        if (tokenUsername.equals(infoUser.getName()) && CredentialType.PASSWORD.equals(infoCredential.getCredentialType())) {
+            Boolean cachedMatch = verifiedCredentialsCache != null ? verifiedCredentialsCache.getVerification(infoCredential, tokenPassword) : null;
+            if (cachedMatch != null) {
+                credentialMatch = cachedMatch;
+            } else {
+                credentialMatch = BCrypt.checkpw(tokenPassword, infoCredential.getCredentialKey());
+                if (verifiedCredentialsCache != null) {
+                    verifiedCredentialsCache.putVerification(infoCredential, tokenPassword, credentialMatch);
+                }
+            }
         }
 
         return credentialMatch;
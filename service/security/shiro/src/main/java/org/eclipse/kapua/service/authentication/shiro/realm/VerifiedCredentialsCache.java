@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.shiro.realm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authentication.credential.Credential;
+import org.eclipse.kapua.service.authentication.credential.CredentialType;
+import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSetting;
+import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSettingKeys;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Verified credentials cache.<br>
+ * It keeps the outcome of the (expensive) BCrypt verifications of the presented secrets for a limited time,
+ * so the repeated logins with the same secret (e.g. reconnecting devices or REST clients) skip the verification.
+ * The failed verifications are kept too (for a shorter time), so the retries of the same wrong secret are rejected cheaply.<br>
+ * Only the exact secrets already known to fail are short-circuited: any other secret is always verified, so the failures of a client
+ * (e.g. a device with a stale password) never deny the login of the other clients sharing the credential.<br>
+ * <br>
+ * The cache key is the credential id plus a keyed HMAC of the presented secret (the HMAC key is randomly generated by each instance),
+ * so the secrets are never kept in memory.<br>
+ * Each cached outcome is bound to the credential key it was verified against: a credential key changed meanwhile (even by another node) is verified again.
+ * The credential entries are also invalidated when the credential is updated or deleted.<br>
+ * <br>
+ * The cache is disabled by default: it's enabled by {@link KapuaAuthenticationSettingKeys#AUTHENTICATION_CREDENTIAL_CACHE_ENABLE}
+ * together with the cache enabled setting of the credential type.
+ *
+ * @since 1.0
+ */
+public class VerifiedCredentialsCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HMAC_KEY_LENGTH = 32;
+
+    private static final Map<CredentialType, VerifiedCredentialsCache> instances = new EnumMap<>(CredentialType.class);
+
+    private final ThreadLocal<Mac> hmac;
+
+    // cache key -> credential key verified
+    private final Cache<String, String> verified;
+    private final Cache<String, String> failed;
+
+    /**
+     * Constructor
+     *
+     * @param sizeMax
+     *            the maximum size of the verified (and of the failed) verifications
+     * @param ttl
+     *            the verified verifications ttl (milliseconds)
+     * @param failureTtl
+     *            the failed verifications ttl (milliseconds)
+     * @param ticker
+     *            the time source of the ttls
+     */
+    VerifiedCredentialsCache(int sizeMax, long ttl, long failureTtl, Ticker ticker) {
+        byte[] hmacKey = new byte[HMAC_KEY_LENGTH];
+        new SecureRandom().nextBytes(hmacKey);
+        SecretKeySpec hmacKeySpec = new SecretKeySpec(hmacKey, HMAC_ALGORITHM);
+        hmac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(hmacKeySpec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize the " + HMAC_ALGORITHM + " algorithm", e);
+            }
+        });
+
+        verified = CacheBuilder.newBuilder().maximumSize(sizeMax).expireAfterWrite(ttl, TimeUnit.MILLISECONDS).ticker(ticker).build();
+        failed = CacheBuilder.newBuilder().maximumSize(sizeMax).expireAfterWrite(failureTtl, TimeUnit.MILLISECONDS).ticker(ticker).build();
+    }
+
+    /**
+     * Get the verified credentials cache of the given credential type
+     *
+     * @param credentialType
+     * @return the cache or {@code null} if the cache of the credential type is disabled
+     */
+    public static synchronized VerifiedCredentialsCache getInstance(CredentialType credentialType) {
+        if (!instances.containsKey(credentialType)) {
+            KapuaAuthenticationSetting setting = KapuaAuthenticationSetting.getInstance();
+
+            boolean enabled;
+            long ttl;
+            switch (credentialType) {
+            case PASSWORD:
+                enabled = setting.getBoolean(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_ENABLE, false);
+                ttl = setting.getLong(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_CACHE_TTL, 300000L);
+                break;
+            case API_KEY:
+                enabled = setting.getBoolean(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_APIKEY_CACHE_ENABLE, false);
+                ttl = setting.getLong(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_APIKEY_CACHE_TTL, 300000L);
+                break;
+            default:
+                enabled = false;
+                ttl = 0;
+            }
+
+            VerifiedCredentialsCache instance = null;
+            if (enabled && setting.getBoolean(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_CACHE_ENABLE, false)) {
+                instance = new VerifiedCredentialsCache(setting.getInt(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_CACHE_SIZE_MAXIMUM, 10000),
+                        ttl,
+                        setting.getLong(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_CACHE_FAILURE_TTL, 60000L),
+                        Ticker.systemTicker());
+            }
+            instances.put(credentialType, instance);
+        }
+        return instances.get(credentialType);
+    }
+
+    /**
+     * Invalidate the cached verifications of the given credential (in the caches of all the credential types)
+     *
+     * @param credentialId
+     */
+    public static void invalidate(KapuaId credentialId) {
+        for (CredentialType credentialType : CredentialType.values()) {
+            VerifiedCredentialsCache instance = getInstance(credentialType);
+            if (instance != null) {
+                instance.invalidateCredential(credentialId);
+            }
+        }
+    }
+
+    /**
+     * Invalidate the cached verifications of the given credential in this cache
+     *
+     * @param credentialId
+     */
+    void invalidateCredential(KapuaId credentialId) {
+        String keyPrefix = getKeyPrefix(credentialId);
+        invalidate(verified, keyPrefix);
+        invalidate(failed, keyPrefix);
+    }
+
+    /**
+     * Get the cached verification of the secret presented for the credential
+     *
+     * @param credential
+     * @param secret
+     * @return {@link Boolean#TRUE} if the secret is verified, {@link Boolean#FALSE} if the secret verification failed,
+     *         {@code null} if the verification is not cached
+     */
+    public Boolean getVerification(Credential credential, String secret) {
+        String key = getKey(credential.getId(), secret);
+        String credentialKey = credential.getCredentialKey();
+
+        if (credentialKey.equals(verified.getIfPresent(key))) {
+            return Boolean.TRUE;
+        }
+        if (credentialKey.equals(failed.getIfPresent(key))) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * Cache the verification of the secret presented for the credential
+     *
+     * @param credential
+     * @param secret
+     * @param match
+     *            the verification outcome
+     */
+    public void putVerification(Credential credential, String secret, boolean match) {
+        String key = getKey(credential.getId(), secret);
+        if (match) {
+            failed.invalidate(key);
+            verified.put(key, credential.getCredentialKey());
+        } else {
+            failed.put(key, credential.getCredentialKey());
+        }
+    }
+
+    private String getKey(KapuaId credentialId, String secret) {
+        Mac mac = hmac.get();
+        byte[] secretHmac = mac.doFinal(secret.getBytes(StandardCharsets.UTF_8));
+        return getKeyPrefix(credentialId) + Base64.getEncoder().encodeToString(secretHmac);
+    }
+
+    private static String getKeyPrefix(KapuaId credentialId) {
+        return credentialId.toCompactId() + ":";
+    }
+
+    private static void invalidate(Cache<String, String> cache, String keyPrefix) {
+        cache.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
+    }
+}
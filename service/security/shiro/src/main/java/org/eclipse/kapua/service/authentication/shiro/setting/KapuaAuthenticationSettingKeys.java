@@ -46,6 +46,10 @@ public enum KapuaAuthenticationSettingKeys implements SettingKey {
     AUTHENTICATION_CREDENTIAL_APIKEY_KEY_LENGTH("authentication.credential.apiKey.key.length"), //
     AUTHENTICATION_CREDENTIAL_APIKEY_CACHE_ENABLE("authentication.credential.apiKey.cache.enabled"), //
     AUTHENTICATION_CREDENTIAL_APIKEY_CACHE_TTL("authentication.credential.apiKey.cache.ttl"), //
+
+    AUTHENTICATION_CREDENTIAL_CACHE_ENABLE("authentication.credential.cache.enabled"), //
+    AUTHENTICATION_CREDENTIAL_CACHE_FAILURE_TTL("authentication.credential.cache.failure.ttl"), //
+    AUTHENTICATION_CREDENTIAL_CACHE_SIZE_MAXIMUM("authentication.credential.cache.size.maximum"), //
    
     ;
 
@@ -47,6 +47,7 @@ import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.authorization.role.Role;
 import org.eclipse.kapua.service.authorization.role.RoleService;
 import org.eclipse.kapua.service.authorization.shiro.AuthorizationEntityManagerFactory;
+import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationCacheManager;
 import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationErrorCodes;
 import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationException;
 
@@ -95,7 +96,7 @@ public class AccessInfoServiceImpl extends AbstractKapuaService implements Acces
             }
         }
 
-        return entityManagerSession.onTransactedInsert(em -> {
+        AccessInfo createdAccessInfo = entityManagerSession.onTransactedInsert(em -> {
             AccessInfo accessInfo = AccessInfoDAO.create(em, accessInfoCreator);
 
             if (!accessInfoCreator.getPermissions().isEmpty()) {
@@ -124,6 +125,9 @@ public class AccessInfoServiceImpl extends AbstractKapuaService implements Acces
 
             return accessInfo;
         });
+
+        KapuaAuthorizationCacheManager.invalidateAll();
+        return createdAccessInfo;
     }
 
     @Override
@@ -226,5 +230,7 @@ public class AccessInfoServiceImpl extends AbstractKapuaService implements Acces
             // Finally, delete role
             AccessInfoDAO.delete(em, accessInfoId);
         });
+
+        KapuaAuthorizationCacheManager.invalidateAll();
     }
 }
@@ -31,6 +31,7 @@ import org.eclipse.kapua.service.authorization.domain.Domain;
 import org.eclipse.kapua.service.authorization.permission.Actions;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.authorization.shiro.AuthorizationEntityManagerFactory;
+import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationCacheManager;
 
 /**
  * {@link AccessPermission} service implementation.
@@ -60,7 +61,10 @@ public class AccessPermissionServiceImpl extends AbstractKapuaService implements
         AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(accessInfoDomain, Actions.write, accessPermissionCreator.getScopeId()));
-        return entityManagerSession.onTransactedInsert(em -> AccessPermissionDAO.create(em, accessPermissionCreator));
+        AccessPermission accessPermission = entityManagerSession.onTransactedInsert(em -> AccessPermissionDAO.create(em, accessPermissionCreator));
+
+        KapuaAuthorizationCacheManager.invalidateAll();
+        return accessPermission;
     }
 
     @Override
@@ -81,6 +85,8 @@ public class AccessPermissionServiceImpl extends AbstractKapuaService implements
 
             AccessPermissionDAO.delete(em, accessPermissionId);
         });
+
+        KapuaAuthorizationCacheManager.invalidateAll();
     }
 
     @Override
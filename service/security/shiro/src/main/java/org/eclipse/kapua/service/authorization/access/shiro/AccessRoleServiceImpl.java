@@ -31,6 +31,7 @@ import org.eclipse.kapua.service.authorization.domain.Domain;
 import org.eclipse.kapua.service.authorization.permission.Actions;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.authorization.shiro.AuthorizationEntityManagerFactory;
+import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationCacheManager;
 
 /**
  * {@link AccessRole} service implementation.
@@ -60,7 +61,10 @@ public class AccessRoleServiceImpl extends AbstractKapuaService implements Acces
         AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(accessInfoDomain, Actions.write, accessRoleCreator.getScopeId()));
-        return entityManagerSession.onTransactedInsert(em -> AccessRoleDAO.create(em, accessRoleCreator));
+        AccessRole accessRole = entityManagerSession.onTransactedInsert(em -> AccessRoleDAO.create(em, accessRoleCreator));
+
+        KapuaAuthorizationCacheManager.invalidateAll();
+        return accessRole;
     }
 
     @Override
@@ -81,6 +85,8 @@ public class AccessRoleServiceImpl extends AbstractKapuaService implements Acces
 
             AccessRoleDAO.delete(em, accessRoleId);
         });
+
+        KapuaAuthorizationCacheManager.invalidateAll();
     }
 
     @Override
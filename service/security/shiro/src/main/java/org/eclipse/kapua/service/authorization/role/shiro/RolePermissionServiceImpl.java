@@ -30,6 +30,7 @@ import org.eclipse.kapua.service.authorization.role.RolePermissionListResult;
 import org.eclipse.kapua.service.authorization.role.RolePermissionQuery;
 import org.eclipse.kapua.service.authorization.role.RolePermissionService;
 import org.eclipse.kapua.service.authorization.shiro.AuthorizationEntityManagerFactory;
+import org.eclipse.kapua.service.authorization.shiro.KapuaAuthorizationCacheManager;
 
 /**
  * {@link RolePermission} service implementation.
@@ -59,7 +60,10 @@ public class RolePermissionServiceImpl extends AbstractKapuaService implements R
         AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(roleDomain, Actions.write, rolePermissionCreator.getScopeId()));
-        return entityManagerSession.onTransactedInsert(em -> RolePermissionDAO.create(em, rolePermissionCreator));
+        RolePermission rolePermission = entityManagerSession.onTransactedInsert(em -> RolePermissionDAO.create(em, rolePermissionCreator));
+
+        KapuaAuthorizationCacheManager.invalidateAll();
+        return rolePermission;
     }
 
     @Override
@@ -80,6 +84,8 @@ public class RolePermissionServiceImpl extends AbstractKapuaService implements R
 
             RolePermissionDAO.delete(em, rolePermissionId);
         });
+
+        KapuaAuthorizationCacheManager.invalidateAll();
     }
 
     @Override
@@ -12,8 +12,16 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.authorization.shiro;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.authz.AuthorizationException;
+import org.apache.shiro.mgt.RealmSecurityManager;
+import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.subject.Subject;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaIllegalStateException;
@@ -45,6 +53,55 @@ public class AuthorizationServiceImpl implements AuthorizationService {
         return isPermitted;
     }
 
+    @Override
+    public boolean[] isPermitted(List<Permission> permissions)
+            throws KapuaException {
+        KapuaSession session = KapuaSecurityUtils.getSession();
+
+        // FIXME: this should throw something like unauthenticated exception
+        if (session == null) {
+            throw new KapuaIllegalStateException("null KapuaSession");
+        }
+
+        boolean[] isPermitted = new boolean[permissions.size()];
+        if (session.isTrustedMode()) {
+            Arrays.fill(isPermitted, true);
+        } else {
+            List<org.apache.shiro.authz.Permission> shiroPermissions = new ArrayList<>(permissions.size());
+            for (Permission permission : permissions) {
+                shiroPermissions.add((org.apache.shiro.authz.Permission) permission);
+            }
+
+            Subject subject = SecurityUtils.getSubject();
+            isPermitted = isPermitted(subject, shiroPermissions);
+        }
+
+        return isPermitted;
+    }
+
+    /**
+     * Check the permissions against the authorization info of the subject.<br>
+     * The subject (through the Shiro {@link org.apache.shiro.authz.ModularRealmAuthorizer}) checks the permissions one by one, looking up the authorization info
+     * for each of them, so the check is delegated to the {@link KapuaAuthorizingRealm} (the only authorizing realm) which looks up the authorization info once
+     * and checks all the permissions against it.
+     *
+     * @param subject
+     * @param permissions
+     * @return
+     */
+    private static boolean[] isPermitted(Subject subject, List<org.apache.shiro.authz.Permission> permissions) {
+        PrincipalCollection principals = subject.getPrincipals();
+        SecurityManager securityManager = SecurityUtils.getSecurityManager();
+        if (principals != null && !principals.isEmpty() && securityManager instanceof RealmSecurityManager) {
+            for (Realm realm : ((RealmSecurityManager) securityManager).getRealms()) {
+                if (realm instanceof KapuaAuthorizingRealm) {
+                    return ((KapuaAuthorizingRealm) realm).isPermitted(principals, permissions);
+                }
+            }
+        }
+        return subject.isPermitted(permissions);
+    }
+
     @Override
     public void checkPermission(Permission permission)
             throws KapuaException {
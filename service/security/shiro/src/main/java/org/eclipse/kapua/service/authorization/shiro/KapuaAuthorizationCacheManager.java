@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+import org.apache.shiro.cache.CacheManager;
+import org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSetting;
+import org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSettingKeys;
+
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Shiro {@link CacheManager} of the authorization informations.<br>
+ * The caches are bounded local caches whose entries expire after the configured ttl.<br>
+ * Since a role, permission or access info change may affect many users, all the cached authorization informations are invalidated
+ * by {@link #invalidateAll()} on every change.<br>
+ * The invalidation is local to the JVM doing the change, so the other JVMs may use the previous authorization informations up to the ttl
+ * ({@link KapuaAuthorizationSettingKeys#AUTHORIZATION_CACHE_TTL}); the cache is disabled by default.
+ *
+ * @since 1.0
+ */
+public class KapuaAuthorizationCacheManager implements CacheManager {
+
+    private static final KapuaAuthorizationCacheManager instance = new KapuaAuthorizationCacheManager();
+
+    private final ConcurrentMap<String, LocalShiroCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    private KapuaAuthorizationCacheManager() {
+    }
+
+    /**
+     * Return the authorization cache manager instance (singleton)
+     *
+     * @return
+     */
+    public static KapuaAuthorizationCacheManager getInstance() {
+        return instance;
+    }
+
+    /**
+     * Check if the authorization informations cache is enabled
+     *
+     * @return
+     */
+    public static boolean isEnabled() {
+        return KapuaAuthorizationSetting.getInstance().getBoolean(KapuaAuthorizationSettingKeys.AUTHORIZATION_CACHE_ENABLE, false);
+    }
+
+    /**
+     * Invalidate all the cached authorization informations
+     */
+    public static void invalidateAll() {
+        for (LocalShiroCache<?, ?> cache : instance.caches.values()) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Cache<K, V> getCache(String name) throws CacheException {
+        return (Cache<K, V>) caches.computeIfAbsent(name, cacheName -> {
+            KapuaAuthorizationSetting setting = KapuaAuthorizationSetting.getInstance();
+            return new LocalShiroCache<>(setting.getLong(KapuaAuthorizationSettingKeys.AUTHORIZATION_CACHE_SIZE_MAXIMUM, 10000L),
+                    setting.getLong(KapuaAuthorizationSettingKeys.AUTHORIZATION_CACHE_TTL, 60000L));
+        });
+    }
+
+    /**
+     * Shiro {@link Cache} backed by a bounded local cache
+     *
+     * @param <K>
+     * @param <V>
+     */
+    private static class LocalShiroCache<K, V> implements Cache<K, V> {
+
+        private final com.google.common.cache.Cache<K, V> cache;
+
+        private LocalShiroCache(long sizeMax, long ttl) {
+            cache = CacheBuilder.newBuilder().maximumSize(sizeMax).expireAfterWrite(ttl, TimeUnit.MILLISECONDS).build();
+        }
+
+        @Override
+        public V get(K key) throws CacheException {
+            return cache.getIfPresent(key);
+        }
+
+        @Override
+        public V put(K key, V value) throws CacheException {
+            V previous = cache.getIfPresent(key);
+            cache.put(key, value);
+            return previous;
+        }
+
+        @Override
+        public V remove(K key) throws CacheException {
+            return cache.asMap().remove(key);
+        }
+
+        @Override
+        public void clear() throws CacheException {
+            cache.invalidateAll();
+        }
+
+        @Override
+        public int size() {
+            return (int) cache.size();
+        }
+
+        @Override
+        public Set<K> keys() {
+            return cache.asMap().keySet();
+        }
+
+        @Override
+        public Collection<V> values() {
+            return cache.asMap().values();
+        }
+    }
+}
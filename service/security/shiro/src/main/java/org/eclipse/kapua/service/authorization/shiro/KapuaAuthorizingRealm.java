@@ -12,6 +12,9 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.authorization.shiro;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.apache.shiro.ShiroException;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
@@ -22,9 +25,11 @@ import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicate;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.KapuaEntityPredicates;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaListResult;
 import org.eclipse.kapua.model.query.predicate.KapuaPredicate;
@@ -34,17 +39,29 @@ import org.eclipse.kapua.service.authorization.access.AccessInfoPredicates;
 import org.eclipse.kapua.service.authorization.access.AccessInfoQuery;
 import org.eclipse.kapua.service.authorization.access.AccessInfoService;
 import org.eclipse.kapua.service.authorization.access.AccessPermission;
+import org.eclipse.kapua.service.authorization.access.AccessPermissionFactory;
 import org.eclipse.kapua.service.authorization.access.AccessPermissionListResult;
+import org.eclipse.kapua.service.authorization.access.AccessPermissionQuery;
 import org.eclipse.kapua.service.authorization.access.AccessPermissionService;
 import org.eclipse.kapua.service.authorization.access.AccessRole;
+import org.eclipse.kapua.service.authorization.access.AccessRoleFactory;
 import org.eclipse.kapua.service.authorization.access.AccessRoleListResult;
+import org.eclipse.kapua.service.authorization.access.AccessRoleQuery;
 import org.eclipse.kapua.service.authorization.access.AccessRoleService;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessPermissionPredicates;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessRolePredicates;
 import org.eclipse.kapua.service.authorization.permission.shiro.PermissionImpl;
 import org.eclipse.kapua.service.authorization.role.Role;
+import org.eclipse.kapua.service.authorization.role.RoleFactory;
+import org.eclipse.kapua.service.authorization.role.RoleListResult;
 import org.eclipse.kapua.service.authorization.role.RolePermission;
+import org.eclipse.kapua.service.authorization.role.RolePermissionFactory;
 import org.eclipse.kapua.service.authorization.role.RolePermissionListResult;
+import org.eclipse.kapua.service.authorization.role.RolePermissionQuery;
 import org.eclipse.kapua.service.authorization.role.RolePermissionService;
+import org.eclipse.kapua.service.authorization.role.RoleQuery;
 import org.eclipse.kapua.service.authorization.role.RoleService;
+import org.eclipse.kapua.service.authorization.role.shiro.RolePermissionPredicates;
 import org.eclipse.kapua.service.user.User;
 import org.eclipse.kapua.service.user.UserService;
 import org.slf4j.Logger;
@@ -60,11 +77,32 @@ public class KapuaAuthorizingRealm extends AuthorizingRealm {
     public static final String REALM_NAME = "kapuaAuthorizingRealm";
 
     public KapuaAuthorizingRealm() throws KapuaException {
+        this(KapuaAuthorizationCacheManager.isEnabled());
+    }
+
+    KapuaAuthorizingRealm(boolean cacheEnabled) {
         setName(REALM_NAME);
+
+        if (cacheEnabled) {
+            setCacheManager(KapuaAuthorizationCacheManager.getInstance());
+            setAuthorizationCachingEnabled(true);
+        } else {
+            setAuthorizationCachingEnabled(false);
+        }
+    }
+
+    /**
+     * The authorization info are cached by user id (the principals change at every login).
+     */
+    @Override
+    protected Object getAuthorizationCacheKey(PrincipalCollection principals) {
+        return ((User) principals.getPrimaryPrincipal()).getId().toCompactId();
     }
 
     /**
-     * Authorization.
+     * Authorization.<br>
+     * The permissions of the user are loaded with a constant number of queries (whatever the number of access infos and roles):
+     * the user, its access infos, their access permissions, their access roles, the roles and the role permissions.
      */
     protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals)
             throws AuthenticationException {
@@ -80,6 +118,14 @@ public class KapuaAuthorizingRealm extends AuthorizingRealm {
         UserService userService = locator.getService(UserService.class);
         AccessInfoService accessInfoService = locator.getService(AccessInfoService.class);
         AccessInfoFactory accessInfoFactory = locator.getFactory(AccessInfoFactory.class);
+        AccessPermissionService accessPermissionService = locator.getService(AccessPermissionService.class);
+        AccessPermissionFactory accessPermissionFactory = locator.getFactory(AccessPermissionFactory.class);
+        AccessRoleService accessRoleService = locator.getService(AccessRoleService.class);
+        AccessRoleFactory accessRoleFactory = locator.getFactory(AccessRoleFactory.class);
+        RoleService roleService = locator.getService(RoleService.class);
+        RoleFactory roleFactory = locator.getFactory(RoleFactory.class);
+        RolePermissionService rolePermissionService = locator.getService(RolePermissionService.class);
+        RolePermissionFactory rolePermissionFactory = locator.getFactory(RolePermissionFactory.class);
 
         //
         // Get the associated user by name
@@ -122,68 +168,91 @@ public class KapuaAuthorizingRealm extends AuthorizingRealm {
         //
         // Create SimpleAuthorizationInfo with principals permissions
         SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+        if (accessInfos.isEmpty()) {
+            return info;
+        }
+
+        // The access infos, access permissions, access roles and roles share the user scope
+        KapuaId scopeId = user.getScopeId();
+        KapuaId[] accessInfoIds = new KapuaId[accessInfos.getSize()];
+        for (int i = 0; i < accessInfoIds.length; i++) {
+            accessInfoIds[i] = new KapuaEid(accessInfos.getItem(i).getId());
+        }
+
+        // Access Permissions (of all the access infos)
+        AccessPermissionQuery accessPermissionQuery = accessPermissionFactory.newQuery(scopeId);
+        accessPermissionQuery.setPredicate(new AttributePredicate<KapuaId[]>(AccessPermissionPredicates.ACCESS_INFO_ID, accessInfoIds));
+
+        final AccessPermissionListResult accessPermissions;
+        try {
+            accessPermissions = KapuaSecurityUtils.doPrivileged(() -> accessPermissionService.query(accessPermissionQuery));
+        } catch (AuthenticationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ShiroException("Error while find access permissions!", e);
+        }
+
+        for (AccessPermission accessPermission : accessPermissions.getItems()) {
+            PermissionImpl p = accessPermission.getPermission();
+            logger.trace("User: {} has permission: {}", username, p);
+            info.addObjectPermission(p);
+        }
+
+        // Access Role Ids (of all the access infos)
+        AccessRoleQuery accessRoleQuery = accessRoleFactory.newQuery(scopeId);
+        accessRoleQuery.setPredicate(new AttributePredicate<KapuaId[]>(AccessRolePredicates.ACCESS_INFO_ID, accessInfoIds));
+
+        final AccessRoleListResult accessRoles;
+        try {
+            accessRoles = KapuaSecurityUtils.doPrivileged(() -> accessRoleService.query(accessRoleQuery));
+        } catch (AuthenticationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ShiroException("Error while find access role ids!", e);
+        }
+
+        if (accessRoles.isEmpty()) {
+            return info;
+        }
+
+        Set<KapuaId> roleIdSet = new HashSet<>();
+        for (AccessRole accessRole : accessRoles.getItems()) {
+            roleIdSet.add(new KapuaEid(accessRole.getRoleId()));
+        }
+        KapuaId[] roleIds = roleIdSet.toArray(new KapuaId[roleIdSet.size()]);
+
+        // Roles
+        RoleQuery roleQuery = roleFactory.newQuery(scopeId);
+        roleQuery.setPredicate(new AttributePredicate<KapuaId[]>(KapuaEntityPredicates.ENTITY_ID, roleIds));
+
+        final RoleListResult roles;
+        try {
+            roles = KapuaSecurityUtils.doPrivileged(() -> roleService.query(roleQuery));
+        } catch (AuthenticationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ShiroException("Error while find role ids!", e);
+        }
+
+        for (Role role : roles.getItems()) {
+            info.addRole(role.getName());
+        }
+
+        // Role Permissions (of all the roles)
+        RolePermissionQuery rolePermissionQuery = rolePermissionFactory.newQuery(scopeId);
+        rolePermissionQuery.setPredicate(new AttributePredicate<KapuaId[]>(RolePermissionPredicates.ROLE_ID, roleIds));
+
+        final RolePermissionListResult rolePermissions;
+        try {
+            rolePermissions = KapuaSecurityUtils.doPrivileged(() -> rolePermissionService.query(rolePermissionQuery));
+        } catch (Exception e) {
+            throw new ShiroException("Error while find role permission!", e);
+        }
 
-        // Get user roles set and related permissions
-        for (AccessInfo accessInfo : accessInfos.getItems()) {
-
-            // Access Permissions
-            AccessPermissionService accessPermissionService = locator.getService(AccessPermissionService.class);
-            AccessPermissionListResult accessPermissions;
-            try {
-                accessPermissions = KapuaSecurityUtils.doPrivileged(() -> accessPermissionService.findByAccessInfoId(accessInfo.getScopeId(), accessInfo.getId()));
-            } catch (AuthenticationException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new ShiroException("Error while find access permissions!", e);
-            }
-
-            for (AccessPermission accessPermission : accessPermissions.getItems()) {
-                PermissionImpl p = accessPermission.getPermission();
-                logger.trace("User: {} has permission: {}", username, p);
-                info.addObjectPermission(p);
-            }
-
-            // Access Role Id
-            AccessRoleService accessRoleService = locator.getService(AccessRoleService.class);
-            AccessRoleListResult accessRoles;
-            try {
-                accessRoles = KapuaSecurityUtils.doPrivileged(() -> accessRoleService.findByAccessInfoId(accessInfo.getScopeId(), accessInfo.getId()));
-            } catch (AuthenticationException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new ShiroException("Error while find access role ids!", e);
-            }
-
-            RoleService roleService = locator.getService(RoleService.class);
-            RolePermissionService rolePermissionService = locator.getService(RolePermissionService.class);
-            for (AccessRole accessRole : accessRoles.getItems()) {
-
-                KapuaId roleId = accessRole.getRoleId();
-
-                Role role;
-                try {
-                    role = KapuaSecurityUtils.doPrivileged(() -> roleService.find(accessRole.getScopeId(), roleId));
-                } catch (AuthenticationException e) {
-                    throw e;
-                } catch (Exception e) {
-                    throw new ShiroException("Error while find role ids!", e);
-                }
-
-                info.addRole(role.getName());
-                final RolePermissionListResult rolePermissions;
-                try {
-                    rolePermissions = KapuaSecurityUtils.doPrivileged(() -> rolePermissionService.findByRoleId(role.getScopeId(), role.getId()));
-                } catch (Exception e) {
-                    throw new ShiroException("Error while find role permission!", e);
-                }
-
-                for (RolePermission rolePermission : rolePermissions.getItems()) {
-
-                    PermissionImpl p = rolePermission.getPermission();
-                    logger.trace("Role: {} has permission: {}", role, p);
-                    info.addObjectPermission(p);
-                }
-            }
+        for (RolePermission rolePermission : rolePermissions.getItems()) {
+            PermissionImpl p = rolePermission.getPermission();
+            logger.trace("Role: {} has permission: {}", rolePermission.getRoleId(), p);
+            info.addObjectPermission(p);
         }
 
         //
@@ -22,7 +22,11 @@ import org.eclipse.kapua.commons.setting.SettingKey;
  */
 public enum KapuaAuthorizationSettingKeys implements SettingKey
 {
-    AUTHORIZATION_KEY("authorization.key");
+    AUTHORIZATION_KEY("authorization.key"),
+
+    AUTHORIZATION_CACHE_ENABLE("authorization.cache.enabled"),
+    AUTHORIZATION_CACHE_TTL("authorization.cache.ttl"),
+    AUTHORIZATION_CACHE_SIZE_MAXIMUM("authorization.cache.size.maximum");
 
     private String key;
 
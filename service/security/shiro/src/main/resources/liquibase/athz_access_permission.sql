@@ -36,4 +36,10 @@ CREATE INDEX idx_scopeId_accessId_domain_action_targetScopeId_groupId ON athz_ac
 
 INSERT INTO athz_access_permission
 	VALUES
-		(1, 1, NOW(), 1, 2, 'broker', 'connect', 1, null); -- kapua-broker assigned of permission: broker:connect:1
\ No newline at end of file
+		(1, 1, NOW(), 1, 2, 'broker', 'connect', 1, null); -- kapua-broker assigned of permission: broker:connect:1
+
+--changeset access_permission:2
+
+INSERT INTO athz_access_permission
+	VALUES
+		(1, 2, NOW(), 1, 1, 'metrics', 'read', null, null); -- kapua-sys assigned of permission: metrics:read (all the scopes)
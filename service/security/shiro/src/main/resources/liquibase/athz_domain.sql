@@ -46,3 +46,9 @@ INSERT INTO athz_domain
 		(NULL, 13, NOW(), 1, 'access_token',		'accessTokenService'),
 		(NULL, 14, NOW(), 1, 'role',				'roleService'),
 		(NULL, 15, NOW(), 1, 'user',				'userService');
+
+--changeset domain:2
+
+INSERT INTO athz_domain
+	VALUES
+		(NULL, 16, NOW(), 1, 'metrics',			'metricsService');
@@ -83,4 +83,10 @@ INSERT INTO athz_domain_actions
 
 		(15, 'read'),
 		(15, 'write'),
-		(15, 'delete');
\ No newline at end of file
+		(15, 'delete');
+
+--changeset domain_actions:2
+
+INSERT INTO athz_domain_actions
+	VALUES
+		(16, 'read');
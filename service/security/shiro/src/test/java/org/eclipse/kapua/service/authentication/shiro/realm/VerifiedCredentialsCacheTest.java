@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.shiro.realm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.service.authentication.credential.Credential;
+import org.eclipse.kapua.service.authentication.credential.CredentialType;
+import org.eclipse.kapua.service.authentication.credential.shiro.CredentialImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class VerifiedCredentialsCacheTest {
+
+    private static final long TTL = TimeUnit.MINUTES.toMillis(5);
+    private static final long FAILURE_TTL = TimeUnit.MINUTES.toMillis(1);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private VerifiedCredentialsCache cache;
+    private Credential credential;
+
+    @Before
+    public void setUp() {
+        cache = new VerifiedCredentialsCache(1000, TTL, FAILURE_TTL, ticker);
+        credential = newCredential(1, "$2a$12$hash");
+    }
+
+    @Test
+    public void testMiss() {
+        assertNull(cache.getVerification(credential, "secret"));
+
+        cache.putVerification(credential, "secret", true);
+        assertNull(cache.getVerification(credential, "other"));
+        assertNull(cache.getVerification(newCredential(2, credential.getCredentialKey()), "secret"));
+    }
+
+    @Test
+    public void testHit() {
+        cache.putVerification(credential, "secret", true);
+        assertEquals(Boolean.TRUE, cache.getVerification(credential, "secret"));
+
+        // a later success clears the failure of the same secret
+        cache.putVerification(credential, "wrong", false);
+        cache.putVerification(credential, "wrong", true);
+        assertEquals(Boolean.TRUE, cache.getVerification(credential, "wrong"));
+    }
+
+    @Test
+    public void testFailureShortCircuitsOnlyTheFailedSecret() {
+        // many failures (e.g. a device with a stale password) don't deny the other secrets
+        for (int i = 0; i < 100; i++) {
+            cache.putVerification(credential, "stale" + i, false);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Boolean.FALSE, cache.getVerification(credential, "stale" + i));
+        }
+        assertNull(cache.getVerification(credential, "secret"));
+    }
+
+    @Test
+    public void testTtlExpiry() {
+        cache.putVerification(credential, "secret", true);
+        cache.putVerification(credential, "wrong", false);
+
+        advance(FAILURE_TTL - 1);
+        assertEquals(Boolean.TRUE, cache.getVerification(credential, "secret"));
+        assertEquals(Boolean.FALSE, cache.getVerification(credential, "wrong"));
+
+        advance(1);
+        assertEquals(Boolean.TRUE, cache.getVerification(credential, "secret"));
+        assertNull(cache.getVerification(credential, "wrong"));
+
+        advance(TTL - FAILURE_TTL);
+        assertNull(cache.getVerification(credential, "secret"));
+    }
+
+    @Test
+    public void testInvalidateCredential() {
+        Credential otherCredential = newCredential(10, credential.getCredentialKey());
+        cache.putVerification(credential, "secret", true);
+        cache.putVerification(credential, "wrong", false);
+        cache.putVerification(otherCredential, "secret", true);
+
+        cache.invalidateCredential(credential.getId());
+
+        assertNull(cache.getVerification(credential, "secret"));
+        assertNull(cache.getVerification(credential, "wrong"));
+        assertEquals(Boolean.TRUE, cache.getVerification(otherCredential, "secret"));
+    }
+
+    @Test
+    public void testChangedCredentialKey() {
+        cache.putVerification(credential, "secret", true);
+        cache.putVerification(credential, "wrong", false);
+
+        // a login which read the credential before the update commit caches the previous key after the invalidation
+        cache.invalidateCredential(credential.getId());
+        cache.putVerification(credential, "secret", true);
+
+        Credential updatedCredential = newCredential(1, "$2a$12$updated");
+        assertNull(cache.getVerification(updatedCredential, "secret"));
+        assertNull(cache.getVerification(updatedCredential, "wrong"));
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static Credential newCredential(long id, String credentialKey) {
+        CredentialImpl credential = new CredentialImpl(new KapuaEid(BigInteger.ONE), new KapuaEid(BigInteger.ONE), CredentialType.PASSWORD, credentialKey);
+        credential.setId(new KapuaEid(BigInteger.valueOf(id)));
+        return credential;
+    }
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import org.apache.shiro.cache.Cache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KapuaAuthorizationCacheManagerTest extends Assert {
+
+    @Test
+    public void testDisabledByDefault() {
+        // opt-in
+        assertFalse(KapuaAuthorizationCacheManager.isEnabled());
+    }
+
+    @Test
+    public void testCache() {
+        KapuaAuthorizationCacheManager cacheManager = KapuaAuthorizationCacheManager.getInstance();
+        Cache<String, String> cache = cacheManager.getCache("testCache");
+        assertSame(cache, cacheManager.getCache("testCache"));
+
+        assertNull(cache.put("user", "info"));
+        assertEquals("info", cache.get("user"));
+        assertEquals("info", cache.put("user", "info2"));
+        assertEquals(1, cache.size());
+        assertTrue(cache.keys().contains("user"));
+        assertTrue(cache.values().contains("info2"));
+
+        assertEquals("info2", cache.remove("user"));
+        assertNull(cache.get("user"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        KapuaAuthorizationCacheManager cacheManager = KapuaAuthorizationCacheManager.getInstance();
+        Cache<String, String> cache = cacheManager.getCache("testInvalidateCache");
+        Cache<String, String> otherCache = cacheManager.getCache("testInvalidateOtherCache");
+        cache.put("user", "info");
+        otherCache.put("otherUser", "otherInfo");
+
+        // all the caches are cleared
+        KapuaAuthorizationCacheManager.invalidateAll();
+
+        assertNull(cache.get("user"));
+        assertNull(otherCache.get("otherUser"));
+        assertEquals(0, cache.size());
+        assertEquals(0, otherCache.size());
+    }
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authorization.access.AccessInfo;
+import org.eclipse.kapua.service.authorization.access.AccessInfoCreator;
+import org.eclipse.kapua.service.authorization.access.AccessInfoFactory;
+import org.eclipse.kapua.service.authorization.access.AccessInfoService;
+import org.eclipse.kapua.service.authorization.access.AccessPermission;
+import org.eclipse.kapua.service.authorization.access.AccessPermissionService;
+import org.eclipse.kapua.service.authorization.domain.Domain;
+import org.eclipse.kapua.service.authorization.permission.Actions;
+import org.eclipse.kapua.service.authorization.permission.Permission;
+import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
+import org.eclipse.kapua.service.authorization.role.Role;
+import org.eclipse.kapua.service.authorization.role.RoleCreator;
+import org.eclipse.kapua.service.authorization.role.RoleFactory;
+import org.eclipse.kapua.service.authorization.role.RoleService;
+import org.eclipse.kapua.service.user.User;
+import org.eclipse.kapua.service.user.UserFactory;
+import org.eclipse.kapua.service.user.UserService;
+import org.eclipse.kapua.test.KapuaTest;
+import org.junit.Test;
+
+public class KapuaAuthorizingRealmTest extends KapuaTest {
+
+    private static final Domain testDomain = new TestDomain();
+
+    KapuaEid scope = new KapuaEid(BigInteger.valueOf(random.nextLong()));
+
+    @Test
+    public void testBulkLoading() throws Exception {
+        KapuaSecurityUtils.doPrivileged(() -> {
+            // direct permission and permissions of two roles
+            Role writeRole = createRole(Actions.write);
+            Role deleteRole = createRole(Actions.delete);
+            User user = createUser(newPermissions(Actions.read), writeRole.getId(), deleteRole.getId());
+
+            KapuaAuthorizingRealm realm = new KapuaAuthorizingRealm();
+            PrincipalCollection principals = newPrincipals(user);
+            AuthorizationInfo info = realm.doGetAuthorizationInfo(principals);
+
+            assertEquals(new HashSet<>(Arrays.asList(writeRole.getName(), deleteRole.getName())), info.getRoles());
+            assertEquals(3, info.getObjectPermissions().size());
+            assertTrue(isPermitted(realm, principals, Actions.read));
+            assertTrue(isPermitted(realm, principals, Actions.write));
+            assertTrue(isPermitted(realm, principals, Actions.delete));
+            assertFalse(isPermitted(realm, principals, Actions.execute));
+            return null;
+        });
+    }
+
+    @Test
+    public void testNoAccess() throws Exception {
+        KapuaSecurityUtils.doPrivileged(() -> {
+            User user = createUser(Collections.<Permission> emptySet());
+
+            AuthorizationInfo info = new KapuaAuthorizingRealm().doGetAuthorizationInfo(newPrincipals(user));
+
+            assertTrue(info.getRoles() == null || info.getRoles().isEmpty());
+            assertTrue(info.getObjectPermissions() == null || info.getObjectPermissions().isEmpty());
+            return null;
+        });
+    }
+
+    @Test
+    public void testCacheDisabledByDefault() throws Exception {
+        KapuaSecurityUtils.doPrivileged(() -> {
+            KapuaAuthorizingRealm realm = new KapuaAuthorizingRealm();
+            assertFalse(realm.isAuthorizationCachingEnabled());
+
+            User user = createUser(newPermissions(Actions.read));
+            PrincipalCollection principals = newPrincipals(user);
+            assertTrue(isPermitted(realm, principals, Actions.read));
+            assertNull(realm.getAuthorizationCache());
+            return null;
+        });
+    }
+
+    @Test
+    public void testCacheInvalidation() throws Exception {
+        KapuaSecurityUtils.doPrivileged(() -> {
+            KapuaAuthorizingRealm realm = new KapuaAuthorizingRealm(true);
+            assertTrue(realm.isAuthorizationCachingEnabled());
+
+            User user = createUser(newPermissions(Actions.read));
+            PrincipalCollection principals = newPrincipals(user);
+            assertTrue(isPermitted(realm, principals, Actions.read));
+
+            // cached by user id
+            Cache<Object, AuthorizationInfo> cache = KapuaAuthorizationCacheManager.getInstance().getCache(realm.getAuthorizationCacheName());
+            assertNotNull(cache.get(user.getId().toCompactId()));
+
+            // the permission is revoked: the cached authorization infos are invalidated
+            KapuaLocator locator = KapuaLocator.getInstance();
+            AccessInfoService accessInfoService = locator.getService(AccessInfoService.class);
+            AccessPermissionService accessPermissionService = locator.getService(AccessPermissionService.class);
+            AccessInfo accessInfo = accessInfoService.findByUserId(scope, user.getId());
+            for (AccessPermission accessPermission : accessPermissionService.findByAccessInfoId(scope, accessInfo.getId()).getItems()) {
+                accessPermissionService.delete(scope, accessPermission.getId());
+            }
+
+            assertNull(cache.get(user.getId().toCompactId()));
+            assertFalse(isPermitted(realm, principals, Actions.read));
+            return null;
+        });
+    }
+
+    private User createUser(Set<Permission> permissions, KapuaId... roleIds) throws Exception {
+        KapuaLocator locator = KapuaLocator.getInstance();
+
+        UserService userService = locator.getService(UserService.class);
+        UserFactory userFactory = locator.getFactory(UserFactory.class);
+        User user = userService.create(userFactory.newCreator(scope, "test-user-" + random.nextLong()));
+
+        AccessInfoService accessInfoService = locator.getService(AccessInfoService.class);
+        AccessInfoFactory accessInfoFactory = locator.getFactory(AccessInfoFactory.class);
+        AccessInfoCreator accessInfoCreator = accessInfoFactory.newCreator(scope);
+        accessInfoCreator.setUserId(user.getId());
+        accessInfoCreator.setPermissions(permissions);
+        accessInfoCreator.setRoleIds(new HashSet<>(Arrays.asList(roleIds)));
+        accessInfoService.create(accessInfoCreator);
+        return user;
+    }
+
+    private Role createRole(Actions action) throws Exception {
+        KapuaLocator locator = KapuaLocator.getInstance();
+        RoleService roleService = locator.getService(RoleService.class);
+        RoleFactory roleFactory = locator.getFactory(RoleFactory.class);
+        RoleCreator roleCreator = roleFactory.newCreator(scope);
+        roleCreator.setName("testRole-" + random.nextLong());
+        roleCreator.setPermissions(newPermissions(action));
+        return roleService.create(roleCreator);
+    }
+
+    private Set<Permission> newPermissions(Actions action) {
+        Set<Permission> permissions = new HashSet<>();
+        permissions.add(newPermission(action));
+        return permissions;
+    }
+
+    private Permission newPermission(Actions action) {
+        PermissionFactory permissionFactory = KapuaLocator.getInstance().getFactory(PermissionFactory.class);
+        return permissionFactory.newPermission(testDomain, action, scope);
+    }
+
+    private boolean isPermitted(KapuaAuthorizingRealm realm, PrincipalCollection principals, Actions action) {
+        return realm.isPermitted(principals, (org.apache.shiro.authz.Permission) newPermission(action));
+    }
+
+    private static PrincipalCollection newPrincipals(User user) {
+        return new SimplePrincipalCollection(user, KapuaAuthorizingRealm.REALM_NAME);
+    }
+}
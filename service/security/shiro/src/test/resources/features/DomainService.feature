@@ -14,10 +14,10 @@
 Feature: Domain Service CRUD tests
 
 Scenario: Count domains in a blank database
-	The default domain table must contain 15 preset entries.
+	The default domain table must contain 16 preset entries.
 	
 	When I count the domain entries in the database
-	Then There are 15 domains
+	Then There are 16 domains
 
 Scenario: Regular domain
 	Create a regular domain entry. The newly created entry must match the 
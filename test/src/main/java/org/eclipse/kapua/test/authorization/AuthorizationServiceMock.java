@@ -12,6 +12,9 @@
  *******************************************************************************/
 package org.eclipse.kapua.test.authorization;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.locator.KapuaProvider;
 import org.eclipse.kapua.locator.guice.TestService;
@@ -31,6 +34,16 @@ public class AuthorizationServiceMock implements AuthorizationService
         return true;
     }
 
+    @Override
+    public boolean[] isPermitted(List<Permission> permissions)
+        throws KapuaException
+    {
+        // Always true
+        boolean[] isPermitted = new boolean[permissions.size()];
+        Arrays.fill(isPermitted, true);
+        return isPermitted;
+    }
+
     @Override
     public void checkPermission(Permission permission)
         throws KapuaException
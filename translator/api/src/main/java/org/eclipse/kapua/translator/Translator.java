@@ -13,8 +13,17 @@
  *******************************************************************************/
 package org.eclipse.kapua.translator;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaRuntimeErrorCodes;
@@ -46,12 +55,53 @@ public abstract class Translator<FROM_M extends Message, TO_M extends Message> {
 
     private static final Logger logger = LoggerFactory.getLogger(Translator.class);
 
-    private static final ServiceLoader<Translator> translators = ServiceLoader.load(Translator.class);
+    /**
+     * Translators loaded through {@link ServiceLoader}, in the service loader order
+     */
+    private static final List<Translator> translators;
+
+    /**
+     * Immutable index of the translators by their own (from, to) message classes
+     */
+    private static final Map<TranslatorKey, Translator> translatorsIndex;
+
+    /**
+     * Memoized lookups for the (from, to) message classes not in the index (ie super classes or interfaces)
+     */
+    private static final ConcurrentMap<TranslatorKey, Translator> resolvedTranslators = new ConcurrentHashMap<>();
+
+    static {
+        List<Translator> loadedTranslators = new ArrayList<>();
+        Iterator<Translator> translatorsIterator = ServiceLoader.load(Translator.class).iterator();
+        while (true) {
+            try {
+                if (!translatorsIterator.hasNext()) {
+                    break;
+                }
+                loadedTranslators.add(translatorsIterator.next());
+            } catch (ServiceConfigurationError e) {
+                // skip the translator that cannot be instantiated, instead of failing the initialization of this class (so every lookup)
+                logger.error("Cannot load translator", e);
+            }
+        }
+        translators = Collections.unmodifiableList(loadedTranslators);
+
+        Map<TranslatorKey, Translator> index = new HashMap<>();
+        for (Translator translator : translators) {
+            TranslatorKey key = new TranslatorKey(translator.getClassFrom(), translator.getClassTo());
+            if (!index.containsKey(key)) {
+                // resolve through the scan so the index returns the same translator as the lookup
+                index.put(key, lookup(key.fromMessageClass, key.toMessageClass));
+            }
+        }
+        translatorsIndex = Collections.unmodifiableMap(index);
+    }
 
     /**
      * Return a translator for the given messages classes.
      * <br>
-     * This method will lookup instances of Translator through {@link java.util.ServiceLoader}
+     * This method will lookup instances of Translator through {@link java.util.ServiceLoader}.<br>
+     * The translators are loaded and indexed once, so this method never blocks.
      * 
      * @param fromMessageClass
      *            message from type
@@ -61,20 +111,29 @@ public abstract class Translator<FROM_M extends Message, TO_M extends Message> {
      * @throws KapuaException
      */
     @SuppressWarnings("unchecked")
-    public static synchronized <FROM_M extends Message, TO_M extends Message, T extends Translator<FROM_M, TO_M>> T getTranslatorFor(Class<? extends FROM_M> fromMessageClass,
+    public static <FROM_M extends Message, TO_M extends Message, T extends Translator<FROM_M, TO_M>> T getTranslatorFor(Class<? extends FROM_M> fromMessageClass,
             Class<? extends TO_M> toMessageClass)
             throws KapuaException {
 
         Objects.requireNonNull(fromMessageClass);
         Objects.requireNonNull(toMessageClass);
 
-        for (Translator translator : translators) {
-            if ((fromMessageClass.isAssignableFrom(translator.getClassFrom())) &&
-                    toMessageClass.isAssignableFrom(translator.getClassTo())) {
-                return (T) translator;
+        TranslatorKey key = new TranslatorKey(fromMessageClass, toMessageClass);
+        Translator translator = translatorsIndex.get(key);
+        if (translator == null) {
+            translator = resolvedTranslators.get(key);
+            if (translator == null) {
+                translator = lookup(fromMessageClass, toMessageClass);
+                if (translator != null) {
+                    resolvedTranslators.putIfAbsent(key, translator);
+                }
             }
         }
 
+        if (translator != null) {
+            return (T) translator;
+        }
+
         logger.error("Cannot find translator from: {}- to: {}", fromMessageClass.getName(), toMessageClass.getName());
         throw new KapuaRuntimeException(KapuaRuntimeErrorCodes.TRANSLATOR_NOT_FOUND,
                 null,
@@ -85,6 +144,23 @@ public abstract class Translator<FROM_M extends Message, TO_M extends Message> {
                 });
     }
 
+    /**
+     * Return the first loaded translator whose message classes are assignable to the given ones
+     * 
+     * @param fromMessageClass
+     * @param toMessageClass
+     * @return the translator or null if no translator matches
+     */
+    private static Translator lookup(Class<?> fromMessageClass, Class<?> toMessageClass) {
+        for (Translator translator : translators) {
+            if ((fromMessageClass.isAssignableFrom(translator.getClassFrom())) &&
+                    toMessageClass.isAssignableFrom(translator.getClassTo())) {
+                return translator;
+            }
+        }
+        return null;
+    }
+
     /**
      * Translate message from the domain FROM_M to the domain TO_M
      * 
@@ -108,4 +184,32 @@ public abstract class Translator<FROM_M extends Message, TO_M extends Message> {
      * @return
      */
     public abstract Class<TO_M> getClassTo();
+
+    private static final class TranslatorKey {
+
+        private final Class<?> fromMessageClass;
+        private final Class<?> toMessageClass;
+
+        private TranslatorKey(Class<?> fromMessageClass, Class<?> toMessageClass) {
+            this.fromMessageClass = fromMessageClass;
+            this.toMessageClass = toMessageClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fromMessageClass.hashCode() + toMessageClass.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TranslatorKey)) {
+                return false;
+            }
+            TranslatorKey other = (TranslatorKey) obj;
+            return fromMessageClass == other.fromMessageClass && toMessageClass == other.toMessageClass;
+        }
+    }
 }
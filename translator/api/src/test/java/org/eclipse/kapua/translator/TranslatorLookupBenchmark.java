@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.message.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Contended benchmark of {@link Translator#getTranslatorFor(Class, Class)}.<br>
+ * It compares the synchronized {@link ServiceLoader} scan (previous behavior) with the translators index at 1, 4 and 16 threads.<br>
+ * The lookups are done both by the exact translator message classes (index hit) and by their interfaces (memoized lookup).
+ * <p>
+ * Run it with: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.eclipse.kapua.translator.TranslatorLookupBenchmark}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("rawtypes")
+public class TranslatorLookupBenchmark {
+
+    private static final ServiceLoader<Translator> serviceLoader = ServiceLoader.load(Translator.class);
+
+    @Setup
+    public void setup() throws KapuaException {
+        // Fail fast if the benchmark translators are not registered
+        Translator translator = Translator.getTranslatorFor(ResponseMessage.class, DeviceMessage.class);
+        if (!(translator instanceof ResponseDeviceTranslator)) {
+            throw new IllegalStateException("Benchmark translators not found");
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Translator scan_1() {
+        return scanLookup();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Translator scan_4() {
+        return scanLookup();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Translator scan_16() {
+        return scanLookup();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Translator index_1() throws KapuaException {
+        return indexLookup();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Translator index_4() throws KapuaException {
+        return indexLookup();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Translator index_16() throws KapuaException {
+        return indexLookup();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Translator memoized_1() throws KapuaException {
+        return memoizedLookup();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Translator memoized_4() throws KapuaException {
+        return memoizedLookup();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Translator memoized_16() throws KapuaException {
+        return memoizedLookup();
+    }
+
+    private static Translator scanLookup() {
+        return scan(ResponseMessageImpl.class, DeviceMessageImpl.class);
+    }
+
+    private static Translator indexLookup() throws KapuaException {
+        return Translator.getTranslatorFor(ResponseMessageImpl.class, DeviceMessageImpl.class);
+    }
+
+    private static Translator memoizedLookup() throws KapuaException {
+        return Translator.getTranslatorFor(ResponseMessage.class, DeviceMessage.class);
+    }
+
+    /**
+     * Copy of the previous {@link Translator#getTranslatorFor(Class, Class)} implementation
+     */
+    private static synchronized Translator scan(Class<?> fromMessageClass, Class<?> toMessageClass) {
+        for (Translator translator : serviceLoader) {
+            if ((fromMessageClass.isAssignableFrom(translator.getClassFrom())) &&
+                    toMessageClass.isAssignableFrom(translator.getClassTo())) {
+                return translator;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TranslatorLookupBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    //
+    // Benchmark messages and translators (registered in META-INF/services)
+
+    public interface DeviceMessage extends Message {
+    }
+
+    public interface RequestMessage extends Message {
+    }
+
+    public interface ResponseMessage extends Message {
+    }
+
+    public interface TransportMessage extends Message {
+    }
+
+    public static class DeviceMessageImpl implements DeviceMessage {
+    }
+
+    public static class RequestMessageImpl implements RequestMessage {
+    }
+
+    public static class ResponseMessageImpl implements ResponseMessage {
+    }
+
+    public static class TransportMessageImpl implements TransportMessage {
+    }
+
+    private abstract static class BenchmarkTranslator<FROM_M extends Message, TO_M extends Message> extends Translator<FROM_M, TO_M> {
+
+        private final Class<FROM_M> classFrom;
+        private final Class<TO_M> classTo;
+
+        private BenchmarkTranslator(Class<FROM_M> classFrom, Class<TO_M> classTo) {
+            this.classFrom = classFrom;
+            this.classTo = classTo;
+        }
+
+        @Override
+        public TO_M translate(FROM_M message) throws KapuaException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Class<FROM_M> getClassFrom() {
+            return classFrom;
+        }
+
+        @Override
+        public Class<TO_M> getClassTo() {
+            return classTo;
+        }
+    }
+
+    public static class DeviceTransportTranslator extends BenchmarkTranslator<DeviceMessageImpl, TransportMessageImpl> {
+
+        public DeviceTransportTranslator() {
+            super(DeviceMessageImpl.class, TransportMessageImpl.class);
+        }
+    }
+
+    public static class TransportDeviceTranslator extends BenchmarkTranslator<TransportMessageImpl, DeviceMessageImpl> {
+
+        public TransportDeviceTranslator() {
+            super(TransportMessageImpl.class, DeviceMessageImpl.class);
+        }
+    }
+
+    public static class RequestTransportTranslator extends BenchmarkTranslator<RequestMessageImpl, TransportMessageImpl> {
+
+        public RequestTransportTranslator() {
+            super(RequestMessageImpl.class, TransportMessageImpl.class);
+        }
+    }
+
+    public static class ResponseDeviceTranslator extends BenchmarkTranslator<ResponseMessageImpl, DeviceMessageImpl> {
+
+        public ResponseDeviceTranslator() {
+            super(ResponseMessageImpl.class, DeviceMessageImpl.class);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaRuntimeErrorCodes;
+import org.eclipse.kapua.KapuaRuntimeException;
+import org.eclipse.kapua.message.Message;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.DeviceMessage;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.DeviceMessageImpl;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.DeviceTransportTranslator;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.RequestMessageImpl;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.RequestTransportTranslator;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.ResponseDeviceTranslator;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.ResponseMessage;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.ResponseMessageImpl;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.TransportDeviceTranslator;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.TransportMessage;
+import org.eclipse.kapua.translator.TranslatorLookupBenchmark.TransportMessageImpl;
+import org.junit.Test;
+
+/**
+ * Lookup of the translators registered in the test META-INF/services (the benchmark translators and a translator failing on construction)
+ */
+@SuppressWarnings("rawtypes")
+public class TranslatorTest {
+
+    @Test
+    public void testIndexLookup() throws KapuaException {
+        Translator translator = Translator.getTranslatorFor(ResponseMessageImpl.class, DeviceMessageImpl.class);
+        assertTrue(translator instanceof ResponseDeviceTranslator);
+
+        translator = Translator.getTranslatorFor(DeviceMessageImpl.class, TransportMessageImpl.class);
+        assertTrue(translator instanceof DeviceTransportTranslator);
+
+        assertSame(translator, Translator.getTranslatorFor(DeviceMessageImpl.class, TransportMessageImpl.class));
+    }
+
+    @Test
+    public void testInterfaceLookup() throws KapuaException {
+        Translator translator = Translator.getTranslatorFor(ResponseMessage.class, DeviceMessage.class);
+        assertTrue(translator instanceof ResponseDeviceTranslator);
+
+        // memoized
+        assertSame(translator, Translator.getTranslatorFor(ResponseMessage.class, DeviceMessage.class));
+
+        // the first registered translator matching the interfaces
+        translator = Translator.getTranslatorFor(Message.class, TransportMessage.class);
+        assertTrue(translator instanceof DeviceTransportTranslator);
+
+        translator = Translator.getTranslatorFor(RequestMessageImpl.class, TransportMessage.class);
+        assertTrue(translator instanceof RequestTransportTranslator);
+    }
+
+    @Test
+    public void testFailingTranslatorSkipped() throws KapuaException {
+        // the translators registered before and after the failing one are loaded
+        assertTrue(Translator.getTranslatorFor(TransportMessageImpl.class, DeviceMessageImpl.class) instanceof TransportDeviceTranslator);
+        assertTrue(Translator.getTranslatorFor(RequestMessageImpl.class, TransportMessageImpl.class) instanceof RequestTransportTranslator);
+
+        assertNotFound(FailingMessage.class, DeviceMessageImpl.class);
+    }
+
+    @Test
+    public void testNotFound() throws KapuaException {
+        assertNotFound(TransportMessageImpl.class, RequestMessageImpl.class);
+        // not memoized
+        assertNotFound(TransportMessageImpl.class, RequestMessageImpl.class);
+    }
+
+    private static void assertNotFound(Class<? extends Message> fromMessageClass, Class<? extends Message> toMessageClass) throws KapuaException {
+        try {
+            Translator.getTranslatorFor(fromMessageClass, toMessageClass);
+            fail("No translator should be found");
+        } catch (KapuaRuntimeException e) {
+            assertEquals(KapuaRuntimeErrorCodes.TRANSLATOR_NOT_FOUND, e.getCode());
+        }
+    }
+
+    public static class FailingMessage implements Message {
+    }
+
+    public static class FailingTranslator extends Translator<FailingMessage, DeviceMessageImpl> {
+
+        public FailingTranslator() {
+            throw new IllegalStateException("Translator configuration not found");
+        }
+
+        @Override
+        public DeviceMessageImpl translate(FailingMessage message) throws KapuaException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Class<FailingMessage> getClassFrom() {
+            return FailingMessage.class;
+        }
+
+        @Override
+        public Class<DeviceMessageImpl> getClassTo() {
+            return DeviceMessageImpl.class;
+        }
+    }
+}
@@ -14,12 +14,11 @@ package org.eclipse.kapua.translator.kura.kapua;
 
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
-import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.message.KapuaChannel;
 import org.eclipse.kapua.message.KapuaMessage;
 import org.eclipse.kapua.message.KapuaPayload;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.account.Account;
-import org.eclipse.kapua.service.account.AccountService;
 import org.eclipse.kapua.service.device.call.message.app.response.kura.KuraResponseChannel;
 import org.eclipse.kapua.service.device.call.message.app.response.kura.KuraResponseMessage;
 import org.eclipse.kapua.service.device.call.message.app.response.kura.KuraResponsePayload;
@@ -30,18 +29,16 @@ public abstract class AbstractTranslatorKuraKapua<TO_C extends KapuaChannel, TO_
     @Override
     public TO_M translate(KuraResponseMessage kuraMessage) throws KapuaException {
 
-        final KapuaLocator locator = KapuaLocator.getInstance();
-        final AccountService accountService = locator.getService(AccountService.class);
-        final Account account = accountService.findByName(kuraMessage.getChannel().getScope());
+        final KapuaId accountId = IdentityCache.getInstance().getAccountId(kuraMessage.getChannel().getScope());
 
-        if (account == null) {
+        if (accountId == null) {
             throw new KapuaEntityNotFoundException(Account.TYPE, kuraMessage.getChannel().getScope());
         }
 
-        return translateMessage(kuraMessage, account);
+        return translateMessage(kuraMessage, accountId);
     }
     
-    protected abstract TO_M translateMessage(KuraResponseMessage kuraMessage, Account account) throws KapuaException;
+    protected abstract TO_M translateMessage(KuraResponseMessage kuraMessage, KapuaId scopeId) throws KapuaException;
 
     protected abstract TO_C translateChannel(KuraResponseChannel kuraChannel) throws KapuaException;
 
@@ -14,7 +14,7 @@
 package org.eclipse.kapua.translator.kura.kapua;
 
 import org.eclipse.kapua.KapuaException;
-import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.device.call.kura.app.ResponseMetrics;
 import org.eclipse.kapua.service.device.call.message.app.response.kura.KuraResponseChannel;
 import org.eclipse.kapua.service.device.call.message.app.response.kura.KuraResponseMessage;
@@ -26,7 +26,7 @@ import org.eclipse.kapua.service.device.management.response.KapuaResponsePayload
 public abstract class AbstractTranslatorResponseKuraKapua<TO_C extends KapuaResponseChannel, TO_P extends KapuaResponsePayload, TO_M extends KapuaResponseMessage<TO_C, TO_P>> extends AbstractTranslatorKuraKapua<TO_C, TO_P, TO_M> {
 
     @Override
-    protected TO_M translateMessage(KuraResponseMessage kuraMessage, Account account) throws KapuaException
+    protected TO_M translateMessage(KuraResponseMessage kuraMessage, KapuaId scopeId) throws KapuaException
     {
         // Translate channel
         
@@ -39,7 +39,7 @@ public abstract class AbstractTranslatorResponseKuraKapua<TO_C extends KapuaResp
         // Process messsage
         
         TO_M kapuaMessage = createMessage();
-        kapuaMessage.setScopeId(account.getId());
+        kapuaMessage.setScopeId(scopeId);
         kapuaMessage.setChannel(bundleResponseChannel);
         kapuaMessage.setPayload(responsePayload);
         kapuaMessage.setCapturedOn(kuraMessage.getPayload().getTimestamp());
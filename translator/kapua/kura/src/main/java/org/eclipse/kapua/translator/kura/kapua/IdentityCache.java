@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.translator.kura.kapua;
+
+import java.math.BigInteger;
+import java.util.Objects;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.cache.EntityChangeListener;
+import org.eclipse.kapua.commons.cache.EntityChangeNotifier;
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.account.internal.AccountDomain;
+import org.eclipse.kapua.service.authorization.AuthorizationService;
+import org.eclipse.kapua.service.authorization.domain.Domain;
+import org.eclipse.kapua.service.authorization.group.Group;
+import org.eclipse.kapua.service.authorization.permission.Actions;
+import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
+import org.eclipse.kapua.service.device.registry.Device;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+import org.eclipse.kapua.service.device.registry.internal.DeviceDomain;
+import org.eclipse.kapua.translator.kura.kapua.setting.TranslatorKuraKapuaSetting;
+import org.eclipse.kapua.translator.kura.kapua.setting.TranslatorKuraKapuaSettingKeys;
+
+/**
+ * Account and device identity cache shared by the Kura to Kapua translators.<br>
+ * It maps the account name to the account id and the scope id and client id to the device id, so the steady state translation doesn't query the database.<br>
+ * The not found identities are cached too (with a shorter time to live) so unknown devices don't hit the database on every message.<br>
+ * The entries are invalidated when a device is created or deleted (by scope id and client id, the client id of a device never changes)
+ * and when an account is updated or deleted.<br>
+ * The cache is shared by all the callers, so the read permission of the current caller is checked on every lookup (as the account and device registry services do).
+ *
+ * @since 1.0
+ *
+ */
+public class IdentityCache implements EntityChangeListener {
+
+    private static final Domain accountDomain = new AccountDomain();
+    private static final Domain deviceDomain = new DeviceDomain();
+
+    private static final IdentityCache instance = new IdentityCache();
+
+    private final LocalCache<String, KapuaId> accountIdCache;
+    private final LocalCache<String, Boolean> missingAccountCache;
+    private final LocalCache<DeviceKey, KapuaId> deviceIdCache;
+    private final LocalCache<DeviceKey, Boolean> missingDeviceCache;
+
+    private IdentityCache() {
+        this(TranslatorKuraKapuaSetting.getInstance());
+        EntityChangeNotifier.addListener(this);
+    }
+
+    private IdentityCache(TranslatorKuraKapuaSetting config) {
+        this(config.getInt(TranslatorKuraKapuaSettingKeys.IDENTITY_CACHE_SIZE_MAXIMUM, 10000),
+                config.getInt(TranslatorKuraKapuaSettingKeys.IDENTITY_CACHE_EXPIRE_AFTER, 300),
+                config.getInt(TranslatorKuraKapuaSettingKeys.IDENTITY_CACHE_MISSING_EXPIRE_AFTER, 10));
+    }
+
+    IdentityCache(int sizeMax, int expireAfter, int missingExpireAfter) {
+        accountIdCache = new LocalCache<>(sizeMax, expireAfter, null);
+        missingAccountCache = new LocalCache<>(sizeMax, missingExpireAfter, false);
+        deviceIdCache = new LocalCache<>(sizeMax, expireAfter, null);
+        missingDeviceCache = new LocalCache<>(sizeMax, missingExpireAfter, false);
+    }
+
+    /**
+     * Get the identity cache instance (singleton)
+     *
+     * @return
+     */
+    public static IdentityCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the account id for the given account name
+     *
+     * @param accountName
+     * @return the account id or null if no account exists with the given name
+     * @throws KapuaException
+     *             if the caller is not allowed to read the account
+     */
+    public KapuaId getAccountId(String accountName)
+            throws KapuaException {
+        KapuaId accountId = accountIdCache.get(accountName);
+        if (accountId != null) {
+            // same check of the account service find by name
+            checkAccountReadPermission(accountId);
+            return accountId;
+        }
+        if (missingAccountCache.get(accountName)) {
+            return null;
+        }
+
+        Account account = findAccount(accountName);
+        if (account != null) {
+            accountId = account.getId();
+            accountIdCache.put(accountName, accountId);
+        } else {
+            missingAccountCache.put(accountName, true);
+        }
+        return accountId;
+    }
+
+    /**
+     * Get the device id for the given scope id and client id
+     *
+     * @param scopeId
+     * @param clientId
+     * @return the device id or null if no device exists with the given client id
+     * @throws KapuaException
+     *             if the caller is not allowed to read the devices of the scope
+     */
+    public KapuaId getDeviceId(KapuaId scopeId, String clientId)
+            throws KapuaException {
+        DeviceKey key = new DeviceKey(scopeId.getId(), clientId);
+        KapuaId deviceId = deviceIdCache.get(key);
+        if (deviceId != null || missingDeviceCache.get(key)) {
+            // same check of the device registry query (done for the not found devices too)
+            checkDeviceReadPermission(scopeId);
+            return deviceId;
+        }
+
+        Device device = findDevice(scopeId, clientId);
+        if (device != null) {
+            deviceId = device.getId();
+            deviceIdCache.put(key, deviceId);
+        } else {
+            missingDeviceCache.put(key, true);
+        }
+        return deviceId;
+    }
+
+    Account findAccount(String accountName) throws KapuaException {
+        return KapuaLocator.getInstance().getService(AccountService.class).findByName(accountName);
+    }
+
+    Device findDevice(KapuaId scopeId, String clientId) throws KapuaException {
+        return KapuaLocator.getInstance().getService(DeviceRegistryService.class).findByClientId(scopeId, clientId);
+    }
+
+    void checkAccountReadPermission(KapuaId accountId) throws KapuaException {
+        checkPermission(accountDomain, accountId, null);
+    }
+
+    void checkDeviceReadPermission(KapuaId scopeId) throws KapuaException {
+        checkPermission(deviceDomain, scopeId, Group.ANY);
+    }
+
+    private static void checkPermission(Domain domain, KapuaId targetScopeId, KapuaId groupId) throws KapuaException {
+        KapuaLocator locator = KapuaLocator.getInstance();
+        AuthorizationService authorizationService = locator.getService(AuthorizationService.class);
+        PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
+        authorizationService.checkPermission(permissionFactory.newPermission(domain, Actions.read, targetScopeId, groupId));
+    }
+
+    @Override
+    public void onEntityChange(String entityType, KapuaId scopeId, KapuaId entityId) {
+        onEntityChange(entityType, scopeId, entityId, null);
+    }
+
+    @Override
+    public void onEntityChange(String entityType, KapuaId scopeId, KapuaId entityId, String entityName) {
+        if (Device.TYPE.equals(entityType)) {
+            if (scopeId != null && entityName != null) {
+                // the client id of the changed device is known (device created or deleted by the registry)
+                DeviceKey key = new DeviceKey(scopeId.getId(), entityName);
+                missingDeviceCache.remove(key);
+                deviceIdCache.remove(key);
+            } else {
+                // the client id of the changed device is not known so drop all the not found devices of the scope
+                invalidateDevices(scopeId != null ? scopeId.getId() : null, entityId != null ? entityId.getId() : null);
+            }
+        } else if (Account.TYPE.equals(entityType) && entityId != null) {
+            for (String accountName : accountIdCache.getAllKeys()) {
+                KapuaId accountId = accountIdCache.get(accountName);
+                if (accountId != null && entityId.getId().equals(accountId.getId())) {
+                    accountIdCache.remove(accountName);
+                }
+            }
+            invalidateDevices(entityId.getId(), null);
+        }
+    }
+
+    /**
+     * Remove the not found devices of the scope and the found devices matching the device id
+     * (or all the found devices of the scope if the device id is null).<br>
+     * It scans the caches, so it's used only when the client id of the changed device is not known (and for the account changes).
+     *
+     * @param scopeId
+     * @param deviceId
+     */
+    private void invalidateDevices(BigInteger scopeId, BigInteger deviceId) {
+        for (DeviceKey key : missingDeviceCache.getAllKeys()) {
+            if (scopeId == null || scopeId.equals(key.scopeId)) {
+                missingDeviceCache.remove(key);
+            }
+        }
+        for (DeviceKey key : deviceIdCache.getAllKeys()) {
+            boolean remove;
+            if (deviceId != null) {
+                KapuaId cachedDeviceId = deviceIdCache.get(key);
+                remove = cachedDeviceId != null && deviceId.equals(cachedDeviceId.getId());
+            } else {
+                remove = scopeId == null || scopeId.equals(key.scopeId);
+            }
+            if (remove) {
+                deviceIdCache.remove(key);
+            }
+        }
+    }
+
+    private static class DeviceKey {
+
+        private final BigInteger scopeId;
+        private final String clientId;
+
+        private DeviceKey(BigInteger scopeId, String clientId) {
+            this.scopeId = scopeId;
+            this.clientId = clientId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * scopeId.hashCode() + clientId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DeviceKey)) {
+                return false;
+            }
+            DeviceKey other = (DeviceKey) obj;
+            return Objects.equals(scopeId, other.scopeId) && Objects.equals(clientId, other.clientId);
+        }
+    }
+}
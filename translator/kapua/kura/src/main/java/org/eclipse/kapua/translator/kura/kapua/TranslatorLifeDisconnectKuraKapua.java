@@ -14,20 +14,18 @@ package org.eclipse.kapua.translator.kura.kapua;
 
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
-import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.message.device.lifecycle.KapuaDisconnectChannel;
 import org.eclipse.kapua.message.device.lifecycle.KapuaDisconnectMessage;
 import org.eclipse.kapua.message.device.lifecycle.KapuaDisconnectPayload;
 import org.eclipse.kapua.message.internal.device.lifecycle.KapuaDisconnectChannelImpl;
 import org.eclipse.kapua.message.internal.device.lifecycle.KapuaDisconnectMessageImpl;
 import org.eclipse.kapua.message.internal.device.lifecycle.KapuaDisconnectPayloadImpl;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.account.Account;
-import org.eclipse.kapua.service.account.AccountService;
 import org.eclipse.kapua.service.device.call.message.kura.lifecycle.KuraDisconnectChannel;
 import org.eclipse.kapua.service.device.call.message.kura.lifecycle.KuraDisconnectMessage;
 import org.eclipse.kapua.service.device.call.message.kura.lifecycle.KuraDisconnectPayload;
 import org.eclipse.kapua.service.device.registry.Device;
-import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
 import org.eclipse.kapua.translator.Translator;
 
 /**
@@ -45,22 +43,20 @@ public class TranslatorLifeDisconnectKuraKapua extends Translator<KuraDisconnect
         kapuaDisconnectMessage.setChannel(translate(kuraDisconnectMessage.getChannel()));
         kapuaDisconnectMessage.setPayload(translate(kuraDisconnectMessage.getPayload()));
 
-        KapuaLocator locator = KapuaLocator.getInstance();
-        AccountService accountService = locator.getService(AccountService.class);
-        Account account = accountService.findByName(kuraDisconnectMessage.getChannel().getScope());
+        IdentityCache identityCache = IdentityCache.getInstance();
+        KapuaId accountId = identityCache.getAccountId(kuraDisconnectMessage.getChannel().getScope());
 
-        if (account == null) {
+        if (accountId == null) {
             throw new KapuaEntityNotFoundException(Account.TYPE, kuraDisconnectMessage.getChannel().getScope());
         }
 
-        DeviceRegistryService deviceRegistryService = locator.getService(DeviceRegistryService.class);
-        Device device = deviceRegistryService.findByClientId(account.getId(), kuraDisconnectMessage.getChannel().getClientId());
-        if (device == null) {
+        KapuaId deviceId = identityCache.getDeviceId(accountId, kuraDisconnectMessage.getChannel().getClientId());
+        if (deviceId == null) {
             throw new KapuaEntityNotFoundException(Device.class.toString(), kuraDisconnectMessage.getChannel().getClientId());
         }
 
-        kapuaDisconnectMessage.setDeviceId(device.getId());
-        kapuaDisconnectMessage.setScopeId(account.getId());
+        kapuaDisconnectMessage.setDeviceId(deviceId);
+        kapuaDisconnectMessage.setScopeId(accountId);
         kapuaDisconnectMessage.setCapturedOn(kuraDisconnectMessage.getPayload().getTimestamp());
         kapuaDisconnectMessage.setSentOn(kuraDisconnectMessage.getPayload().getTimestamp());
         kapuaDisconnectMessage.setReceivedOn(kuraDisconnectMessage.getTimestamp());
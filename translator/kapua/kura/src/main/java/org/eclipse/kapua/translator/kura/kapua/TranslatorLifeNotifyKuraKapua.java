@@ -14,20 +14,18 @@ package org.eclipse.kapua.translator.kura.kapua;
 
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
-import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.message.device.lifecycle.KapuaNotifyChannel;
 import org.eclipse.kapua.message.device.lifecycle.KapuaNotifyMessage;
 import org.eclipse.kapua.message.device.lifecycle.KapuaNotifyPayload;
 import org.eclipse.kapua.message.internal.device.lifecycle.KapuaNotifyChannelImpl;
 import org.eclipse.kapua.message.internal.device.lifecycle.KapuaNotifyMessageImpl;
 import org.eclipse.kapua.message.internal.device.lifecycle.KapuaNotifyPayloadImpl;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.account.Account;
-import org.eclipse.kapua.service.account.AccountService;
 import org.eclipse.kapua.service.device.call.message.kura.lifecycle.KuraNotifyChannel;
 import org.eclipse.kapua.service.device.call.message.kura.lifecycle.KuraNotifyMessage;
 import org.eclipse.kapua.service.device.call.message.kura.lifecycle.KuraNotifyPayload;
 import org.eclipse.kapua.service.device.registry.Device;
-import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
 import org.eclipse.kapua.translator.Translator;
 
 /**
@@ -45,23 +43,21 @@ public class TranslatorLifeNotifyKuraKapua extends Translator<KuraNotifyMessage,
         kapuaNotifyMessage.setChannel(translate(kuraNotifyMessage.getChannel()));
         kapuaNotifyMessage.setPayload(translate(kuraNotifyMessage.getPayload()));
 
-        KapuaLocator locator = KapuaLocator.getInstance();
-        AccountService accountService = locator.getService(AccountService.class);
-        Account account = accountService.findByName(kuraNotifyMessage.getChannel().getScope());
+        IdentityCache identityCache = IdentityCache.getInstance();
+        KapuaId accountId = identityCache.getAccountId(kuraNotifyMessage.getChannel().getScope());
 
-        if (account == null) {
+        if (accountId == null) {
             throw new KapuaEntityNotFoundException(Account.TYPE, kuraNotifyMessage.getChannel().getScope());
         }
 
-        DeviceRegistryService deviceRegistryService = locator.getService(DeviceRegistryService.class);
-        Device device = deviceRegistryService.findByClientId(account.getId(), kuraNotifyMessage.getChannel().getClientId());
+        KapuaId deviceId = identityCache.getDeviceId(accountId, kuraNotifyMessage.getChannel().getClientId());
 
-        if (device == null) {
+        if (deviceId == null) {
             throw new KapuaEntityNotFoundException(Device.class.toString(), kuraNotifyMessage.getChannel().getClientId());
         }
 
-        kapuaNotifyMessage.setDeviceId(device.getId());
-        kapuaNotifyMessage.setScopeId(account.getId());
+        kapuaNotifyMessage.setDeviceId(deviceId);
+        kapuaNotifyMessage.setScopeId(accountId);
         kapuaNotifyMessage.setCapturedOn(kuraNotifyMessage.getPayload().getTimestamp());
         kapuaNotifyMessage.setSentOn(kuraNotifyMessage.getPayload().getTimestamp());
         kapuaNotifyMessage.setReceivedOn(kuraNotifyMessage.getTimestamp());
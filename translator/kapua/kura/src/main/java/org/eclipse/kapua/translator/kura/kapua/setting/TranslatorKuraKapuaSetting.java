@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.translator.kura.kapua.setting;
+
+import org.eclipse.kapua.commons.setting.AbstractKapuaSetting;
+
+/**
+ * Class that offers access to the Kura to Kapua translators settings
+ * 
+ * @since 1.0
+ *
+ */
+public class TranslatorKuraKapuaSetting extends AbstractKapuaSetting<TranslatorKuraKapuaSettingKeys>
+{
+
+    /**
+     * Resource file from which source properties.
+     * 
+     */
+    private static final String                     TRANSLATOR_SETTING_RESOURCE = "translator-kura-kapua-setting.properties";
+
+    private static final TranslatorKuraKapuaSetting instance                    = new TranslatorKuraKapuaSetting();
+
+    /**
+     * Initialize the {@link AbstractKapuaSetting} with the {@link TranslatorKuraKapuaSetting#TRANSLATOR_SETTING_RESOURCE} value.
+     * 
+     */
+    private TranslatorKuraKapuaSetting()
+    {
+        super(TRANSLATOR_SETTING_RESOURCE);
+    }
+
+    /**
+     * Gets a singleton instance of {@link TranslatorKuraKapuaSetting}.
+     * 
+     * @return A singleton instance of TranslatorKuraKapuaSetting.
+     */
+    public static TranslatorKuraKapuaSetting getInstance()
+    {
+        return instance;
+    }
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.translator.kura.kapua.setting;
+
+import org.eclipse.kapua.commons.setting.SettingKey;
+
+/**
+ * Available settings key for the Kura to Kapua translators
+ * 
+ * @since 1.0
+ *
+ */
+public enum TranslatorKuraKapuaSettingKeys implements SettingKey
+{
+
+    /**
+     * Identity cache expire time (in seconds) for the found accounts and devices
+     */
+    IDENTITY_CACHE_EXPIRE_AFTER("translator.identity.cache.expire.after"),
+
+    /**
+     * Identity cache expire time (in seconds) for the not found accounts and devices
+     */
+    IDENTITY_CACHE_MISSING_EXPIRE_AFTER("translator.identity.cache.missing.expire.after"),
+
+    /**
+     * Identity cache maximum size
+     */
+    IDENTITY_CACHE_SIZE_MAXIMUM("translator.identity.cache.size.maximum");
+
+    private String key;
+
+    private TranslatorKuraKapuaSettingKeys(String key)
+    {
+        this.key = key;
+    }
+
+    @Override
+    public String key()
+    {
+        return key;
+    }
+}
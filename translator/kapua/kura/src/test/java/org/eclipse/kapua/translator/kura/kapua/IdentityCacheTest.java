@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator.kura.kapua;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalAccessException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.service.device.registry.Device;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IdentityCacheTest {
+
+    private static final KapuaId ACCOUNT_ID = new KapuaEid(BigInteger.ONE);
+    private static final KapuaId DEVICE_ID = new KapuaEid(BigInteger.TEN);
+
+    private TestIdentityCache identityCache;
+
+    @Before
+    public void setUp() {
+        identityCache = new TestIdentityCache();
+        identityCache.accounts.put("account", ACCOUNT_ID);
+        identityCache.devices.put("device", DEVICE_ID);
+    }
+
+    @Test
+    public void testAccountCached() throws Exception {
+        assertEquals(ACCOUNT_ID, identityCache.getAccountId("account"));
+        assertEquals(ACCOUNT_ID, identityCache.getAccountId("account"));
+        assertEquals(1, identityCache.accountLoads.get());
+
+        // not found accounts are cached too
+        assertNull(identityCache.getAccountId("other"));
+        assertNull(identityCache.getAccountId("other"));
+        assertEquals(2, identityCache.accountLoads.get());
+    }
+
+    @Test
+    public void testDeviceCached() throws Exception {
+        assertEquals(DEVICE_ID, identityCache.getDeviceId(ACCOUNT_ID, "device"));
+        assertEquals(DEVICE_ID, identityCache.getDeviceId(ACCOUNT_ID, "device"));
+        assertEquals(1, identityCache.deviceLoads.get());
+
+        assertNull(identityCache.getDeviceId(ACCOUNT_ID, "other"));
+        assertNull(identityCache.getDeviceId(ACCOUNT_ID, "other"));
+        assertEquals(2, identityCache.deviceLoads.get());
+
+        // same client id in another scope
+        identityCache.getDeviceId(new KapuaEid(BigInteger.TEN), "device");
+        assertEquals(3, identityCache.deviceLoads.get());
+    }
+
+    @Test
+    public void testCachedAccountChecksPermission() throws Exception {
+        assertEquals(ACCOUNT_ID, identityCache.getAccountId("account"));
+
+        // another caller without the permission on the account
+        identityCache.denied = true;
+        try {
+            identityCache.getAccountId("account");
+            fail("The cached account should not be returned to an unauthorized caller");
+        } catch (KapuaIllegalAccessException e) {
+            // expected
+        }
+        assertEquals(1, identityCache.accountLoads.get());
+    }
+
+    @Test
+    public void testCachedDeviceChecksPermission() throws Exception {
+        assertEquals(DEVICE_ID, identityCache.getDeviceId(ACCOUNT_ID, "device"));
+        assertNull(identityCache.getDeviceId(ACCOUNT_ID, "other"));
+
+        // another caller without the permission on the scope, for the found and the not found devices
+        identityCache.denied = true;
+        for (String clientId : new String[] { "device", "other" }) {
+            try {
+                identityCache.getDeviceId(ACCOUNT_ID, clientId);
+                fail("The cached device should not be returned to an unauthorized caller");
+            } catch (KapuaIllegalAccessException e) {
+                // expected
+            }
+        }
+        assertEquals(2, identityCache.deviceLoads.get());
+    }
+
+    @Test
+    public void testDeviceChangeInvalidates() throws Exception {
+        assertNull(identityCache.getDeviceId(ACCOUNT_ID, "new-device"));
+
+        // the device is created
+        identityCache.devices.put("new-device", new KapuaEid(BigInteger.valueOf(11)));
+        identityCache.onEntityChange(Device.TYPE, ACCOUNT_ID, null, "new-device");
+        assertEquals(new KapuaEid(BigInteger.valueOf(11)), identityCache.getDeviceId(ACCOUNT_ID, "new-device"));
+
+        // the device is deleted (the client id is not known)
+        identityCache.devices.remove("new-device");
+        identityCache.onEntityChange(Device.TYPE, ACCOUNT_ID, new KapuaEid(BigInteger.valueOf(11)));
+        assertNull(identityCache.getDeviceId(ACCOUNT_ID, "new-device"));
+        assertEquals(3, identityCache.deviceLoads.get());
+    }
+
+    @Test
+    public void testAccountChangeInvalidates() throws Exception {
+        identityCache.getAccountId("account");
+        identityCache.getDeviceId(ACCOUNT_ID, "device");
+
+        identityCache.onEntityChange(Account.TYPE, null, ACCOUNT_ID);
+
+        identityCache.getAccountId("account");
+        identityCache.getDeviceId(ACCOUNT_ID, "device");
+        assertEquals(2, identityCache.accountLoads.get());
+        assertEquals(2, identityCache.deviceLoads.get());
+    }
+
+    /**
+     * Identity cache reading the accounts and the devices from memory
+     */
+    private static class TestIdentityCache extends IdentityCache {
+
+        private final Map<String, KapuaId> accounts = new HashMap<>();
+        private final Map<String, KapuaId> devices = new HashMap<>();
+        private final AtomicInteger accountLoads = new AtomicInteger();
+        private final AtomicInteger deviceLoads = new AtomicInteger();
+        private volatile boolean denied;
+
+        private TestIdentityCache() {
+            super(100, 300, 300);
+        }
+
+        @Override
+        Account findAccount(String accountName) throws KapuaException {
+            accountLoads.incrementAndGet();
+            KapuaId accountId = accounts.get(accountName);
+            if (accountId == null) {
+                return null;
+            }
+            checkAccountReadPermission(accountId);
+            return newEntity(Account.class, accountId);
+        }
+
+        @Override
+        Device findDevice(KapuaId scopeId, String clientId) throws KapuaException {
+            deviceLoads.incrementAndGet();
+            checkDeviceReadPermission(scopeId);
+            KapuaId deviceId = BigInteger.ONE.equals(scopeId.getId()) ? devices.get(clientId) : null;
+            return deviceId != null ? newEntity(Device.class, deviceId) : null;
+        }
+
+        @Override
+        void checkAccountReadPermission(KapuaId accountId) throws KapuaException {
+            checkPermission();
+        }
+
+        @Override
+        void checkDeviceReadPermission(KapuaId scopeId) throws KapuaException {
+            checkPermission();
+        }
+
+        private void checkPermission() throws KapuaIllegalAccessException {
+            if (denied) {
+                throw new KapuaIllegalAccessException("read");
+            }
+        }
+
+        private static <E> E newEntity(Class<E> type, KapuaId id) {
+            return type.cast(Proxy.newProxyInstance(IdentityCacheTest.class.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+                if ("getId".equals(method.getName())) {
+                    return id;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }));
+        }
+    }
+}
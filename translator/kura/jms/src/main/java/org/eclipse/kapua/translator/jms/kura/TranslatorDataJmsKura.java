@@ -56,9 +56,10 @@ public class TranslatorDataJmsKura extends Translator<JmsMessage, KuraDataMessag
         throws KapuaException
     {
         KuraDataPayload kuraPayload = null;
-        if (jmsPayload.getBody() != null) {
+        if (jmsPayload.getBodyBuffer() != null) {
             kuraPayload = new KuraDataPayload();
-            kuraPayload.readFromByteArray(jmsPayload.getBody());
+            // decode the body in place (no copy of the transport message content)
+            kuraPayload.readFromByteArray(jmsPayload.getBodyBuffer(), jmsPayload.getBodyOffset(), jmsPayload.getBodyLength());
         }
         return kuraPayload;
     }
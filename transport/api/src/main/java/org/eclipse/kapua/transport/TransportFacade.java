@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.transport;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.transport.message.TransportChannel;
 import org.eclipse.kapua.transport.message.TransportMessage;
@@ -58,6 +60,22 @@ public interface TransportFacade<C extends TransportChannel, P extends Transport
     public void sendAsync(MQ message)
             throws KapuaException;
 
+    /**
+     * Send a request message to a device without blocking the caller while waiting for the response.
+     * <p>
+     * The returned future is completed with the response to the request message, or exceptionally if the response is not received within the timeout.
+     * If the timeout is {@code null} the returned future is completed with {@code null} as soon as the message is sent.
+     * </p>
+     *
+     * @param message The request message to send.
+     * @param timeout The timeout for the operation.
+     * @return The future response to the request message.
+     * @throws KapuaException When the request message cannot be sent.
+     * @since 1.0.0
+     */
+    public CompletableFuture<MS> sendAsync(MQ message, Long timeout)
+            throws KapuaException;
+
     //
     // Utilities
     //
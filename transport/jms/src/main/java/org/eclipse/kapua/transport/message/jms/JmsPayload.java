@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.transport.message.jms;
 
+import java.util.Arrays;
+
 import org.eclipse.kapua.transport.message.TransportPayload;
 
 /**
@@ -27,6 +29,12 @@ public class JmsPayload implements TransportPayload {
      */
     private byte[] body;
 
+    /**
+     * The body range (the body may be a view of a larger buffer, e.g. the transport message content).
+     */
+    private int bodyOffset;
+    private int bodyLength;
+
     /**
      * Construct a {@link JmsPayload} with the given parameter.
      * 
@@ -35,17 +43,38 @@ public class JmsPayload implements TransportPayload {
      * @since 1.0.0
      */
     public JmsPayload(byte[] body) {
-        this.body = body;
+        setBody(body);
+    }
+
+    /**
+     * Construct a {@link JmsPayload} viewing the given range of the buffer, without copying it.
+     * 
+     * @param buffer
+     *            The buffer containing the raw body.
+     * @param offset
+     *            The raw body start in the buffer.
+     * @param length
+     *            The raw body length.
+     * @since 0.2.0
+     */
+    public JmsPayload(byte[] buffer, int offset, int length) {
+        this.body = buffer;
+        this.bodyOffset = offset;
+        this.bodyLength = length;
     }
 
     /**
-     * Gets the raw body set for this {@link JmsPayload}.
+     * Gets the raw body set for this {@link JmsPayload}.<br>
+     * If this {@link JmsPayload} is a view of a larger buffer, the body range is copied: use {@link #getBodyBuffer()}, {@link #getBodyOffset()} and {@link #getBodyLength()} to avoid the copy.
      * 
      * @return The raw body set for this {@link JmsPayload}.
      * @since 1.0.0
      */
     public byte[] getBody() {
-        return body;
+        if (body == null || (bodyOffset == 0 && bodyLength == body.length)) {
+            return body;
+        }
+        return Arrays.copyOfRange(body, bodyOffset, bodyOffset + bodyLength);
     }
 
     /**
@@ -57,5 +86,37 @@ public class JmsPayload implements TransportPayload {
      */
     public void setBody(byte[] body) {
         this.body = body;
+        this.bodyOffset = 0;
+        this.bodyLength = body != null ? body.length : 0;
+    }
+
+    /**
+     * Gets the buffer containing the raw body (the body starts at {@link #getBodyOffset()} and is {@link #getBodyLength()} long).
+     * 
+     * @return The buffer containing the raw body.
+     * @since 0.2.0
+     */
+    public byte[] getBodyBuffer() {
+        return body;
+    }
+
+    /**
+     * Gets the raw body start in the {@link #getBodyBuffer()}.
+     * 
+     * @return The raw body start.
+     * @since 0.2.0
+     */
+    public int getBodyOffset() {
+        return bodyOffset;
+    }
+
+    /**
+     * Gets the raw body length.
+     * 
+     * @return The raw body length.
+     * @since 0.2.0
+     */
+    public int getBodyLength() {
+        return bodyLength;
     }
 }
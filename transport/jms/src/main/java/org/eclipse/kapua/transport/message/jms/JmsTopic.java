@@ -37,6 +37,13 @@ public class JmsTopic implements TransportChannel {
      */
     private String topic;
 
+    /**
+     * The topic tokens (split lazily and kept until the topic changes).
+     * 
+     * @since 1.0.0
+     */
+    private String[] splittedTopic;
+
     /**
      * Construct a {@link JmsTopic} with the given parameter
      * 
@@ -48,6 +55,20 @@ public class JmsTopic implements TransportChannel {
         setTopic(topic);
     }
 
+    /**
+     * Construct a {@link JmsTopic} with the given topic and its already split tokens, so the topic is not split again.
+     * 
+     * @param topic
+     *            The topic to set for this {@link JmsTopic}
+     * @param splittedTopic
+     *            The topic tokens split by the topic separator configured in {@link JmsClientSetting}.{@link JmsClientSettingKeys#TRANSPORT_TOPIC_SEPARATOR}
+     * @since 1.0.0
+     */
+    public JmsTopic(String topic, String[] splittedTopic) {
+        setTopic(topic);
+        this.splittedTopic = splittedTopic;
+    }
+
     /**
      * Construct a {@link JmsTopic} with the given parameters.
      * <p>
@@ -92,6 +113,7 @@ public class JmsTopic implements TransportChannel {
      */
     public void setTopic(String topic) {
         this.topic = topic;
+        this.splittedTopic = null;
     }
 
     /**
@@ -104,6 +126,9 @@ public class JmsTopic implements TransportChannel {
         if (topic == null) {
             return null;
         }
-        return topic.split("\\" + topicSeparator);
+        if (splittedTopic == null) {
+            splittedTopic = topic.split("\\" + topicSeparator);
+        }
+        return splittedTopic;
     }
 }
\ No newline at end of file
@@ -16,6 +16,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.kapua.KapuaErrorCodes;
 import org.eclipse.kapua.KapuaException;
@@ -23,6 +27,8 @@ import org.eclipse.kapua.transport.TransportFacade;
 import org.eclipse.kapua.transport.message.mqtt.MqttMessage;
 import org.eclipse.kapua.transport.message.mqtt.MqttPayload;
 import org.eclipse.kapua.transport.message.mqtt.MqttTopic;
+import org.eclipse.kapua.transport.mqtt.dispatcher.MqttDispatcherClient;
+import org.eclipse.kapua.transport.mqtt.dispatcher.MqttResponseDispatcher;
 import org.eclipse.kapua.transport.mqtt.pooling.MqttClientPool;
 
 /**
@@ -46,13 +52,28 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
      */
     private MqttClientCallback mqttClientCallback;
 
+    /**
+     * The shared client to use to make requests in the multiplexed request/response mode.
+     * 
+     * @since 1.0.0
+     */
+    private MqttDispatcherClient dispatcherClient;
+
     /**
      * Initialize a transport facade to be used to send requests to devices.
+     * <p>
+     * If the multiplexed request/response mode is enabled a shared {@link MqttDispatcherClient} is used, otherwise a client is borrowed from the {@link MqttClientPool}.
+     * </p>
      * 
      * @throws KapuaException
      *             When MQTT client is not available.
      */
     public MqttFacade() throws KapuaException {
+        if (MqttResponseDispatcher.isEnabled()) {
+            dispatcherClient = MqttResponseDispatcher.getInstance().nextClient();
+            return;
+        }
+
         //
         // Get the client form the pool
         try {
@@ -75,9 +96,66 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
         sendSync(mqttMessage, null);
     }
 
+    @Override
+    public CompletableFuture<MqttMessage> sendAsync(MqttMessage mqttMessage, Long timeout)
+            throws KapuaException {
+        if (dispatcherClient != null) {
+            try {
+                return dispatcherClient.request(mqttMessage, timeout);
+            } catch (KapuaException e) {
+                throw new MqttClientException(MqttClientErrorCodes.SEND_ERROR,
+                        e,
+                        mqttMessage.getRequestTopic().getTopic());
+            }
+        }
+
+        //
+        // The pooled client waits on the caller thread
+        CompletableFuture<MqttMessage> responseFuture = new CompletableFuture<>();
+        try {
+            responseFuture.complete(sendSync(mqttMessage, timeout));
+        } catch (KapuaException e) {
+            responseFuture.completeExceptionally(e);
+        }
+        return responseFuture;
+    }
+
     @Override
     public MqttMessage sendSync(MqttMessage mqttMessage, Long timeout)
             throws KapuaException {
+        if (dispatcherClient != null) {
+            CompletableFuture<MqttMessage> responseFuture = sendAsync(mqttMessage, timeout);
+            try {
+                if (timeout == null) {
+                    // no response expected: the future is already completed
+                    return responseFuture.get();
+                }
+                return responseFuture.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                MqttClientException timeoutException = new MqttClientException(MqttClientErrorCodes.CLIENT_TIMEOUT_EXCEPTION,
+                        null,
+                        new Object[] {
+                                mqttMessage.getRequestTopic()
+                        });
+                // release the pending request
+                responseFuture.completeExceptionally(timeoutException);
+                throw timeoutException;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof KapuaException) {
+                    throw (KapuaException) e.getCause();
+                }
+                throw new MqttClientException(MqttClientErrorCodes.SEND_ERROR,
+                        e.getCause(),
+                        mqttMessage.getRequestTopic().getTopic());
+            } catch (InterruptedException e) {
+                responseFuture.cancel(false);
+                Thread.currentThread().interrupt();
+                throw new MqttClientException(MqttClientErrorCodes.CLIENT_CALLBACK_ERROR,
+                        e,
+                        (Object[]) null);
+            }
+        }
+
         List<MqttMessage> responses = new ArrayList<>();
 
         sendInternal(mqttMessage, responses, timeout);
@@ -189,6 +267,9 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
 
     @Override
     public String getClientId() {
+        if (dispatcherClient != null) {
+            return dispatcherClient.getClientId();
+        }
         return borrowedClient.getClientId();
     }
 
@@ -199,6 +280,13 @@ public class MqttFacade implements TransportFacade<MqttTopic, MqttPayload, MqttM
 
     @Override
     public void clean() {
+        //
+        // The dispatcher client is shared and stays connected
+        if (dispatcherClient != null) {
+            dispatcherClient = null;
+            return;
+        }
+
         //
         // Return the client form the pool
         MqttClientPool.getInstance().returnObject(borrowedClient);
@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.transport.mqtt.dispatcher;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.transport.message.mqtt.MqttMessage;
+import org.eclipse.kapua.transport.message.mqtt.MqttPayload;
+import org.eclipse.kapua.transport.message.mqtt.MqttTopic;
+import org.eclipse.kapua.transport.mqtt.MqttClient;
+import org.eclipse.kapua.transport.mqtt.MqttClientErrorCodes;
+import org.eclipse.kapua.transport.mqtt.MqttClientException;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long-lived {@link MqttClient} used by the {@link MqttResponseDispatcher}.
+ * <p>
+ * The client subscribes once the wildcard reply topic of each request topic family and routes the received responses
+ * to the pending requests by response topic (which contains the request id).
+ * The responses are completed on the shared response executor, not on the client callback thread.
+ * </p>
+ *
+ * @since 1.0.0
+ */
+public class MqttDispatcherClient implements MqttCallback {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqttDispatcherClient.class);
+
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+
+    /**
+     * The wrapped client.
+     *
+     * @since 1.0.0
+     */
+    private final MqttClient mqttClient;
+
+    /**
+     * The shared scheduler for the request timeouts.
+     *
+     * @since 1.0.0
+     */
+    private final ScheduledExecutorService timeoutScheduler;
+
+    /**
+     * The shared executor completing the responses.
+     *
+     * @since 1.0.0
+     */
+    private final Executor responseExecutor;
+
+    /**
+     * The wildcard reply topics already subscribed.
+     *
+     * @since 1.0.0
+     */
+    private final Set<String> subscribedTopics = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The pending requests by response topic.
+     *
+     * @since 1.0.0
+     */
+    private final Map<String, CompletableFuture<MqttMessage>> pendingResponses = new ConcurrentHashMap<>();
+
+    /**
+     * Initialize the dispatcher client and set it as callback of the given connected {@link MqttClient}.
+     *
+     * @param mqttClient
+     *            The connected client.
+     * @param timeoutScheduler
+     *            The shared scheduler for the request timeouts.
+     * @param responseExecutor
+     *            The shared executor completing the responses (the response handling must not run on the client callback thread).
+     * @throws KapuaException
+     *             When the callback cannot be set.
+     * @since 1.0.0
+     */
+    public MqttDispatcherClient(MqttClient mqttClient, ScheduledExecutorService timeoutScheduler, Executor responseExecutor) throws KapuaException {
+        this.mqttClient = mqttClient;
+        this.timeoutScheduler = timeoutScheduler;
+        this.responseExecutor = responseExecutor;
+
+        mqttClient.setCallback(this);
+    }
+
+    /**
+     * Send the request message.
+     * <p>
+     * The returned future is completed with the response received on the response topic of the message,
+     * or exceptionally with a {@link MqttClientErrorCodes#CLIENT_TIMEOUT_EXCEPTION} if no response is received within the timeout.<br>
+     * If the message has no response topic or the timeout is {@code null} the request is fired without waiting for the response
+     * and the returned future is completed with {@code null}.
+     * </p>
+     *
+     * @param mqttMessage
+     *            The request to send.
+     * @param timeout
+     *            The timeout of waiting the response from the device.
+     * @return The future response.
+     * @throws KapuaException
+     *             When the subscribe or the publish fail.
+     * @since 1.0.0
+     */
+    public CompletableFuture<MqttMessage> request(MqttMessage mqttMessage, Long timeout)
+            throws KapuaException {
+        MqttTopic responseTopic = mqttMessage.getResponseTopic();
+        if (responseTopic == null || timeout == null) {
+            publish(mqttMessage);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        subscribe(responseTopic);
+
+        String responseTopicKey = responseTopic.getTopic();
+        CompletableFuture<MqttMessage> responseFuture = new CompletableFuture<>();
+        if (pendingResponses.putIfAbsent(responseTopicKey, responseFuture) != null) {
+            throw new MqttClientException(MqttClientErrorCodes.SEND_ERROR,
+                    null,
+                    new Object[] { responseTopicKey });
+        }
+
+        ScheduledFuture<?> timeoutTask = timeoutScheduler.schedule(() -> {
+            if (pendingResponses.remove(responseTopicKey, responseFuture)) {
+                responseFuture.completeExceptionally(new MqttClientException(MqttClientErrorCodes.CLIENT_TIMEOUT_EXCEPTION,
+                        null,
+                        new Object[] { mqttMessage.getRequestTopic() }));
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        // the future may also be completed by the caller (i.e. cancelled or timed out while waiting)
+        responseFuture.whenComplete((response, throwable) -> {
+            timeoutTask.cancel(false);
+            pendingResponses.remove(responseTopicKey, responseFuture);
+        });
+
+        try {
+            publish(mqttMessage);
+        } catch (KapuaException e) {
+            pendingResponses.remove(responseTopicKey, responseFuture);
+            responseFuture.completeExceptionally(e);
+            throw e;
+        }
+        return responseFuture;
+    }
+
+    /**
+     * Gets the client id of the wrapped client.
+     *
+     * @return The client id.
+     * @since 1.0.0
+     */
+    public String getClientId() {
+        return mqttClient.getClientId();
+    }
+
+    /**
+     * Checks if the wrapped client is connected.
+     *
+     * @return {@code true} if connected, {@code false} otherwise.
+     * @since 1.0.0
+     */
+    public boolean isConnected() {
+        return mqttClient.isConnected();
+    }
+
+    /**
+     * Terminates the wrapped client and fails the pending requests.
+     *
+     * @since 1.0.0
+     */
+    public void terminate() {
+        failPendingResponses(null);
+        try {
+            mqttClient.terminateClient();
+        } catch (KapuaException e) {
+            logger.warn("Cannot terminate the dispatcher client {}", getClientId(), e);
+        }
+    }
+
+    //
+    // MqttCallback
+    //
+    @Override
+    public void messageArrived(String stringTopic, org.eclipse.paho.client.mqttv3.MqttMessage message) {
+        CompletableFuture<MqttMessage> responseFuture = pendingResponses.remove(stringTopic);
+        if (responseFuture == null) {
+            logger.debug("Discarding the response on {}: no pending request (it may be timed out)", stringTopic);
+            return;
+        }
+
+        MqttMessage response = new MqttMessage(new MqttTopic(stringTopic),
+                new Date(),
+                new MqttPayload(message.getPayload()));
+
+        // the dependent actions of the future run on the completing thread: don't block the callback thread
+        responseExecutor.execute(() -> responseFuture.complete(response));
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        logger.warn("Dispatcher client {} lost the connection", getClientId(), cause);
+        subscribedTopics.clear();
+        failPendingResponses(cause);
+    }
+
+    //
+    // Private methods
+    //
+    private void subscribe(MqttTopic responseTopic)
+            throws KapuaException {
+        String[] topicParts = responseTopic.getSplittedTopic();
+        topicParts[topicParts.length - 1] = SINGLE_LEVEL_WILDCARD;
+        MqttTopic wildcardTopic = new MqttTopic(topicParts);
+
+        if (!subscribedTopics.contains(wildcardTopic.getTopic())) {
+            synchronized (subscribedTopics) {
+                if (!subscribedTopics.contains(wildcardTopic.getTopic())) {
+                    mqttClient.subscribe(wildcardTopic);
+                    subscribedTopics.add(wildcardTopic.getTopic());
+                }
+            }
+        }
+    }
+
+    private void publish(MqttMessage mqttMessage)
+            throws KapuaException {
+        try {
+            mqttClient.publish(mqttMessage);
+        } catch (KapuaException e) {
+            throw new MqttClientException(MqttClientErrorCodes.CLIENT_PUBLISH_ERROR,
+                    e,
+                    new Object[] { mqttMessage.getRequestTopic().getTopic(),
+                            mqttMessage.getPayload().getBody() });
+        }
+    }
+
+    private void failPendingResponses(Throwable cause) {
+        for (String responseTopicKey : pendingResponses.keySet()) {
+            CompletableFuture<MqttMessage> responseFuture = pendingResponses.remove(responseTopicKey);
+            if (responseFuture != null) {
+                responseFuture.completeExceptionally(new MqttClientException(MqttClientErrorCodes.CLIENT_CONNECTION_LOST,
+                        cause,
+                        (Object[]) null));
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *
+ *******************************************************************************/
+package org.eclipse.kapua.transport.mqtt.dispatcher;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kapua.KapuaErrorCodes;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.transport.mqtt.MqttClient;
+import org.eclipse.kapua.transport.mqtt.pooling.PooledMqttClientFactory;
+import org.eclipse.kapua.transport.mqtt.setting.MqttClientSetting;
+import org.eclipse.kapua.transport.mqtt.setting.MqttClientSettingKeys;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Multiplexed request/response dispatcher.
+ * <p>
+ * It holds a few long-lived {@link MqttDispatcherClient}s shared by all the requests, so a device request doesn't
+ * borrow a client, subscribe and unsubscribe the response topic and start a timer thread.<br>
+ * The request timeouts are handled by a single shared scheduler thread and the responses are completed by a shared executor,
+ * so the response handling (i.e. the translation) doesn't run on the client callback thread.
+ * </p>
+ *
+ * @since 1.0.0
+ */
+public class MqttResponseDispatcher {
+
+    private static MqttResponseDispatcher instance;
+
+    /**
+     * The dispatcher clients (replaced when disconnected).
+     *
+     * @since 1.0.0
+     */
+    private final MqttDispatcherClient[] dispatcherClients;
+
+    /**
+     * Round robin index of the next dispatcher client.
+     *
+     * @since 1.0.0
+     */
+    private final AtomicInteger nextDispatcherClient = new AtomicInteger();
+
+    /**
+     * Factory of the dispatcher clients.
+     *
+     * @since 1.0.0
+     */
+    private final PooledMqttClientFactory mqttClientFactory;
+
+    /**
+     * The shared scheduler for the request timeouts.
+     *
+     * @since 1.0.0
+     */
+    private final ScheduledThreadPoolExecutor timeoutScheduler;
+
+    /**
+     * The shared executor completing the responses.
+     *
+     * @since 1.0.0
+     */
+    private final ExecutorService responseExecutor;
+
+    private MqttResponseDispatcher() {
+        MqttClientSetting config = MqttClientSetting.getInstance();
+        dispatcherClients = new MqttDispatcherClient[Math.max(1, config.getInt(MqttClientSettingKeys.TRANSPORT_DISPATCHER_CLIENTS, 2))];
+        mqttClientFactory = new PooledMqttClientFactory(config.getString(MqttClientSettingKeys.TRANSPORT_DISPATCHER_CLIENT_ID_PREFIX, "KapuaDispatcher"));
+
+        timeoutScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setNameFormat(MqttResponseDispatcher.class.getSimpleName() + "-TimeoutTimer-%d")
+                .setDaemon(true)
+                .build());
+        // drop the cancelled timeouts (most of the requests are answered in time)
+        timeoutScheduler.setRemoveOnCancelPolicy(true);
+
+        responseExecutor = Executors.newFixedThreadPool(Math.max(1, config.getInt(MqttClientSettingKeys.TRANSPORT_DISPATCHER_RESPONSE_THREADS, 4)),
+                new ThreadFactoryBuilder()
+                        .setNameFormat(MqttResponseDispatcher.class.getSimpleName() + "-Response-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    /**
+     * Gets the dispatcher instance (singleton).
+     *
+     * @return The dispatcher instance.
+     * @since 1.0.0
+     */
+    public static synchronized MqttResponseDispatcher getInstance() {
+        if (instance == null) {
+            instance = new MqttResponseDispatcher();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks if the multiplexed request/response mode is enabled.
+     *
+     * @return {@code true} if enabled, {@code false} otherwise.
+     * @see MqttClientSettingKeys#TRANSPORT_DISPATCHER_ENABLE
+     * @since 1.0.0
+     */
+    public static boolean isEnabled() {
+        return MqttClientSetting.getInstance().getBoolean(MqttClientSettingKeys.TRANSPORT_DISPATCHER_ENABLE, false);
+    }
+
+    /**
+     * Gets the next connected dispatcher client (round robin).<br>
+     * A disconnected dispatcher client is terminated and replaced by a new one.
+     *
+     * @return The dispatcher client.
+     * @throws KapuaException
+     *             When a new client cannot be connected.
+     * @since 1.0.0
+     */
+    public MqttDispatcherClient nextClient()
+            throws KapuaException {
+        int index = Math.abs(nextDispatcherClient.getAndIncrement() % dispatcherClients.length);
+        MqttDispatcherClient dispatcherClient = dispatcherClients[index];
+        if (dispatcherClient != null && dispatcherClient.isConnected()) {
+            return dispatcherClient;
+        }
+
+        synchronized (dispatcherClients) {
+            dispatcherClient = dispatcherClients[index];
+            if (dispatcherClient == null || !dispatcherClient.isConnected()) {
+                if (dispatcherClient != null) {
+                    dispatcherClient.terminate();
+                }
+
+                MqttClient mqttClient;
+                try {
+                    mqttClient = mqttClientFactory.create();
+                } catch (KapuaException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new KapuaException(KapuaErrorCodes.INTERNAL_ERROR, e, (Object[]) null);
+                }
+                dispatcherClient = new MqttDispatcherClient(mqttClient, timeoutScheduler, responseExecutor);
+                dispatcherClients[index] = dispatcherClient;
+            }
+            return dispatcherClient;
+        }
+    }
+}
@@ -35,6 +35,33 @@ import org.eclipse.kapua.transport.utils.ClientIdGenerator;
  */
 public class PooledMqttClientFactory extends BasePooledObjectFactory<MqttClient> {
 
+    /**
+     * The client id prefix of the created clients.
+     * 
+     * @since 1.0.0
+     */
+    private final String clientIdPrefix;
+
+    /**
+     * Initialize the factory with the client id prefix configured for the {@link MqttClientPool}.
+     * 
+     * @since 1.0.0
+     */
+    public PooledMqttClientFactory() {
+        this(MqttClientPoolSetting.getInstance().getString(MqttClientPoolSettingKeys.CLIENT_POOL_CLIENT_ID_PREFIX));
+    }
+
+    /**
+     * Initialize the factory with the given client id prefix.
+     * 
+     * @param clientIdPrefix
+     *            The client id prefix of the created clients.
+     * @since 1.0.0
+     */
+    public PooledMqttClientFactory(String clientIdPrefix) {
+        this.clientIdPrefix = clientIdPrefix;
+    }
+
     /**
      * Creates the {@link MqttClient} for the {@link MqttClientPool}.
      * 
@@ -52,11 +79,10 @@ public class PooledMqttClientFactory extends BasePooledObjectFactory<MqttClient>
         //
         // User pwd generation
         MqttClientSetting mqttClientSettings = MqttClientSetting.getInstance();
-        MqttClientPoolSetting mqttClientPoolSettings = MqttClientPoolSetting.getInstance();
 
         String username = mqttClientSettings.getString(MqttClientSettingKeys.TRANSPORT_CREDENTIAL_USERNAME);
         char[] password = mqttClientSettings.getString(MqttClientSettingKeys.TRANSPORT_CREDENTIAL_PASSWORD).toCharArray();
-        String clientId = ClientIdGenerator.getInstance().next(mqttClientPoolSettings.getString(MqttClientPoolSettingKeys.CLIENT_POOL_CLIENT_ID_PREFIX));
+        String clientId = ClientIdGenerator.getInstance().next(clientIdPrefix);
         URI brokerURI = SystemUtils.getBrokerURI();
 
         //
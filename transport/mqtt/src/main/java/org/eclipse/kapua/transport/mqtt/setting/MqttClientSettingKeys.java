@@ -55,6 +55,37 @@ public enum MqttClientSettingKeys implements SettingKey {
      * @since 1.0.0
      */
     SEND_TIMEOUT_MAX("send.timeout.max"),
+
+    /**
+     * Enable the multiplexed request/response mode.<br>
+     * If enabled the requests are sent through a few long-lived clients which subscribe once a wildcard reply topic
+     * and route the responses to the waiting requests, instead of borrowing a pooled client for each request.
+     * 
+     * @since 1.0.0
+     */
+    TRANSPORT_DISPATCHER_ENABLE("transport.dispatcher.enable"),
+
+    /**
+     * The number of long-lived clients used in the multiplexed request/response mode.
+     * 
+     * @since 1.0.0
+     */
+    TRANSPORT_DISPATCHER_CLIENTS("transport.dispatcher.clients"),
+
+    /**
+     * The client id prefix of the long-lived clients used in the multiplexed request/response mode.
+     * 
+     * @since 1.0.0
+     */
+    TRANSPORT_DISPATCHER_CLIENT_ID_PREFIX("transport.dispatcher.client.id.prefix"),
+
+    /**
+     * The number of threads completing the responses in the multiplexed request/response mode
+     * (so the response handling doesn't run on the client callback thread).
+     * 
+     * @since 1.0.0
+     */
+    TRANSPORT_DISPATCHER_RESPONSE_THREADS("transport.dispatcher.response.threads"),
     ;
 
     /**